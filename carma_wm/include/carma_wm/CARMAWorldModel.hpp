@@ -31,7 +31,13 @@
 #include <lanelet2_extension/time/TimeConversion.h>
 #include "boost/date_time/posix_time/posix_time.hpp"
 #include "carma_wm/SignalizedIntersectionManager.hpp"
+#include "carma_wm/LaneletAdjacencyIndex.hpp"
+#include "carma_wm/ObstacleOccupancyIndex.hpp"
+#include "carma_wm/SignalPhaseIndex.hpp"
+#include "carma_wm/QueryResultCache.hpp"
 #include <rosgraph_msgs/msg/clock.hpp>
+#include <unordered_set>
+#include <algorithm>
 
 namespace carma_wm
 {
@@ -64,7 +70,7 @@ public:
    *
    *  \param map A shared pointer to the map which will share ownership to this object
    *  \param map_version Optional field to set the map version. While this is technically optional its uses is highly advised to manage synchronization.
-   *  \param recompute_routing_graph Optional field which if true will result in the routing graph being recomputed. NOTE: If this map is the first map set the graph will always be recomputed
+   *  \param recompute_routing_graph Optional field which if true will result in the routing graph being recomputed. NOTE: If this map is the first map set the graph will always be recomputed unless a graph was already provided with setRoutingGraph
    */
   void setMap(lanelet::LaneletMapPtr map, size_t map_version = 0, bool recompute_routing_graph = true);
 
@@ -82,6 +88,18 @@ public:
    */
   void setRoutingGraph(LaneletRoutingGraphPtr graph);
 
+  /*!
+   * \brief Update the routing graph to reflect changes made to a subset of the lanelets or areas in the current map.
+   *        This serves as an optimization over setMap(recompute_routing_graph=true) as only the vertices and edges
+   *        touching the changed lanelets are recomputed. If no routing graph is available yet the full graph is built.
+   *
+   * \param changed_ids The ids of the lanelets or areas which were added or had their regulations changed since the
+   *                    routing graph was last computed
+   *
+   * \throw std::invalid_argument if the map is not set or traffic rules cannot be constructed for the participant
+   */
+  void updateRoutingGraph(const std::unordered_set<lanelet::Id>& changed_ids);
+
   /*! \brief Set the current route. This route must match the current map for this class to function properly
    *
    *  \param route A shared pointer to the route which will share ownership to this object
@@ -100,6 +118,21 @@ public:
    */
   lanelet::LaneletMapPtr getMutableMap() const;
 
+  /*! \brief Creates a copy of this world model which shares no mutable state with it.
+   *         The lanelets, areas, and regulatory elements of the map are copied so that later edits to this model's map,
+   *         including SPaT timing, are not visible through the copy. Points, line strings, and polygons are never edited
+   *         in place so they are shared with the copy.
+   *         The routing graph is rebound onto the copied map instead of being rebuilt and the route is re-derived along
+   *         its shortest path.
+   *         Signal timing recorded on traffic signals by processSpatFromMsg is carried over to the copied signals and the
+   *         signal phases are shared with this model until either processes SPaT.
+   *
+   *  \throw std::invalid_argument if the current route cannot be reproduced on the copied map
+   *
+   *  \return A new world model equivalent to this one
+   */
+  std::shared_ptr<CARMAWorldModel> clone() const;
+
   /*! \brief Update internal records of roadway objects. These objects MUST be guaranteed to be on the road.
    *
    * These are detected by the sensor fusion node and are passed as objects compatible with lanelet
@@ -111,8 +144,19 @@ public:
    *
    * @param spat_msg Msg to update with
    * @param use_sim_time Boolean to indicate if it is currently simulation or not
+   *
+   * @return True if the timing of any traffic signal was changed
    */
-  void processSpatFromMsg(const carma_v2x_msgs::msg::SPAT& spat_msg, bool use_sim_time = false);
+  bool processSpatFromMsg(const carma_v2x_msgs::msg::SPAT& spat_msg, bool use_sim_time = false);
+
+  /*! \brief Replaces the signal phases returned by getSignalPhaseTimeline with those of another world model.
+   *         The phases are shared until either model processes SPaT, so this is cheap enough to publish every SPaT
+   *         change in a copy of a world model which shares its map with the previous copy.
+   *         NOTE: The timing recorded on the traffic signals of this model's map is left as is
+   *
+   *  \param other The world model to take the signal phases of
+   */
+  void shareSignalPhases(const CARMAWorldModel& other);
 
   /**
    * \brief This function is called by distanceToObjectBehindInLane or distanceToObjectAheadInLane.
@@ -235,6 +279,10 @@ public:
 
   std::vector<carma_perception_msgs::msg::RoadwayObstacle> getRoadwayObjects() const override;
 
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle>
+  getRoadwayObjectsOccupying(const lanelet::BoundingBox2d& region, const rclcpp::Time& start_time,
+                             const rclcpp::Time& end_time) const override;
+
   std::vector<carma_perception_msgs::msg::RoadwayObstacle> getInLaneObjects(const lanelet::ConstLanelet& lanelet, const LaneSection& section = LANE_AHEAD) const override;
 
   lanelet::Optional<lanelet::Lanelet> getIntersectingLanelet (const carma_perception_msgs::msg::ExternalObject& object) const override;
@@ -265,16 +313,48 @@ public:
 
   std::vector<lanelet::SignalizedIntersectionPtr> getSignalizedIntersectionsAlongRoute(const lanelet::BasicPoint2d &loc) const;
 
+  boost::optional<SignalPhaseTimeline> getSignalPhaseTimeline(uint16_t intersection_id, uint8_t signal_group_id) const override;
+
+  /*! \brief Returns the hit/miss counters of the result cache used by getLaneletsBetween.
+   *         The cache is cleared whenever the map or route changes.
+   */
+  QueryCacheStats getLaneletsBetweenCacheStats() const;
+
+  /*! \brief Returns the hit/miss counters of the result cache used by getLane.
+   *         The cache is cleared whenever the map or routing graph changes.
+   */
+  QueryCacheStats getLaneCacheStats() const;
+
+  /*! \brief Set the maximum number of results cached for each of getLaneletsBetween and getLane. 0 disables caching
+   *
+   *  \param capacity The maximum number of cached results per query
+   */
+  void setQueryCacheCapacity(size_t capacity);
+
   std::unordered_map<uint32_t, lanelet::Id> traffic_light_ids_;
 
   carma_wm::SignalizedIntersectionManager sim_; // records SPAT/MAP lane ids to lanelet ids
 
 private:
 
-  double config_speed_limit_;
+  double config_speed_limit_ = 0.0;
 
   std::string participant_type_ = lanelet::Participants::Vehicle;
 
+  std::shared_ptr<carma_wm::SignalPhaseIndex> spat_index_ = std::make_shared<carma_wm::SignalPhaseIndex>(); // phases last received through SPaT by intersection and signal group.
+                                                                                                           // Shared with copies of this model and copied before it is changed while shared
+
+  /*! \brief Returns the SPaT index for modification. It is copied first if it is shared with another world model
+   */
+  carma_wm::SignalPhaseIndex& mutableSpatIndex();
+
+  carma_wm::LaneletAdjacencyIndex adjacency_index_; // left and right neighbours of every lanelet in the map. Refreshed in setMap()
+
+  /*! \brief Helper function to get the offset in seconds between the ROS1 and simulation clocks which is applied to
+   *         SPaT timing. 0 outside of simulation or if either clock has not been received
+   */
+  double simulationTimeDifference(bool is_simulation) const;
+
   /*! \brief Helper function to compute the geometry of the route downtrack/crosstrack reference line
    *         This function should generally only be called from inside the setRoute function as it uses member variables
    * set in that function
@@ -284,6 +364,24 @@ private:
    */
   void computeDowntrackReferenceLine();
 
+  /*! \brief Helper function to compute the downtrack bounds of every lanelet in the route so that getLaneletsBetween
+   *         can be answered with a binary search instead of projecting every route lanelet onto the reference line.
+   *         This function should only be called from computeDowntrackReferenceLine once the reference line is available
+   *
+   *  Sets the route_lanelet_downtracks_, route_lanelet_end_downtracks_, max_route_lanelet_span_, and shortest_path_index_
+   *  member variables
+   */
+  void computeRouteLaneletDowntracks();
+
+  /*! \brief Helper function implementing getLaneletsBetween without the result cache. Inputs must already be validated
+   */
+  std::vector<lanelet::ConstLanelet> computeLaneletsBetween(double start, double end, bool shortest_path_only,
+                                                            bool bounds_inclusive) const;
+
+  /*! \brief Helper function implementing getLane without the result cache. Inputs must already be validated
+   */
+  std::vector<lanelet::ConstLanelet> computeLane(const lanelet::ConstLanelet& lanelet, const LaneSection& section) const;
+
   /*! \brief Helper function to perform a deep copy of a LineString and assign new ids to all the elements. Used during
    * route centerline construction
    *
@@ -293,6 +391,28 @@ private:
    */
   lanelet::LineString3d copyConstructLineString(const lanelet::ConstLineString3d& line) const;
 
+  /*! \brief Helper function to get the indexes into roadway_objects_ of the objects located in the provided lanelet
+   *
+   *  \param lanelet_id The id of the lanelet to get the objects of
+   *
+   *  \return The object indexes sorted by the object downtrack along the lanelet. Empty if there are no objects
+   */
+  const std::vector<size_t>& getRoadwayObjectIndices(lanelet::Id lanelet_id) const;
+
+  /*! \brief Helper function to get the indexes into roadway_objects_ of the objects in the provided lane.
+   *         An object is in the lane if it is located in one of the lane's lanelets or is located in an adjacent lanelet
+   *         while its footprint intersects the lane (lane changing)
+   *
+   *  \param lane The lanelets making up the lane sorted from the start of the lane
+   *
+   *  \return The object indexes in order of the lanelet they were associated with
+   */
+  std::vector<size_t> getInLaneObjectIndices(const std::vector<lanelet::ConstLanelet>& lane) const;
+
+  /*! \brief Helper function to get the lane changeable left and right neighbors of the provided lanelet
+   */
+  std::vector<lanelet::ConstLanelet> getAdjacentLanelets(const lanelet::ConstLanelet& lanelet) const;
+
   std::optional<rclcpp::Time> ros1_clock_ = std::nullopt;
   std::optional<rclcpp::Time> simulation_clock_ = std::nullopt;
 
@@ -300,14 +420,171 @@ private:
   LaneletRoutePtr route_;
   LaneletRoutingGraphPtr map_routing_graph_;
   double route_length_ = 0;
-  lanelet::LaneletSubmapConstUPtr shortest_path_view_;  // Map containing only lanelets along the shortest path of the
+  lanelet::LaneletSubmapConstPtr shortest_path_view_;  // Map containing only lanelets along the shortest path of the
                                                      // route
   std::vector<lanelet::LineString3d> shortest_path_centerlines_;  // List of disjoint centerlines seperated by lane
                                                                   // changes along the shortest path
   IndexedDistanceMap shortest_path_distance_map_;
-  lanelet::LaneletMapUPtr shortest_path_filtered_centerline_view_;  // Lanelet map view of shortest path center lines
+  lanelet::LaneletMapPtr shortest_path_filtered_centerline_view_;  // Lanelet map view of shortest path center lines
                                                                     // only
+  /*! \brief Downtrack of the start and end of a route lanelet's centerline along the route reference line
+   */
+  struct LaneletDowntrackBounds
+  {
+    lanelet::ConstLanelet lanelet;
+    double start_downtrack = 0;
+    double end_downtrack = 0;
+  };
+  std::vector<LaneletDowntrackBounds> route_lanelet_downtracks_; // Route lanelets sorted by start downtrack. Lanelets running against
+                                                                 // the route are excluded
+  std::vector<double> route_lanelet_end_downtracks_; // End downtracks of route_lanelet_downtracks_ in increasing order
+  double max_route_lanelet_span_ = 0; // Largest downtrack span of any lanelet in route_lanelet_downtracks_
+  std::unordered_map<lanelet::Id, size_t> shortest_path_index_; // Index of each shortest path lanelet along the shortest path
+
+  /*! \brief Regulatory elements of a single type along the route and the downtrack used to filter them by location.
+   *         Elements are kept in route order which matches downtrack order unless a stop line lies behind an earlier one
+   */
+  template <typename T>
+  struct DowntrackOrderedElements
+  {
+    std::vector<double> downtracks;
+    std::vector<T> elements;
+    bool sorted = true; // True if downtracks is non-decreasing so queries can use a binary search
+
+    void add(double downtrack, const T& element)
+    {
+      sorted = sorted && (downtracks.empty() || downtracks.back() <= downtrack);
+      downtracks.push_back(downtrack);
+      elements.push_back(element);
+    }
+
+    // Returns the elements at or beyond the provided downtrack in route order
+    std::vector<T> from(double downtrack) const
+    {
+      if (sorted)
+      {
+        auto first = std::lower_bound(downtracks.begin(), downtracks.end(), downtrack);
+        return std::vector<T>(elements.begin() + std::distance(downtracks.begin(), first), elements.end());
+      }
+
+      std::vector<T> result;
+      for (size_t i = 0; i < elements.size(); ++i)
+      {
+        if (downtracks[i] >= downtrack)
+          result.push_back(elements[i]);
+      }
+      return result;
+    }
+  };
+
+  /*! \brief Downtrack ordered regulatory elements of the route used to answer the along route queries
+   */
+  struct RouteRegulationIndex
+  {
+    bool valid = false;
+    size_t map_version = 0; // Map version the index was built for
+    DowntrackOrderedElements<lanelet::CarmaTrafficSignalPtr> signals;
+    DowntrackOrderedElements<lanelet::BusStopRulePtr> bus_stops;
+    DowntrackOrderedElements<std::shared_ptr<lanelet::AllWayStop>> intersections;
+    DowntrackOrderedElements<lanelet::SignalizedIntersectionPtr> signalized_intersections;
+  };
+  RouteRegulationIndex route_regulation_index_; // Rebuilt whenever the route or map is set
+
+  /*! \brief Helper function to find the traffic signals, bus stops, all way stops, and signalized intersections of every
+   *         lanelet along the shortest path along with their downtrack. The route and its reference line must be set
+   *
+   *  \throw lanelet::NoSuchPrimitiveError if a lanelet of the route is not in the current map
+   *
+   *  \return The index of the route's regulatory elements for the current map version
+   */
+  RouteRegulationIndex buildRouteRegulationIndex() const;
+
+  /*! \brief Helper function to rebuild route_regulation_index_ after the route or map changed.
+   *         The index is marked invalid if the route does not match the current map
+   */
+  void updateRouteRegulationIndex();
+
+  /*! \brief Key of a cached getLaneletsBetween result.
+   *
+   * Whether a route lanelet is in the result only depends on how the window bounds compare with the lanelet's downtrack
+   * bounds. The window is therefore keyed by the number of route lanelet bounds on either side of it, so every window
+   * falling between the same lanelet bounds shares one exact result
+   */
+  struct LaneletsBetweenKey
+  {
+    size_t map_version;
+    size_t route_version;
+    size_t starts_before_end;     // Lanelets starting before the end of the window
+    size_t ends_before_start;     // Lanelets ending before the start of the window
+    size_t starts_before_point;   // Lanelets starting before the point of a zero length window. 0 for other windows
+    size_t ends_before_point;     // Lanelets ending before the point of a zero length window. 0 for other windows
+    bool empty_window;            // True if the window is empty once the bounds tolerance is applied
+    bool point_window;            // True if start equals end
+    bool shortest_path_only;
+    bool bounds_inclusive;
+
+    bool operator==(const LaneletsBetweenKey& other) const
+    {
+      return map_version == other.map_version && route_version == other.route_version &&
+             starts_before_end == other.starts_before_end && ends_before_start == other.ends_before_start &&
+             starts_before_point == other.starts_before_point && ends_before_point == other.ends_before_point &&
+             empty_window == other.empty_window && point_window == other.point_window &&
+             shortest_path_only == other.shortest_path_only && bounds_inclusive == other.bounds_inclusive;
+    }
+  };
+
+  struct LaneletsBetweenKeyHash
+  {
+    size_t operator()(const LaneletsBetweenKey& key) const
+    {
+      size_t hash = std::hash<size_t>()(key.map_version);
+      hash = hash * 31 + std::hash<size_t>()(key.route_version);
+      hash = hash * 31 + std::hash<size_t>()(key.starts_before_end);
+      hash = hash * 31 + std::hash<size_t>()(key.ends_before_start);
+      hash = hash * 31 + std::hash<size_t>()(key.starts_before_point);
+      hash = hash * 31 + std::hash<size_t>()(key.ends_before_point);
+      return hash * 16 + (key.empty_window ? 8 : 0) + (key.point_window ? 4 : 0) + (key.shortest_path_only ? 2 : 0) +
+             (key.bounds_inclusive ? 1 : 0);
+    }
+  };
+
+  /*! \brief Helper function to build the cache key of a validated getLaneletsBetween window
+   */
+  LaneletsBetweenKey laneletsBetweenKey(double start, double end, bool shortest_path_only, bool bounds_inclusive) const;
+
+  /*! \brief Key of a cached getLane result
+   */
+  struct LaneKey
+  {
+    size_t map_version;
+    lanelet::Id lanelet_id;
+    LaneSection section;
+
+    bool operator==(const LaneKey& other) const
+    {
+      return map_version == other.map_version && lanelet_id == other.lanelet_id && section == other.section;
+    }
+  };
+
+  struct LaneKeyHash
+  {
+    size_t operator()(const LaneKey& key) const
+    {
+      size_t hash = std::hash<size_t>()(key.map_version);
+      hash = hash * 31 + std::hash<lanelet::Id>()(key.lanelet_id);
+      return hash * 31 + std::hash<int>()(static_cast<int>(key.section));
+    }
+  };
+
+  size_t route_version_ = 0; // Incremented on every call to setRoute() so cached results of a previous route are never used
+  mutable QueryResultCache<LaneletsBetweenKey, std::vector<lanelet::ConstLanelet>, LaneletsBetweenKeyHash> lanelets_between_cache_;
+  mutable QueryResultCache<LaneKey, std::vector<lanelet::ConstLanelet>, LaneKeyHash> lane_cache_;
+
   std::vector<carma_perception_msgs::msg::RoadwayObstacle> roadway_objects_; //
+  std::unordered_map<lanelet::Id, std::vector<size_t>> roadway_objects_lanelet_index_; // Indexes of roadway_objects_ bucketed by lanelet id
+                                                                                      // and sorted by downtrack. Rebuilt in setRoadwayObjects()
+  ObstacleOccupancyIndex roadway_objects_occupancy_index_; // Current poses and predictions of roadway_objects_ bucketed in
+                                                           // space and time. Rebuilt in setRoadwayObjects()
 
   size_t map_version_ = 0; // The current map version. This is cached from calls to setMap();
 
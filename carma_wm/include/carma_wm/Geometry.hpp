@@ -123,6 +123,42 @@ std::vector<double> local_curvatures(const std::vector<lanelet::BasicPoint2d>& c
  */
 std::vector<double> local_curvatures(const std::vector<lanelet::ConstLanelet>& lanelets);
 
+/**
+ * \brief Allocation free overload of local_curvatures which writes the curvatures into the provided buffer.
+ *        The buffer is resized to match the number of input points so no memory is allocated when the buffer is reused
+ *        with sufficient capacity. Intermediate tangents and arc lengths are computed in a single pass over the points
+ *        instead of being stored in temporary vectors.
+ *
+ * \param centerline_points The list of points to compute curvatures for
+ * \param curvatures Output buffer which will contain the curvature at each point
+ *
+ * \throw std::invalid_argument If centerline_points is empty
+ */
+void local_curvatures(const lanelet::BasicLineString2d& centerline_points, std::vector<double>& curvatures);
+
+void local_curvatures(const std::vector<lanelet::BasicPoint2d>& centerline_points, std::vector<double>& curvatures);
+
+/**
+ * \brief Computes the result of local_curvatures, compute_tangent_orientations, and compute_arc_lengths in a single pass
+ *        over the provided points. This is the common chain used when building trajectories from a centerline.
+ *        Each output buffer is resized to match the number of input points so no memory is allocated when the buffers
+ *        are reused with sufficient capacity.
+ *
+ * \param centerline_points The list of points to compute values for
+ * \param curvatures Output buffer which will contain the curvature at each point
+ * \param orientations Output buffer which will contain the tangent orientation at each point in radians
+ * \param arc_lengths Output buffer which will contain the arc length at each point
+ *
+ * \throw std::invalid_argument If centerline_points is empty
+ */
+void compute_curvatures_orientations_arc_lengths(const lanelet::BasicLineString2d& centerline_points,
+                                                 std::vector<double>& curvatures, std::vector<double>& orientations,
+                                                 std::vector<double>& arc_lengths);
+
+void compute_curvatures_orientations_arc_lengths(const std::vector<lanelet::BasicPoint2d>& centerline_points,
+                                                 std::vector<double>& curvatures, std::vector<double>& orientations,
+                                                 std::vector<double>& arc_lengths);
+
 /*!
  * \brief Helper function to concatenate 2 linestrings together and return the result. Neither LineString is modified in
  * this function.
@@ -160,6 +196,16 @@ std::vector<Eigen::Vector2d> compute_finite_differences(const std::vector<lanele
  */
 std::vector<double> compute_finite_differences(const std::vector<double>& data);
 
+/*!
+ * \brief Allocation free overload of compute_finite_differences which writes the derivatives into the provided buffer.
+ *        The buffer is resized to match the input size so no memory is allocated when it is reused with sufficient
+ *        capacity.
+ *
+ * \param data The data to differentiate over
+ * \param out Output buffer which will contain the point-by-point derivatives in the same indices as the input data
+ */
+void compute_finite_differences(const std::vector<double>& data, std::vector<double>& out);
+
 /*!
  * \brief Use finite differences methods to compute the derivative of the input data set with respect to the second
  * paramter.
@@ -185,6 +231,15 @@ std::vector<double> compute_arc_lengths(const std::vector<lanelet::BasicPoint2d>
  */
 std::vector<double> compute_arc_lengths(const lanelet::BasicLineString2d& data);
 
+/*!
+ * \brief Allocation free overload of compute_arc_lengths which writes the arc lengths into the provided buffer.
+ *        The buffer is resized to match the input size so no memory is allocated when it is reused with sufficient
+ *        capacity.
+ */
+void compute_arc_lengths(const std::vector<lanelet::BasicPoint2d>& data, std::vector<double>& out);
+
+void compute_arc_lengths(const lanelet::BasicLineString2d& data, std::vector<double>& out);
+
 /*!
  * \brief Compute the Euclidean distance between the two points
  */
@@ -302,6 +357,19 @@ std::vector<double> compute_tangent_orientations(const lanelet::BasicLineString2
 
 std::vector<double> compute_tangent_orientations(const std::vector<lanelet::BasicPoint2d>& centerline);
 
+/**
+ * \brief Allocation free overload of compute_tangent_orientations which writes the orientations into the provided
+ *        buffer. The buffer is resized to match the input size so no memory is allocated when it is reused with
+ *        sufficient capacity.
+ *
+ * \param centerline centerline to compute the orientation for
+ * \param orientations Output buffer which will contain the yaw value in radians at each point
+ */
+void compute_tangent_orientations(const lanelet::BasicLineString2d& centerline, std::vector<double>& orientations);
+
+void compute_tangent_orientations(const std::vector<lanelet::BasicPoint2d>& centerline,
+                                  std::vector<double>& orientations);
+
 /**
  * \brief Builds a 2D Eigen coordinate frame transform with not applied scaling (only translation and rotation)
  *        based on the provided position and rotation parameters
@@ -365,6 +433,18 @@ double circular_arc_curvature(const lanelet::BasicPoint2d& cur_point, const lane
  */
 std::vector<double> local_circular_arc_curvatures(const std::vector<lanelet::BasicPoint2d>& points, int lookahead);
 
+/**
+ * \brief Allocation free overload of local_circular_arc_curvatures which writes the curvatures into the provided buffer.
+ *        The buffer is resized to match the input size so no memory is allocated when it is reused with sufficient
+ *        capacity.
+ *
+ * \param points The points to compute the curvature for
+ * \param lookahead The lookahead index distance to use for computing the curvature at each point
+ * \param curvatures Output buffer which will contain the computed curvatures
+ */
+void local_circular_arc_curvatures(const std::vector<lanelet::BasicPoint2d>& points, int lookahead,
+                                   std::vector<double>& curvatures);
+
 }  // namespace geometry
 
 }  // namespace carma_wm
\ No newline at end of file
@@ -0,0 +1,87 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <vector>
+#include <unordered_map>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_core/primitives/BoundingBox.h>
+
+namespace carma_wm
+{
+/*!
+ * \brief Precomputed table of the lanelets lying to the left and right of every lanelet in a map.
+ *        NOTE: This structure is used internally in the world model and is not intended for use by WorldModel users.
+ *
+ * Neighbours are found geometrically so they include lanelets which do not share a bound with the lanelet such as the
+ * opposing lane of a two lane road, as well as routable neighbours. For each side the table holds every lanelet which
+ * intersects the region covered by mirroring the lanelet across the points of that side's bound. This is the region
+ * searched by query::nonConnectedAdjacentLeft so the table is a superset of any lanelet that query can return.
+ *
+ * Only lanelet ids are stored so the table remains valid for a copy of the map which preserves ids.
+ */
+class LaneletAdjacencyIndex
+{
+public:
+  /*!
+   * \brief Rebuilds the table for every lanelet of the provided map
+   */
+  void build(const lanelet::LaneletMapConstPtr& map);
+
+  /*!
+   * \brief Updates the table after lanelets were added to or removed from the map it was built for.
+   *        Only the added lanelets and the lanelets whose neighbourhood contains them are recomputed.
+   *        The geometry of lanelets which were already indexed is assumed to be unchanged.
+   *
+   * \param map The map which already contains the changes
+   *
+   * \return The number of lanelets which were added or removed from the table
+   */
+  size_t update(const lanelet::LaneletMapConstPtr& map);
+
+  /*!
+   * \brief Returns the ids of the lanelets lying to the left of the provided lanelet. nullptr if it is not indexed
+   */
+  const std::vector<lanelet::Id>* getLeftNeighbours(lanelet::Id lanelet_id) const;
+
+  /*!
+   * \brief Returns the ids of the lanelets lying to the right of the provided lanelet. nullptr if it is not indexed
+   */
+  const std::vector<lanelet::Id>* getRightNeighbours(lanelet::Id lanelet_id) const;
+
+  /*!
+   * \brief Number of lanelets in the table
+   */
+  size_t size() const;
+
+  void clear();
+
+private:
+  struct Entry
+  {
+    lanelet::BoundingBox2d left_region;
+    lanelet::BoundingBox2d right_region;
+    std::vector<lanelet::Id> left;
+    std::vector<lanelet::Id> right;
+  };
+
+  Entry buildEntry(const lanelet::LaneletMapConstPtr& map, const lanelet::ConstLanelet& lanelet) const;
+
+  std::unordered_map<lanelet::Id, Entry> entries_;
+};
+
+}  // namespace carma_wm
@@ -0,0 +1,111 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <vector>
+#include <unordered_set>
+#include <boost/geometry.hpp>
+#include <boost/geometry/index/rtree.hpp>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_core/primitives/Polygon.h>
+
+namespace carma_wm
+{
+/*!
+ * \brief R-tree over the 2d polygons of the lanelets and areas of a map for point-in-polygon classification.
+ *
+ * The polygons are computed once when a primitive is indexed so each query only tests the polygons whose bounding box
+ * contains the point. A point on the edge of a polygon is considered to be inside of it. The inner bounds of areas are
+ * not considered.
+ *
+ * The index holds the primitives themselves so it remains valid for primitives added to the map after it was built
+ * until update() is called. Primitives are assumed to keep their geometry once added to the map.
+ */
+class LaneletPolygonIndex
+{
+public:
+  // Minimum number of points given to each thread by the batched queries
+  static constexpr size_t PARALLEL_MIN_POINTS = 64;
+
+  /*!
+   * \brief Rebuilds the index for every lanelet and area of the provided map
+   */
+  void build(const lanelet::LaneletMapPtr& map);
+
+  /*!
+   * \brief Brings the index up to date with the provided map. If it is not the map the index was built for the index is
+   *        rebuilt. Otherwise only the lanelets and areas added since the last build or update are indexed.
+   *
+   * \return The number of newly indexed primitives
+   */
+  size_t update(const lanelet::LaneletMapPtr& map);
+
+  /*!
+   * \brief Returns the lanelets containing the provided point
+   */
+  lanelet::Lanelets getContainingLanelets(const lanelet::BasicPoint2d& point) const;
+
+  /*!
+   * \brief Returns the lanelets containing each of the provided points. Large batches are evaluated in parallel.
+   *
+   * \param points The points to classify
+   * \param num_threads Maximum number of threads to use. 0 uses the hardware concurrency
+   *
+   * \return The lanelets containing each point in the order of the points
+   */
+  std::vector<lanelet::Lanelets> getContainingLanelets(const lanelet::BasicPoints2d& points, size_t num_threads = 0) const;
+
+  /*!
+   * \brief Returns the areas containing the provided point
+   */
+  lanelet::Areas getContainingAreas(const lanelet::BasicPoint2d& point) const;
+
+  /*!
+   * \brief Number of indexed lanelets and areas
+   */
+  size_t size() const;
+
+  void clear();
+
+private:
+  using IndexPoint = boost::geometry::model::point<double, 2, boost::geometry::cs::cartesian>;
+  using IndexBox = boost::geometry::model::box<IndexPoint>;
+  using IndexValue = std::pair<IndexBox, size_t>;  // Position in the matching vector of indexed primitives
+  using RTree = boost::geometry::index::rtree<IndexValue, boost::geometry::index::quadratic<16>>;
+
+  template <typename PrimitiveT>
+  struct Entry
+  {
+    lanelet::BasicPolygon2d polygon;
+    PrimitiveT primitive;
+  };
+
+  static IndexBox boundingBox(const lanelet::BasicPolygon2d& polygon);
+
+  template <typename PrimitiveT>
+  static std::vector<PrimitiveT> query(const RTree& rtree, const std::vector<Entry<PrimitiveT>>& entries,
+                                       const lanelet::BasicPoint2d& point);
+
+  const lanelet::LaneletMap* map_ = nullptr;  // The map the index was built for. Only used for identity
+  std::vector<Entry<lanelet::Lanelet>> lanelets_;
+  std::vector<Entry<lanelet::Area>> areas_;
+  std::unordered_set<lanelet::Id> indexed_ids_;
+  RTree lanelet_rtree_;
+  RTree area_rtree_;
+};
+
+}  // namespace carma_wm
@@ -56,11 +56,17 @@ namespace MapConformer
  * CarmaUSTrafficRules supports the existing SpeedLimit definition and allows DigitalSpeedLimits to be overlayed on
  * that.
  *
+ * The regulations each lanelet needs are computed in parallel as this only reads the map. The regulatory elements are
+ * then created and added to the map in lanelet order so the resulting map (including the new ids) is the same
+ * regardless of the number of threads used.
+ *
  * @param map A pointer to the map which will be modified in place
  * 
  * @param config_limit A value corresponding to the configurable speed limit value
+ *
+ * @param num_threads The number of threads used to evaluate the lanelets. 0 will use the hardware concurrency
  */
-void ensureCompliance(lanelet::LaneletMapPtr map, lanelet::Velocity config_limit=80_mph);
+void ensureCompliance(lanelet::LaneletMapPtr map, lanelet::Velocity config_limit=80_mph, size_t num_threads=0);
 
 
 }  // namespace MapConformer
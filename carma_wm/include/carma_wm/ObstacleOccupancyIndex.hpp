@@ -0,0 +1,131 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <cstdint>
+#include <vector>
+#include <unordered_map>
+#include <lanelet2_core/primitives/BoundingBox.h>
+#include <carma_perception_msgs/msg/roadway_obstacle.hpp>
+
+namespace carma_wm
+{
+/*!
+ * \brief Spatio-temporal index of the space occupied by a set of roadway obstacles over time.
+ *        NOTE: This structure is used internally in the world model and is not intended for use by WorldModel users.
+ *
+ * Every obstacle contributes one sample for its current pose and one for each of its predictions. A sample is a circle
+ * centered on the position of the obstacle, with a radius covering its footprint, at the time of the pose or prediction.
+ * Samples are bucketed in a hashed grid of (x, y, t) cells so a query only evaluates the samples of the cells it overlaps.
+ * Samples covering more than MAX_SAMPLE_CELL_SPAN cells along an axis are kept out of the grid and evaluated by every
+ * query. Samples and queries with non-finite values are ignored.
+ *
+ * Times are stored as seconds from the stamps of the obstacle messages so queries must use the same time source.
+ */
+class ObstacleOccupancyIndex
+{
+public:
+  static constexpr double DEFAULT_CELL_SIZE = 5.0;  // m
+  static constexpr double DEFAULT_TIME_STEP = 1.0;  // s
+  static constexpr int64_t MAX_SAMPLE_CELL_SPAN = 16;  // Cells along one axis a sample may cover to be added to the grid
+
+  /*!
+   * \brief Constructor
+   *
+   * \param cell_size The side length in meters of the spatial cells. Must be positive
+   * \param time_step The duration in seconds of the temporal cells. Must be positive
+   *
+   * \throw std::invalid_argument if either resolution is not positive
+   */
+  ObstacleOccupancyIndex(double cell_size = DEFAULT_CELL_SIZE, double time_step = DEFAULT_TIME_STEP);
+
+  /*!
+   * \brief Rebuilds the index from the provided obstacles. The indexes returned by queries are positions in this vector
+   */
+  void build(const std::vector<carma_perception_msgs::msg::RoadwayObstacle>& obstacles);
+
+  /*!
+   * \brief Returns the indexes of the obstacles occupying part of the provided region at any sampled time within the
+   *        provided window. Indexes are unique and sorted in increasing order.
+   *
+   * \param region The region of interest in the map frame
+   * \param start_time The start of the time window in seconds. Inclusive
+   * \param end_time The end of the time window in seconds. Inclusive
+   *
+   * \return Indexes of the obstacles provided to build(). Empty if the window is empty, any argument is not finite or no
+   *         obstacle occupies the region
+   */
+  std::vector<size_t> query(const lanelet::BoundingBox2d& region, double start_time, double end_time) const;
+
+  /*!
+   * \brief Number of samples in the index
+   */
+  size_t size() const;
+
+  void clear();
+
+private:
+  struct Sample
+  {
+    double x;
+    double y;
+    double t;
+    double radius;
+    size_t obstacle;
+  };
+
+  struct CellKey
+  {
+    int64_t x;
+    int64_t y;
+    int64_t t;
+
+    bool operator==(const CellKey& other) const
+    {
+      return x == other.x && y == other.y && t == other.t;
+    }
+  };
+
+  struct CellKeyHash
+  {
+    size_t operator()(const CellKey& key) const
+    {
+      size_t seed = std::hash<int64_t>()(key.x);
+      seed ^= std::hash<int64_t>()(key.y) + 0x9e3779b9 + (seed << 6) + (seed >> 2);
+      seed ^= std::hash<int64_t>()(key.t) + 0x9e3779b9 + (seed << 6) + (seed >> 2);
+      return seed;
+    }
+  };
+
+  void addSample(double x, double y, double t, double radius, size_t obstacle);
+
+  bool occupies(const Sample& sample, const lanelet::BoundingBox2d& region, double start_time, double end_time) const;
+
+  int64_t spatialCell(double value) const;
+
+  int64_t temporalCell(double value) const;
+
+  double cell_size_;
+  double time_step_;
+  size_t num_obstacles_ = 0;
+  std::vector<Sample> samples_;
+  std::unordered_map<CellKey, std::vector<size_t>, CellKeyHash> cells_;  // Indexes into samples_ of the samples
+                                                                          // overlapping each cell
+  std::vector<size_t> oversized_samples_;  // Indexes into samples_ of the samples too large to be added to cells_
+};
+
+}  // namespace carma_wm
@@ -0,0 +1,174 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <cstdint>
+#include <list>
+#include <mutex>
+#include <utility>
+#include <unordered_map>
+#include <boost/optional.hpp>
+
+namespace carma_wm
+{
+/*!
+ * \brief Counters describing the effectiveness of a QueryResultCache
+ */
+struct QueryCacheStats
+{
+  uint64_t hits = 0;
+  uint64_t misses = 0;
+  size_t size = 0;      // Number of results currently cached
+  size_t capacity = 0;  // Maximum number of results which will be cached. 0 if caching is disabled
+};
+
+/*!
+ * \brief Bounded least recently used cache of world model query results.
+ *        NOTE: This structure is used internally in the world model and is not intended for use by WorldModel users.
+ *
+ * As the world model queries are const and may be called from multiple executor threads all operations are guarded by
+ * an internal mutex. Copies of the cache start empty since the cached results reference the primitives of the map
+ * owned by the original world model.
+ */
+template <typename Key, typename Value, typename Hash = std::hash<Key>>
+class QueryResultCache
+{
+public:
+  static constexpr size_t DEFAULT_CAPACITY = 128;
+
+  explicit QueryResultCache(size_t capacity = DEFAULT_CAPACITY) : capacity_(capacity)
+  {
+  }
+
+  QueryResultCache(const QueryResultCache& other) : capacity_(other.capacity())
+  {
+  }
+
+  QueryResultCache& operator=(const QueryResultCache& other)
+  {
+    if (this != &other)
+    {
+      setCapacity(other.capacity());
+      clear();
+    }
+    return *this;
+  }
+
+  /*!
+   * \brief Returns the cached result for the provided key and marks it as most recently used
+   *
+   * \return The cached result or boost::none if the key is not cached
+   */
+  boost::optional<Value> get(const Key& key)
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+
+    auto entry = index_.find(key);
+    if (entry == index_.end())
+    {
+      misses_++;
+      return boost::none;
+    }
+
+    hits_++;
+    entries_.splice(entries_.begin(), entries_, entry->second);
+    return entry->second->second;
+  }
+
+  /*!
+   * \brief Adds a result to the cache evicting the least recently used result if the cache is full
+   */
+  void put(const Key& key, const Value& value)
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+
+    if (capacity_ == 0)
+    {
+      return;
+    }
+
+    auto entry = index_.find(key);
+    if (entry != index_.end())
+    {
+      entry->second->second = value;
+      entries_.splice(entries_.begin(), entries_, entry->second);
+      return;
+    }
+
+    entries_.emplace_front(key, value);
+    index_[key] = entries_.begin();
+    evict();
+  }
+
+  /*!
+   * \brief Removes all cached results. The hit and miss counters are preserved
+   */
+  void clear()
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+    entries_.clear();
+    index_.clear();
+  }
+
+  /*!
+   * \brief Sets the maximum number of cached results. A capacity of 0 disables the cache
+   */
+  void setCapacity(size_t capacity)
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+    capacity_ = capacity;
+    evict();
+  }
+
+  size_t capacity() const
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+    return capacity_;
+  }
+
+  QueryCacheStats stats() const
+  {
+    std::lock_guard<std::mutex> lock(mutex_);
+
+    QueryCacheStats stats;
+    stats.hits = hits_;
+    stats.misses = misses_;
+    stats.size = entries_.size();
+    stats.capacity = capacity_;
+    return stats;
+  }
+
+private:
+  // Must be called while holding mutex_
+  void evict()
+  {
+    while (entries_.size() > capacity_)
+    {
+      index_.erase(entries_.back().first);
+      entries_.pop_back();
+    }
+  }
+
+  mutable std::mutex mutex_;
+  size_t capacity_;
+  std::list<std::pair<Key, Value>> entries_;  // Most recently used first
+  std::unordered_map<Key, typename std::list<std::pair<Key, Value>>::iterator, Hash> index_;
+  uint64_t hits_ = 0;
+  uint64_t misses_ = 0;
+};
+
+}  // namespace carma_wm
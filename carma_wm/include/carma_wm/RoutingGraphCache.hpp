@@ -0,0 +1,114 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <string>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_routing/RoutingGraph.h>
+#include <autoware_lanelet2_msgs/msg/map_bin.hpp>
+#include "carma_wm/WorldModel.hpp"
+
+namespace carma_wm
+{
+/*!
+ * \brief On-disk cache of routing graphs keyed by the content of the map they were built for.
+ *
+ * Building the routing graph dominates startup time on large maps and every node using carma_wm builds the same graph
+ * for the same map bytes. Graphs are stored as flat vertex and edge records which are memory mapped when loaded so a
+ * cached graph can be restored without recomputing any routing relations.
+ * Each file also records how long the graph took to build which is used to report the time saved by a cache hit.
+ *
+ * Files are written to a temporary path and renamed into place so concurrent readers never see a partial file.
+ * A file which fails validation, such as one with duplicate vertex ids, or references primitives missing from the map is
+ * treated as a miss.
+ *
+ * ASSUMPTION: Like RoutingGraphUpdater this class relies on the non-public implementation API of lanelet2 (v1.1.1).
+ */
+class RoutingGraphCache
+{
+public:
+  // Incremented whenever the file layout changes. Part of every key so stale files are never read
+  static constexpr uint32_t FORMAT_VERSION = 1;
+
+  struct Stats
+  {
+    size_t hits = 0;
+    size_t misses = 0;
+    size_t stores = 0;
+    double time_saved = 0;       // Total seconds saved by cache hits compared to building the graph
+    double last_time_saved = 0;  // Seconds saved by the most recent cache hit
+  };
+
+  /*!
+   * \brief Constructor
+   *
+   * \param directory The directory to store cached graphs in. Created on the first store if it does not exist
+   */
+  explicit RoutingGraphCache(const std::string& directory);
+
+  /*!
+   * \brief Computes the cache key of the routing graph for the provided map message.
+   *        The key only depends on the serialized map bytes, the traffic rules configuration and the cache format so the
+   *        map version and routing graph fields of the message are ignored.
+   *
+   * \param map_msg The binary map message the graph is built for
+   * \param participant The participant the graph is built for
+   * \param config_speed_limit The configured speed limit of the traffic rules the graph is built with. It caps the
+   *        lanelet speed limits used for routing costs so graphs built with different limits are not interchangeable
+   *
+   * \return The cache key
+   */
+  static uint64_t computeKey(const autoware_lanelet2_msgs::msg::MapBin& map_msg, const std::string& participant,
+                             double config_speed_limit);
+
+  /*!
+   * \brief Loads the cached routing graph for the provided key
+   *
+   * \param key The key returned by computeKey
+   * \param map The map deserialized from the message the key was computed for. The loaded graph references its primitives
+   *
+   * \return The cached routing graph or nullptr on a cache miss
+   */
+  LaneletRoutingGraphPtr load(uint64_t key, const lanelet::LaneletMapPtr& map);
+
+  /*!
+   * \brief Stores the provided routing graph under the provided key. Failures are logged and otherwise ignored
+   *
+   * \param key The key returned by computeKey
+   * \param graph The graph to store
+   * \param build_time The time in seconds it took to build the graph
+   *
+   * \return True if the graph was stored
+   */
+  bool store(uint64_t key, const lanelet::routing::RoutingGraph& graph, double build_time);
+
+  /*!
+   * \brief Returns the path of the file the graph for the provided key is stored in
+   */
+  std::string getPath(uint64_t key) const;
+
+  /*!
+   * \brief Returns the hit/miss counts and time saved by this cache
+   */
+  Stats getStats() const;
+
+private:
+  std::string directory_;
+  Stats stats_;
+};
+
+}  // namespace carma_wm
@@ -0,0 +1,80 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <unordered_set>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_routing/RoutingGraph.h>
+#include <lanelet2_traffic_rules/TrafficRules.h>
+#include "carma_wm/WorldModel.hpp"
+#include "carma_wm/TrafficControl.hpp"
+
+namespace carma_wm
+{
+namespace routing_graph
+{
+/*!
+ * \brief Returns the ids of all lanelets or areas whose routing graph vertices or edges may be changed by the provided
+ *        map update. This includes every lanelet added by the update as well as every lanelet which had a regulatory
+ *        element added or removed.
+ *
+ * \param gf The map update which has been (or will be) applied to the map
+ *
+ * \return The set of affected lanelet or area ids
+ */
+std::unordered_set<lanelet::Id> getAffectedLaneletOrAreaIds(const carma_wm::TrafficControl& gf);
+
+/*!
+ * \brief Builds a new routing graph by patching only the vertices and edges belonging to the provided changed lanelets
+ *        instead of rebuilding the graph for the full map.
+ *
+ * A local graph is built over the changed lanelets/areas and every lanelet/area whose bounding box intersects them.
+ * As all lanelet2 relations (successor, left/right, adjacent, conflicting, area) are only possible between primitives
+ * which touch or overlap, this local graph contains every edge which may have been modified by the update.
+ * Edges between two unchanged primitives are copied from the provided graph while all edges involving a changed
+ * primitive are taken from the local graph.
+ *
+ * ASSUMPTION: Like the RoutingGraphAccessor in carma_wm_ctrl this function relies on the non-public implementation API
+ *             of lanelet2 (v1.1.1). Any change to the underlying data structures may impact its ability to compile.
+ *
+ * \param graph The routing graph which was valid for the map before the changes were applied
+ * \param map The map which already contains the changes
+ * \param traffic_rules The traffic rules which were used to build the provided graph
+ * \param changed_ids The ids of the lanelets or areas which were modified. Ids not found in the map are ignored
+ *
+ * \return A new routing graph equivalent to calling lanelet::routing::RoutingGraph::build on the full map
+ */
+LaneletRoutingGraphPtr updateRoutingGraph(const lanelet::routing::RoutingGraph& graph, const lanelet::LaneletMapPtr& map,
+                                          const lanelet::traffic_rules::TrafficRules& traffic_rules,
+                                          const std::unordered_set<lanelet::Id>& changed_ids);
+
+/*!
+ * \brief Copies the provided routing graph onto a copy of the map it was built for. The returned graph references the
+ *        lanelets and areas of the provided map which share the ids of those in the original graph.
+ *        This is significantly cheaper than rebuilding the graph as no routing relations need to be recomputed.
+ *
+ * \param graph The routing graph to copy
+ * \param map The copied map containing every passable lanelet and area of the graph
+ *
+ * \throw lanelet::NoSuchPrimitiveError if a vertex of the graph does not exist in the provided map
+ *
+ * \return A new routing graph equivalent to the provided graph
+ */
+LaneletRoutingGraphPtr copyRoutingGraph(const lanelet::routing::RoutingGraph& graph, const lanelet::LaneletMapPtr& map);
+
+}  // namespace routing_graph
+}  // namespace carma_wm
@@ -0,0 +1,117 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <vector>
+#include <utility>
+#include <unordered_map>
+#include <boost/date_time/posix_time/posix_time.hpp>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_extension/regulatory_elements/CarmaTrafficSignal.h>
+#include <carma_v2x_msgs/msg/movement_event.hpp>
+
+namespace carma_wm
+{
+/*!
+ * \brief The phases of a single signal group as last received through SPaT.
+ *        The layout matches the recorded_time_stamps and recorded_start_time_stamps of lanelet::CarmaTrafficSignal.
+ */
+struct SignalPhaseTimeline
+{
+  // Predicted states and their min_end_time in the order received
+  std::vector<std::pair<boost::posix_time::ptime, lanelet::CarmaTrafficSignalState>> min_end_times;
+
+  // Start time of each predicted state (same size as min_end_times)
+  std::vector<boost::posix_time::ptime> start_times;
+};
+
+/*!
+ * \brief Flat lookup of SPaT data keyed by intersection id and signal group.
+ *        NOTE: This structure is used internally in the world model to avoid resolving traffic signals and rebuilding
+ *        their timing for every SPaT message. Users should query timelines through the WorldModel.
+ *
+ * Each entry caches the traffic signal the signal group resolved to along with the raw movement events last applied to
+ * it so that repeated SPaT content can be detected without converting any times. Timelines are preallocated and reused
+ * between messages.
+ */
+class SignalPhaseIndex
+{
+public:
+  // Number of phases preallocated per signal group. SPaT messages typically predict a handful of upcoming phases
+  static constexpr size_t DEFAULT_PHASE_CAPACITY = 16;
+
+  // Seconds the simulation clock offset may drift from the offset a timeline was built with before identical SPaT
+  // content is applied again. The offset changes with every clock message in simulation
+  static constexpr double TIME_OFFSET_TOLERANCE = 0.1;
+
+  struct Entry
+  {
+    // Traffic signal of the signal group. nullptr if not yet resolved
+    lanelet::CarmaTrafficSignalPtr signal;
+
+    // Phases last applied to the signal
+    SignalPhaseTimeline timeline;
+
+    // Raw SPaT content the timeline was built from
+    bool applied = false;
+    bool moy_exists = false;
+    uint32_t moy = 0;
+    double time_offset = 0;
+    std::vector<carma_v2x_msgs::msg::MovementEvent> movement_events;
+  };
+
+  /*!
+   * \brief Returns the key of a signal group. The intersection id (16bit) and signal group id (8bit) are concatenated
+   *        in that order as is done for the traffic light id lookup of TrafficControl
+   */
+  static uint32_t toKey(uint16_t intersection_id, uint8_t signal_group_id);
+
+  /*!
+   * \brief Returns the entry of the signal group creating it with a preallocated timeline if it does not exist
+   */
+  Entry& getOrCreate(uint16_t intersection_id, uint8_t signal_group_id);
+
+  /*!
+   * \brief Returns the entry of the signal group. nullptr if no SPaT has been received for it
+   */
+  const Entry* find(uint16_t intersection_id, uint8_t signal_group_id) const;
+
+  /*!
+   * \brief Drops the cached traffic signals of every entry. Must be called when the map changes as signals may have
+   *        been replaced. The timelines are kept and reapplied to the newly resolved signals on the next SPaT
+   */
+  void clearSignals();
+
+  /*!
+   * \brief Drops the cached traffic signals unless they were resolved on the provided map. Must be called before
+   *        signals are resolved, as an index copied from another world model holds the signals of that model's map
+   *
+   * \param map The map signals are resolved on from now on
+   */
+  void bindSignals(const lanelet::LaneletMap* map);
+
+  /*!
+   * \brief Number of signal groups in the index
+   */
+  size_t size() const;
+
+private:
+  std::unordered_map<uint32_t, Entry> entries_;
+  const lanelet::LaneletMap* signal_map_ = nullptr;  // Map the cached signals were resolved on
+};
+
+}  // namespace carma_wm
@@ -0,0 +1,158 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <cstdint>
+#include <map>
+#include <set>
+#include <string>
+#include <unordered_map>
+#include <utility>
+#include <vector>
+#include <boost/optional.hpp>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_core/primitives/BoundingBox.h>
+
+namespace carma_wm
+{
+/*!
+ * \brief Load and eviction counters of a TiledLaneletMap
+ */
+struct TiledMapStats
+{
+  size_t total_tiles = 0;   // Number of tiles the map was partitioned into
+  size_t active_tiles = 0;  // Number of tiles in the active map
+  size_t loads = 0;         // Number of times a tile was added to the active map since the map was set
+  size_t evictions = 0;     // Number of times a tile was removed from the active map since the map was set
+};
+
+/*!
+ * \brief Geographically tiled store of a lanelet map which keeps only the tiles near points of interest loaded.
+ *
+ * The map is partitioned into square tiles. Each lanelet and area belongs to the tile containing the center of its
+ * bounding box. A tile is kept in serialized form together with every primitive its lanelets and areas reference, so
+ * the fully deserialized map is only held while it is being partitioned. Primitives which are not referenced by any
+ * lanelet or area are not part of any tile.
+ *
+ * The active map is the union of the loaded tiles. Primitives shared between tiles, such as the bound of two lanelets
+ * on either side of a tile edge, are merged by id so the active map is connected across tile edges.
+ * When the loaded tiles change only the newly loaded tiles are deserialized. The primitives of the tiles which stay
+ * loaded are carried over from the previous active map, together with any change made to them such as applied map
+ * updates. Changes to the primitives of an evicted tile are lost and have to be made again once it is loaded again.
+ * Tiles are loaded when they come within the load radius of a position or contain a lanelet of interest, such as a
+ * lanelet of the route. They are only evicted once they are beyond the eviction radius of every position, which avoids
+ * reloading tiles while the vehicle travels along a tile edge.
+ */
+class TiledLaneletMap
+{
+public:
+  using TileKey = std::pair<int64_t, int64_t>;
+
+  /*!
+   * \brief Constructor
+   *
+   * \param tile_size The side length in meters of a tile
+   * \param load_radius Tiles within this distance in meters of a position are loaded
+   * \param evict_radius Tiles beyond this distance in meters of every position are evicted. Must not be less than
+   *                     the load radius
+   *
+   * \throw std::invalid_argument if the tile size or load radius are not positive or the eviction radius is less
+   *                              than the load radius
+   */
+  TiledLaneletMap(double tile_size, double load_radius, double evict_radius);
+
+  /*!
+   * \brief Partitions the provided map into tiles. The active map is emptied and the counters are reset.
+   *        The provided map is not modified and does not need to be kept after this call.
+   *
+   * \param map The full map to partition
+   */
+  void setMap(const lanelet::LaneletMapPtr& map);
+
+  /*!
+   * \brief Loads the tiles required by the provided points of interest and evicts the tiles which are no longer needed
+   *
+   * \param positions The positions to load the surrounding tiles of. Usually the position of the vehicle
+   * \param lanelet_ids The lanelets whose tiles are required. Usually the lanelets of the route. Unknown ids are ignored
+   *
+   * \return True if tiles were loaded or evicted. In which case getActiveMap() returns a new map
+   */
+  bool updateActiveTiles(const std::vector<lanelet::BasicPoint2d>& positions, const std::vector<lanelet::Id>& lanelet_ids);
+
+  /*!
+   * \brief Returns the map made of the currently loaded tiles. Empty until tiles are loaded.
+   *        A new map is created every time the loaded tiles change. It shares the primitives of the tiles which stayed
+   *        loaded with the previously returned map.
+   */
+  lanelet::LaneletMapPtr getActiveMap() const;
+
+  /*!
+   * \brief Returns the tiles which were not loaded before the last change of the loaded tiles
+   */
+  const std::set<TileKey>& getLoadedTiles() const;
+
+  /*!
+   * \brief Assigns a lanelet which was added to the active map after the map was set, such as a lanelet added by a map
+   *        update, to the tile containing the center of its bounding box. Lanelets which already belong to a tile keep
+   *        their tile.
+   *
+   * \param llt The added lanelet
+   *
+   * \return The tile of the lanelet
+   */
+  TileKey addLanelet(const lanelet::ConstLanelet& llt);
+
+  /*!
+   * \brief Returns the tile of the lanelet, or boost::none if the lanelet is neither in the map nor was added
+   */
+  boost::optional<TileKey> getTile(lanelet::Id lanelet_id) const;
+
+  /*!
+   * \brief Returns true if the lanelet belongs to a loaded tile
+   */
+  bool isLoaded(lanelet::Id lanelet_id) const;
+
+  /*!
+   * \brief Returns true if the tile is loaded
+   */
+  bool isLoaded(const TileKey& tile) const;
+
+  TiledMapStats getStats() const;
+
+private:
+  struct Tile
+  {
+    lanelet::BoundingBox2d bounds;  // Bounds of the lanelets and areas of this tile. May extend beyond the tile edges
+    std::string data;               // Binary serialized map of the tile
+  };
+
+  TileKey tileKey(const lanelet::BoundingBox2d& box) const;
+
+  void buildActiveMap();
+
+  double tile_size_;
+  double load_radius_;
+  double evict_radius_;
+  std::map<TileKey, Tile> tiles_;
+  std::unordered_map<lanelet::Id, TileKey> lanelet_tiles_;  // Tile of every lanelet of the map and every added lanelet
+  std::set<TileKey> active_tiles_;
+  std::set<TileKey> loaded_tiles_;  // Tiles which were not loaded before the last change of the active tiles
+  lanelet::LaneletMapPtr active_map_;
+  TiledMapStats stats_;
+};
+
+}  // namespace carma_wm
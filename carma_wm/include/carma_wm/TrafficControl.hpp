@@ -73,13 +73,20 @@ public:
 
 };
 
+/**
+ * Version of the binary encoding written by toBinMsg into the format_version field of the MapBin message
+ */
+constexpr char TRAFFIC_CONTROL_BIN_FORMAT_VERSION[] = "carma_wm/TrafficControl/1";
+
 /**
  * [Converts carma_wm::TrafficControl object to ROS message. Similar implementation to 
  * lanelet2_extension::utility::message_conversion::toBinMsg]
  * @param gf_ptr [Ptr to Geofence data]
- * @param msg [converted ROS message. Only "data" field is filled]
+ * @param msg [converted ROS message. Only "data" and "format_version" fields are filled]
  * NOTE: When converting the geofence object, the converter fills its relevant map update
  * fields (update_list, remove_list) to be read once received at the user
+ * NOTE: The object is serialized directly into the data field without an intermediate buffer. Existing capacity of the
+ *       data field is reused so repeatedly converting into the same message does not reallocate.
  */
 void toBinMsg(std::shared_ptr<carma_wm::TrafficControl> gf_ptr, autoware_lanelet2_msgs::msg::MapBin* msg);
 
@@ -94,9 +101,23 @@ void toBinMsg(std::shared_ptr<carma_wm::TrafficControl> gf_ptr, autoware_lanelet
  * fields (update_list, remove_list) as the ROS msg doesn't hold any other data field in the object.
  * NOTE: While main map update function needs to use lanelet_map, other utility use cases such as 
  *       unit test or map update logger does not currently use lanelet_map and can use nullptr as input
+ * NOTE: The data field is deserialized in place. An empty format_version is read as the current version
+ * NOTE: Callers which receive updates from a subscription should reject such a message once rather than let the
+ *       exception escape the callback. WMListenerWorker logs and drops it like any other update which fails to apply
+ * @throw std::invalid_argument if the format_version is neither empty nor TRAFFIC_CONTROL_BIN_FORMAT_VERSION
  */
 void fromBinMsg(const autoware_lanelet2_msgs::msg::MapBin& msg, std::shared_ptr<carma_wm::TrafficControl> gf_ptr, lanelet::LaneletMapPtr lanelet_map = nullptr);
 
+/**
+ * [Combines map updates into a single update with the same effect as applying each of them in order]
+ * @param updates [The updates to combine in the order they were produced]
+ * @return        [The combined update. It has the id of the last update]
+ * NOTE: Map users apply all removals of an update before its additions. So a regulation which is both added to and
+ *       removed from a lanelet by the updates is only kept in the list of whichever of the two happened last
+ * NOTE: The signalized intersection manager of the last update which provides one is kept
+ */
+std::shared_ptr<carma_wm::TrafficControl> mergeTrafficControls(const std::vector<std::shared_ptr<carma_wm::TrafficControl>>& updates);
+
 }  // namespace carma_wm
 
 
@@ -28,6 +28,8 @@
 #include <carma_v2x_msgs/msg/spat.hpp>
 #include <carma_ros2_utils/carma_lifecycle_node.hpp>
 #include <rosgraph_msgs/msg/clock.hpp>
+#include <geometry_msgs/msg/pose_stamped.hpp>
+#include <carma_wm/TiledLaneletMap.hpp>
 
 namespace carma_wm
 {
@@ -72,6 +74,40 @@ public:
    */
   WorldModelConstPtr getWorldModel();
 
+  /*!
+   * \brief Returns an immutable snapshot of the world model as of the most recently processed update.
+   *
+   * Unlike getWorldModel(), the returned object is never modified after it is returned, so it can be queried from any
+   * executor thread without calling getLock() and without blocking map updates. Each map update, route, or map
+   * version change publishes a new snapshot. The snapshot's getMapVersion() identifies the map it was taken from.
+   * Callers should request a new snapshot at the start of each planning cycle rather than caching it.
+   *
+   * Snapshots are published only after this function is first called. The first call copies the current world model,
+   * and each later map or route change copies the map. A signal timing change shares the map of the previous snapshot
+   * so snapshots report the latest SPaT through getSignalPhaseTimeline(), while the timing recorded on the traffic
+   * signals of a snapshot's map is that of the last map or route change. Every other call is lock-free.
+   *
+   * NOTE: The first call waits for the worker callbacks, so it must not be made while holding the lock returned by
+   *       getLock().
+   *
+   * \return Const pointer to the latest world model snapshot
+   */
+  WorldModelConstPtr getWorldModelSnapshot();
+
+  /*!
+   * \brief Returns the tile load and eviction counters of the tiled map mode.
+   *
+   * The tiled map mode is enabled by setting the tiled_map_tile_size parameter to a positive value. In this mode only
+   * the tiles of the map within tiled_map_load_radius of the vehicle, as reported on current_pose, and the tiles along
+   * the route are loaded in the world model. Tiles are evicted once beyond tiled_map_evict_radius of the vehicle.
+   * Every change of the loaded tiles replaces the map and triggers the map callback.
+   *
+   * NOTE: This waits for the worker callbacks, so it must not be called while holding the lock returned by getLock().
+   *
+   * \return The counters. All zero if the tiled map mode is not enabled
+   */
+  TiledMapStats getTiledMapStats();
+
   /*!
    * \brief Allows user to set a callback to be triggered when a map update is received
    *        NOTE: If operating in multi-threaded mode the world model will remain locked until the user function
@@ -144,8 +180,11 @@ private:
   carma_ros2_utils::SubPtr<carma_v2x_msgs::msg::SPAT> traffic_spat_sub_;
   carma_ros2_utils::SubPtr<rosgraph_msgs::msg::Clock> sim_clock_sub_;
   carma_ros2_utils::SubPtr<rosgraph_msgs::msg::Clock> ros1_clock_sub_;
+  carma_ros2_utils::SubPtr<geometry_msgs::msg::PoseStamped> current_pose_sub_; // Only created in the tiled map mode
   const bool multi_threaded_;
-  std::mutex mw_mutex_;
+  std::mutex mw_mutex_; // Acquired after update_mutex_ when both are held
+  std::recursive_mutex update_mutex_; // Serializes the worker callbacks so that snapshots are published in order. Recursive as user callbacks
+                                      // are invoked while it is held. Acquired before mw_mutex_ so user callbacks may call getLock()
 
 
 };
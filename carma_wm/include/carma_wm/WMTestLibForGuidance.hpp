@@ -17,6 +17,7 @@
 
 #include <gtest/gtest.h>
 #include <iostream>
+#include <limits>
 #include <carma_wm/CARMAWorldModel.hpp>
 #include <lanelet2_core/geometry/LineString.h>
 #include <lanelet2_traffic_rules/TrafficRulesFactory.h>
@@ -39,6 +40,7 @@
  * - addObstacle at a specified Cartesian or Trackpos point relative to specified lanelet Id
  * - set route by giving series of lanelet Id in the map (setRouteById)
  * - set speed of entire road (setSpeedLimit)
+ * - buildSyntheticHighwayMap and buildSyntheticGridMap generate large maps of configurable size for scale testing
  * - getGuidanceTestMap gives a simple one way, 3 lane map (25mph speed limit) with one static prebaked obstacle and 
  *      4 lanelets in a lane (if 2 stripes make up one lanelet):
  *
@@ -598,6 +600,237 @@ inline std::shared_ptr<carma_wm::CARMAWorldModel> getGuidanceTestMap()
   MapOptions map_options;
   return getGuidanceTestMap(map_options);
 }
+
+/**
+ * \brief Description of a map generated by buildSyntheticHighwayMap or buildSyntheticGridMap
+ */
+struct SyntheticMap
+{
+  lanelet::LaneletMapPtr map;
+
+  // Lanelet ids of each lane in travel order. For the grid map each direction of each road is a lane
+  std::vector<std::vector<lanelet::Id>> lanes;
+
+  // Traffic signal ids of each signalized intersection. The intersection id used in SPaT is the index + 1
+  std::vector<std::vector<lanelet::Id>> intersection_signals;
+};
+
+/**
+ * \brief Builds a lanelet bound running from start to end with a point every point_spacing meters.
+ *        The start and end points are used as is so consecutive bounds can share them
+ */
+inline lanelet::LineString3d buildSyntheticBound(const lanelet::Point3d& start, const lanelet::Point3d& end, double point_spacing,
+                                                 const lanelet::Attribute& sub_type)
+{
+  lanelet::BasicPoint2d delta = end.basicPoint2d() - start.basicPoint2d();
+  size_t num_segments = std::max<size_t>(1, static_cast<size_t>(std::ceil(delta.norm() / point_spacing)));
+
+  lanelet::LineString3d bound(lanelet::utils::getId(), { start });
+  for (size_t i = 1; i < num_segments; i++)
+  {
+    lanelet::BasicPoint2d pt = start.basicPoint2d() + delta * (static_cast<double>(i) / num_segments);
+    bound.push_back(getPoint(pt.x(), pt.y(), 0));
+  }
+  bound.push_back(end);
+
+  bound.attributes()[lanelet::AttributeName::Type] = lanelet::AttributeValueString::LineThin;
+  bound.attributes()[lanelet::AttributeName::Subtype] = sub_type;
+  return bound;
+}
+
+/**
+ * \brief Builds a straight one way highway of num_lanes lanes running along the y axis starting at the origin.
+ *        Lanes are numbered from the left and the road is split into lanelets of lanelet_length meters.
+ *        Adjacent lanes share their bounds so lane changes are possible between them.
+ *
+ * \param length Length of the highway in meters. A 100km highway of 100m lanelets contains 1000 lanelets per lane
+ * \param num_lanes Number of lanes
+ * \param lanelet_length Length of each lanelet in meters
+ * \param lane_width Width of each lane in meters
+ * \param point_spacing Distance between bound points in meters
+ *
+ * \return The generated map with one entry in lanes per lane
+ */
+inline SyntheticMap buildSyntheticHighwayMap(double length, size_t num_lanes = 3, double lanelet_length = 100,
+                                             double lane_width = 3.7, double point_spacing = 5)
+{
+  if (num_lanes == 0 || length <= 0 || lanelet_length <= 0)
+  {
+    throw std::invalid_argument("Synthetic highway must have at least one lane and a positive length");
+  }
+
+  SyntheticMap synthetic;
+  synthetic.map = std::make_shared<lanelet::LaneletMap>();
+  synthetic.lanes.resize(num_lanes);
+
+  size_t num_lanelets = std::max<size_t>(1, static_cast<size_t>(std::round(length / lanelet_length)));
+
+  // Points at the start of the current row of lanelets from left to right. Consecutive rows share these points
+  std::vector<lanelet::Point3d> row_start;
+  for (size_t i = 0; i <= num_lanes; i++)
+  {
+    row_start.push_back(getPoint(i * lane_width, 0, 0));
+  }
+
+  // The road edges are solid while the lines between lanes can be crossed
+  auto sub_type = [num_lanes](size_t bound_index) {
+    return (bound_index == 0 || bound_index == num_lanes) ? lanelet::AttributeValueString::Solid
+                                                          : lanelet::AttributeValueString::Dashed;
+  };
+
+  for (size_t row = 0; row < num_lanelets; row++)
+  {
+    std::vector<lanelet::LineString3d> bounds;
+    for (size_t i = 0; i <= num_lanes; i++)
+    {
+      auto end = getPoint(i * lane_width, (row + 1) * lanelet_length, 0);
+      bounds.push_back(buildSyntheticBound(row_start[i], end, point_spacing, sub_type(i)));
+      row_start[i] = end;
+    }
+
+    for (size_t lane = 0; lane < num_lanes; lane++)
+    {
+      auto llt = getLanelet(bounds[lane], bounds[lane + 1], sub_type(lane), sub_type(lane + 1));
+      synthetic.map->add(llt);
+      synthetic.lanes[lane].push_back(llt.id());
+    }
+  }
+
+  lanelet::MapConformer::ensureCompliance(synthetic.map, 65_mph);
+  return synthetic;
+}
+
+/**
+ * \brief Builds a grid of rows x cols signalized intersections connected by two way roads with one lane per direction.
+ *        Intersections are block_length meters apart with the first at the origin. Each lanelet spans a single block
+ *        from the center of one intersection to the next so only through movements are possible and crossing lanelets
+ *        conflict inside the intersections. Every approach with a continuing lanelet is controlled by its own traffic
+ *        signal whose stop line is at the end of the approach.
+ *
+ * \param rows Number of intersections along the y axis
+ * \param cols Number of intersections along the x axis
+ * \param block_length Distance between intersections in meters
+ * \param lane_width Width of each lane in meters
+ * \param point_spacing Distance between bound points in meters
+ *
+ * \return The generated map with one entry in lanes per road direction and the signals of each intersection
+ */
+inline SyntheticMap buildSyntheticGridMap(size_t rows, size_t cols, double block_length = 100, double lane_width = 3.7,
+                                          double point_spacing = 5)
+{
+  if (rows < 2 || cols < 2)
+  {
+    throw std::invalid_argument("Synthetic grid must have at least 2 rows and 2 columns");
+  }
+  if (rows * cols > std::numeric_limits<uint16_t>::max())
+  {
+    throw std::invalid_argument("Synthetic grid has more intersections than can be identified in SPaT");
+  }
+
+  SyntheticMap synthetic;
+  synthetic.map = std::make_shared<lanelet::LaneletMap>();
+  synthetic.intersection_signals.resize(rows * cols);
+
+  // Builds one direction of a road through the provided intersection centers. The left bound follows the road center
+  // and the right bound is offset by the lane width to the right of the direction of travel
+  auto build_lane = [&](const std::vector<lanelet::BasicPoint2d>& centers, const std::vector<size_t>& intersections) {
+    lanelet::BasicPoint2d direction = (centers.back() - centers.front()).normalized();
+    lanelet::BasicPoint2d right_offset(direction.y() * lane_width, -direction.x() * lane_width);
+
+    std::vector<lanelet::Lanelet> lane;
+    auto left_start = getPoint(centers.front().x(), centers.front().y(), 0);
+    auto right_start = getPoint(centers.front().x() + right_offset.x(), centers.front().y() + right_offset.y(), 0);
+
+    for (size_t i = 1; i < centers.size(); i++)
+    {
+      auto left_end = getPoint(centers[i].x(), centers[i].y(), 0);
+      auto right_end = getPoint(centers[i].x() + right_offset.x(), centers[i].y() + right_offset.y(), 0);
+
+      auto left = buildSyntheticBound(left_start, left_end, point_spacing, lanelet::AttributeValueString::Solid);
+      auto right = buildSyntheticBound(right_start, right_end, point_spacing, lanelet::AttributeValueString::Solid);
+      lane.push_back(getLanelet(left, right, lanelet::AttributeValueString::Solid, lanelet::AttributeValueString::Solid));
+      synthetic.map->add(lane.back());
+
+      left_start = left_end;
+      right_start = right_end;
+    }
+
+    std::vector<lanelet::Id> lane_ids;
+    for (const auto& llt : lane)
+    {
+      lane_ids.push_back(llt.id());
+    }
+    synthetic.lanes.push_back(lane_ids);
+
+    // Signalize every intersection the lane passes through
+    for (size_t i = 0; i + 1 < lane.size(); i++)
+    {
+      lanelet::LineString3d stop_line(lanelet::utils::getId(), { lane[i].leftBound().back(), lane[i].rightBound().back() });
+      auto signal = std::make_shared<lanelet::CarmaTrafficSignal>(lanelet::CarmaTrafficSignal::buildData(
+          lanelet::utils::getId(), { stop_line }, { lane[i] }, { lane[i + 1] }));
+      synthetic.map->update(lane[i], signal);
+      synthetic.intersection_signals[intersections[i + 1]].push_back(signal->id());
+    }
+  };
+
+  for (size_t row = 0; row < rows; row++)
+  {
+    std::vector<lanelet::BasicPoint2d> centers;
+    std::vector<size_t> intersections;
+    for (size_t col = 0; col < cols; col++)
+    {
+      centers.emplace_back(col * block_length, row * block_length);
+      intersections.push_back(row * cols + col);
+    }
+    build_lane(centers, intersections);
+    std::reverse(centers.begin(), centers.end());
+    std::reverse(intersections.begin(), intersections.end());
+    build_lane(centers, intersections);
+  }
+
+  for (size_t col = 0; col < cols; col++)
+  {
+    std::vector<lanelet::BasicPoint2d> centers;
+    std::vector<size_t> intersections;
+    for (size_t row = 0; row < rows; row++)
+    {
+      centers.emplace_back(col * block_length, row * block_length);
+      intersections.push_back(row * cols + col);
+    }
+    build_lane(centers, intersections);
+    std::reverse(centers.begin(), centers.end());
+    std::reverse(intersections.begin(), intersections.end());
+    build_lane(centers, intersections);
+  }
+
+  lanelet::MapConformer::ensureCompliance(synthetic.map, 25_mph);
+  return synthetic;
+}
+
+/**
+ * \brief Registers the intersections of a synthetic map with the world model so SPaT messages can be applied to them.
+ *        NOTE: Signal groups are shared by all intersections in the world model so signal group n of every
+ *        intersection resolves to the n-th signal of the first intersection with at least n signals
+ *
+ * \param synthetic The synthetic map which has been set on the world model
+ * \param cmw The world model to update
+ */
+inline void setSyntheticSignalGroups(const SyntheticMap& synthetic, std::shared_ptr<carma_wm::CARMAWorldModel> cmw)
+{
+  for (size_t i = 0; i < synthetic.intersection_signals.size(); i++)
+  {
+    const auto& signals = synthetic.intersection_signals[i];
+    if (signals.empty())
+      continue;
+
+    cmw->sim_.intersection_id_to_regem_id_[static_cast<uint16_t>(i + 1)] = signals.front();
+
+    for (size_t group = 0; group < signals.size(); group++)
+    {
+      cmw->sim_.signal_group_to_traffic_light_id_.emplace(static_cast<uint8_t>(group + 1), signals[group]);
+    }
+  }
+}
 }
   //namespace test
 } //namespace carma_wm
\ No newline at end of file
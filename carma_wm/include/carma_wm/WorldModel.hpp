@@ -27,6 +27,7 @@
 #include <lanelet2_routing/RoutingGraph.h>
 #include <lanelet2_traffic_rules/TrafficRules.h>
 #include <lanelet2_core/utility/Optional.h>
+#include <rclcpp/time.hpp>
 #include <carma_perception_msgs/msg/roadway_obstacle.hpp>
 #include <carma_perception_msgs/msg/roadway_obstacle_list.hpp>
 #include <carma_perception_msgs/msg/external_object.hpp>
@@ -41,6 +42,8 @@
 namespace carma_wm
 {
 
+struct SignalPhaseTimeline;  // Defined in carma_wm/SignalPhaseIndex.hpp
+
 // Helpful using declarations which are not defined by lanelet::routing module
 using LaneletRoutePtr = std::shared_ptr<lanelet::routing::Route>;
 using LaneletRouteConstPtr = std::shared_ptr<const lanelet::routing::Route>;
@@ -218,6 +221,21 @@ class WorldModel
     */
     virtual std::vector<carma_perception_msgs::msg::RoadwayObstacle> getRoadwayObjects() const = 0;
 
+    /*! \brief Get the roadway objects which occupy part of a region of the map during a window of time.
+    * An object occupies the region at the time of its current pose and at the time of each of its predictions if the
+    * circle enclosing its footprint centered on the corresponding position intersects the region.
+    * The query uses an index of the object predictions built once for every update of the roadway objects.
+    *
+    * \param region The region of interest in the map frame
+    * \param start_time The start of the window. Inclusive
+    * \param end_time The end of the window. Inclusive
+    *
+    * \return The matching objects in the order provided by getRoadwayObjects(). Empty vector if no object found.
+    */
+    virtual std::vector<carma_perception_msgs::msg::RoadwayObstacle>
+    getRoadwayObjectsOccupying(const lanelet::BoundingBox2d& region, const rclcpp::Time& start_time,
+                               const rclcpp::Time& end_time) const = 0;
+
     /*! \brief Get a pointer to the traffic rules object used internally by the world model and considered the carma
     * system default
     *
@@ -421,6 +439,17 @@ class WorldModel
      */
     virtual std::vector<lanelet::SignalizedIntersectionPtr> getSignalizedIntersectionsAlongRoute(const lanelet::BasicPoint2d &loc) const = 0;
 
+    /**
+     * \brief Returns the signal phases last received through SPaT for the provided signal group.
+     *        NOTE: Callers must include carma_wm/SignalPhaseIndex.hpp to use the returned timeline
+     *
+     * \param intersection_id The SPaT/MAP intersection id
+     * \param signal_group_id The SPaT/MAP signal group id
+     *
+     * \return Copy of the phase timeline of the signal group. boost::none if no SPaT has been received for it
+     */
+    virtual boost::optional<SignalPhaseTimeline> getSignalPhaseTimeline(uint16_t intersection_id, uint8_t signal_group_id) const = 0;
+
     /**
      * \brief Given the cartesian point on the map, tries to get the opposite direction lanelet on the left
      *        This function is intended to find "adjacentLeft lanelets" that doesn't share points between lanelets
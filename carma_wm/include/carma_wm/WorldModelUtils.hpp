@@ -30,6 +30,8 @@
 #include <boost/geometry/geometries/polygon.hpp>
 #include <rclcpp/rclcpp.hpp>
 #include <carma_wm/Geometry.hpp>
+#include <carma_wm/LaneletAdjacencyIndex.hpp>
+#include <carma_wm/LaneletPolygonIndex.hpp>
 #include <unordered_set>
 #include <unordered_map>
 #include <lanelet2_routing/RoutingGraph.h>
@@ -107,6 +109,23 @@ std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::Lanel
 std::vector<lanelet::Lanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMapPtr& semantic_map, const lanelet::BasicPoint2d& input_point,
                                                           const unsigned int n = 10);
 
+/**
+ * \brief Given the cartesian point on the map, tries to get the opposite direction lanelet on the left using a precomputed
+ *        adjacency table of the map. Instead of searching the whole map for the opposite lanelet only the left
+ *        neighbours of the lanelet containing the point are checked. Returns the same lanelets as the version without
+ *        the table, ordered as they are in the table.
+ *
+ * \param semantic_map  Lanelet Map Ptr
+ * \param adjacency     Adjacency table built for the map
+ * \param point         Cartesian point to check the corressponding lanelet
+ * \param n             Number of lanelets to return. Default is 10. As there could be many lanelets overlapping.
+ *
+ * \throw std::invalid_argument if the map is not set, contains no lanelets, or the point is not in the map
+ * \return vector of underlying lanelet, empty vector if it is not part of any lanelet
+ */
+std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMapConstPtr& semantic_map, const LaneletAdjacencyIndex& adjacency,
+                                                            const lanelet::BasicPoint2d& input_point, const unsigned int n = 10);
+
 
 /*!
   * \brief Gets the affected lanelet or areas based on the points in the given map's frame
@@ -119,6 +138,19 @@ std::vector<lanelet::Lanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMap
   */
 lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const lanelet::LaneletMapPtr& lanelet_map, std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph, double max_lane_width);
 
+/*!
+  * \brief Same as getAffectedLaneletOrAreas but the lanelets containing each point are found with a prebuilt polygon index
+  *        rather than a nearest lanelet search. The points are classified in a single batch and the segments between them
+  *        are evaluated in parallel for large geofences. Gives the same result as the search based version.
+  * \param gf_pts lanelet::Points3d in local frame
+  * \param index Polygon index which is up to date with lanelet_map
+  * \param lanelet_map Lanelet Map Ptr
+  * \param routing_graph Routing graph of the lanelet map
+  * \param num_threads Maximum number of threads to use. 0 uses the hardware concurrency
+  */
+lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const LaneletPolygonIndex& index, const lanelet::LaneletMapPtr& lanelet_map,
+                                                       std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph, size_t num_threads = 0);
+
 /*!
   * \brief A function that filters successor lanelets of root_lanelets from possible_lanelets
   * \param possible_lanelets all possible lanelets to check
@@ -60,8 +60,11 @@ namespace carma_wm {
         * \param rwol The list of Roadway Obstacle
         * \param tp The TrajectoryPlan of the host vehicle
         * \param size The size of the host vehicle defined in meters
-        * \param velocity of the host vehicle m/s
-        * \return A list of obstacles the provided trajectory plan collides with
+        * \param velocity of the host vehicle m/s. Not used by the current distance and time criteria
+        * \return A list of obstacles the provided trajectory plan collides with. An obstacle is listed once per colliding prediction
+        *
+        * Predictions are first checked against the swept bounding box and latest time of the trajectory so that only nearby
+        * predictions are compared with each trajectory point. Large obstacle lists are checked in parallel.
         */
         std::vector<carma_perception_msgs::msg::RoadwayObstacle> WorldCollisionDetection(const carma_perception_msgs::msg::RoadwayObstacleList& rwol, 
                                                                     const carma_planning_msgs::msg::TrajectoryPlan& tp, const geometry_msgs::msg::Vector3& size, 
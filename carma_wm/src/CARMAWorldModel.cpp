@@ -30,12 +30,154 @@
 #include <boost/geometry.hpp>
 #include <boost/geometry/geometries/polygon.hpp>
 #include "carma_wm/Geometry.hpp"
+#include "carma_wm/RoutingGraphUpdater.hpp"
 #include <queue>
+#include <unordered_set>
 #include <boost/math/special_functions/sign.hpp>
 #include <boost/date_time/posix_time/conversion.hpp>
 
 namespace carma_wm
 {
+  namespace
+  {
+    // Rebinds the lanelets and areas referenced by a regulatory element to their copies
+    class RuleParameterRebinder : public boost::static_visitor<lanelet::RuleParameter>
+    {
+    public:
+      RuleParameterRebinder(const lanelet::LaneletLayer::Map& lanelets, const lanelet::AreaLayer::Map& areas)
+        : lanelets_(lanelets), areas_(areas)
+      {
+      }
+
+      lanelet::RuleParameter operator()(const lanelet::WeakLanelet& weak_llt) const
+      {
+        if (weak_llt.expired())
+        {
+          return weak_llt;
+        }
+        auto llt = weak_llt.lock();
+        auto it = lanelets_.find(llt.id());
+        if (it == lanelets_.end())
+        {
+          return weak_llt;
+        }
+        return lanelet::WeakLanelet(llt.inverted() ? it->second.invert() : it->second);
+      }
+
+      lanelet::RuleParameter operator()(const lanelet::WeakArea& weak_area) const
+      {
+        if (weak_area.expired())
+        {
+          return weak_area;
+        }
+        auto it = areas_.find(weak_area.lock().id());
+        if (it == areas_.end())
+        {
+          return weak_area;
+        }
+        return lanelet::WeakArea(it->second);
+      }
+
+      template <typename PrimitiveT>
+      lanelet::RuleParameter operator()(const PrimitiveT& primitive) const
+      {
+        return primitive;
+      }
+
+    private:
+      const lanelet::LaneletLayer::Map& lanelets_;
+      const lanelet::AreaLayer::Map& areas_;
+    };
+
+    /**
+     * \brief Copies the lanelets, areas, and regulatory elements of the map, which are edited in place by map updates
+     *        and SPaT, into a new map. Points, line strings, and polygons are never edited in place so they are shared
+     *        with the provided map rather than copied.
+     */
+    lanelet::LaneletMapPtr copyLaneletMap(lanelet::LaneletMap& map)
+    {
+      lanelet::LaneletLayer::Map lanelets;
+      for (auto llt : map.laneletLayer)
+      {
+        if (llt.inverted())
+        {
+          llt = llt.invert();
+        }
+        lanelets.emplace(llt.id(), lanelet::Lanelet(llt.id(), llt.leftBound(), llt.rightBound(), llt.attributes()));
+      }
+
+      lanelet::AreaLayer::Map areas;
+      for (auto area : map.areaLayer)
+      {
+        areas.emplace(area.id(), lanelet::Area(area.id(), area.outerBound(), area.innerBounds(), area.attributes()));
+      }
+
+      // Regulatory elements are rebuilt from their data the same way as when a map is deserialized
+      RuleParameterRebinder rebinder(lanelets, areas);
+      lanelet::RegulatoryElementLayer::Map regems;
+      for (const auto& regem : map.regulatoryElementLayer)
+      {
+        lanelet::RuleParameterMap parameters;
+        for (const auto& role : regem->constData()->parameters)
+        {
+          auto& rebound = parameters[role.first];
+          for (const auto& parameter : role.second)
+          {
+            rebound.push_back(boost::apply_visitor(rebinder, parameter));
+          }
+        }
+
+        auto data = std::make_shared<lanelet::RegulatoryElementData>(regem->id(), parameters, regem->attributes());
+        std::string rule_name = regem->hasAttribute(lanelet::AttributeName::Subtype)
+                                    ? regem->attribute(lanelet::AttributeName::Subtype).value()
+                                    : lanelet::GenericRegulatoryElement::RuleName;
+        regems.emplace(regem->id(), lanelet::RegulatoryElementFactory::create(rule_name, data));
+      }
+
+      auto copied_regem = [&regems](const lanelet::RegulatoryElementPtr& regem) {
+        auto it = regems.find(regem->id());
+        return it == regems.end() ? regem : it->second;
+      };
+
+      for (auto llt : map.laneletLayer)
+      {
+        auto& llt_copy = lanelets.at(llt.id());
+        for (const auto& regem : llt.regulatoryElements())
+        {
+          llt_copy.addRegulatoryElement(copied_regem(regem));
+        }
+      }
+
+      for (auto area : map.areaLayer)
+      {
+        auto& area_copy = areas.at(area.id());
+        for (const auto& regem : area.regulatoryElements())
+        {
+          area_copy.addRegulatoryElement(copied_regem(regem));
+        }
+      }
+
+      lanelet::PolygonLayer::Map polygons;
+      for (const auto& polygon : map.polygonLayer)
+      {
+        polygons.emplace(polygon.id(), polygon);
+      }
+
+      lanelet::LineStringLayer::Map line_strings;
+      for (const auto& line_string : map.lineStringLayer)
+      {
+        line_strings.emplace(line_string.id(), line_string);
+      }
+
+      lanelet::PointLayer::Map points;
+      for (const auto& point : map.pointLayer)
+      {
+        points.emplace(point.id(), point);
+      }
+
+      return std::make_shared<lanelet::LaneletMap>(lanelets, areas, regems, polygons, line_strings, points);
+    }
+  }  // namespace
 
   std::pair<TrackPos, TrackPos> CARMAWorldModel::routeTrackPos(const lanelet::ConstArea& area) const
   {
@@ -130,40 +272,14 @@ namespace carma_wm
       RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "Route has not yet been loaded");
       return {};
     }
-    std::vector<lanelet::BusStopRulePtr> bus_stop_list;
     auto curr_downtrack = routeTrackPos(loc).downtrack;
-    // shortpath is already sorted by distance
 
-    for (const auto &ll : route_->shortestPath())
+    if (route_regulation_index_.valid && route_regulation_index_.map_version == map_version_)
     {
-      auto bus_stops = semantic_map_->laneletLayer.get(ll.id()).regulatoryElementsAs<lanelet::BusStopRule>();
-      if (bus_stops.empty())
-      {
-        continue;
-      }
-
-      for (auto bus_stop : bus_stops)
-      {
-        auto stop_line = bus_stop->stopAndWaitLine();
-        if (stop_line.empty())
-        {
-          RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "No stop line");
-          continue;
-        }
-        else
-        {
-          double bus_stop_downtrack = routeTrackPos(stop_line.front().front().basicPoint2d()).downtrack;
-          double distance_remaining_to_bus_stop = bus_stop_downtrack - curr_downtrack;
-
-          if (distance_remaining_to_bus_stop < 0)
-          {
-            continue;
-          }
-          bus_stop_list.push_back(bus_stop);
-        }
-      }
+      return route_regulation_index_.bus_stops.from(curr_downtrack);
     }
-    return bus_stop_list;
+
+    return buildRouteRegulationIndex().bus_stops.from(curr_downtrack);
   }
 
   TrackPos CARMAWorldModel::routeTrackPos(const lanelet::BasicPoint2d& point) const
@@ -283,25 +399,6 @@ namespace carma_wm
     return tp;
   }
 
-  class LaneletDowntrackPair
-  {
-  public:
-    lanelet::ConstLanelet lanelet_;
-    double downtrack_ = 0;
-
-    LaneletDowntrackPair(lanelet::ConstLanelet lanelet, double downtrack) : lanelet_(lanelet), downtrack_(downtrack)
-    {
-    }
-    bool operator<(const LaneletDowntrackPair& pair) const
-    {
-      return this->downtrack_ < pair.downtrack_;
-    }
-    bool operator>(const LaneletDowntrackPair& pair) const
-    {
-      return this->downtrack_ > pair.downtrack_;
-    }
-  };
-
   std::vector<lanelet::ConstLanelet> CARMAWorldModel::getLaneletsBetween(double start, double end, bool shortest_path_only,
                                                                          bool bounds_inclusive) const
   {
@@ -315,28 +412,90 @@ namespace carma_wm
       throw std::invalid_argument("Start distance is greater than end distance");
     }
 
-    std::vector<lanelet::ConstLanelet> output;
-    std::priority_queue<LaneletDowntrackPair, std::vector<LaneletDowntrackPair>, std::greater<LaneletDowntrackPair>>
-        prioritized_lanelets;
+    if (!std::isfinite(start) || !std::isfinite(end))
+    {
+      return computeLaneletsBetween(start, end, shortest_path_only, bounds_inclusive);
+    }
 
-    auto lanelet_map = route_->laneletMap();
-    for (lanelet::ConstLanelet lanelet : lanelet_map->laneletLayer)
+    LaneletsBetweenKey key = laneletsBetweenKey(start, end, shortest_path_only, bounds_inclusive);
+
+    auto cached = lanelets_between_cache_.get(key);
+    if (cached)
     {
-      if (shortest_path_only && !shortest_path_view_->laneletLayer.exists(lanelet.id()))
+      return cached.get();
+    }
+
+    auto output = computeLaneletsBetween(start, end, shortest_path_only, bounds_inclusive);
+    lanelets_between_cache_.put(key, output);
+    return output;
+  }
+
+  CARMAWorldModel::LaneletsBetweenKey CARMAWorldModel::laneletsBetweenKey(double start, double end, bool shortest_path_only,
+                                                                           bool bounds_inclusive) const
+  {
+    // Number of route lanelets whose start or end downtrack is below, or at if or_equal, the provided downtrack
+    auto starts_before = [this](double downtrack, bool or_equal) {
+      auto less = [or_equal](const LaneletDowntrackBounds& bounds, double value) {
+        return or_equal ? bounds.start_downtrack <= value : bounds.start_downtrack < value;
+      };
+      return static_cast<size_t>(
+          std::lower_bound(route_lanelet_downtracks_.begin(), route_lanelet_downtracks_.end(), downtrack, less) -
+          route_lanelet_downtracks_.begin());
+    };
+    auto ends_before = [this](double downtrack, bool or_equal) {
+      auto it = or_equal ? std::upper_bound(route_lanelet_end_downtracks_.begin(), route_lanelet_end_downtracks_.end(), downtrack)
+                         : std::lower_bound(route_lanelet_end_downtracks_.begin(), route_lanelet_end_downtracks_.end(), downtrack);
+      return static_cast<size_t>(it - route_lanelet_end_downtracks_.begin());
+    };
+
+    // The window after applying the tolerance computeLaneletsBetween uses for exclusive bounds
+    double window_start = bounds_inclusive ? start : start + 0.00001;
+    double window_end = bounds_inclusive ? end : end - 0.00001;
+
+    LaneletsBetweenKey key{ map_version_, route_version_, 0, 0, 0, 0, false, start == end, shortest_path_only, bounds_inclusive };
+
+    key.starts_before_end = starts_before(window_end, true);
+    key.ends_before_start = ends_before(window_start, false);
+    key.empty_window = window_start > window_end;
+
+    if (key.point_window)
+    {
+      // Inclusive windows exclude lanelets starting after or ending before the point. Exclusive windows also exclude
+      // lanelets starting or ending at it
+      key.starts_before_point = starts_before(start, bounds_inclusive);
+      key.ends_before_point = ends_before(start, !bounds_inclusive);
+    }
+
+    return key;
+  }
+
+  std::vector<lanelet::ConstLanelet> CARMAWorldModel::computeLaneletsBetween(double start, double end, bool shortest_path_only,
+                                                                             bool bounds_inclusive) const
+  {
+    // Any lanelet which starts before this bound must also end before the start of the window so it can be skipped
+    double first_candidate_downtrack = start - max_route_lanelet_span_ - 0.00001;
+    auto candidate = std::lower_bound(route_lanelet_downtracks_.begin(), route_lanelet_downtracks_.end(),
+                                      first_candidate_downtrack,
+                                      [](const LaneletDowntrackBounds& bounds, double downtrack) {
+                                        return bounds.start_downtrack < downtrack;
+                                      });
+
+    std::vector<lanelet::ConstLanelet> output;
+    // Candidates are visited in order of increasing start downtrack so the output is already sorted
+    for (; candidate != route_lanelet_downtracks_.end() && candidate->start_downtrack <= end; ++candidate)
+    {
+      if (shortest_path_only && shortest_path_index_.find(candidate->lanelet.id()) == shortest_path_index_.end())
       {
         continue;  // Continue if we are only evaluating the shortest path and this lanelet is not part of it
       }
-      lanelet::ConstLineString2d centerline = lanelet::utils::to2D(lanelet.centerline());
 
-      auto front = centerline.front();
-      auto back = centerline.back();
-      TrackPos min = routeTrackPos(front);
-      TrackPos max = routeTrackPos(back);
+      double min = candidate->start_downtrack;
+      double max = candidate->end_downtrack;
 
       if (!bounds_inclusive) // reduce bounds slightly to avoid including exact bounds
       {
-        if (std::max(min.downtrack, start + 0.00001) > std::min(max.downtrack, end - 0.00001)
-          || (start == end && (min.downtrack >= start || max.downtrack <= end)))
+        if (std::max(min, start + 0.00001) > std::min(max, end - 0.00001)
+          || (start == end && (min >= start || max <= end)))
         {  // Check for 1d intersection
           // No intersection so continue
           continue;
@@ -344,24 +503,15 @@ namespace carma_wm
       }
       else
       {
-        if (std::max(min.downtrack, start) > std::min(max.downtrack, end)
-          || (start == end && (min.downtrack > start || max.downtrack < end)))
+        if (std::max(min, start) > std::min(max, end)
+          || (start == end && (min > start || max < end)))
         {  // Check for 1d intersection
           // No intersection so continue
           continue;
         }
       }
       // Intersection has occurred so add lanelet to list
-      LaneletDowntrackPair pair(lanelet, min.downtrack);
-      prioritized_lanelets.push(pair);
-    }
-
-    output.reserve(prioritized_lanelets.size());
-    while (!prioritized_lanelets.empty())
-    {
-      auto pair = prioritized_lanelets.top();
-      prioritized_lanelets.pop();
-      output.push_back(pair.lanelet_);
+      output.push_back(candidate->lanelet);
     }
 
     if (!shortest_path_only)
@@ -370,20 +520,12 @@ namespace carma_wm
     }
 
     //Sort lanelets according to shortest path if using shortest path
-    std::vector<lanelet::ConstLanelet> sorted_output;
-    for (auto llt : route_->shortestPath())
-    {
-      for (size_t i = 0; i < output.size(); i++)
-      {
-        if (llt.id() == output[i].id())
-        {
-          sorted_output.push_back(llt);
-          break;
-        }
-      }
-    }
+    std::stable_sort(output.begin(), output.end(),
+                     [this](const lanelet::ConstLanelet& a, const lanelet::ConstLanelet& b) {
+                       return shortest_path_index_.at(a.id()) < shortest_path_index_.at(b.id());
+                     });
 
-    return sorted_output;
+    return output;
   }
 
   std::vector<lanelet::BasicPoint2d> CARMAWorldModel::sampleRoutePoints(double start_downtrack, double end_downtrack,
@@ -562,8 +704,8 @@ namespace carma_wm
 
   void CARMAWorldModel::setMap(lanelet::LaneletMapPtr map, size_t map_version, bool recompute_routing_graph)
   {
-    // If this is the first time the map has been set, then recompute the routing graph
-    if (!semantic_map_)
+    // If this is the first time the map has been set, then recompute the routing graph unless one was already provided
+    if (!semantic_map_ && !map_routing_graph_)
     {
 
       RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "First time map is set in carma_wm. Routing graph will be recomputed reguardless of method inputs.");
@@ -571,9 +713,26 @@ namespace carma_wm
       recompute_routing_graph = true;
     }
 
+    // The neighbours of the lanelets are only recomputed where lanelets were added or removed when the map is updated in place
+    if (recompute_routing_graph || semantic_map_ != map)
+    {
+      adjacency_index_.build(map);
+    }
+    else
+    {
+      adjacency_index_.update(map);
+    }
+
     semantic_map_ = map;
     map_version_ = map_version;
 
+    // Traffic signals may have been replaced so they must be resolved again on the next SPaT
+    mutableSpatIndex().clearSignals();
+
+    // Cached query results reference the primitives of the previous map
+    lanelets_between_cache_.clear();
+    lane_cache_.clear();
+
     // If the routing graph should be updated then recompute it
     if (recompute_routing_graph)
     {
@@ -594,6 +753,9 @@ namespace carma_wm
 
       RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "Done building routing graph");
     }
+
+    // Map updates may add or remove regulations along the current route
+    updateRouteRegulationIndex();
   }
 
   void CARMAWorldModel::setRoutingGraph(LaneletRoutingGraphPtr graph) {
@@ -601,6 +763,55 @@ namespace carma_wm
     RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "Setting the routing graph with user or listener provided graph");
 
     map_routing_graph_ = graph;
+    lane_cache_.clear();
+  }
+
+  void CARMAWorldModel::updateRoutingGraph(const std::unordered_set<lanelet::Id>& changed_ids)
+  {
+    if (!semantic_map_)
+    {
+      throw std::invalid_argument("Routing graph update requested before map was set");
+    }
+
+    lane_cache_.clear();
+
+    auto tr = getTrafficRules(participant_type_);
+
+    if (!tr)
+    {
+      throw std::invalid_argument("Could not construct traffic rules for participant");
+    }
+
+    TrafficRulesConstPtr traffic_rules = *tr;
+
+    if (!map_routing_graph_)
+    {
+      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "No routing graph available to update. Building full routing graph");
+      map_routing_graph_ = lanelet::routing::RoutingGraph::build(*semantic_map_, *traffic_rules);
+      return;
+    }
+
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "Updating routing graph for " << changed_ids.size() << " changed lanelets or areas");
+
+    map_routing_graph_ = routing_graph::updateRoutingGraph(*map_routing_graph_, semantic_map_, *traffic_rules, changed_ids);
+
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "Done updating routing graph");
+  }
+
+  QueryCacheStats CARMAWorldModel::getLaneletsBetweenCacheStats() const
+  {
+    return lanelets_between_cache_.stats();
+  }
+
+  QueryCacheStats CARMAWorldModel::getLaneCacheStats() const
+  {
+    return lane_cache_.stats();
+  }
+
+  void CARMAWorldModel::setQueryCacheCapacity(size_t capacity)
+  {
+    lanelets_between_cache_.setCapacity(capacity);
+    lane_cache_.setCapacity(capacity);
   }
 
   size_t CARMAWorldModel::getMapVersion() const
@@ -613,6 +824,85 @@ namespace carma_wm
     return semantic_map_;
   }
 
+  std::shared_ptr<CARMAWorldModel> CARMAWorldModel::clone() const
+  {
+    // Members which are never edited in place such as the route reference line are shared with the copy
+    auto copy = std::make_shared<CARMAWorldModel>(*this);
+
+    if (!semantic_map_)
+    {
+      return copy;
+    }
+
+    // Only the primitives which are edited in place are copied. The geometry is shared with this model's map
+    lanelet::LaneletMapPtr map_copy = copyLaneletMap(*semantic_map_);
+    copy->semantic_map_ = map_copy;
+
+    // Signal timing is runtime state which is not part of the regulatory element data
+    for (const auto& regem : semantic_map_->regulatoryElementLayer)
+    {
+      auto signal = std::dynamic_pointer_cast<lanelet::CarmaTrafficSignal>(regem);
+      if (!signal || !map_copy->regulatoryElementLayer.exists(signal->id()))
+      {
+        continue;
+      }
+
+      auto signal_copy =
+          std::dynamic_pointer_cast<lanelet::CarmaTrafficSignal>(map_copy->regulatoryElementLayer.get(signal->id()));
+      if (signal_copy)
+      {
+        signal_copy->revision_ = signal->revision_;
+        signal_copy->fixed_cycle_duration = signal->fixed_cycle_duration;
+        signal_copy->recorded_time_stamps = signal->recorded_time_stamps;
+        signal_copy->recorded_start_time_stamps = signal->recorded_start_time_stamps;
+      }
+    }
+
+    // The routing graph may be intentionally out of date with the map so it is copied rather than rebuilt
+    copy->map_routing_graph_ = nullptr;
+    if (map_routing_graph_)
+    {
+      copy->map_routing_graph_ = routing_graph::copyRoutingGraph(*map_routing_graph_, map_copy);
+    }
+
+    copy->route_ = nullptr;
+    if (route_)
+    {
+      if (!copy->map_routing_graph_)
+      {
+        throw std::invalid_argument("Cannot copy route of world model which has no routing graph");
+      }
+
+      // Routing through every lanelet of the shortest path reproduces the same route on the copied map
+      lanelet::ConstLanelets path;
+      for (const auto& llt : route_->shortestPath())
+      {
+        path.emplace_back(map_copy->laneletLayer.get(llt.id()));
+      }
+
+      lanelet::Optional<lanelet::routing::Route> route_copy;
+      if (path.size() > 1)
+      {
+        lanelet::ConstLanelets via(path.begin() + 1, path.end() - 1);
+        route_copy = copy->map_routing_graph_->getRouteVia(path.front(), via, path.back());
+      }
+      else if (!path.empty())
+      {
+        route_copy = copy->map_routing_graph_->getRoute(path.front(), path.front());
+      }
+
+      if (!route_copy)
+      {
+        throw std::invalid_argument("Could not reproduce the current route on the copied map");
+      }
+
+      copy->setRoute(std::make_shared<lanelet::routing::Route>(std::move(*route_copy)));
+      copy->setRouteEndPoint(route_->getEndPoint().basicPoint());
+    }
+
+    return copy;
+  }
+
   void CARMAWorldModel::setRos1Clock(const rclcpp::Time& time_now)
   {
     ros1_clock_ = time_now;
@@ -626,12 +916,82 @@ namespace carma_wm
   void CARMAWorldModel::setRoute(LaneletRoutePtr route)
   {
     route_ = route;
+    route_version_++;
+    lanelets_between_cache_.clear();
     lanelet::ConstLanelets path_lanelets(route_->shortestPath().begin(), route_->shortestPath().end());
     shortest_path_view_ = lanelet::utils::createConstSubmap(path_lanelets, {});
     computeDowntrackReferenceLine();
     // NOTE: Setting the route_length_ field here will likely result in the final lanelets final point being used. Call setRouteEndPoint to use the destination point value
     route_length_ = routeTrackPos(route_->getEndPoint().basicPoint2d()).downtrack;  // Cache the route length with
                                                                                    // consideration for endpoint
+    updateRouteRegulationIndex();
+  }
+
+  CARMAWorldModel::RouteRegulationIndex CARMAWorldModel::buildRouteRegulationIndex() const
+  {
+    RouteRegulationIndex index;
+    index.map_version = map_version_;
+
+    // shortpath is already sorted by distance
+    for (const auto &ll : route_->shortestPath())
+    {
+      auto llt = semantic_map_->laneletLayer.get(ll.id());
+
+      for (auto light : llt.regulatoryElementsAs<lanelet::CarmaTrafficSignal>())
+      {
+        auto stop_line = light->getStopLine(ll);
+        if (!stop_line)
+        {
+          RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "No stop line");
+          continue;
+        }
+        index.signals.add(routeTrackPos(stop_line.get().front().basicPoint2d()).downtrack, light);
+      }
+
+      for (auto bus_stop : llt.regulatoryElementsAs<lanelet::BusStopRule>())
+      {
+        auto stop_line = bus_stop->stopAndWaitLine();
+        if (stop_line.empty())
+        {
+          RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "No stop line");
+          continue;
+        }
+        index.bus_stops.add(routeTrackPos(stop_line.front().front().basicPoint2d()).downtrack, bus_stop);
+      }
+
+      for (auto intersection : llt.regulatoryElementsAs<lanelet::AllWayStop>())
+      {
+        index.intersections.add(routeTrackPos(intersection->stopLines().front().front().basicPoint2d()).downtrack, intersection);
+      }
+
+      for (auto intersection : llt.regulatoryElementsAs<lanelet::SignalizedIntersection>())
+      {
+        index.signalized_intersections.add(routeTrackPos(ll.centerline().back().basicPoint2d()).downtrack, intersection);
+      }
+    }
+
+    index.valid = true;
+    return index;
+  }
+
+  void CARMAWorldModel::updateRouteRegulationIndex()
+  {
+    route_regulation_index_ = RouteRegulationIndex();
+
+    if (!route_ || !semantic_map_)
+    {
+      return;
+    }
+
+    try
+    {
+      route_regulation_index_ = buildRouteRegulationIndex();
+    }
+    catch (const lanelet::NoSuchPrimitiveError& e)
+    {
+      // The route was planned on a different map and is expected to be replaced. Queries will fall back to a full search
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm"), "Route regulation index not built as the route does not match the map: " << e.what());
+    }
   }
 
   void CARMAWorldModel::setRouteEndPoint(const lanelet::BasicPoint3d& end_point)
@@ -751,6 +1111,46 @@ namespace carma_wm
     // Since our copy constructed linestrings do not contain references to lanelets they can be added to a full map
     // instead of a submap
     shortest_path_filtered_centerline_view_ = lanelet::utils::createMap(shortest_path_centerlines_);
+
+    computeRouteLaneletDowntracks();
+  }
+
+  void CARMAWorldModel::computeRouteLaneletDowntracks()
+  {
+    route_lanelet_downtracks_.clear();
+    route_lanelet_end_downtracks_.clear();
+    max_route_lanelet_span_ = 0;
+    shortest_path_index_.clear();
+
+    route_lanelet_downtracks_.reserve(route_->laneletMap()->laneletLayer.size());
+    for (lanelet::ConstLanelet lanelet : route_->laneletMap()->laneletLayer)
+    {
+      lanelet::ConstLineString2d centerline = lanelet::utils::to2D(lanelet.centerline());
+
+      double start_downtrack = routeTrackPos(centerline.front()).downtrack;
+      double end_downtrack = routeTrackPos(centerline.back()).downtrack;
+
+      if (start_downtrack > end_downtrack)
+      {
+        continue;  // A lanelet which runs against the route can never intersect a downtrack window
+      }
+
+      route_lanelet_downtracks_.push_back({ lanelet, start_downtrack, end_downtrack });
+      route_lanelet_end_downtracks_.push_back(end_downtrack);
+      max_route_lanelet_span_ = std::max(max_route_lanelet_span_, end_downtrack - start_downtrack);
+    }
+
+    std::stable_sort(route_lanelet_downtracks_.begin(), route_lanelet_downtracks_.end(),
+                     [](const LaneletDowntrackBounds& a, const LaneletDowntrackBounds& b) {
+                       return a.start_downtrack < b.start_downtrack;
+                     });
+    std::sort(route_lanelet_end_downtracks_.begin(), route_lanelet_end_downtracks_.end());
+
+    size_t path_index = 0;
+    for (const auto& llt : route_->shortestPath())
+    {
+      shortest_path_index_.emplace(llt.id(), path_index++);
+    }
   }
 
   LaneletRoutingGraphConstPtr CARMAWorldModel::getMapRoutingGraph() const
@@ -846,6 +1246,23 @@ namespace carma_wm
   void CARMAWorldModel::setRoadwayObjects(const std::vector<carma_perception_msgs::msg::RoadwayObstacle>& rw_objs)
   {
     roadway_objects_ = rw_objs;
+
+    // Bucket the objects by lanelet so lane queries only need to evaluate the objects located in the lane of interest
+    roadway_objects_lanelet_index_.clear();
+    for (size_t i = 0; i < roadway_objects_.size(); i++)
+    {
+      roadway_objects_lanelet_index_[roadway_objects_[i].lanelet_id].push_back(i);
+    }
+
+    // Sort each bucket by the downtrack of the object along its lanelet to support binary search along the lane
+    for (auto& bucket : roadway_objects_lanelet_index_)
+    {
+      std::stable_sort(bucket.second.begin(), bucket.second.end(), [this](size_t a, size_t b) {
+        return roadway_objects_[a].down_track < roadway_objects_[b].down_track;
+      });
+    }
+
+    roadway_objects_occupancy_index_.build(roadway_objects_);
   }
 
   std::vector<carma_perception_msgs::msg::RoadwayObstacle> CARMAWorldModel::getRoadwayObjects() const
@@ -853,73 +1270,108 @@ namespace carma_wm
     return roadway_objects_;
   }
 
-  std::vector<carma_perception_msgs::msg::RoadwayObstacle> CARMAWorldModel::getInLaneObjects(const lanelet::ConstLanelet& lanelet,
-                                                                           const LaneSection& section) const
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle>
+  CARMAWorldModel::getRoadwayObjectsOccupying(const lanelet::BoundingBox2d& region, const rclcpp::Time& start_time,
+                                              const rclcpp::Time& end_time) const
   {
-    // Get all lanelets on current lane section
-    std::vector<lanelet::ConstLanelet> lane = getLane(lanelet, section);
-
-    // Check if any roadway object is registered
-    if (roadway_objects_.size() == 0)
+    std::vector<carma_perception_msgs::msg::RoadwayObstacle> occupants;
+    for (size_t idx : roadway_objects_occupancy_index_.query(region, start_time.seconds(), end_time.seconds()))
     {
-      return std::vector<carma_perception_msgs::msg::RoadwayObstacle>{};
+      occupants.push_back(roadway_objects_[idx]);
     }
+    return occupants;
+  }
 
-    // Initialize useful variables
-    std::vector<carma_perception_msgs::msg::RoadwayObstacle> lane_objects, roadway_objects_copy = roadway_objects_;
-
-    /*
-   * Get all in lane objects
-   * For each lane, we check if each object is on it by matching lanelet_id
-   * Complexity N*K, where N: num of lanelets, K: num of objects
-   */
-    int curr_idx;
-    std::queue<int> obj_idxs_queue;
+  const std::vector<size_t>& CARMAWorldModel::getRoadwayObjectIndices(lanelet::Id lanelet_id) const
+  {
+    static const std::vector<size_t> empty_bucket;
 
-    // Create an index queue for roadway objects to quickly pop the idx if associated
-    // lanelet is found. This is to reduce number of objects to check as we check new lanelets
-    for (size_t i = 0; i < roadway_objects_copy.size(); i++)
+    auto bucket = roadway_objects_lanelet_index_.find(lanelet_id);
+    if (bucket == roadway_objects_lanelet_index_.end())
     {
-      obj_idxs_queue.push((int)i);
+      return empty_bucket;
     }
+    return bucket->second;
+  }
+
+  std::vector<lanelet::ConstLanelet> CARMAWorldModel::getAdjacentLanelets(const lanelet::ConstLanelet& lanelet) const
+  {
+    std::vector<lanelet::ConstLanelet> adjacent_lanelets;
+
+    auto left = map_routing_graph_->left(lanelet);
+    if (left)
+      adjacent_lanelets.push_back(left.get());
+
+    auto right = map_routing_graph_->right(lanelet);
+    if (right)
+      adjacent_lanelets.push_back(right.get());
 
-    // check each lanelets
-    for (auto llt : lane)
+    return adjacent_lanelets;
+  }
+
+  std::vector<size_t> CARMAWorldModel::getInLaneObjectIndices(const std::vector<lanelet::ConstLanelet>& lane) const
+  {
+    std::vector<size_t> lane_object_idxs;
+    std::unordered_set<size_t> matched_idxs; // Each object is only associated with the first lanelet it is found in
+
+    /*
+     * Get all in lane objects
+     * For each lanelet in the lane only the objects bucketed in that lanelet or its left/right neighbors are evaluated
+     * Complexity N*M, where N: num of lanelets, M: num of objects in a lanelet and its neighbors
+     */
+    for (const auto& llt : lane)
     {
-      int checked_queue_items = 0, to_check = obj_idxs_queue.size();
-      // check each objects
-      while (checked_queue_items < to_check)
+      for (size_t idx : getRoadwayObjectIndices(llt.id()))
       {
-        curr_idx = obj_idxs_queue.front();
-        obj_idxs_queue.pop();
-        checked_queue_items++;
+        if (matched_idxs.emplace(idx).second)
+          lane_object_idxs.push_back(idx);
+      }
 
-        // Check if the object is in the lanelet
-        auto curr_obj = roadway_objects_copy[curr_idx];
-        if (curr_obj.lanelet_id == llt.id())
-        {
-          // found intersecting lanelet for this object
-          lane_objects.push_back(curr_obj);
-        }
-        // handle a case where an object might be lane-changing, so check adjacent ids
-        // a bit faster than checking intersection solely as && is left-to-right evaluation
-        else if (((map_routing_graph_->left(llt) && curr_obj.lanelet_id == map_routing_graph_->left(llt).get().id()) ||
-                  (map_routing_graph_->right(llt) && curr_obj.lanelet_id == map_routing_graph_->right(llt).get().id())) &&
-                 boost::geometry::intersects(
-                     llt.polygon2d().basicPolygon(),
-                     geometry::objectToMapPolygon(curr_obj.object.pose.pose, curr_obj.object.size)))
-        {
-          // found intersecting lanelet for this object
-          lane_objects.push_back(curr_obj);
-        }
-        else
+      // handle a case where an object might be lane-changing, so check adjacent lanelets
+      lanelet::Optional<lanelet::BasicPolygon2d> llt_polygon;
+      for (const auto& adjacent : getAdjacentLanelets(llt))
+      {
+        for (size_t idx : getRoadwayObjectIndices(adjacent.id()))
         {
-          // did not find suitable lanelet, so it will be processed again for next lanelet
-          obj_idxs_queue.push(curr_idx);
+          if (matched_idxs.find(idx) != matched_idxs.end())
+            continue;
+
+          if (!llt_polygon)
+            llt_polygon = llt.polygon2d().basicPolygon();
+
+          const auto& curr_obj = roadway_objects_[idx];
+          if (boost::geometry::intersects(llt_polygon.get(),
+                                          geometry::objectToMapPolygon(curr_obj.object.pose.pose, curr_obj.object.size)))
+          {
+            // found intersecting lanelet for this object
+            matched_idxs.emplace(idx);
+            lane_object_idxs.push_back(idx);
+          }
         }
       }
     }
 
+    return lane_object_idxs;
+  }
+
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle> CARMAWorldModel::getInLaneObjects(const lanelet::ConstLanelet& lanelet,
+                                                                           const LaneSection& section) const
+  {
+    // Get all lanelets on current lane section
+    std::vector<lanelet::ConstLanelet> lane = getLane(lanelet, section);
+
+    // Check if any roadway object is registered
+    if (roadway_objects_.size() == 0)
+    {
+      return std::vector<carma_perception_msgs::msg::RoadwayObstacle>{};
+    }
+
+    std::vector<carma_perception_msgs::msg::RoadwayObstacle> lane_objects;
+    for (size_t idx : getInLaneObjectIndices(lane))
+    {
+      lane_objects.push_back(roadway_objects_[idx]);
+    }
+
     return lane_objects;
   }
 
@@ -966,16 +1418,17 @@ namespace carma_wm
     if (!boost::geometry::within(object_center, curr_lanelet.polygon2d().basicPolygon()))
       throw std::invalid_argument("Given point is not within any lanelet");
 
-    std::vector<carma_perception_msgs::msg::RoadwayObstacle> lane_objects = getInLaneObjects(curr_lanelet);
+    std::vector<size_t> lane_object_idxs = getInLaneObjectIndices(getLane(curr_lanelet));
 
     // return empty if there is no object in the lane
-    if (lane_objects.size() == 0)
+    if (lane_object_idxs.size() == 0)
       return boost::none;
 
-    // Record the closest distance out of all polygons, 4 points each
+    // Record the closest distance out of all in lane polygons, 4 points each
     double min_dist = INFINITY;
-    for (auto obj : roadway_objects_)
+    for (size_t idx : lane_object_idxs)
     {
+      const auto& obj = roadway_objects_[idx];
       lanelet::BasicPolygon2d object_polygon = geometry::objectToMapPolygon(obj.object.pose.pose, obj.object.size);
 
       // Point to closest edge on polygon distance by boost library
@@ -1008,69 +1461,19 @@ namespace carma_wm
     if (!boost::geometry::within(object_center, curr_lanelet.polygon2d().basicPolygon()))
       throw std::invalid_argument("Given point is not within any lanelet");
 
-    // Get objects that are in the lane
-    std::vector<carma_perception_msgs::msg::RoadwayObstacle> lane_objects = getInLaneObjects(curr_lanelet, section);
-
-    // return empty if there is no object in the lane
-    if (lane_objects.size() == 0)
-      return boost::none;
-
     // Get the lane that is including this lanelet
     std::vector<lanelet::ConstLanelet> lane_section = getLane(curr_lanelet, section);
 
-    std::vector<double> object_downtracks, object_crosstracks;
-    std::vector<int> object_idxs;
-    std::queue<int> obj_idxs_queue;
+    // Compute the downtrack to the start of each lanelet in the lane along with the downtrack of the input point
+    std::vector<double> base_downtracks;
+    base_downtracks.reserve(lane_section.size());
     double base_downtrack = 0;
     double input_obj_downtrack = 0;
-    int curr_idx = 0;
 
-    // Create an index queue for in lane objects to quickly pop the idx if associated
-    // lanelet is found. This is to reduce number of objects to check as we check new lanelets
-    for (size_t i = 0; i < lane_objects.size(); i++)
+    for (const auto& llt : lane_section)
     {
-      obj_idxs_queue.push((int)i);
-    }
-
-    // For each lanelet, check if each object is inside it. if so, calculate downtrack
-    for (auto llt : lane_section)
-    {
-      int checked_queue_items = 0, to_check = obj_idxs_queue.size();
-
-      // check each remaining objects
-      while (checked_queue_items < to_check)
-      {
-        curr_idx = obj_idxs_queue.front();
-        obj_idxs_queue.pop();
-        checked_queue_items++;
+      base_downtracks.push_back(base_downtrack);
 
-        // if the object is on it, store its total downtrack distance
-        if (lane_objects[curr_idx].lanelet_id == llt.id())
-        {
-          object_downtracks.push_back(base_downtrack + lane_objects[curr_idx].down_track);
-          object_crosstracks.push_back(lane_objects[curr_idx].cross_track);
-          object_idxs.push_back(curr_idx);
-        }
-        // if it's not on it, try adjacent lanelets because the object could be lane changing
-        else if ((map_routing_graph_->left(llt) &&
-                  lane_objects[curr_idx].lanelet_id == map_routing_graph_->left(llt).get().id()) ||
-                 (map_routing_graph_->right(llt) &&
-                  lane_objects[curr_idx].lanelet_id == map_routing_graph_->right(llt).get().id()))
-        {
-          // no need to check intersection as the objects are guaranteed to be intersecting this lane
-          lanelet::BasicPoint2d obj_center(lane_objects[curr_idx].object.pose.pose.position.x,
-                                           lane_objects[curr_idx].object.pose.pose.position.y);
-          TrackPos new_tp = geometry::trackPos(llt, obj_center);
-          object_downtracks.push_back(base_downtrack + new_tp.downtrack);
-          object_crosstracks.push_back(lane_objects[curr_idx].cross_track);
-          object_idxs.push_back(curr_idx);
-        }
-        else
-        {
-          // the object is not in the lanelet if above conditions do not meet
-          obj_idxs_queue.push(curr_idx);
-        }
-      }
       // try to update object_center's downtrack
       if (curr_lanelet.id() == llt.id())
         input_obj_downtrack = base_downtrack + geometry::trackPos(llt, object_center).downtrack;
@@ -1082,24 +1485,80 @@ namespace carma_wm
               .downtrack;
     }
 
-    // compare with input's downtrack and return the min_dist
-    size_t min_idx = 0;
+    // Track the closest object found so far
+    lanelet::Optional<size_t> min_idx;
     double min_dist = INFINITY;
-    for (size_t idx = 0; idx < object_downtracks.size(); idx++)
-    {
-      if (min_dist > std::fabs(object_downtracks[idx] - input_obj_downtrack))
+    double min_downtrack = 0;
+
+    auto evaluate_object = [&](size_t idx, double obj_downtrack) {
+      if (min_dist > std::fabs(obj_downtrack - input_obj_downtrack))
       {
-        min_dist = std::fabs(object_downtracks[idx] - input_obj_downtrack);
+        min_dist = std::fabs(obj_downtrack - input_obj_downtrack);
+        min_downtrack = obj_downtrack;
         min_idx = idx;
       }
+    };
+
+    std::unordered_set<size_t> matched_idxs; // Lane changing objects are only associated with the first lanelet they intersect
+
+    // For each lanelet, evaluate the objects located inside it along with any lane changing objects from adjacent lanelets
+    for (size_t i = 0; i < lane_section.size(); i++)
+    {
+      const auto& llt = lane_section[i];
+      const auto& bucket = getRoadwayObjectIndices(llt.id());
+
+      if (!bucket.empty())
+      {
+        // The bucket is sorted by downtrack, so only the objects surrounding the input downtrack can be the closest
+        double relative_downtrack = input_obj_downtrack - base_downtracks[i];
+        auto upper = std::lower_bound(bucket.begin(), bucket.end(), relative_downtrack, [this](size_t idx, double downtrack) {
+          return roadway_objects_[idx].down_track < downtrack;
+        });
+
+        if (upper != bucket.end())
+          evaluate_object(*upper, base_downtracks[i] + roadway_objects_[*upper].down_track);
+
+        if (upper != bucket.begin())
+          evaluate_object(*(upper - 1), base_downtracks[i] + roadway_objects_[*(upper - 1)].down_track);
+      }
+
+      // if it's not on it, try adjacent lanelets because the object could be lane changing
+      lanelet::Optional<lanelet::BasicPolygon2d> llt_polygon;
+      for (const auto& adjacent : getAdjacentLanelets(llt))
+      {
+        for (size_t idx : getRoadwayObjectIndices(adjacent.id()))
+        {
+          if (matched_idxs.find(idx) != matched_idxs.end())
+            continue;
+
+          if (!llt_polygon)
+            llt_polygon = llt.polygon2d().basicPolygon();
+
+          const auto& curr_obj = roadway_objects_[idx];
+          if (!boost::geometry::intersects(llt_polygon.get(),
+                                           geometry::objectToMapPolygon(curr_obj.object.pose.pose, curr_obj.object.size)))
+          {
+            continue;
+          }
+
+          matched_idxs.emplace(idx);
+
+          lanelet::BasicPoint2d obj_center(curr_obj.object.pose.pose.position.x, curr_obj.object.pose.pose.position.y);
+          evaluate_object(idx, base_downtracks[i] + geometry::trackPos(llt, obj_center).downtrack);
+        }
+      }
     }
 
+    // return empty if there is no object in the lane
+    if (!min_idx)
+      return boost::none;
+
     // if before the parallel line with the start of the llt that crosses given object_center, neg downtrack.
     // if left to the parallel line with the centerline of the llt that crosses given object_center, pos crosstrack
     return std::tuple<TrackPos, carma_perception_msgs::msg::RoadwayObstacle>(
-        TrackPos(object_downtracks[min_idx] - input_obj_downtrack,
-                 object_crosstracks[min_idx] - geometry::trackPos(curr_lanelet, object_center).crosstrack),
-        lane_objects[object_idxs[min_idx]]);
+        TrackPos(min_downtrack - input_obj_downtrack,
+                 roadway_objects_[min_idx.get()].cross_track - geometry::trackPos(curr_lanelet, object_center).crosstrack),
+        roadway_objects_[min_idx.get()]);
   }
 
   lanelet::Optional<std::tuple<TrackPos, carma_perception_msgs::msg::RoadwayObstacle>>
@@ -1134,6 +1593,22 @@ namespace carma_wm
       throw std::invalid_argument("Undefined lane section is requested");
     }
 
+    LaneKey key{ map_version_, lanelet.id(), section };
+
+    auto cached = lane_cache_.get(key);
+    if (cached)
+    {
+      return cached.get();
+    }
+
+    auto lane = computeLane(lanelet, section);
+    lane_cache_.put(key, lane);
+    return lane;
+  }
+
+  std::vector<lanelet::ConstLanelet> CARMAWorldModel::computeLane(const lanelet::ConstLanelet& lanelet,
+                                                                  const LaneSection& section) const
+  {
     std::vector<lanelet::ConstLanelet> following_lane = {lanelet};
     std::stack<lanelet::ConstLanelet> prev_lane_helper;
     std::vector<lanelet::ConstLanelet> prev_lane;
@@ -1207,12 +1682,34 @@ namespace carma_wm
 
   std::vector<lanelet::Lanelet> CARMAWorldModel::nonConnectedAdjacentLeft(const lanelet::BasicPoint2d& input_point, const unsigned int n)
   {
-    return carma_wm::query::getLaneletsFromPoint(semantic_map_, input_point, n);
+    const CARMAWorldModel& const_this = *this;
+
+    std::vector<lanelet::Lanelet> opposite_lanelets;
+    for (const auto& llt : const_this.nonConnectedAdjacentLeft(input_point, n))
+    {
+      opposite_lanelets.push_back(semantic_map_->laneletLayer.get(llt.id()));
+    }
+    return opposite_lanelets;
   }
 
   std::vector<lanelet::ConstLanelet> CARMAWorldModel::nonConnectedAdjacentLeft(const lanelet::BasicPoint2d& input_point, const unsigned int n) const
   {
-    return carma_wm::query::getLaneletsFromPoint(getMap(), input_point, n);
+    auto map = getMap();
+    if (!map || map->laneletLayer.empty())
+    {
+      throw std::invalid_argument("Map is not set or does not contain lanelets");
+    }
+
+    try
+    {
+      return carma_wm::query::nonConnectedAdjacentLeft(map, adjacency_index_, input_point, n);
+    }
+    catch (const std::invalid_argument& e)
+    {
+      // The map is set so the point is not on it. Such points have no adjacent lanelets
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm"), "No adjacent left lanelets as " << e.what());
+      return {};
+    }
   }
 
   std::vector<lanelet::CarmaTrafficSignalPtr> CARMAWorldModel::getSignalsAlongRoute(const lanelet::BasicPoint2d& loc) const
@@ -1229,40 +1726,14 @@ namespace carma_wm
       RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "Route has not yet been loaded");
       return {};
     }
-    std::vector<lanelet::CarmaTrafficSignalPtr> light_list;
     auto curr_downtrack = routeTrackPos(loc).downtrack;
-    // shortpath is already sorted by distance
 
-    for (const auto &ll : route_->shortestPath())
+    if (route_regulation_index_.valid && route_regulation_index_.map_version == map_version_)
     {
-      auto lights = semantic_map_->laneletLayer.get(ll.id()).regulatoryElementsAs<lanelet::CarmaTrafficSignal>();
-      if (lights.empty())
-      {
-        continue;
-      }
-
-      for (auto light : lights)
-      {
-        auto stop_line = light->getStopLine(ll);
-        if (!stop_line)
-        {
-          RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "No stop line");
-          continue;
-        }
-        else
-        {
-          double light_downtrack = routeTrackPos(stop_line.get().front().basicPoint2d()).downtrack;
-          double distance_remaining_to_traffic_light = light_downtrack - curr_downtrack;
-
-          if (distance_remaining_to_traffic_light < 0)
-          {
-            continue;
-          }
-          light_list.push_back(light);
-        }
-      }
+      return route_regulation_index_.signals.from(curr_downtrack);
     }
-    return light_list;
+
+    return buildRouteRegulationIndex().signals.from(curr_downtrack);
   }
 
   boost::optional<std::pair<lanelet::ConstLanelet, lanelet::ConstLanelet>> CARMAWorldModel::getEntryExitOfSignalAlongRoute(const lanelet::CarmaTrafficSignalPtr& traffic_signal) const
@@ -1329,27 +1800,14 @@ namespace carma_wm
       RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "Route has not yet been loaded");
       return {};
     }
-    std::vector<std::shared_ptr<lanelet::AllWayStop>> intersection_list;
     auto curr_downtrack = routeTrackPos(loc).downtrack;
-    // shortpath is already sorted by distance
-    for(const auto& ll : route_->shortestPath())
+
+    if (route_regulation_index_.valid && route_regulation_index_.map_version == map_version_)
     {
-      auto intersections = semantic_map_->laneletLayer.get(ll.id()).regulatoryElementsAs<lanelet::AllWayStop>();
-      if (intersections.empty())
-      {
-        continue;
-      }
-      for (auto intersection : intersections)
-      {
-        double intersection_downtrack = routeTrackPos(intersection->stopLines().front().front().basicPoint2d()).downtrack;
-        if (intersection_downtrack < curr_downtrack)
-        {
-          continue;
-        }
-        intersection_list.push_back(intersection);
-      }
+      return route_regulation_index_.intersections.from(curr_downtrack);
     }
-    return intersection_list;
+
+    return buildRouteRegulationIndex().intersections.from(curr_downtrack);
   }
 
   std::vector<lanelet::SignalizedIntersectionPtr> CARMAWorldModel::getSignalizedIntersectionsAlongRoute(const lanelet::BasicPoint2d &loc) const
@@ -1366,27 +1824,14 @@ namespace carma_wm
       RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm"), "Route has not yet been loaded");
       return {};
     }
-    std::vector<lanelet::SignalizedIntersectionPtr> intersection_list;
     auto curr_downtrack = routeTrackPos(loc).downtrack;
-    // shortpath is already sorted by distance
-    for (const auto &ll : route_->shortestPath())
+
+    if (route_regulation_index_.valid && route_regulation_index_.map_version == map_version_)
     {
-      auto intersections = semantic_map_->laneletLayer.get(ll.id()).regulatoryElementsAs<lanelet::SignalizedIntersection>();
-      if (intersections.empty())
-      {
-        continue;
-      }
-      for (auto intersection : intersections)
-      {
-        double intersection_downtrack = routeTrackPos(ll.centerline().back().basicPoint2d()).downtrack;
-        if (intersection_downtrack < curr_downtrack)
-        {
-          continue;
-        }
-        intersection_list.push_back(intersection);
-      }
+      return route_regulation_index_.signalized_intersections.from(curr_downtrack);
     }
-    return intersection_list;
+
+    return buildRouteRegulationIndex().signalized_intersections.from(curr_downtrack);
   }
 
   lanelet::CarmaTrafficSignalPtr CARMAWorldModel::getTrafficSignal(const lanelet::Id& id) const
@@ -1427,19 +1872,50 @@ namespace carma_wm
     return curr_light;
   }
 
-  boost::posix_time::ptime CARMAWorldModel::min_end_time_converter_minute_of_year(boost::posix_time::ptime min_end_time,bool moy_exists,uint32_t moy, bool is_simulation)
+  boost::optional<SignalPhaseTimeline> CARMAWorldModel::getSignalPhaseTimeline(uint16_t intersection_id, uint8_t signal_group_id) const
   {
-    double simulation_time_difference_in_seconds = 0.0;
+    auto entry = spat_index_->find(intersection_id, signal_group_id);
+
+    if (!entry)
+    {
+      return boost::none;
+    }
 
+    return entry->timeline;
+  }
+
+  void CARMAWorldModel::shareSignalPhases(const CARMAWorldModel& other)
+  {
+    spat_index_ = other.spat_index_;
+  }
+
+  SignalPhaseIndex& CARMAWorldModel::mutableSpatIndex()
+  {
+    // Copies hold the index only through this member and are only made by the thread which changes it, so a count of 1
+    // means no other model can read it
+    if (spat_index_.use_count() > 1)
+    {
+      spat_index_ = std::make_shared<SignalPhaseIndex>(*spat_index_);
+    }
+    return *spat_index_;
+  }
+
+  double CARMAWorldModel::simulationTimeDifference(bool is_simulation) const
+  {
     // NOTE: In simulation, ROS1 clock (often coming from CARLA) can have a large time ahead.
     // the timing calculated here is in Simulation time, which is behind. Therefore, the world model adds the offset to make it meaningful to carma-platform:
     // https://github.com/usdot-fhwa-stol/carma-platform/issues/2217
     if (is_simulation && ros1_clock_ && simulation_clock_)
     {
-      simulation_time_difference_in_seconds = ros1_clock_.value().seconds() - simulation_clock_.value().seconds();
+      return ros1_clock_.value().seconds() - simulation_clock_.value().seconds();
     }
 
-    min_end_time += lanelet::time::durationFromSec(simulation_time_difference_in_seconds);
+    return 0.0;
+  }
+
+  boost::posix_time::ptime CARMAWorldModel::min_end_time_converter_minute_of_year(boost::posix_time::ptime min_end_time,bool moy_exists,uint32_t moy, bool is_simulation)
+  {
+    min_end_time += lanelet::time::durationFromSec(simulationTimeDifference(is_simulation));
 
     if (moy_exists) //account for minute of the year
     {
@@ -1473,20 +1949,26 @@ namespace carma_wm
     }
   }
 
-  void CARMAWorldModel::processSpatFromMsg(const carma_v2x_msgs::msg::SPAT &spat_msg, bool use_sim_time)
+  bool CARMAWorldModel::processSpatFromMsg(const carma_v2x_msgs::msg::SPAT &spat_msg, bool use_sim_time)
   {
     if (!semantic_map_)
     {
       RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm"), "Map is not set yet.");
-      return;
+      return false;
     }
 
     if (spat_msg.intersection_state_list.empty())
     {
       RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm"), "No intersection_state_list in the newly received SPAT msg. Returning...");
-      return;
+      return false;
     }
 
+    bool changed = false;
+
+    // The index may have been copied from another world model along with the signals of its map
+    SignalPhaseIndex& spat_index = mutableSpatIndex();
+    spat_index.bindSignals(semantic_map_.get());
+
     for (const auto& curr_intersection : spat_msg.intersection_state_list)
     {
 
@@ -1499,19 +1981,42 @@ namespace carma_wm
           continue;
         }
 
-        lanelet::CarmaTrafficSignalPtr curr_light = getTrafficSignal(curr_light_id);
+        auto& index_entry = spat_index.getOrCreate(curr_intersection.id.id, current_movement_state.signal_group);
+
+        // Resolving the signal requires a search of the map so the result is kept until the map changes
+        if (!index_entry.signal || index_entry.signal->id() != curr_light_id)
+        {
+          index_entry.signal = getTrafficSignal(curr_light_id);
+          index_entry.applied = false;
+        }
+
+        lanelet::CarmaTrafficSignalPtr curr_light = index_entry.signal;
 
         if (curr_light == nullptr)
         {
           continue;
         }
 
+        double time_offset = simulationTimeDifference(use_sim_time);
+
+        // SPaT is broadcast far more often than its content changes. If the signal already holds the timing of
+        // identical content there is nothing to update
+        if (index_entry.applied && curr_light->revision_ == curr_intersection.revision &&
+            index_entry.moy_exists == curr_intersection.moy_exists && index_entry.moy == curr_intersection.moy &&
+            std::abs(index_entry.time_offset - time_offset) <= SignalPhaseIndex::TIME_OFFSET_TOLERANCE &&
+            index_entry.movement_events == current_movement_state.movement_event_list)
+        {
+          continue;
+        }
+
+        SignalPhaseTimeline& timeline = index_entry.timeline;
+
         // reset states if the intersection's geometry changed
         if (curr_light->revision_ != curr_intersection.revision)
         {
           RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm"), "Received a new intersection geometry. intersection_id: " << (int)curr_intersection.id.id << ", and signal_group_id: " << (int)current_movement_state.signal_group);
-          sim_.traffic_signal_start_times_[curr_intersection.id.id][current_movement_state.signal_group].clear();
-          sim_.traffic_signal_states_[curr_intersection.id.id][current_movement_state.signal_group].clear();
+          timeline.start_times.clear();
+          timeline.min_end_times.clear();
         }
 
         // all maneuver types in same signal group is currently expected to share signal timing, so only 0th index is used when setting states
@@ -1526,11 +2031,13 @@ namespace carma_wm
         }
 
         curr_light->revision_ = curr_intersection.revision; // valid SPAT msg
+        changed = true;
 
-        sim_.traffic_signal_states_[curr_intersection.id.id][current_movement_state.signal_group]={};
-        sim_.traffic_signal_start_times_[curr_intersection.id.id][current_movement_state.signal_group]={};
+        // The buffers keep their capacity so no allocation is needed once the index has seen a signal group
+        timeline.min_end_times.clear();
+        timeline.start_times.clear();
 
-        for(auto current_movement_event:current_movement_state.movement_event_list)
+        for(const auto& current_movement_event:current_movement_state.movement_event_list)
         {
           // raw min_end_time in seconds measured from the most recent full hour
           boost::posix_time::ptime min_end_time_dynamic = lanelet::time::timeFromSec(current_movement_event.timing.min_end_time);
@@ -1541,19 +2048,29 @@ namespace carma_wm
 
           auto received_state_dynamic = static_cast<lanelet::CarmaTrafficSignalState>(current_movement_event.event_state.movement_phase_state);
 
-          sim_.traffic_signal_states_[curr_intersection.id.id][current_movement_state.signal_group].push_back(std::make_pair(min_end_time_dynamic, received_state_dynamic));
-          sim_.traffic_signal_start_times_[curr_intersection.id.id][current_movement_state.signal_group].push_back(
-                              start_time_dynamic);
+          timeline.min_end_times.emplace_back(min_end_time_dynamic, received_state_dynamic);
+          timeline.start_times.push_back(start_time_dynamic);
 
           RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm"), "intersection id: " << (int)curr_intersection.id.id << ", signal: " << (int)current_movement_state.signal_group
             << ", start_time: " << std::to_string(lanelet::time::toSec(start_time_dynamic))
             << ", end_time: " << std::to_string(lanelet::time::toSec(min_end_time_dynamic))
             << ", state: " << received_state_dynamic);
         }
-        curr_light->recorded_time_stamps = sim_.traffic_signal_states_[curr_intersection.id.id][current_movement_state.signal_group];
-        curr_light->recorded_start_time_stamps  = sim_.traffic_signal_start_times_[curr_intersection.id.id][current_movement_state.signal_group];
+
+        // assign reuses the storage already held by the signal
+        curr_light->recorded_time_stamps.assign(timeline.min_end_times.begin(), timeline.min_end_times.end());
+        curr_light->recorded_start_time_stamps.assign(timeline.start_times.begin(), timeline.start_times.end());
+
+        index_entry.applied = true;
+        index_entry.moy_exists = curr_intersection.moy_exists;
+        index_entry.moy = curr_intersection.moy;
+        index_entry.time_offset = time_offset;
+        index_entry.movement_events.assign(current_movement_state.movement_event_list.begin(),
+                                           current_movement_state.movement_event_list.end());
       }
     }
+
+    return changed;
   }
 
 } // namespace carma_wm
\ No newline at end of file
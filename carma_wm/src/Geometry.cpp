@@ -19,6 +19,7 @@
 #include <tf2/LinearMath/Transform.h>
 #include <tf2_geometry_msgs/tf2_geometry_msgs.h>
 #include <tf2/transform_datatypes.h>
+#include <numeric>
 
 namespace carma_wm
 {
@@ -637,6 +638,229 @@ std::vector<double> local_circular_arc_curvatures(const std::vector<lanelet::Bas
 }
 
 
+// Lanelet2 2d points are unaligned pairs of doubles so a list of points is a contiguous column major 2xN matrix
+static_assert(sizeof(lanelet::BasicPoint2d) == 2 * sizeof(double), "BasicPoint2d must be tightly packed to be mapped");
+
+template <class A>
+Eigen::Map<const Eigen::Matrix2Xd> map_points(const std::vector<lanelet::BasicPoint2d, A>& points)
+{
+  return Eigen::Map<const Eigen::Matrix2Xd>(points.empty() ? nullptr : points.front().data(), 2, points.size());
+}
+
+/**
+ * Single pass kernel shared by the buffered curvature, orientation, and arc length functions.
+ * The tangent and arc length of the next point are computed one step ahead so that the centered differences of each
+ * point can be evaluated without storing intermediate results. Outputs which are nullptr are not computed.
+ * The arithmetic matches templated_local_curvatures, compute_templated_tangent_orientations,
+ * and compute_templated_arc_lengths.
+ */
+template <class A>
+void centerline_kernel(const std::vector<lanelet::BasicPoint2d, A>& data, std::vector<double>* curvatures,
+                       std::vector<double>* orientations, std::vector<double>* arc_lengths)
+{
+  const size_t n = data.size();
+
+  for (auto out : { curvatures, orientations, arc_lengths })
+  {
+    if (out)
+      out->resize(n);
+  }
+
+  if (n == 0)
+  {
+    return;
+  }
+  else if (n == 1)
+  {
+    for (auto out : { curvatures, orientations, arc_lengths })
+    {
+      if (out)
+        (*out)[0] = 0.0;
+    }
+    return;
+  }
+
+  auto points = map_points(data);
+
+  auto tangent = [&points, n](size_t i) -> Eigen::Vector2d {
+    Eigen::Vector2d diff;
+    if (i == 0)
+      diff = points.col(1) - points.col(0);
+    else if (i == n - 1)
+      diff = points.col(i) - points.col(i - 1);
+    else
+      diff = (points.col(i + 1) - points.col(i - 1)) / 2.0;
+
+    return diff.normalized();
+  };
+
+  double s_prev = 0;
+  double s_cur = 0;
+  double s_next = compute_euclidean_distance(points.col(0), points.col(1));
+
+  Eigen::Vector2d t_prev = Eigen::Vector2d::Zero();
+  Eigen::Vector2d t_cur = tangent(0);
+  Eigen::Vector2d t_next = tangent(1);
+
+  for (size_t i = 0; i < n; i++)
+  {
+    if (arc_lengths)
+      (*arc_lengths)[i] = s_cur;
+
+    if (orientations)
+      (*orientations)[i] = std::atan2(t_cur[1], t_cur[0]);
+
+    if (curvatures)
+    {
+      if (i == 0)
+        (*curvatures)[i] = ((t_next - t_cur) / (s_next - s_cur)).norm();
+      else if (i == n - 1)
+        (*curvatures)[i] = ((t_cur - t_prev) / (s_cur - s_prev)).norm();
+      else
+        (*curvatures)[i] = ((t_next - t_prev) / (s_next - s_prev)).norm();
+    }
+
+    // Advance the window
+    if (i + 2 < n)
+    {
+      t_prev = t_cur;
+      t_cur = t_next;
+      t_next = tangent(i + 2);
+
+      s_prev = s_cur;
+      s_cur = s_next;
+      s_next = s_cur + compute_euclidean_distance(points.col(i + 1), points.col(i + 2));
+    }
+    else
+    {
+      t_prev = t_cur;
+      t_cur = t_next;
+
+      s_prev = s_cur;
+      s_cur = s_next;
+    }
+  }
+}
+
+void local_curvatures(const lanelet::BasicLineString2d& centerline_points, std::vector<double>& curvatures)
+{
+  if (centerline_points.empty()) {
+    throw std::invalid_argument("No points in centerline for curvature calculation");
+  }
+  centerline_kernel(centerline_points, &curvatures, nullptr, nullptr);
+}
+
+void local_curvatures(const std::vector<lanelet::BasicPoint2d>& centerline_points, std::vector<double>& curvatures)
+{
+  if (centerline_points.empty()) {
+    throw std::invalid_argument("No points in centerline for curvature calculation");
+  }
+  centerline_kernel(centerline_points, &curvatures, nullptr, nullptr);
+}
+
+void compute_curvatures_orientations_arc_lengths(const lanelet::BasicLineString2d& centerline_points,
+                                                 std::vector<double>& curvatures, std::vector<double>& orientations,
+                                                 std::vector<double>& arc_lengths)
+{
+  if (centerline_points.empty()) {
+    throw std::invalid_argument("No points in centerline for curvature calculation");
+  }
+  centerline_kernel(centerline_points, &curvatures, &orientations, &arc_lengths);
+}
+
+void compute_curvatures_orientations_arc_lengths(const std::vector<lanelet::BasicPoint2d>& centerline_points,
+                                                 std::vector<double>& curvatures, std::vector<double>& orientations,
+                                                 std::vector<double>& arc_lengths)
+{
+  if (centerline_points.empty()) {
+    throw std::invalid_argument("No points in centerline for curvature calculation");
+  }
+  centerline_kernel(centerline_points, &curvatures, &orientations, &arc_lengths);
+}
+
+void compute_tangent_orientations(const lanelet::BasicLineString2d& centerline, std::vector<double>& orientations)
+{
+  centerline_kernel(centerline, nullptr, &orientations, nullptr);
+}
+
+void compute_tangent_orientations(const std::vector<lanelet::BasicPoint2d>& centerline,
+                                  std::vector<double>& orientations)
+{
+  centerline_kernel(centerline, nullptr, &orientations, nullptr);
+}
+
+template <class A>
+void compute_templated_arc_lengths(const std::vector<lanelet::BasicPoint2d, A>& data, std::vector<double>& out)
+{
+  out.resize(data.size());
+  if (data.empty())
+    return;
+
+  out[0] = 0;
+  if (data.size() == 1)
+    return;
+
+  // Segment lengths are computed as a single vectorizable expression then accumulated in place
+  auto points = map_points(data);
+  const Eigen::Index num_segments = points.cols() - 1;
+  Eigen::Map<Eigen::RowVectorXd>(out.data() + 1, num_segments) =
+      (points.rightCols(num_segments) - points.leftCols(num_segments)).colwise().norm();
+
+  std::partial_sum(out.begin() + 1, out.end(), out.begin() + 1);
+}
+
+void compute_arc_lengths(const std::vector<lanelet::BasicPoint2d>& data, std::vector<double>& out)
+{
+  compute_templated_arc_lengths(data, out);
+}
+
+void compute_arc_lengths(const lanelet::BasicLineString2d& data, std::vector<double>& out)
+{
+  compute_templated_arc_lengths(data, out);
+}
+
+void compute_finite_differences(const std::vector<double>& data, std::vector<double>& out)
+{
+  out.resize(data.size());
+  if (data.size() < 2)
+  {
+    std::fill(out.begin(), out.end(), 0.0);
+    return;
+  }
+
+  const Eigen::Index n = data.size();
+  Eigen::Map<const Eigen::VectorXd> in_vec(data.data(), n);
+  Eigen::Map<Eigen::VectorXd> out_vec(out.data(), n);
+
+  out_vec[0] = in_vec[1] - in_vec[0];
+  out_vec.segment(1, n - 2) = (in_vec.tail(n - 2) - in_vec.head(n - 2)) / 2.0;
+  out_vec[n - 1] = in_vec[n - 1] - in_vec[n - 2];
+}
+
+void local_circular_arc_curvatures(const std::vector<lanelet::BasicPoint2d>& points, int lookahead,
+                                   std::vector<double>& curvatures)
+{
+  if (lookahead <= 0) {
+    throw std::invalid_argument("local_circular_arc_curvatures lookahead must be greater than 0");
+  }
+
+  curvatures.resize(points.size());
+  if (points.empty()) {
+    return;
+  }
+  else if (points.size() == 1) {
+    curvatures[0] = 0.0;
+    return;
+  }
+
+  for (size_t i = 0; i < points.size() - 1; i++)
+  {
+    size_t next_point_index = std::min(i + lookahead, points.size() - 1);
+    curvatures[i] = fabs(circular_arc_curvature(points[i], points[next_point_index]));
+  }
+  curvatures.back() = curvatures[curvatures.size() - 2];
+}
+
 }  // namespace geometry
 
 }  // namespace carma_wm
\ No newline at end of file
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/LaneletAdjacencyIndex.hpp>
+#include <lanelet2_core/geometry/Lanelet.h>
+#include <lanelet2_core/geometry/LineString.h>
+#include <algorithm>
+
+namespace carma_wm
+{
+namespace
+{
+/*!
+ * \brief Returns the region covered by mirroring every point of the lanelet across every point of the provided bound
+ *        The mirror of point p across point q is 2q - p so its extent is given by the extents of both point sets
+ */
+lanelet::BoundingBox2d mirroredRegion(const lanelet::BoundingBox2d& lanelet_box, const lanelet::ConstLineString2d& bound)
+{
+  auto bound_box = lanelet::geometry::boundingBox2d(bound);
+  return lanelet::BoundingBox2d(lanelet::BasicPoint2d(2 * bound_box.min() - lanelet_box.max()),
+                                lanelet::BasicPoint2d(2 * bound_box.max() - lanelet_box.min()));
+}
+
+std::vector<lanelet::Id> laneletIds(const lanelet::ConstLanelets& lanelets)
+{
+  std::vector<lanelet::Id> ids;
+  ids.reserve(lanelets.size());
+  for (const auto& llt : lanelets)
+  {
+    ids.push_back(llt.id());
+  }
+  return ids;
+}
+
+}  // namespace
+
+LaneletAdjacencyIndex::Entry LaneletAdjacencyIndex::buildEntry(const lanelet::LaneletMapConstPtr& map,
+                                                               const lanelet::ConstLanelet& lanelet) const
+{
+  auto lanelet_box = lanelet::geometry::boundingBox2d(lanelet);
+
+  Entry entry;
+  entry.left_region = mirroredRegion(lanelet_box, lanelet.leftBound2d());
+  entry.right_region = mirroredRegion(lanelet_box, lanelet.rightBound2d());
+  entry.left = laneletIds(map->laneletLayer.search(entry.left_region));
+  entry.right = laneletIds(map->laneletLayer.search(entry.right_region));
+  return entry;
+}
+
+void LaneletAdjacencyIndex::build(const lanelet::LaneletMapConstPtr& map)
+{
+  entries_.clear();
+
+  if (!map)
+  {
+    return;
+  }
+
+  entries_.reserve(map->laneletLayer.size());
+  for (const auto& llt : map->laneletLayer)
+  {
+    entries_.emplace(llt.id(), buildEntry(map, llt));
+  }
+}
+
+size_t LaneletAdjacencyIndex::update(const lanelet::LaneletMapConstPtr& map)
+{
+  if (!map)
+  {
+    size_t removed = entries_.size();
+    entries_.clear();
+    return removed;
+  }
+
+  // Drop lanelets which are no longer in the map
+  std::vector<lanelet::Id> removed_ids;
+  for (const auto& entry : entries_)
+  {
+    if (!map->laneletLayer.exists(entry.first))
+    {
+      removed_ids.push_back(entry.first);
+    }
+  }
+
+  if (!removed_ids.empty())
+  {
+    for (auto id : removed_ids)
+    {
+      entries_.erase(id);
+    }
+
+    auto is_removed = [&removed_ids](lanelet::Id id) {
+      return std::find(removed_ids.begin(), removed_ids.end(), id) != removed_ids.end();
+    };
+    for (auto& entry : entries_)
+    {
+      auto& left = entry.second.left;
+      auto& right = entry.second.right;
+      left.erase(std::remove_if(left.begin(), left.end(), is_removed), left.end());
+      right.erase(std::remove_if(right.begin(), right.end(), is_removed), right.end());
+    }
+  }
+
+  // Index the added lanelets. Their entries already include each other as they are searched in the updated map
+  lanelet::ConstLanelets added;
+  for (const auto& llt : map->laneletLayer)
+  {
+    if (entries_.find(llt.id()) == entries_.end())
+    {
+      added.emplace_back(llt);
+    }
+  }
+
+  if (added.empty())
+  {
+    return removed_ids.size();
+  }
+
+  std::vector<std::pair<lanelet::Id, lanelet::BoundingBox2d>> added_boxes;
+  added_boxes.reserve(added.size());
+  for (const auto& llt : added)
+  {
+    added_boxes.emplace_back(llt.id(), lanelet::geometry::boundingBox2d(llt));
+  }
+
+  // Existing lanelets gain the added lanelets which fall within their neighbourhood
+  for (auto& entry : entries_)
+  {
+    for (const auto& added_box : added_boxes)
+    {
+      if (entry.second.left_region.intersects(added_box.second))
+        entry.second.left.push_back(added_box.first);
+
+      if (entry.second.right_region.intersects(added_box.second))
+        entry.second.right.push_back(added_box.first);
+    }
+  }
+
+  for (const auto& llt : added)
+  {
+    entries_.emplace(llt.id(), buildEntry(map, llt));
+  }
+
+  return removed_ids.size() + added.size();
+}
+
+const std::vector<lanelet::Id>* LaneletAdjacencyIndex::getLeftNeighbours(lanelet::Id lanelet_id) const
+{
+  auto entry = entries_.find(lanelet_id);
+  return entry == entries_.end() ? nullptr : &entry->second.left;
+}
+
+const std::vector<lanelet::Id>* LaneletAdjacencyIndex::getRightNeighbours(lanelet::Id lanelet_id) const
+{
+  auto entry = entries_.find(lanelet_id);
+  return entry == entries_.end() ? nullptr : &entry->second.right;
+}
+
+size_t LaneletAdjacencyIndex::size() const
+{
+  return entries_.size();
+}
+
+void LaneletAdjacencyIndex::clear()
+{
+  entries_.clear();
+}
+
+}  // namespace carma_wm
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/LaneletPolygonIndex.hpp>
+#include <lanelet2_core/geometry/Polygon.h>
+#include <algorithm>
+#include <future>
+#include <iterator>
+#include <limits>
+#include <thread>
+
+namespace carma_wm
+{
+LaneletPolygonIndex::IndexBox LaneletPolygonIndex::boundingBox(const lanelet::BasicPolygon2d& polygon)
+{
+  IndexBox box(IndexPoint(std::numeric_limits<double>::max(), std::numeric_limits<double>::max()),
+               IndexPoint(std::numeric_limits<double>::lowest(), std::numeric_limits<double>::lowest()));
+  for (const auto& point : polygon)
+  {
+    boost::geometry::expand(box, IndexPoint(point.x(), point.y()));
+  }
+  return box;
+}
+
+void LaneletPolygonIndex::build(const lanelet::LaneletMapPtr& map)
+{
+  clear();
+
+  if (!map)
+  {
+    return;
+  }
+
+  map_ = map.get();
+  update(map);
+}
+
+size_t LaneletPolygonIndex::update(const lanelet::LaneletMapPtr& map)
+{
+  if (map.get() != map_)
+  {
+    build(map);
+    return size();
+  }
+
+  if (!map || map->laneletLayer.size() + map->areaLayer.size() == indexed_ids_.size())
+  {
+    return 0;  // Primitives are never removed from a map so nothing was added
+  }
+
+  std::vector<IndexValue> new_lanelets;
+  for (auto llt : map->laneletLayer)
+  {
+    if (!indexed_ids_.insert(llt.id()).second)
+      continue;
+
+    lanelets_.push_back({ llt.polygon2d().basicPolygon(), llt });
+    new_lanelets.emplace_back(boundingBox(lanelets_.back().polygon), lanelets_.size() - 1);
+  }
+
+  std::vector<IndexValue> new_areas;
+  for (auto area : map->areaLayer)
+  {
+    if (!indexed_ids_.insert(area.id()).second)
+      continue;
+
+    lanelet::BasicPolygon2d polygon;
+    for (const auto& point : area.outerBoundPolygon())
+    {
+      polygon.push_back(point.basicPoint2d());
+    }
+
+    areas_.push_back({ polygon, area });
+    new_areas.emplace_back(boundingBox(polygon), areas_.size() - 1);
+  }
+
+  // An empty tree is bulk loaded as packing gives a better tree than repeated insertion
+  if (lanelet_rtree_.empty())
+    lanelet_rtree_ = RTree(new_lanelets.begin(), new_lanelets.end());
+  else
+    lanelet_rtree_.insert(new_lanelets.begin(), new_lanelets.end());
+
+  if (area_rtree_.empty())
+    area_rtree_ = RTree(new_areas.begin(), new_areas.end());
+  else
+    area_rtree_.insert(new_areas.begin(), new_areas.end());
+
+  return new_lanelets.size() + new_areas.size();
+}
+
+template <typename PrimitiveT>
+std::vector<PrimitiveT> LaneletPolygonIndex::query(const RTree& rtree, const std::vector<Entry<PrimitiveT>>& entries,
+                                                   const lanelet::BasicPoint2d& point)
+{
+  std::vector<IndexValue> candidates;
+  rtree.query(boost::geometry::index::intersects(IndexPoint(point.x(), point.y())), std::back_inserter(candidates));
+
+  // Candidates are returned in tree order so they are sorted to keep results independent of how the tree was built
+  std::sort(candidates.begin(), candidates.end(),
+            [](const IndexValue& a, const IndexValue& b) { return a.second < b.second; });
+
+  std::vector<PrimitiveT> result;
+  for (const auto& candidate : candidates)
+  {
+    const auto& entry = entries[candidate.second];
+    if (boost::geometry::covered_by(point, entry.polygon))
+    {
+      result.push_back(entry.primitive);
+    }
+  }
+  return result;
+}
+
+lanelet::Lanelets LaneletPolygonIndex::getContainingLanelets(const lanelet::BasicPoint2d& point) const
+{
+  return query(lanelet_rtree_, lanelets_, point);
+}
+
+std::vector<lanelet::Lanelets> LaneletPolygonIndex::getContainingLanelets(const lanelet::BasicPoints2d& points,
+                                                                          size_t num_threads) const
+{
+  std::vector<lanelet::Lanelets> result(points.size());
+
+  auto classify_range = [&](size_t begin, size_t end) {
+    for (size_t i = begin; i < end; i++)
+    {
+      result[i] = getContainingLanelets(points[i]);
+    }
+  };
+
+  if (num_threads == 0)
+  {
+    num_threads = std::max(1u, std::thread::hardware_concurrency());
+  }
+  num_threads = std::min(num_threads, (points.size() + PARALLEL_MIN_POINTS - 1) / PARALLEL_MIN_POINTS);
+
+  if (num_threads > 1)
+  {
+    size_t chunk_size = (points.size() + num_threads - 1) / num_threads;
+    std::vector<std::future<void>> tasks;
+    tasks.reserve(num_threads);
+
+    for (size_t begin = 0; begin < points.size(); begin += chunk_size)
+    {
+      tasks.emplace_back(std::async(std::launch::async, classify_range, begin, std::min(begin + chunk_size, points.size())));
+    }
+
+    for (auto& task : tasks)
+    {
+      task.get();  // Rethrows any exception from the worker
+    }
+  }
+  else
+  {
+    classify_range(0, points.size());
+  }
+
+  return result;
+}
+
+lanelet::Areas LaneletPolygonIndex::getContainingAreas(const lanelet::BasicPoint2d& point) const
+{
+  return query(area_rtree_, areas_, point);
+}
+
+size_t LaneletPolygonIndex::size() const
+{
+  return lanelets_.size() + areas_.size();
+}
+
+void LaneletPolygonIndex::clear()
+{
+  map_ = nullptr;
+  lanelets_.clear();
+  areas_.clear();
+  indexed_ids_.clear();
+  lanelet_rtree_.clear();
+  area_rtree_.clear();
+}
+
+}  // namespace carma_wm
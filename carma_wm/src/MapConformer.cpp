@@ -19,6 +19,10 @@
 #include <lanelet2_core/utility/Units.h>
 #include <boost/algorithm/string.hpp>
 #include <carma_wm/MapConformer.hpp>
+#include <algorithm>
+#include <future>
+#include <thread>
+#include <unordered_map>
 
 
 namespace lanelet
@@ -43,6 +47,9 @@ enum class LaneChangeType
   None
 };
 
+// Minimum number of lanelets given to each thread when computing compliance plans
+constexpr size_t PARALLEL_COMPLIANCE_MIN_LANELETS = 256;
+
 // List of supported participants. Should exactly match elements of lanelet::Participants struct
 constexpr size_t PARTICIPANT_COUNT = 12;
 constexpr const char* participant_types[PARTICIPANT_COUNT] = { lanelet::Participants::Vehicle,  //
@@ -235,39 +242,6 @@ PassingControlLinePtr buildControlLine(LineString3d& bound, const LaneChangeType
   }
 }
 
-/**
- * @brief Generate RegionAccessRules from the inferred regulations in the provided map and lanelet
- *
- * @param lanelet The lanelet to generate the rules for
- * @param map The map which the lanelet is part of
- * @param default_traffic_rules The set of traffic rules to treat as guidance for interpreting the map
- */
-void addInferredAccessRule(Lanelet& lanelet, lanelet::LaneletMapPtr map,
-                           const std::vector<lanelet::traffic_rules::TrafficRulesUPtr>& default_traffic_rules)
-{
-  auto access_rules = lanelet.regulatoryElementsAs<RegionAccessRule>();
-  // If the lanelet does not have an access rule then add one based on the generic traffic rules
-  if (access_rules.size() == 0)
-  {  // No access rule detected so add one
-
-    // We want to check for all participants which are currently supported
-    std::vector<std::string> allowed_participants;
-
-    for (const auto& rules : default_traffic_rules)
-    {
-      if (rules->canPass(lanelet))
-      {
-        allowed_participants.emplace_back(rules->participant());
-      }
-    }
-
-    std::shared_ptr<RegionAccessRule> rar(new RegionAccessRule(
-        RegionAccessRule::buildData(lanelet::utils::getId(), { lanelet }, {}, allowed_participants)));
-    lanelet.addRegulatoryElement(rar);
-    map->add(rar);
-  }
-}
-
 /**
  * @brief Generate RegionAccessRules from the inferred regulations in the provided map and area
  *
@@ -301,82 +275,6 @@ void addInferredAccessRule(Area& area, lanelet::LaneletMapPtr map,
   }
 }
 
-/**
- * @brief Generate PassingControlLines from the inferred regulations in the provided map and lanelet
- *
- * @param lanelet The lanelet to generate control lines for
- * @param map The map which the lanelet is part of
- */
-void addInferredPassingControlLine(Lanelet& lanelet, lanelet::LaneletMapPtr map)
-{
-  // Since this class is only designed to add passing control lines based on lane changes
-  // we will always assume the participant is a vehicle
-  std::string participant(lanelet::Participants::Vehicle);
-
-  LineString3d left_bound = lanelet.leftBound();
-  LineString3d right_bound = lanelet.rightBound();
-
-  // Determine possibility of lane change for left and right bounds
-  LaneChangeType left_type = getChangeType(left_bound.attribute(AttributeName::Type).value(),
-                                           left_bound.attribute(AttributeName::Subtype).value(), participant);
-  LaneChangeType right_type = getChangeType(right_bound.attribute(AttributeName::Type).value(),
-                                            right_bound.attribute(AttributeName::Subtype).value(), participant);
-
-  auto local_control_lines = lanelet.regulatoryElementsAs<PassingControlLine>();
-
-  bool foundLeft = false;
-  bool foundRight = false;
-
-  // Iterate over all regulatory elements in the map to determine if there is an existing regulation for this
-  // lanelet's bounds
-  for (auto reg_elem : map->regulatoryElementLayer)
-  {
-    if (reg_elem->attribute(AttributeName::Subtype).value() != PassingControlLine::RuleName)
-    {
-      continue;
-    }
-
-    auto pcl = std::static_pointer_cast<PassingControlLine>(reg_elem);
-    for (auto sub_line : pcl->controlLine())
-    {
-      bool shouldAdd = false;
-      
-      if (left_bound.id() == sub_line.id() && !foundLeft)
-      {
-        foundLeft = true;
-        shouldAdd = !lanelet::utils::contains(local_control_lines, pcl);
-      }
-      else if (right_bound.id() == sub_line.id() && !foundRight)
-      {
-        foundRight = true;
-        shouldAdd = !lanelet::utils::contains(local_control_lines, pcl);
-      }
-      // Check if our lanelet contains this control line
-      // If it does not then add it
-      if (shouldAdd)
-      {
-        lanelet.addRegulatoryElement(pcl);
-      }
-    }
-    
-  }
-
-  // If no existing regulation was found for this lanelet's right or left bound then create a new one and add it to
-  // the lanelet and the map
-  if (!foundLeft)
-  {
-    PassingControlLinePtr pcl_left = buildControlLine(left_bound, left_type, participant);
-    lanelet.addRegulatoryElement(pcl_left);
-    map->add(pcl_left);
-  }
-  if (!foundRight)
-  {
-    PassingControlLinePtr pcl_right = buildControlLine(right_bound, right_type, participant);
-    lanelet.addRegulatoryElement(pcl_right);
-    map->add(pcl_right);
-  }
-}
-
 /**
  * @brief Generate PassingControlLines from the inferred regulations in the provided map and area
  *
@@ -442,126 +340,293 @@ void addInferredPassingControlLine(Area& area, lanelet::LaneletMapPtr map)
 }
 
 /**
- * @brief Generate DirectionOfTravel from the inferred regulations in the provided map and lanelet
- *        Only adds a regulatory element if the direction of travel is not one_way as that is the default
+ * @brief The regulatory elements which must be added to a lanelet for it to be compliant.
+ *        Computed without modifying the map so that plans for different lanelets can be computed concurrently
+ */
+struct LaneletCompliancePlan
+{
+  // RegionAccessRule to add. Only added if add_access_rule is true
+  bool add_access_rule = false;
+  std::vector<std::string> access_participants;
+
+  // Type of lane change implied by each bound. Used if no PassingControlLine exists for the bound
+  LaneChangeType left_type = LaneChangeType::None;
+  LaneChangeType right_type = LaneChangeType::None;
+
+  // DirectionOfTravel to add. Only bi-directional regulations are added
+  bool add_direction_of_travel = false;
+  std::vector<std::string> direction_participants;
+
+  // DigitalSpeedLimit to add or to replace the existing one with if it exceeds the max speed
+  bool add_speed_limit = false;
+  bool replace_speed_limit = false;
+  std::vector<std::string> speed_limit_participants;
+};
+
+/**
+ * @brief Computes the regulatory elements which must be added to the provided lanelet. Does not modify the lanelet or the map
  *
- * @param lanelet The lanelet to generate directions of travel for
- * @param map The map which the lanelet is part of
+ * A RegionAccessRule is needed if the lanelet has none. A DirectionOfTravel is needed if the lanelet has none and is not
+ * one way for some participant. A DigitalSpeedLimit is needed if the lanelet has none or its existing one exceeds max_speed.
+ *
+ * @param lanelet The lanelet to plan for
+ * @param max_speed The maximum allowed speed limit
  * @param default_traffic_rules The set of traffic rules to treat as guidance for interpreting the map
+ *
+ * @return The compliance plan of the lanelet
  */
-void addInferredDirectionOfTravel(Lanelet& lanelet, lanelet::LaneletMapPtr map,
-                                  const std::vector<lanelet::traffic_rules::TrafficRulesUPtr>& default_traffic_rules)
+LaneletCompliancePlan planLaneletCompliance(const ConstLanelet& lanelet, lanelet::Velocity max_speed,
+                                            const std::vector<lanelet::traffic_rules::TrafficRulesUPtr>& default_traffic_rules)
 {
-  auto direction_of_travel = lanelet.regulatoryElementsAs<DirectionOfTravel>();
+  LaneletCompliancePlan plan;
+
   // If the lanelet does not have an access rule then add one based on the generic traffic rules
-  if (direction_of_travel.size() == 0)
-  {  // No direction detected so need to check if one is required
+  if (lanelet.regulatoryElementsAs<RegionAccessRule>().empty())
+  {
+    plan.add_access_rule = true;
 
     // We want to check for all participants which are currently supported
-    std::vector<std::string> allowed_participants;
+    for (const auto& rules : default_traffic_rules)
+    {
+      if (rules->canPass(lanelet))
+      {
+        plan.access_participants.emplace_back(rules->participant());
+      }
+    }
+  }
+
+  // Since this class is only designed to add passing control lines based on lane changes
+  // we will always assume the participant is a vehicle
+  std::string participant(lanelet::Participants::Vehicle);
+
+  ConstLineString3d left_bound = lanelet.leftBound();
+  ConstLineString3d right_bound = lanelet.rightBound();
+
+  // Determine possibility of lane change for left and right bounds
+  plan.left_type = getChangeType(left_bound.attribute(AttributeName::Type).value(),
+                                 left_bound.attribute(AttributeName::Subtype).value(), participant);
+  plan.right_type = getChangeType(right_bound.attribute(AttributeName::Type).value(),
+                                  right_bound.attribute(AttributeName::Subtype).value(), participant);
 
+  // Only bi-directional regulations are added as one_way is the default
+  if (lanelet.regulatoryElementsAs<DirectionOfTravel>().empty())
+  {
     for (const auto& rules : default_traffic_rules)
     {
       if (!rules->isOneWay(lanelet))
       {  // Check if this lanelet is not oneway
-        allowed_participants.emplace_back(rules->participant());
+        plan.direction_participants.emplace_back(rules->participant());
       }
     }
 
-    if (allowed_participants.size() > 0)
-    {  // Only add bi-directional regulations
-      std::shared_ptr<DirectionOfTravel> rar(new DirectionOfTravel(DirectionOfTravel::buildData(
-          lanelet::utils::getId(), { lanelet }, DirectionOfTravel::BiDirectional, allowed_participants)));
-      lanelet.addRegulatoryElement(rar);
-      map->add(rar);
+    plan.add_direction_of_travel = !plan.direction_participants.empty();
+  }
+
+  auto speed_limit = lanelet.regulatoryElementsAs<DigitalSpeedLimit>();
+
+  for (const auto& rules : default_traffic_rules)
+  {
+    if (rules->canPass(lanelet))
+    {
+      plan.speed_limit_participants.emplace_back(rules->participant());
     }
   }
+
+  if (speed_limit.empty())  // If there is no assigned speed limit value
+  {
+    plan.add_speed_limit = !plan.speed_limit_participants.empty();
+  }
+  else  // If the speed limit value already exists check that it does not exceed the maximum value
+  {
+    plan.replace_speed_limit = speed_limit.back().get()->speed_limit_ > max_speed;
+  }
+
+  return plan;
 }
 
-void addValidSpeedLimit(Lanelet& lanelet, lanelet::LaneletMapPtr map, lanelet::Velocity config_limit,
-    const std::vector<lanelet::traffic_rules::TrafficRulesUPtr>& default_traffic_rules )
+/**
+ * @brief Adds the PassingControlLine of the provided bound to the lanelet. If the map does not yet contain a control line
+ *        for the bound then a new one is created and added to the map and the index
+ *
+ * @param lanelet The lanelet to add the control line to
+ * @param bound The left or right bound of the lanelet
+ * @param type The type of lane change implied by the bound
+ * @param local_control_lines The control lines of the lanelet before any were added by this pass
+ * @param map The map which the lanelet is part of
+ * @param control_line_index The control line of every line string in the map which is covered by one
+ */
+void addPassingControlLine(Lanelet& lanelet, LineString3d& bound, LaneChangeType type,
+                           const std::vector<PassingControlLinePtr>& local_control_lines, lanelet::LaneletMapPtr map,
+                           std::unordered_map<Id, PassingControlLinePtr>& control_line_index)
 {
-  lanelet::Velocity max_speed;
-    auto speed_limit = lanelet.regulatoryElementsAs<DigitalSpeedLimit>();
-     if(config_limit < 80_mph && config_limit > 0_mph)//Accounting for the configured speed limit, input zero when not in use
-      {  
-        max_speed = config_limit;
-      }
-      else
-      {
-        max_speed = 80_mph;
-      }
-      
-    // If the lanelet does not have a digital speed limit then add one with the maximum value of 80
-    std::vector<std::string> allowed_participants;
-     //Maximum speed limit is 80
-   
+  auto existing = control_line_index.find(bound.id());
 
-    if (speed_limit.empty())//If there is no assigned speed limit value
+  if (existing != control_line_index.end())
+  {
+    // Check if our lanelet contains this control line
+    // If it does not then add it
+    if (!lanelet::utils::contains(local_control_lines, existing->second))
     {
+      lanelet.addRegulatoryElement(existing->second);
+    }
+    return;
+  }
 
-         for(const auto& rules : default_traffic_rules)
-         {
-            if (rules->canPass(lanelet))
-             {
-              allowed_participants.emplace_back(rules->participant());
-             }
-        }
-     if (!allowed_participants.empty())
-     {
+  // Since this class is only designed to add passing control lines based on lane changes
+  // we will always assume the participant is a vehicle
+  PassingControlLinePtr pcl = buildControlLine(bound, type, lanelet::Participants::Vehicle);
+  lanelet.addRegulatoryElement(pcl);
+  map->add(pcl);
+  control_line_index.emplace(bound.id(), pcl);
+}
+
+/**
+ * @brief Adds the regulatory elements described by the provided plan to the lanelet and the map.
+ *        Regulatory elements are created in the same order regardless of how the plans were computed
+ *        so their ids are deterministic.
+ *
+ * @param lanelet The lanelet to update
+ * @param plan The compliance plan computed for the lanelet
+ * @param map The map which the lanelet is part of
+ * @param max_speed The maximum allowed speed limit
+ * @param control_line_index The control line of every line string in the map which is covered by one
+ */
+void applyLaneletCompliance(Lanelet& lanelet, const LaneletCompliancePlan& plan, lanelet::LaneletMapPtr map,
+                            lanelet::Velocity max_speed, std::unordered_map<Id, PassingControlLinePtr>& control_line_index)
+{
+  if (plan.add_access_rule)
+  {
+    std::shared_ptr<RegionAccessRule> rar(new RegionAccessRule(
+        RegionAccessRule::buildData(lanelet::utils::getId(), { lanelet }, {}, plan.access_participants)));
+    lanelet.addRegulatoryElement(rar);
+    map->add(rar);
+  }
 
-      auto rar = std::make_shared<DigitalSpeedLimit>(DigitalSpeedLimit::buildData(lanelet::utils::getId(), max_speed, {lanelet},
-      {}, allowed_participants));
+  auto local_control_lines = lanelet.regulatoryElementsAs<PassingControlLine>();
+
+  LineString3d left_bound = lanelet.leftBound();
+  LineString3d right_bound = lanelet.rightBound();
 
-      lanelet.addRegulatoryElement(rar);
-      map->add(rar);//Add DigitalSpeedLimit data to the map
+  addPassingControlLine(lanelet, left_bound, plan.left_type, local_control_lines, map, control_line_index);
+  addPassingControlLine(lanelet, right_bound, plan.right_type, local_control_lines, map, control_line_index);
 
-     }
+  if (plan.add_direction_of_travel)
+  {
+    std::shared_ptr<DirectionOfTravel> rar(new DirectionOfTravel(DirectionOfTravel::buildData(
+        lanelet::utils::getId(), { lanelet }, DirectionOfTravel::BiDirectional, plan.direction_participants)));
+    lanelet.addRegulatoryElement(rar);
+    map->add(rar);
   }
-  else  //If the speed limit value already exists 
+
+  if (plan.add_speed_limit)
   {
-      for(const auto& rules : default_traffic_rules)
-         {
-            if (rules->canPass(lanelet))
-             {
-              allowed_participants.emplace_back(rules->participant());
-             }
-        }
-    if(speed_limit.back().get()->speed_limit_ > max_speed)//Check that speed limit value does not exceed the maximum value
-    {
-    
-      RCLCPP_DEBUG_STREAM( rclcpp::get_logger("lanelet::MapConformer"), "Invalid speed limit value. Value reset to maximum speed limit.");
-      auto rar = std::make_shared<DigitalSpeedLimit>(DigitalSpeedLimit::buildData(lanelet::utils::getId(), max_speed, {lanelet},
-      {}, allowed_participants));
-      lanelet.removeRegulatoryElement(speed_limit.back());
-      lanelet.addRegulatoryElement(rar);
-      map->update(lanelet, rar);//Add DigitalSpeedLimit data to the map
-      RCLCPP_INFO_STREAM( rclcpp::get_logger("lanelet::MapConformer"), "Number of Regulatory Elements: "<< map->regulatoryElementLayer.size());
+    auto rar = std::make_shared<DigitalSpeedLimit>(DigitalSpeedLimit::buildData(lanelet::utils::getId(), max_speed, {lanelet},
+    {}, plan.speed_limit_participants));
+
+    lanelet.addRegulatoryElement(rar);
+    map->add(rar);//Add DigitalSpeedLimit data to the map
+  }
+  else if (plan.replace_speed_limit)
+  {
+    RCLCPP_DEBUG_STREAM( rclcpp::get_logger("lanelet::MapConformer"), "Invalid speed limit value. Value reset to maximum speed limit.");
+    auto rar = std::make_shared<DigitalSpeedLimit>(DigitalSpeedLimit::buildData(lanelet::utils::getId(), max_speed, {lanelet},
+    {}, plan.speed_limit_participants));
+    lanelet.removeRegulatoryElement(lanelet.regulatoryElementsAs<DigitalSpeedLimit>().back());
+    lanelet.addRegulatoryElement(rar);
+    map->update(lanelet, rar);//Add DigitalSpeedLimit data to the map
+    RCLCPP_INFO_STREAM( rclcpp::get_logger("lanelet::MapConformer"), "Number of Regulatory Elements: "<< map->regulatoryElementLayer.size());
+  }
+}
+
+/**
+ * @brief Builds a lookup of the PassingControlLine which covers each line string in the map.
+ *        If several control lines cover the same line string the first one in the regulatory element layer is used
+ *
+ * @param map The map to index
+ *
+ * @return Map of line string id to the control line which covers it
+ */
+std::unordered_map<Id, PassingControlLinePtr> buildControlLineIndex(const lanelet::LaneletMapPtr& map)
+{
+  std::unordered_map<Id, PassingControlLinePtr> control_line_index;
 
+  for (auto reg_elem : map->regulatoryElementLayer)
+  {
+    if (reg_elem->attribute(AttributeName::Subtype).value() != PassingControlLine::RuleName)
+    {
+      continue;
+    }
 
+    auto pcl = std::static_pointer_cast<PassingControlLine>(reg_elem);
+    for (auto sub_line : pcl->controlLine())
+    {
+      control_line_index.emplace(sub_line.id(), pcl);
     }
-    
   }
-}
 
+  return control_line_index;
+}
 
 }  // namespace
 
-void ensureCompliance(lanelet::LaneletMapPtr map, lanelet::Velocity config_limit)
+void ensureCompliance(lanelet::LaneletMapPtr map, lanelet::Velocity config_limit, size_t num_threads)
 {
   
   auto default_traffic_rules = getAllGermanTrafficRules();  // Use german traffic rules as default as they most closely
                                                             // match the generic traffic rules
+
+  lanelet::Velocity max_speed = 80_mph; //Maximum speed limit is 80
+  if(config_limit < 80_mph && config_limit > 0_mph)//Accounting for the configured speed limit, input zero when not in use
+  {  
+    max_speed = config_limit;
+  }
+
   // Handle lanelets
-  for (auto lanelet : map->laneletLayer)
+  lanelet::Lanelets lanelets(map->laneletLayer.begin(), map->laneletLayer.end());
+  std::vector<LaneletCompliancePlan> plans(lanelets.size());
+
+  // Computing the plans only reads the map so the lanelets can be partitioned across threads
+  auto plan_range = [&](size_t begin, size_t end) {
+    for (size_t i = begin; i < end; ++i)
+    {
+      plans[i] = planLaneletCompliance(lanelets[i], max_speed, default_traffic_rules);
+    }
+  };
+
+  if (num_threads == 0)
   {
-    addInferredAccessRule(lanelet, map, default_traffic_rules);
-    addInferredPassingControlLine(lanelet, map);
-    addInferredDirectionOfTravel(lanelet, map, default_traffic_rules);
-    addValidSpeedLimit(lanelet, map, config_limit, default_traffic_rules);// 0_mph can be changed with the config_limit
+    num_threads = std::max(1u, std::thread::hardware_concurrency());
+  }
+  num_threads = std::min(num_threads, (lanelets.size() + PARALLEL_COMPLIANCE_MIN_LANELETS - 1) / PARALLEL_COMPLIANCE_MIN_LANELETS);
 
+  if (num_threads > 1)
+  {
+    size_t chunk_size = (lanelets.size() + num_threads - 1) / num_threads;
+    std::vector<std::future<void>> tasks;
+    tasks.reserve(num_threads);
 
+    for (size_t begin = 0; begin < lanelets.size(); begin += chunk_size)
+    {
+      tasks.emplace_back(std::async(std::launch::async, plan_range, begin, std::min(begin + chunk_size, lanelets.size())));
+    }
+
+    for (auto& task : tasks)
+    {
+      task.get();  // Rethrows any exception from the worker
+    }
   }
+  else
+  {
+    plan_range(0, lanelets.size());
+  }
+
+  // Regulatory elements are created in lanelet order so the result is identical to a serial pass
+  auto control_line_index = buildControlLineIndex(map);
+  for (size_t i = 0; i < lanelets.size(); ++i)
+  {
+    applyLaneletCompliance(lanelets[i], plans[i], map, max_speed, control_line_index);
+  }
+
   // Handle areas
   for (auto area : map->areaLayer)
   {
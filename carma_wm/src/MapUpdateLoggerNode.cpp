@@ -16,6 +16,7 @@
 
 #include <rclcpp/rclcpp.hpp>
 #include <functional>
+#include <stdexcept>
 #include <autoware_lanelet2_msgs/msg/map_bin.hpp>
 #include <carma_v2x_msgs/msg/traffic_control_request.hpp>
 #include <carma_ros2_utils/carma_ros2_utils.hpp>
@@ -164,7 +165,12 @@ carma_debug_ros2_msgs::msg::MapUpdateReadable MapUpdateLogger::mapUpdateCallback
   RCLCPP_INFO_STREAM(get_logger(), "Recieved map update ");
 
   auto control = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
-  carma_wm::fromBinMsg(update, control);
+  try {
+    carma_wm::fromBinMsg(update, control);
+  } catch (const std::invalid_argument& e) {
+    // The update is still logged with its header fields so the rejected version is visible
+    RCLCPP_ERROR_STREAM(get_logger(), "Could not read map update: " << e.what());
+  }
 
   carma_debug_ros2_msgs::msg::MapUpdateReadable msg;
   msg.header = update.header;
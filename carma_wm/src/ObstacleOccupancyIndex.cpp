@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/ObstacleOccupancyIndex.hpp>
+#include <rclcpp/time.hpp>
+#include <algorithm>
+#include <cmath>
+#include <stdexcept>
+
+namespace carma_wm
+{
+namespace
+{
+// Cell indexes are clamped to a range which converts to int64_t exactly and cannot overflow when iterated
+constexpr double MAX_CELL_INDEX = 1e15;
+}  // namespace
+
+ObstacleOccupancyIndex::ObstacleOccupancyIndex(double cell_size, double time_step)
+  : cell_size_(cell_size), time_step_(time_step)
+{
+  if (!(cell_size_ > 0) || !(time_step_ > 0))
+  {
+    throw std::invalid_argument("ObstacleOccupancyIndex cell size and time step must be positive");
+  }
+}
+
+void ObstacleOccupancyIndex::build(const std::vector<carma_perception_msgs::msg::RoadwayObstacle>& obstacles)
+{
+  clear();
+  num_obstacles_ = obstacles.size();
+
+  for (size_t i = 0; i < obstacles.size(); i++)
+  {
+    const auto& object = obstacles[i].object;
+
+    // The size of an object is its full extent so the circle enclosing the footprint has half its diagonal as radius
+    double radius = 0.5 * std::hypot(object.size.x, object.size.y);
+
+    addSample(object.pose.pose.position.x, object.pose.pose.position.y, rclcpp::Time(object.header.stamp).seconds(),
+              radius, i);
+
+    for (const auto& prediction : object.predictions)
+    {
+      addSample(prediction.predicted_position.position.x, prediction.predicted_position.position.y,
+                rclcpp::Time(prediction.header.stamp).seconds(), radius, i);
+    }
+  }
+}
+
+void ObstacleOccupancyIndex::addSample(double x, double y, double t, double radius, size_t obstacle)
+{
+  if (!std::isfinite(x) || !std::isfinite(y) || !std::isfinite(t) || !std::isfinite(radius) || radius < 0)
+  {
+    return;
+  }
+
+  size_t sample_index = samples_.size();
+  samples_.push_back({ x, y, t, radius, obstacle });
+
+  int64_t min_x = spatialCell(x - radius);
+  int64_t max_x = spatialCell(x + radius);
+  int64_t min_y = spatialCell(y - radius);
+  int64_t max_y = spatialCell(y + radius);
+
+  if (max_x - min_x >= MAX_SAMPLE_CELL_SPAN || max_y - min_y >= MAX_SAMPLE_CELL_SPAN)
+  {
+    oversized_samples_.push_back(sample_index);
+    return;
+  }
+
+  int64_t cell_t = temporalCell(t);
+  for (int64_t cell_x = min_x; cell_x <= max_x; cell_x++)
+  {
+    for (int64_t cell_y = min_y; cell_y <= max_y; cell_y++)
+    {
+      cells_[{ cell_x, cell_y, cell_t }].push_back(sample_index);
+    }
+  }
+}
+
+bool ObstacleOccupancyIndex::occupies(const Sample& sample, const lanelet::BoundingBox2d& region, double start_time,
+                                      double end_time) const
+{
+  if (sample.t < start_time || sample.t > end_time)
+  {
+    return false;
+  }
+
+  // Distance from the center of the sample to the closest point of the region
+  double dx = std::max({ region.min().x() - sample.x, 0.0, sample.x - region.max().x() });
+  double dy = std::max({ region.min().y() - sample.y, 0.0, sample.y - region.max().y() });
+  return dx * dx + dy * dy <= sample.radius * sample.radius;
+}
+
+std::vector<size_t> ObstacleOccupancyIndex::query(const lanelet::BoundingBox2d& region, double start_time,
+                                                  double end_time) const
+{
+  std::vector<size_t> result;
+
+  if (samples_.empty() || region.isEmpty() || !std::isfinite(region.min().x()) || !std::isfinite(region.min().y()) ||
+      !std::isfinite(region.max().x()) || !std::isfinite(region.max().y()) || !std::isfinite(start_time) ||
+      !std::isfinite(end_time) || end_time < start_time)
+  {
+    return result;
+  }
+
+  std::vector<bool> found(num_obstacles_, false);
+  auto evaluate = [&](const Sample& sample) {
+    if (!found[sample.obstacle] && occupies(sample, region, start_time, end_time))
+    {
+      found[sample.obstacle] = true;
+      result.push_back(sample.obstacle);
+    }
+  };
+
+  int64_t min_x = spatialCell(region.min().x());
+  int64_t max_x = spatialCell(region.max().x());
+  int64_t min_y = spatialCell(region.min().y());
+  int64_t max_y = spatialCell(region.max().y());
+  int64_t min_t = temporalCell(start_time);
+  int64_t max_t = temporalCell(end_time);
+
+  // Visiting the cells is only worthwhile if there are fewer of them than samples. Large windows are evaluated directly
+  double num_cells = static_cast<double>(max_x - min_x + 1) * static_cast<double>(max_y - min_y + 1) *
+                     static_cast<double>(max_t - min_t + 1);
+
+  if (num_cells > static_cast<double>(samples_.size()))
+  {
+    for (const auto& sample : samples_)
+    {
+      evaluate(sample);
+    }
+  }
+  else
+  {
+    for (int64_t cell_t = min_t; cell_t <= max_t; cell_t++)
+    {
+      for (int64_t cell_x = min_x; cell_x <= max_x; cell_x++)
+      {
+        for (int64_t cell_y = min_y; cell_y <= max_y; cell_y++)
+        {
+          auto cell = cells_.find({ cell_x, cell_y, cell_t });
+          if (cell == cells_.end())
+            continue;
+
+          for (size_t sample_index : cell->second)
+          {
+            evaluate(samples_[sample_index]);
+          }
+        }
+      }
+    }
+
+    for (size_t sample_index : oversized_samples_)
+    {
+      evaluate(samples_[sample_index]);
+    }
+  }
+
+  std::sort(result.begin(), result.end());
+  return result;
+}
+
+int64_t ObstacleOccupancyIndex::spatialCell(double value) const
+{
+  return static_cast<int64_t>(std::clamp(std::floor(value / cell_size_), -MAX_CELL_INDEX, MAX_CELL_INDEX));
+}
+
+int64_t ObstacleOccupancyIndex::temporalCell(double value) const
+{
+  return static_cast<int64_t>(std::clamp(std::floor(value / time_step_), -MAX_CELL_INDEX, MAX_CELL_INDEX));
+}
+
+size_t ObstacleOccupancyIndex::size() const
+{
+  return samples_.size();
+}
+
+void ObstacleOccupancyIndex::clear()
+{
+  num_obstacles_ = 0;
+  samples_.clear();
+  cells_.clear();
+  oversized_samples_.clear();
+}
+
+}  // namespace carma_wm
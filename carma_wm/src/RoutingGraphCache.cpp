@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/RoutingGraphCache.hpp>
+#include "RoutingGraphInternal.hpp"
+#include <algorithm>
+#include <chrono>
+#include <cstring>
+#include <filesystem>
+#include <fstream>
+#include <iomanip>
+#include <sstream>
+#include <unistd.h>
+#include <boost/interprocess/file_mapping.hpp>
+#include <boost/interprocess/mapped_region.hpp>
+#include <boost/range/iterator_range.hpp>
+#include <rclcpp/rclcpp.hpp>
+
+namespace carma_wm
+{
+namespace
+{
+constexpr char CACHE_MAGIC[8] = { 'C', 'W', 'M', 'R', 'G', 'R', 'P', 'H' };
+
+// All records are fixed size and 8 byte aligned so they can be read directly from the mapped file
+struct FileHeader
+{
+  char magic[8];
+  uint32_t format_version;
+  uint32_t num_routing_costs;
+  uint64_t key;
+  uint64_t num_vertices;
+  uint64_t num_edges;
+  double build_time;
+};
+
+struct VertexRecord
+{
+  int64_t id;
+  uint64_t is_lanelet;
+};
+
+struct EdgeRecord
+{
+  int64_t source;
+  int64_t target;
+  double routing_cost;
+  uint32_t cost_id;
+  uint32_t relation;
+};
+
+static_assert(sizeof(FileHeader) % 8 == 0 && sizeof(VertexRecord) % 8 == 0 && sizeof(EdgeRecord) % 8 == 0,
+              "Routing graph cache records must be 8 byte aligned");
+
+// 64bit FNV-1a which, unlike std::hash, is stable between processes
+constexpr uint64_t FNV_OFFSET_BASIS = 14695981039346656037ULL;
+constexpr uint64_t FNV_PRIME = 1099511628211ULL;
+
+uint64_t fnv1a(uint64_t hash, const void* data, size_t size)
+{
+  const auto* bytes = static_cast<const unsigned char*>(data);
+  for (size_t i = 0; i < size; ++i)
+  {
+    hash ^= bytes[i];
+    hash *= FNV_PRIME;
+  }
+  return hash;
+}
+
+lanelet::ConstLaneletOrArea toPrimitive(const lanelet::LaneletMapPtr& map, lanelet::Id id, bool is_lanelet)
+{
+  if (is_lanelet)
+    return lanelet::ConstLanelet(map->laneletLayer.get(id));
+
+  return lanelet::ConstArea(map->areaLayer.get(id));
+}
+
+// Each edge stores a single relation so any other value is not a valid RelationType
+bool isValidRelation(uint32_t relation)
+{
+  using lanelet::routing::RelationType;
+  for (auto valid : { RelationType::Successor, RelationType::Left, RelationType::Right, RelationType::AdjacentLeft,
+                      RelationType::AdjacentRight, RelationType::Conflicting, RelationType::Area })
+  {
+    if (relation == static_cast<uint32_t>(valid))
+      return true;
+  }
+  return false;
+}
+
+template <typename T>
+T readRecord(const char* data, size_t offset)
+{
+  T record;
+  std::memcpy(&record, data + offset, sizeof(T));
+  return record;
+}
+
+}  // namespace
+
+RoutingGraphCache::RoutingGraphCache(const std::string& directory) : directory_(directory)
+{
+}
+
+uint64_t RoutingGraphCache::computeKey(const autoware_lanelet2_msgs::msg::MapBin& map_msg, const std::string& participant,
+                                       double config_speed_limit)
+{
+  uint64_t hash = FNV_OFFSET_BASIS;
+  hash = fnv1a(hash, map_msg.data.data(), map_msg.data.size());
+  hash = fnv1a(hash, participant.data(), participant.size());
+  hash = fnv1a(hash, &config_speed_limit, sizeof(config_speed_limit));
+  hash = fnv1a(hash, &FORMAT_VERSION, sizeof(FORMAT_VERSION));
+  return hash;
+}
+
+std::string RoutingGraphCache::getPath(uint64_t key) const
+{
+  std::ostringstream ss;
+  ss << directory_ << "/" << std::hex << std::setw(16) << std::setfill('0') << key << ".routing_graph";
+  return ss.str();
+}
+
+LaneletRoutingGraphPtr RoutingGraphCache::load(uint64_t key, const lanelet::LaneletMapPtr& map)
+{
+  auto start_time = std::chrono::steady_clock::now();
+  std::string path = getPath(key);
+
+  std::error_code ec;
+  if (!map || !std::filesystem::is_regular_file(path, ec))
+  {
+    stats_.misses++;
+    return nullptr;
+  }
+
+  LaneletRoutingGraphPtr graph;
+  double build_time = 0;
+
+  try
+  {
+    boost::interprocess::file_mapping file(path.c_str(), boost::interprocess::read_only);
+    boost::interprocess::mapped_region region(file, boost::interprocess::read_only);
+
+    const char* data = static_cast<const char*>(region.get_address());
+    size_t size = region.get_size();
+
+    if (size < sizeof(FileHeader))
+    {
+      throw std::invalid_argument("File is smaller than its header");
+    }
+
+    auto header = readRecord<FileHeader>(data, 0);
+
+    if (std::memcmp(header.magic, CACHE_MAGIC, sizeof(CACHE_MAGIC)) != 0 || header.format_version != FORMAT_VERSION ||
+        header.key != key)
+    {
+      throw std::invalid_argument("File header does not match the requested key");
+    }
+
+    // The counts are checked against the file size before they are multiplied so a corrupt count cannot overflow
+    size_t vertex_offset = sizeof(FileHeader);
+
+    if (header.num_vertices > (size - vertex_offset) / sizeof(VertexRecord))
+    {
+      throw std::invalid_argument("File size does not match its header");
+    }
+
+    size_t edge_offset = vertex_offset + header.num_vertices * sizeof(VertexRecord);
+
+    if (header.num_edges > (size - edge_offset) / sizeof(EdgeRecord) ||
+        size != edge_offset + header.num_edges * sizeof(EdgeRecord))
+    {
+      throw std::invalid_argument("File size does not match its header");
+    }
+
+    auto cached_graph = std::make_unique<lanelet::routing::internal::RoutingGraphGraph>(header.num_routing_costs);
+
+    lanelet::ConstLanelets passable_lanelets;
+    lanelet::ConstAreas passable_areas;
+    passable_lanelets.reserve(header.num_vertices);
+
+    std::unordered_map<lanelet::Id, lanelet::ConstLaneletOrArea> vertices;
+    vertices.reserve(header.num_vertices);
+
+    // Vertices must be added before the edges which reference them
+    for (size_t i = 0; i < header.num_vertices; ++i)
+    {
+      auto record = readRecord<VertexRecord>(data, vertex_offset + i * sizeof(VertexRecord));
+      auto ll_or_area = toPrimitive(map, record.id, record.is_lanelet != 0);
+
+      // A repeated id would add a second vertex for the same primitive which no edge could reference
+      if (!vertices.emplace(record.id, ll_or_area).second)
+      {
+        throw std::invalid_argument("File contains duplicate vertex ids");
+      }
+
+      cached_graph->addVertex(lanelet::routing::internal::VertexInfo{ ll_or_area });
+
+      if (ll_or_area.isLanelet())
+        passable_lanelets.emplace_back(*ll_or_area.lanelet());
+      else
+        passable_areas.emplace_back(*ll_or_area.area());
+    }
+
+    for (size_t i = 0; i < header.num_edges; ++i)
+    {
+      auto record = readRecord<EdgeRecord>(data, edge_offset + i * sizeof(EdgeRecord));
+
+      auto source = vertices.find(record.source);
+      auto target = vertices.find(record.target);
+
+      if (source == vertices.end() || target == vertices.end())
+      {
+        throw std::invalid_argument("Edge references a vertex which is not in the file");
+      }
+
+      if (record.cost_id >= header.num_routing_costs || !isValidRelation(record.relation))
+      {
+        throw std::invalid_argument("Edge has an invalid routing cost id or relation");
+      }
+
+      cached_graph->addEdge(source->second, target->second,
+                            lanelet::routing::internal::EdgeInfo{
+                                record.routing_cost, static_cast<lanelet::routing::RoutingCostId>(record.cost_id),
+                                static_cast<lanelet::routing::RelationType>(record.relation) });
+    }
+
+    auto passable_map = lanelet::utils::createConstSubmap(passable_lanelets, passable_areas);
+
+    graph = std::make_shared<lanelet::routing::RoutingGraph>(std::move(cached_graph), std::move(passable_map));
+    build_time = header.build_time;
+  }
+  catch (const boost::interprocess::interprocess_exception& e)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Failed to map cached routing graph " << path
+                                                                              << ". Actual exception: " << e.what());
+  }
+  catch (const lanelet::NoSuchPrimitiveError& e)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Cached routing graph " << path
+                                                                              << " does not match the map. Actual exception: " << e.what());
+  }
+  catch (const std::invalid_argument& e)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Ignoring invalid cached routing graph " << path
+                                                                              << ". " << e.what());
+  }
+
+  if (!graph)
+  {
+    stats_.misses++;
+    return nullptr;
+  }
+
+  double load_time = std::chrono::duration<double>(std::chrono::steady_clock::now() - start_time).count();
+
+  stats_.hits++;
+  stats_.last_time_saved = std::max(0.0, build_time - load_time);
+  stats_.time_saved += stats_.last_time_saved;
+
+  return graph;
+}
+
+bool RoutingGraphCache::store(uint64_t key, const lanelet::routing::RoutingGraph& graph, double build_time)
+{
+  const auto& underlying_graph = routing_graph::internal::underlyingGraph(graph);
+  const auto& base = underlying_graph.get();
+
+  std::error_code ec;
+  std::filesystem::create_directories(directory_, ec);
+  if (ec)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Failed to create routing graph cache directory "
+                                                                              << directory_ << ": " << ec.message());
+    return false;
+  }
+
+  std::string path = getPath(key);
+  std::string tmp_path = path + ".tmp" + std::to_string(::getpid());
+
+  FileHeader header;
+  std::memcpy(header.magic, CACHE_MAGIC, sizeof(CACHE_MAGIC));
+  header.format_version = FORMAT_VERSION;
+  header.num_routing_costs = static_cast<uint32_t>(underlying_graph.numRoutingCosts());
+  header.key = key;
+  header.num_vertices = boost::num_vertices(base);
+  header.num_edges = boost::num_edges(base);
+  header.build_time = build_time;
+
+  {
+    std::ofstream out(tmp_path, std::ios::binary | std::ios::trunc);
+    out.write(reinterpret_cast<const char*>(&header), sizeof(header));
+
+    for (auto vertex : boost::make_iterator_range(boost::vertices(base)))
+    {
+      const auto& ll_or_area = base[vertex].laneletOrArea;
+      VertexRecord record{ ll_or_area.id(), ll_or_area.isLanelet() ? 1u : 0u };
+      out.write(reinterpret_cast<const char*>(&record), sizeof(record));
+    }
+
+    for (auto edge : boost::make_iterator_range(boost::edges(base)))
+    {
+      const auto& info = base[edge];
+      EdgeRecord record{ base[boost::source(edge, base)].laneletOrArea.id(),
+                         base[boost::target(edge, base)].laneletOrArea.id(), info.routingCost,
+                         static_cast<uint32_t>(info.costId), static_cast<uint32_t>(info.relation) };
+      out.write(reinterpret_cast<const char*>(&record), sizeof(record));
+    }
+
+    if (!out)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Failed to write routing graph cache file " << tmp_path);
+      std::filesystem::remove(tmp_path, ec);
+      return false;
+    }
+  }
+
+  // Rename is atomic so other nodes loading the same key never see a partially written file
+  std::filesystem::rename(tmp_path, path, ec);
+  if (ec)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::RoutingGraphCache"), "Failed to move routing graph cache file into place "
+                                                                              << path << ": " << ec.message());
+    std::filesystem::remove(tmp_path, ec);
+    return false;
+  }
+
+  stats_.stores++;
+  return true;
+}
+
+RoutingGraphCache::Stats RoutingGraphCache::getStats() const
+{
+  return stats_;
+}
+
+}  // namespace carma_wm
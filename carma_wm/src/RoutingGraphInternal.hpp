@@ -0,0 +1,50 @@
+#pragma once
+
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <lanelet2_routing/RoutingGraph.h>
+#include <lanelet2_routing/internal/Graph.h>
+
+namespace carma_wm
+{
+namespace routing_graph
+{
+namespace internal
+{
+/**
+ * \brief Exposes the protected graph of a lanelet2 RoutingGraph so that its vertices and edges can be copied.
+ *        This mirrors the approach taken by RoutingGraphAccessor in carma_wm_ctrl.
+ *
+ *  ASSUMPTION: This relies on the non-public implementation API of lanelet2 (v1.1.1).
+ */
+class RoutingGraphAccessor : public lanelet::routing::RoutingGraph
+{
+public:
+  const lanelet::routing::internal::RoutingGraphGraph& underlyingGraph() const
+  {
+    return *graph_;
+  }
+};
+
+inline const lanelet::routing::internal::RoutingGraphGraph& underlyingGraph(const lanelet::routing::RoutingGraph& graph)
+{
+  return static_cast<const RoutingGraphAccessor&>(graph).underlyingGraph();
+}
+
+}  // namespace internal
+}  // namespace routing_graph
+}  // namespace carma_wm
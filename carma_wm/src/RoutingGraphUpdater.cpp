@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/RoutingGraphUpdater.hpp>
+#include "RoutingGraphInternal.hpp"
+#include <lanelet2_core/geometry/Lanelet.h>
+#include <lanelet2_core/geometry/Area.h>
+#include <boost/range/iterator_range.hpp>
+
+namespace carma_wm
+{
+namespace routing_graph
+{
+using internal::underlyingGraph;
+
+std::unordered_set<lanelet::Id> getAffectedLaneletOrAreaIds(const carma_wm::TrafficControl& gf)
+{
+  std::unordered_set<lanelet::Id> affected_ids;
+
+  for (const auto& llt : gf.lanelet_additions_)
+  {
+    affected_ids.emplace(llt.id());
+  }
+
+  for (const auto& update : gf.update_list_)
+  {
+    affected_ids.emplace(update.first);
+  }
+
+  for (const auto& removal : gf.remove_list_)
+  {
+    affected_ids.emplace(removal.first);
+  }
+
+  return affected_ids;
+}
+
+LaneletRoutingGraphPtr updateRoutingGraph(const lanelet::routing::RoutingGraph& graph, const lanelet::LaneletMapPtr& map,
+                                          const lanelet::traffic_rules::TrafficRules& traffic_rules,
+                                          const std::unordered_set<lanelet::Id>& changed_ids)
+{
+  if (!map)
+  {
+    throw std::invalid_argument("Cannot update routing graph without a map");
+  }
+
+  // Identify the changed primitives which are actually in the map along with their neighborhood
+  std::unordered_set<lanelet::Id> dirty_ids;
+  std::unordered_set<lanelet::Id> local_ids;
+  lanelet::ConstLanelets local_lanelets;
+  lanelet::ConstAreas local_areas;
+
+  auto add_neighborhood = [&](const lanelet::BoundingBox2d& box) {
+    for (const auto& llt : map->laneletLayer.search(box))
+    {
+      if (local_ids.emplace(llt.id()).second)
+        local_lanelets.emplace_back(llt);
+    }
+    for (const auto& area : map->areaLayer.search(box))
+    {
+      if (local_ids.emplace(area.id()).second)
+        local_areas.emplace_back(area);
+    }
+  };
+
+  for (auto id : changed_ids)
+  {
+    if (map->laneletLayer.exists(id))
+    {
+      dirty_ids.emplace(id);
+      add_neighborhood(lanelet::geometry::boundingBox2d(lanelet::ConstLanelet(map->laneletLayer.get(id))));
+    }
+    else if (map->areaLayer.exists(id))
+    {
+      dirty_ids.emplace(id);
+      add_neighborhood(lanelet::geometry::boundingBox2d(lanelet::ConstArea(map->areaLayer.get(id))));
+    }
+  }
+
+  auto is_dirty = [&dirty_ids](const lanelet::ConstLaneletOrArea& ll_or_area) {
+    return dirty_ids.find(ll_or_area.id()) != dirty_ids.end();
+  };
+
+  // Build the graph of the affected neighborhood. This contains every edge which could have been changed by the update
+  lanelet::routing::RoutingGraphUPtr local_graph;
+  if (!dirty_ids.empty())
+  {
+    auto local_map = lanelet::utils::createConstSubmap(local_lanelets, local_areas);
+    local_graph = lanelet::routing::RoutingGraph::build(*local_map, traffic_rules);
+  }
+
+  const auto& prev_graph = underlyingGraph(graph);
+  const auto& prev_base = prev_graph.get();
+
+  auto merged_graph = std::make_unique<lanelet::routing::internal::RoutingGraphGraph>(prev_graph.numRoutingCosts());
+
+  lanelet::ConstLanelets passable_lanelets;
+  lanelet::ConstAreas passable_areas;
+  passable_lanelets.reserve(boost::num_vertices(prev_base));
+
+  auto add_vertex = [&](const lanelet::ConstLaneletOrArea& ll_or_area) {
+    merged_graph->addVertex(lanelet::routing::internal::VertexInfo{ ll_or_area });
+    if (ll_or_area.isLanelet())
+      passable_lanelets.emplace_back(*ll_or_area.lanelet());
+    else
+      passable_areas.emplace_back(*ll_or_area.area());
+  };
+
+  // Vertices must be added before the edges which reference them
+  for (auto vertex : boost::make_iterator_range(boost::vertices(prev_base)))
+  {
+    if (!is_dirty(prev_base[vertex].laneletOrArea))
+      add_vertex(prev_base[vertex].laneletOrArea);
+  }
+
+  if (local_graph)
+  {
+    const auto& local_base = underlyingGraph(*local_graph).get();
+    for (auto vertex : boost::make_iterator_range(boost::vertices(local_base)))
+    {
+      // Changed primitives which are no longer passable will not be present in the local graph so are dropped here
+      if (is_dirty(local_base[vertex].laneletOrArea))
+        add_vertex(local_base[vertex].laneletOrArea);
+    }
+  }
+
+  // Edges between unchanged primitives are still valid
+  for (auto edge : boost::make_iterator_range(boost::edges(prev_base)))
+  {
+    const auto& source = prev_base[boost::source(edge, prev_base)].laneletOrArea;
+    const auto& target = prev_base[boost::target(edge, prev_base)].laneletOrArea;
+
+    if (is_dirty(source) || is_dirty(target))
+      continue;
+
+    merged_graph->addEdge(source, target, prev_base[edge]);
+  }
+
+  // Edges touching a changed primitive are taken from the local graph
+  if (local_graph)
+  {
+    const auto& local_base = underlyingGraph(*local_graph).get();
+    for (auto edge : boost::make_iterator_range(boost::edges(local_base)))
+    {
+      const auto& source = local_base[boost::source(edge, local_base)].laneletOrArea;
+      const auto& target = local_base[boost::target(edge, local_base)].laneletOrArea;
+
+      if (!is_dirty(source) && !is_dirty(target))
+        continue;
+
+      if (!merged_graph->getVertex(source) || !merged_graph->getVertex(target))
+      {
+        RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm"), "Skipping routing graph edge between " << source.id() << " and "
+                                                               << target.id() << " as one of its vertices is not passable");
+        continue;
+      }
+
+      merged_graph->addEdge(source, target, local_base[edge]);
+    }
+  }
+
+  // Submap creation is a small fraction of the graph build time so it is reasonable to recreate it here
+  auto passable_map = lanelet::utils::createConstSubmap(passable_lanelets, passable_areas);
+
+  return std::make_shared<lanelet::routing::RoutingGraph>(std::move(merged_graph), std::move(passable_map));
+}
+
+LaneletRoutingGraphPtr copyRoutingGraph(const lanelet::routing::RoutingGraph& graph, const lanelet::LaneletMapPtr& map)
+{
+  if (!map)
+  {
+    throw std::invalid_argument("Cannot copy routing graph without a map");
+  }
+
+  const auto& prev_base = underlyingGraph(graph).get();
+
+  auto copied_graph =
+      std::make_unique<lanelet::routing::internal::RoutingGraphGraph>(underlyingGraph(graph).numRoutingCosts());
+
+  lanelet::ConstLanelets passable_lanelets;
+  lanelet::ConstAreas passable_areas;
+  passable_lanelets.reserve(boost::num_vertices(prev_base));
+
+  auto to_copied_primitive = [&map](const lanelet::ConstLaneletOrArea& ll_or_area) -> lanelet::ConstLaneletOrArea {
+    if (ll_or_area.isLanelet())
+      return lanelet::ConstLanelet(map->laneletLayer.get(ll_or_area.id()));
+
+    return lanelet::ConstArea(map->areaLayer.get(ll_or_area.id()));
+  };
+
+  // Vertices must be added before the edges which reference them
+  for (auto vertex : boost::make_iterator_range(boost::vertices(prev_base)))
+  {
+    auto ll_or_area = to_copied_primitive(prev_base[vertex].laneletOrArea);
+    copied_graph->addVertex(lanelet::routing::internal::VertexInfo{ ll_or_area });
+    if (ll_or_area.isLanelet())
+      passable_lanelets.emplace_back(*ll_or_area.lanelet());
+    else
+      passable_areas.emplace_back(*ll_or_area.area());
+  }
+
+  for (auto edge : boost::make_iterator_range(boost::edges(prev_base)))
+  {
+    copied_graph->addEdge(to_copied_primitive(prev_base[boost::source(edge, prev_base)].laneletOrArea),
+                          to_copied_primitive(prev_base[boost::target(edge, prev_base)].laneletOrArea), prev_base[edge]);
+  }
+
+  auto passable_map = lanelet::utils::createConstSubmap(passable_lanelets, passable_areas);
+
+  return std::make_shared<lanelet::routing::RoutingGraph>(std::move(copied_graph), std::move(passable_map));
+}
+
+}  // namespace routing_graph
+}  // namespace carma_wm
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/SignalPhaseIndex.hpp>
+
+namespace carma_wm
+{
+uint32_t SignalPhaseIndex::toKey(uint16_t intersection_id, uint8_t signal_group_id)
+{
+  return (static_cast<uint32_t>(intersection_id) << 8) | signal_group_id;
+}
+
+SignalPhaseIndex::Entry& SignalPhaseIndex::getOrCreate(uint16_t intersection_id, uint8_t signal_group_id)
+{
+  auto result = entries_.try_emplace(toKey(intersection_id, signal_group_id));
+
+  if (result.second)
+  {
+    Entry& entry = result.first->second;
+    entry.timeline.min_end_times.reserve(DEFAULT_PHASE_CAPACITY);
+    entry.timeline.start_times.reserve(DEFAULT_PHASE_CAPACITY);
+    entry.movement_events.reserve(DEFAULT_PHASE_CAPACITY);
+  }
+
+  return result.first->second;
+}
+
+const SignalPhaseIndex::Entry* SignalPhaseIndex::find(uint16_t intersection_id, uint8_t signal_group_id) const
+{
+  auto it = entries_.find(toKey(intersection_id, signal_group_id));
+
+  if (it == entries_.end())
+  {
+    return nullptr;
+  }
+
+  return &it->second;
+}
+
+void SignalPhaseIndex::clearSignals()
+{
+  for (auto& key_entry : entries_)
+  {
+    key_entry.second.signal = nullptr;
+    key_entry.second.applied = false;
+  }
+}
+
+void SignalPhaseIndex::bindSignals(const lanelet::LaneletMap* map)
+{
+  if (map != signal_map_)
+  {
+    clearSignals();
+    signal_map_ = map;
+  }
+}
+
+size_t SignalPhaseIndex::size() const
+{
+  return entries_.size();
+}
+
+}  // namespace carma_wm
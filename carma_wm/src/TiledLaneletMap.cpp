@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm/TiledLaneletMap.hpp>
+#include <boost/archive/binary_iarchive.hpp>
+#include <boost/archive/binary_oarchive.hpp>
+#include <lanelet2_io/io_handlers/Serialize.h>
+#include <lanelet2_core/geometry/Lanelet.h>
+#include <lanelet2_core/geometry/Area.h>
+#include <autoware_lanelet2_ros2_interface/utility/query.hpp>
+#include <rclcpp/rclcpp.hpp>
+#include <algorithm>
+#include <cmath>
+#include <sstream>
+#include <stdexcept>
+
+namespace carma_wm
+{
+namespace
+{
+double distance(const lanelet::BoundingBox2d& box, const lanelet::BasicPoint2d& point)
+{
+  double dx = std::max({ box.min().x() - point.x(), 0.0, point.x() - box.max().x() });
+  double dy = std::max({ box.min().y() - point.y(), 0.0, point.y() - box.max().y() });
+  return std::hypot(dx, dy);
+}
+
+/*!
+ * \brief Replaces the points of the line string which are already in the target map with the target's instances
+ */
+void mergePoints(lanelet::LaneletMap& target, lanelet::LineString3d line_string)
+{
+  for (size_t i = 0; i < line_string.size(); i++)
+  {
+    if (target.pointLayer.exists(line_string[i].id()))
+    {
+      line_string[i] = target.pointLayer.get(line_string[i].id());
+    }
+  }
+}
+
+/*!
+ * \brief Returns the target's instance of the line string if it is already in the target map.
+ *        Otherwise its points are merged and it is returned as is
+ */
+lanelet::LineString3d mergeLineString(lanelet::LaneletMap& target, lanelet::LineString3d line_string)
+{
+  if (target.lineStringLayer.exists(line_string.id()))
+  {
+    auto existing = target.lineStringLayer.get(line_string.id());
+    return line_string.inverted() ? existing.invert() : existing;
+  }
+
+  mergePoints(target, line_string);
+  return line_string;
+}
+
+/*!
+ * \brief Replaces the regulatory elements of the lanelet or area which are already in the target map with the target's
+ *        instances
+ */
+template <typename PrimitiveT>
+void mergeRegulatoryElements(lanelet::LaneletMap& target, PrimitiveT& primitive)
+{
+  auto regems = primitive.regulatoryElements();  // Copy as the list is modified during iteration
+  for (const auto& regem : regems)
+  {
+    if (target.regulatoryElementLayer.exists(regem->id()))
+    {
+      primitive.removeRegulatoryElement(regem);
+      primitive.addRegulatoryElement(target.regulatoryElementLayer.get(regem->id()));
+    }
+  }
+}
+
+/*!
+ * \brief Adds the primitives of a separately deserialized tile to the target map. Primitives which are already in the
+ *        target map, because they are shared with a previously added tile, are replaced by the target's instances so the
+ *        lanelet library recognizes them as the same objects.
+ */
+void mergeTile(const lanelet::LaneletMapPtr& target, lanelet::LaneletMap& tile)
+{
+  // Parameters of the new regulatory elements which are already in the target map are resolved to the target's instances
+  lanelet::utils::OverwriteParameterVisitor visitor(target);
+  for (const auto& regem : tile.regulatoryElementLayer)
+  {
+    if (!target->regulatoryElementLayer.exists(regem->id()))
+    {
+      regem->applyVisitor(visitor);
+    }
+  }
+
+  // All bounds are merged before anything is added so that no primitive of the tile is added twice
+  lanelet::Lanelets new_lanelets;
+  for (auto llt : tile.laneletLayer)
+  {
+    if (target->laneletLayer.exists(llt.id()))
+      continue;
+
+    llt.setLeftBound(mergeLineString(*target, llt.leftBound3d()));
+    llt.setRightBound(mergeLineString(*target, llt.rightBound3d()));
+    mergeRegulatoryElements(*target, llt);
+    new_lanelets.push_back(llt);
+  }
+
+  lanelet::Areas new_areas;
+  for (auto area : tile.areaLayer)
+  {
+    if (target->areaLayer.exists(area.id()))
+      continue;
+
+    lanelet::LineStrings3d outer_bound;
+    for (const auto& line_string : area.outerBound())
+    {
+      outer_bound.push_back(mergeLineString(*target, line_string));
+    }
+    area.setOuterBound(outer_bound);
+
+    lanelet::InnerBounds inner_bounds;
+    for (const auto& inner_bound : area.innerBounds())
+    {
+      lanelet::LineStrings3d merged;
+      for (const auto& line_string : inner_bound)
+      {
+        merged.push_back(mergeLineString(*target, line_string));
+      }
+      inner_bounds.push_back(merged);
+    }
+    area.setInnerBounds(inner_bounds);
+
+    mergeRegulatoryElements(*target, area);
+    new_areas.push_back(area);
+  }
+
+  for (const auto& llt : new_lanelets)
+  {
+    target->add(llt);
+  }
+
+  for (const auto& area : new_areas)
+  {
+    target->add(area);
+  }
+
+  for (const auto& regem : tile.regulatoryElementLayer)
+  {
+    if (!target->regulatoryElementLayer.exists(regem->id()))
+    {
+      target->add(regem);
+    }
+  }
+}
+
+}  // namespace
+
+TiledLaneletMap::TiledLaneletMap(double tile_size, double load_radius, double evict_radius)
+  : tile_size_(tile_size), load_radius_(load_radius), evict_radius_(evict_radius), active_map_(new lanelet::LaneletMap)
+{
+  if (!(tile_size_ > 0) || !(load_radius_ > 0) || !(evict_radius_ >= load_radius_))
+  {
+    throw std::invalid_argument("TiledLaneletMap tile size and load radius must be positive and the eviction radius "
+                                "must not be less than the load radius");
+  }
+}
+
+TiledLaneletMap::TileKey TiledLaneletMap::tileKey(const lanelet::BoundingBox2d& box) const
+{
+  lanelet::BasicPoint2d center = box.center();
+  return { static_cast<int64_t>(std::floor(center.x() / tile_size_)),
+           static_cast<int64_t>(std::floor(center.y() / tile_size_)) };
+}
+
+void TiledLaneletMap::setMap(const lanelet::LaneletMapPtr& map)
+{
+  tiles_.clear();
+  lanelet_tiles_.clear();
+  active_tiles_.clear();
+  loaded_tiles_.clear();
+  active_map_ = std::make_shared<lanelet::LaneletMap>();
+  stats_ = TiledMapStats();
+
+  if (!map)
+  {
+    return;
+  }
+
+  std::map<TileKey, std::pair<lanelet::Lanelets, lanelet::Areas>> partition;
+
+  for (auto llt : map->laneletLayer)
+  {
+    auto box = lanelet::geometry::boundingBox2d(llt);
+    auto key = tileKey(box);
+    partition[key].first.push_back(llt);
+    lanelet_tiles_[llt.id()] = key;
+    tiles_[key].bounds.extend(box);
+  }
+
+  for (auto area : map->areaLayer)
+  {
+    auto box = lanelet::geometry::boundingBox2d(area);
+    auto key = tileKey(box);
+    partition[key].second.push_back(area);
+    tiles_[key].bounds.extend(box);
+  }
+
+  for (const auto& part : partition)
+  {
+    // The tile map shares the primitives of the full map. Serialization copies them
+    auto tile_map = lanelet::utils::createMap(part.second.first, part.second.second);
+
+    std::ostringstream stream;
+    boost::archive::binary_oarchive archive(stream);
+    archive << *tile_map;
+
+    tiles_[part.first].data = stream.str();
+  }
+
+  stats_.total_tiles = tiles_.size();
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::TiledLaneletMap"), "Partitioned map of " << map->laneletLayer.size()
+                                                                       << " lanelets into " << tiles_.size() << " tiles");
+}
+
+bool TiledLaneletMap::updateActiveTiles(const std::vector<lanelet::BasicPoint2d>& positions,
+                                        const std::vector<lanelet::Id>& lanelet_ids)
+{
+  std::set<TileKey> required;
+
+  for (auto id : lanelet_ids)
+  {
+    auto tile = lanelet_tiles_.find(id);
+    if (tile != lanelet_tiles_.end())
+    {
+      required.insert(tile->second);
+    }
+  }
+
+  for (const auto& tile : tiles_)
+  {
+    for (const auto& position : positions)
+    {
+      double dist = distance(tile.second.bounds, position);
+
+      if (dist <= load_radius_ || (dist <= evict_radius_ && active_tiles_.count(tile.first)))
+      {
+        required.insert(tile.first);
+        break;
+      }
+    }
+  }
+
+  if (required == active_tiles_)
+  {
+    return false;
+  }
+
+  loaded_tiles_.clear();
+  for (const auto& key : required)
+  {
+    if (!active_tiles_.count(key))
+    {
+      loaded_tiles_.insert(key);
+    }
+  }
+  size_t loads = loaded_tiles_.size();
+  size_t evictions = active_tiles_.size() + loads - required.size();
+
+  stats_.loads += loads;
+  stats_.evictions += evictions;
+  active_tiles_ = std::move(required);
+  stats_.active_tiles = active_tiles_.size();
+
+  buildActiveMap();
+
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::TiledLaneletMap"), "Loaded " << loads << " tiles and evicted " << evictions
+                      << ". Active tiles: " << active_tiles_.size() << " lanelets: " << active_map_->laneletLayer.size());
+
+  return true;
+}
+
+void TiledLaneletMap::buildActiveMap()
+{
+  // Lanelet maps do not support removing primitives so a new map is built. The primitives of the tiles which stay
+  // loaded are taken from the previous active map so the changes made to them are kept and only the newly loaded tiles
+  // are deserialized. Tiles are kept serialized rather than deserialized so memory use stays bounded by the active tiles
+  lanelet::Lanelets kept_lanelets;
+  for (auto llt : active_map_->laneletLayer)
+  {
+    auto tile = lanelet_tiles_.find(llt.id());
+    TileKey key = tile != lanelet_tiles_.end() ? tile->second : tileKey(lanelet::geometry::boundingBox2d(llt));
+    if (active_tiles_.count(key))
+    {
+      kept_lanelets.push_back(llt);
+    }
+  }
+
+  lanelet::Areas kept_areas;
+  for (auto area : active_map_->areaLayer)
+  {
+    if (active_tiles_.count(tileKey(lanelet::geometry::boundingBox2d(area))))
+    {
+      kept_areas.push_back(area);
+    }
+  }
+
+  auto active_map = lanelet::utils::createMap(kept_lanelets, kept_areas);
+
+  for (const auto& key : loaded_tiles_)
+  {
+    std::istringstream stream(tiles_.at(key).data);
+    boost::archive::binary_iarchive archive(stream);
+
+    lanelet::LaneletMap tile_map;
+    archive >> tile_map;
+
+    mergeTile(active_map, tile_map);
+  }
+
+  active_map_ = std::move(active_map);
+}
+
+lanelet::LaneletMapPtr TiledLaneletMap::getActiveMap() const
+{
+  return active_map_;
+}
+
+const std::set<TiledLaneletMap::TileKey>& TiledLaneletMap::getLoadedTiles() const
+{
+  return loaded_tiles_;
+}
+
+TiledLaneletMap::TileKey TiledLaneletMap::addLanelet(const lanelet::ConstLanelet& llt)
+{
+  auto tile = lanelet_tiles_.find(llt.id());
+  if (tile != lanelet_tiles_.end())
+  {
+    return tile->second;
+  }
+
+  auto key = tileKey(lanelet::geometry::boundingBox2d(llt));
+  lanelet_tiles_[llt.id()] = key;
+  return key;
+}
+
+boost::optional<TiledLaneletMap::TileKey> TiledLaneletMap::getTile(lanelet::Id lanelet_id) const
+{
+  auto tile = lanelet_tiles_.find(lanelet_id);
+  if (tile == lanelet_tiles_.end())
+  {
+    return boost::none;
+  }
+  return tile->second;
+}
+
+bool TiledLaneletMap::isLoaded(lanelet::Id lanelet_id) const
+{
+  auto tile = lanelet_tiles_.find(lanelet_id);
+  return tile != lanelet_tiles_.end() && active_tiles_.count(tile->second);
+}
+
+bool TiledLaneletMap::isLoaded(const TileKey& tile) const
+{
+  return active_tiles_.count(tile) > 0;
+}
+
+TiledMapStats TiledLaneletMap::getStats() const
+{
+  return stats_;
+}
+
+}  // namespace carma_wm
@@ -17,10 +17,63 @@
 #include <boost/archive/binary_iarchive.hpp>
 #include <boost/archive/binary_oarchive.hpp>
 #include <carma_wm/TrafficControl.hpp>
+#include <map>
+#include <stdexcept>
+#include <streambuf>
+#include <unordered_set>
 
 namespace carma_wm
 {
 
+namespace
+{
+/**
+ * \brief Stream buffer which appends everything written to it to the end of a byte vector.
+ *        This allows the binary archive to serialize directly into the data field of a MapBin message.
+ */
+class ByteVectorOutputBuffer : public std::streambuf
+{
+public:
+  explicit ByteVectorOutputBuffer(std::vector<uint8_t>& data) : data_(data)
+  {
+  }
+
+protected:
+  std::streamsize xsputn(const char* s, std::streamsize n) override
+  {
+    data_.insert(data_.end(), reinterpret_cast<const uint8_t*>(s), reinterpret_cast<const uint8_t*>(s) + n);
+    return n;
+  }
+
+  int_type overflow(int_type c) override
+  {
+    if (!traits_type::eq_int_type(c, traits_type::eof()))
+    {
+      data_.push_back(static_cast<uint8_t>(traits_type::to_char_type(c)));
+    }
+    return traits_type::not_eof(c);
+  }
+
+private:
+  std::vector<uint8_t>& data_;
+};
+
+/**
+ * \brief Read only stream buffer over an existing byte vector. The get area points into the vector so nothing is copied.
+ */
+class ByteVectorInputBuffer : public std::streambuf
+{
+public:
+  explicit ByteVectorInputBuffer(const std::vector<uint8_t>& data)
+  {
+    // The get area is never written to so casting away const is safe
+    char* begin = const_cast<char*>(reinterpret_cast<const char*>(data.data()));
+    setg(begin, begin, begin + data.size());
+  }
+};
+
+}  // namespace
+
 void toBinMsg(std::shared_ptr<carma_wm::TrafficControl> gf_ptr, autoware_lanelet2_msgs::msg::MapBin* msg)
 {
   if (msg == nullptr)
@@ -28,13 +81,12 @@ void toBinMsg(std::shared_ptr<carma_wm::TrafficControl> gf_ptr, autoware_lanelet
     RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm::TrafficControl"), __FUNCTION__ << ": msg is null pointer!");
     return;
   }
-  std::stringstream ss;
-  boost::archive::binary_oarchive oa(ss);
-  oa << *gf_ptr;
-  std::string data_str(ss.str());
+  msg->data.clear();  // Capacity is kept so a reused message does not reallocate
+  msg->format_version = TRAFFIC_CONTROL_BIN_FORMAT_VERSION;
 
-  msg->data.clear();
-  msg->data.assign(data_str.begin(), data_str.end());
+  ByteVectorOutputBuffer buffer(msg->data);
+  boost::archive::binary_oarchive oa(buffer);
+  oa << *gf_ptr;
 }
 
 void fromBinMsg(const autoware_lanelet2_msgs::msg::MapBin& msg, std::shared_ptr<carma_wm::TrafficControl> gf_ptr, lanelet::LaneletMapPtr lanelet_map)
@@ -45,12 +97,15 @@ void fromBinMsg(const autoware_lanelet2_msgs::msg::MapBin& msg, std::shared_ptr<
     return;
   }
 
-  std::string data_str;
-  data_str.assign(msg.data.begin(), msg.data.end());
-  
-  std::stringstream ss;
-  ss << data_str;
-  boost::archive::binary_iarchive oa(ss);
+  // Messages without a format version predate the field and share the encoding of the first version
+  if (!msg.format_version.empty() && msg.format_version != TRAFFIC_CONTROL_BIN_FORMAT_VERSION)
+  {
+    throw std::invalid_argument("Unsupported TrafficControl format version: " + msg.format_version +
+                                " expected: " + TRAFFIC_CONTROL_BIN_FORMAT_VERSION);
+  }
+
+  ByteVectorInputBuffer buffer(msg.data);
+  boost::archive::binary_iarchive oa(buffer);
 
   oa >> *gf_ptr;
 
@@ -69,4 +124,73 @@ void fromBinMsg(const autoware_lanelet2_msgs::msg::MapBin& msg, std::shared_ptr<
   RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::TrafficControl"), "Done resolving memory addresses of received regulatory elements!");
 }
 
+std::shared_ptr<carma_wm::TrafficControl> mergeTrafficControls(const std::vector<std::shared_ptr<carma_wm::TrafficControl>>& updates)
+{
+  auto merged = std::make_shared<carma_wm::TrafficControl>();
+
+  if (updates.empty())
+  {
+    return merged;
+  }
+
+  merged->id_ = updates.back()->id_;
+
+  // Every change in the order it would have been applied and the last change of each lanelet and regulation pair
+  std::vector<std::pair<bool, std::pair<lanelet::Id, lanelet::RegulatoryElementPtr>>> changes;  // true for additions
+  std::map<std::pair<lanelet::Id, lanelet::Id>, size_t> last_change;
+  std::unordered_set<lanelet::Id> added_lanelets;
+
+  for (const auto& update : updates)
+  {
+    for (const auto& llt : update->lanelet_additions_)
+    {
+      if (added_lanelets.insert(llt.id()).second)
+      {
+        merged->lanelet_additions_.push_back(llt);
+      }
+    }
+
+    merged->traffic_light_id_lookup_.insert(merged->traffic_light_id_lookup_.end(), update->traffic_light_id_lookup_.begin(),
+                                            update->traffic_light_id_lookup_.end());
+
+    if (!update->sim_.intersection_id_to_regem_id_.empty())
+    {
+      merged->sim_ = update->sim_;
+    }
+
+    // Removals of an update are applied before its additions
+    for (const auto& pair : update->remove_list_)
+    {
+      last_change[std::make_pair(pair.first, pair.second->id())] = changes.size();
+      changes.emplace_back(false, pair);
+    }
+
+    for (const auto& pair : update->update_list_)
+    {
+      last_change[std::make_pair(pair.first, pair.second->id())] = changes.size();
+      changes.emplace_back(true, pair);
+    }
+  }
+
+  for (size_t i = 0; i < changes.size(); i++)
+  {
+    const auto& pair = changes[i].second;
+    if (last_change[std::make_pair(pair.first, pair.second->id())] != i)
+    {
+      continue;  // Superseded by a later change of the same regulation
+    }
+
+    if (changes[i].first)
+    {
+      merged->update_list_.push_back(pair);
+    }
+    else
+    {
+      merged->remove_list_.push_back(pair);
+    }
+  }
+
+  return merged;
+}
+
 }  // namespace carma_wm
\ No newline at end of file
@@ -53,20 +53,60 @@ WMListener::WMListener(
     use_sim_time_param_value = node_params_->declare_parameter("use_sim_time", rclcpp::ParameterValue (false));
   }
 
+  //Declare parameter if it doesn't exist
+  rclcpp::Parameter routing_graph_cache_dir_param("routing_graph_cache_dir");
+  if(!node_params_->get_parameter("routing_graph_cache_dir", routing_graph_cache_dir_param)){
+    rclcpp::ParameterValue routing_graph_cache_dir_param_value;
+    routing_graph_cache_dir_param_value = node_params_->declare_parameter("routing_graph_cache_dir", rclcpp::ParameterValue(""));
+  }
+
+  //Declare parameters if they don't exist. A tile size of 0 disables the tiled map mode
+  rclcpp::Parameter tiled_map_tile_size_param("tiled_map_tile_size");
+  if(!node_params_->get_parameter("tiled_map_tile_size", tiled_map_tile_size_param)){
+    rclcpp::ParameterValue tiled_map_tile_size_param_value;
+    tiled_map_tile_size_param_value = node_params_->declare_parameter("tiled_map_tile_size", rclcpp::ParameterValue(0.0));
+  }
+
+  rclcpp::Parameter tiled_map_load_radius_param("tiled_map_load_radius");
+  if(!node_params_->get_parameter("tiled_map_load_radius", tiled_map_load_radius_param)){
+    rclcpp::ParameterValue tiled_map_load_radius_param_value;
+    tiled_map_load_radius_param_value = node_params_->declare_parameter("tiled_map_load_radius", rclcpp::ParameterValue(1000.0));
+  }
+
+  rclcpp::Parameter tiled_map_evict_radius_param("tiled_map_evict_radius");
+  if(!node_params_->get_parameter("tiled_map_evict_radius", tiled_map_evict_radius_param)){
+    rclcpp::ParameterValue tiled_map_evict_radius_param_value;
+    tiled_map_evict_radius_param_value = node_params_->declare_parameter("tiled_map_evict_radius", rclcpp::ParameterValue(1500.0));
+  }
+
   // Get params
   config_speed_limit_param = node_params_->get_parameter("config_speed_limit");
   participant_param = node_params_->get_parameter("vehicle_participant_type");
   use_sim_time_param = node_params_->get_parameter("use_sim_time");
+  routing_graph_cache_dir_param = node_params_->get_parameter("routing_graph_cache_dir");
+  tiled_map_tile_size_param = node_params_->get_parameter("tiled_map_tile_size");
+  tiled_map_load_radius_param = node_params_->get_parameter("tiled_map_load_radius");
+  tiled_map_evict_radius_param = node_params_->get_parameter("tiled_map_evict_radius");
 
 
   RCLCPP_INFO_STREAM(node_logging->get_logger(), "Loaded config speed limit: " << config_speed_limit_param.as_double());
   RCLCPP_INFO_STREAM(node_logging->get_logger(), "Loaded vehicle participant type: " << participant_param.as_string());
   RCLCPP_INFO_STREAM(node_logging->get_logger(), "Is using simulation time? : " << use_sim_time_param.as_bool());
+  RCLCPP_INFO_STREAM(node_logging->get_logger(), "Routing graph cache directory: " << routing_graph_cache_dir_param.as_string());
+  RCLCPP_INFO_STREAM(node_logging->get_logger(), "Tiled map tile size: " << tiled_map_tile_size_param.as_double()
+    << " load radius: " << tiled_map_load_radius_param.as_double() << " evict radius: " << tiled_map_evict_radius_param.as_double());
 
 
   setConfigSpeedLimit(config_speed_limit_param.as_double());
   worker_->setVehicleParticipationType(participant_param.as_string());
   worker_->isUsingSimTime(use_sim_time_param.as_bool());
+  worker_->setRoutingGraphCacheDirectory(routing_graph_cache_dir_param.as_string());
+
+  bool tiled_map = tiled_map_tile_size_param.as_double() > 0;
+  if (tiled_map)
+  {
+    worker_->enableTiledMap(tiled_map_tile_size_param.as_double(), tiled_map_load_radius_param.as_double(), tiled_map_evict_radius_param.as_double());
+  }
 
   rclcpp::SubscriptionOptions map_update_options;
   rclcpp::SubscriptionOptions map_options;
@@ -75,6 +115,7 @@ WMListener::WMListener(
   rclcpp::SubscriptionOptions traffic_spat_options;
   rclcpp::SubscriptionOptions ros1_clock_options;
   rclcpp::SubscriptionOptions sim_clock_options;
+  rclcpp::SubscriptionOptions current_pose_options;
 
   if(multi_threaded_)
   {
@@ -93,12 +134,15 @@ WMListener::WMListener(
     ros1_clock_options.callback_group = node_base_->create_callback_group(rclcpp::CallbackGroupType::MutuallyExclusive);
 
     sim_clock_options.callback_group = node_base_->create_callback_group(rclcpp::CallbackGroupType::MutuallyExclusive);
+
+    current_pose_options.callback_group = node_base_->create_callback_group(rclcpp::CallbackGroupType::MutuallyExclusive);
   }
 
   // Setup subscribers
   route_sub_ = rclcpp::create_subscription<carma_planning_msgs::msg::Route>(node_topics_, "route", 1,
                                   [this](const carma_planning_msgs::msg::Route::SharedPtr msg)
                                   {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                                     this->worker_->routeCallback(msg);
                                   }
                                   , route_options);
@@ -106,6 +150,7 @@ WMListener::WMListener(
   ros1_clock_sub_ = rclcpp::create_subscription<rosgraph_msgs::msg::Clock>(node_topics_, "/clock", 1,
                                   [this](const rosgraph_msgs::msg::Clock::SharedPtr msg)
                                   {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                                     this->worker_->ros1ClockCallback(msg);
                                   }
                                   , ros1_clock_options);
@@ -113,6 +158,7 @@ WMListener::WMListener(
   sim_clock_sub_ = rclcpp::create_subscription<rosgraph_msgs::msg::Clock>(node_topics_, "/sim_clock", 1,
                                   [this](const rosgraph_msgs::msg::Clock::SharedPtr msg)
                                   {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                                     this->worker_->simClockCallback(msg);
                                   }
                                   , sim_clock_options);
@@ -120,6 +166,7 @@ WMListener::WMListener(
   roadway_objects_sub_ = rclcpp::create_subscription<carma_perception_msgs::msg::RoadwayObstacleList>(node_topics_, "roadway_objects", 1,
                                   [this](const carma_perception_msgs::msg::RoadwayObstacleList::SharedPtr msg)
                                   {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                                     this->worker_->roadwayObjectListCallback(msg);
                                   }
                                   , roadway_objects_options);
@@ -127,10 +174,29 @@ WMListener::WMListener(
   traffic_spat_sub_ = rclcpp::create_subscription<carma_v2x_msgs::msg::SPAT>(node_topics_, "incoming_spat", 1,
                                   [this](const carma_v2x_msgs::msg::SPAT::SharedPtr msg)
                                   {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                                     this->worker_->incomingSpatCallback(msg);
                                   }
                                   , traffic_spat_options);
 
+  // The vehicle position is only needed to select the loaded tiles
+  if (tiled_map)
+  {
+    current_pose_sub_ = rclcpp::create_subscription<geometry_msgs::msg::PoseStamped>(node_topics_, "current_pose", 1,
+                                  [this](const geometry_msgs::msg::PoseStamped::SharedPtr msg)
+                                  {
+                                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
+                                    // The tiles are deserialized without the world model lock so readers are only blocked
+                                    // while the loaded tiles are set on the world model
+                                    if (this->worker_->loadTiledMapTiles({ msg->pose.position.x, msg->pose.position.y }))
+                                    {
+                                      const std::lock_guard<std::mutex> lock(this->mw_mutex_);
+                                      this->worker_->setLoadedTiledMap();
+                                    }
+                                  }
+                                  , current_pose_options);
+  }
+
   // NOTE: Currently, intra-process comms must be disabled for subscribers that are transient_local: https://github.com/ros2/rclcpp/issues/1753
   map_update_options.use_intra_process_comm = rclcpp::IntraProcessSetting::Disable; // Disable intra-process comms for the map update subscriber
   auto map_update_sub_qos = rclcpp::QoS(rclcpp::KeepLast(10)); // Set the queue size for the map update subscriber
@@ -154,6 +220,7 @@ WMListener::WMListener(
   map_sub_ = rclcpp::create_subscription<autoware_lanelet2_msgs::msg::MapBin>(node_topics_, "semantic_map", map_sub_qos,
                   [this](const autoware_lanelet2_msgs::msg::MapBin::SharedPtr msg)
                   {
+                    const std::lock_guard<std::recursive_mutex> update_lock(this->update_mutex_);
                     this->worker_->mapCallback(msg);
                   }
                   , map_options);
@@ -179,8 +246,29 @@ WorldModelConstPtr WMListener::getWorldModel()
   return worker_->getWorldModel();
 }
 
+TiledMapStats WMListener::getTiledMapStats()
+{
+  const std::lock_guard<std::recursive_mutex> update_lock(update_mutex_);
+  return worker_->getTiledMapStats();
+}
+
+WorldModelConstPtr WMListener::getWorldModelSnapshot()
+{
+  auto snapshot = worker_->getWorldModelSnapshot();
+  if (snapshot)
+  {
+    return snapshot;
+  }
+
+  // Snapshots are published on first use. After this all reads are lock-free
+  const std::lock_guard<std::recursive_mutex> update_lock(update_mutex_);
+  worker_->enableSnapshots();
+  return worker_->getWorldModelSnapshot();
+}
+
 void WMListener::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::SharedPtr geofence_msg)
 {
+  const std::lock_guard<std::recursive_mutex> update_lock(update_mutex_);
   const std::lock_guard<std::mutex> lock(mw_mutex_);
 
   RCLCPP_INFO_STREAM(node_logging_->get_logger(), "New Map Update Received. SeqNum: " << geofence_msg->seq_id);
@@ -20,6 +20,9 @@
 #include <lanelet2_extension/regulatory_elements/CarmaTrafficSignal.h>
 #include <lanelet2_extension/regulatory_elements/SignalizedIntersection.h>
 #include <lanelet2_routing/internal/Graph.h>
+#include <carma_wm/RoutingGraphUpdater.hpp>
+#include <algorithm>
+#include <chrono>
 #include "WMListenerWorker.hpp"
 
 namespace carma_wm
@@ -52,36 +55,126 @@ WorldModelConstPtr WMListenerWorker::getWorldModel() const
   return std::static_pointer_cast<const WorldModel>(world_model_);  // Cast pointer to const variant
 }
 
+WorldModelConstPtr WMListenerWorker::getWorldModelSnapshot() const
+{
+  return std::atomic_load(&snapshot_);
+}
+
+void WMListenerWorker::enableSnapshots()
+{
+  if (snapshots_enabled_)
+  {
+    return;
+  }
+
+  snapshots_enabled_ = true;
+  snapshot_map_stale_ = true;
+  publishSnapshot();
+}
+
+void WMListenerWorker::publishSnapshot()
+{
+  if (!snapshots_enabled_ || !snapshot_map_stale_)
+  {
+    return;
+  }
+
+  // The map is edited in place by updates so each snapshot requires its own copy
+  std::shared_ptr<const CARMAWorldModel> snapshot = world_model_->clone();
+  std::atomic_store(&snapshot_, snapshot);
+  snapshot_map_stale_ = false;
+
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Published world model snapshot for map version: " << snapshot->getMapVersion());
+}
+
+void WMListenerWorker::publishSnapshot(const std::function<void(CARMAWorldModel&)>& apply)
+{
+  if (!snapshots_enabled_)
+  {
+    return;
+  }
+
+  if (snapshot_map_stale_)
+  {
+    publishSnapshot(); // A full copy already includes the change
+    return;
+  }
+
+  // Readers may still hold the current snapshot so the change is applied to a copy which shares its map
+  auto snapshot = std::make_shared<CARMAWorldModel>(*std::atomic_load(&snapshot_));
+  apply(*snapshot);
+  std::atomic_store(&snapshot_, std::shared_ptr<const CARMAWorldModel>(snapshot));
+}
+
 
 void WMListenerWorker::mapCallback(const autoware_lanelet2_msgs::msg::MapBin::SharedPtr map_msg)
 {
+  // The header stamp identifies the broadcaster instance. A restarted broadcaster numbers its maps and updates from the
+  // start again so they can only be compared with those of the same instance
+  bool same_broadcaster = map_msg->header.stamp == broadcaster_stamp_;
+
+  // The seq_id of a map is the first map update it does not include. A snapshot of the current map version which does
+  // not include anything beyond the applied updates is only meant for listeners which joined late or missed updates
+  if (world_model_->getMap() && same_broadcaster && map_msg->map_version == current_map_version_ && map_msg->seq_id > 0 &&
+      static_cast<long>(map_msg->seq_id) <= most_recent_update_msg_seq_ + 1)
+  {
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Ignoring map snapshot which is already up to date. Snapshot seq: "
+                        << map_msg->seq_id << " most_recent_update_msg_seq_: " << most_recent_update_msg_seq_);
+    return;
+  }
+
   current_map_version_ = map_msg->map_version;
 
+  if (same_broadcaster)
+  {
+    most_recent_update_msg_seq_ = std::max(most_recent_update_msg_seq_, static_cast<long>(map_msg->seq_id) - 1);
+  }
+  else
+  {
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Received map from a new broadcaster instance. Restarting the map update sequence at seq: "
+                       << map_msg->seq_id);
+    broadcaster_stamp_ = map_msg->header.stamp;
+    eraseQueuedMapUpdatesFromOtherBroadcasters(broadcaster_stamp_);
+    most_recent_update_msg_seq_ = static_cast<long>(map_msg->seq_id) - 1;
+  }
+
   lanelet::LaneletMapPtr new_map(new lanelet::LaneletMap);
 
   lanelet::utils::conversion::fromBinMsg(*map_msg, new_map);
 
-  world_model_->setMap(new_map, current_map_version_);
-
-  // After setting map evaluate the current update queue to apply any updates that arrived before the map
-  bool more_updates_to_apply = true;
-  while(!map_update_queue_.empty() && more_updates_to_apply) {
-
-    auto update = map_update_queue_.front(); // Get first update
-    map_update_queue_.pop(); // Remove update from queue
-
-    if (update->map_version < current_map_version_) { // Drop any so far unapplied updates for the previous map
-      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "There were unapplied updates in carma_wm when a new map was received.");
-      continue;
-    }
-    if (update->map_version == current_map_version_) { // Current update goes with current map
-      mapUpdateCallback(update); // Apply the update
-    } else {
-      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Done applying updates for new map. However, more updates are waiting for a future map.");
-      more_updates_to_apply = false; // If there is more updates queued that are not for this map version assume they are for a future map version
+  if (tiled_map_)
+  {
+    // Only the tiles are kept so the full map is released once partitioned. Updates and routes of the previous map
+    // version no longer apply
+    tiled_map_->setMap(new_map);
+    new_map.reset();
+    tiled_map_updates_.clear();
+    applied_route_msg_ = boost::none;
+    tiled_map_route_ids_.clear();
+
+    std::vector<lanelet::BasicPoint2d> positions;
+    if (tiled_map_position_)
+    {
+      positions.push_back(tiled_map_position_.get());
     }
-
+    tiled_map_->updateActiveTiles(positions, tiled_map_route_ids_);
+    world_model_->setMap(tiled_map_->getActiveMap(), current_map_version_);
+  }
+  else if (routing_graph_cache_)
+  {
+    setMapUsingRoutingGraphCache(*map_msg, new_map);
   }
+  else
+  {
+    world_model_->setMap(new_map, current_map_version_);
+  }
+  routing_graph_stale_ids_.clear(); // The full routing graph was just built for the new map
+  snapshot_map_stale_ = true;
+
+  // After setting map apply any buffered updates that arrived before the map
+  applyQueuedMapUpdates(false);
+
+  publishSnapshot();
 
   // Call user defined map callback
   if (map_callback_)
@@ -101,9 +194,42 @@ void WMListenerWorker::mapCallback(const autoware_lanelet2_msgs::msg::MapBin::Sh
   }
 }
 
+void WMListenerWorker::setMapUsingRoutingGraphCache(const autoware_lanelet2_msgs::msg::MapBin& map_msg, lanelet::LaneletMapPtr map)
+{
+  uint64_t key = RoutingGraphCache::computeKey(map_msg, getVehicleParticipationType(), config_speed_limit_);
+
+  LaneletRoutingGraphPtr graph = routing_graph_cache_->load(key, map);
+
+  if (graph)
+  {
+    world_model_->setRoutingGraph(graph);
+    world_model_->setMap(map, current_map_version_, false);
+
+    auto stats = routing_graph_cache_->getStats();
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Loaded routing graph from cache " << routing_graph_cache_->getPath(key)
+      << ". Time saved: " << stats.last_time_saved << " s. Total time saved: " << stats.time_saved << " s over " << stats.hits << " hits and " << stats.misses << " misses");
+    return;
+  }
+
+  auto start_time = std::chrono::steady_clock::now();
+  world_model_->setMap(map, current_map_version_);
+  double build_time = std::chrono::duration<double>(std::chrono::steady_clock::now() - start_time).count();
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Routing graph cache miss. Built routing graph in " << build_time << " s");
+
+  routing_graph_cache_->store(key, *world_model_->getMapRoutingGraph(), build_time);
+}
+
 void WMListenerWorker::incomingSpatCallback(const carma_v2x_msgs::msg::SPAT::SharedPtr spat_msg)
 {
-  world_model_->processSpatFromMsg(*spat_msg, use_sim_time_);
+  bool signals_changed = world_model_->processSpatFromMsg(*spat_msg, use_sim_time_);
+
+  // The snapshot map is not copied for SPaT as it arrives several times a second. Only the signal phases, which are
+  // copied by the world model before it changes them again, are swapped into the new snapshot
+  if (signals_changed)
+  {
+    publishSnapshot([this](CARMAWorldModel& snapshot) { snapshot.shareSignalPhases(*world_model_); });
+  }
 }
 
 bool WMListenerWorker::checkIfReRoutingNeeded() const
@@ -150,7 +276,13 @@ void WMListenerWorker::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::Sh
   if (rerouting_flag_) // no update should be applied if rerouting
   {
     RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Currently new route is being processed. Queueing this update. Received seq: " << geofence_msg->seq_id << " prev seq: " << most_recent_update_msg_seq_);
-    map_update_queue_.emplace(geofence_msg);
+    map_update_queue_.emplace(std::make_pair(static_cast<size_t>(geofence_msg->map_version), static_cast<long>(geofence_msg->seq_id)), geofence_msg);
+    return;
+  }
+  if (geofence_msg->header.stamp != broadcaster_stamp_) { // Sequence numbers of another broadcaster instance are not comparable with ours
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Update received from a new broadcaster instance. Queueing update until its map is available.");
+    eraseQueuedMapUpdatesFromOtherBroadcasters(geofence_msg->header.stamp); // The previous instance is gone so its pending updates are never needed
+    map_update_queue_.emplace(std::make_pair(static_cast<size_t>(geofence_msg->map_version), static_cast<long>(geofence_msg->seq_id)), geofence_msg);
     return;
   }
   if (geofence_msg->seq_id <= most_recent_update_msg_seq_) {
@@ -158,45 +290,195 @@ void WMListenerWorker::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::Sh
     return;
   } else if(!world_model_->getMap() || current_map_version_ < geofence_msg->map_version) { // If our current map version is older than the version target by this update
     RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Update received for newer map version than available. Queueing update until map is available.");
-    map_update_queue_.emplace(geofence_msg);
+    map_update_queue_.emplace(std::make_pair(static_cast<size_t>(geofence_msg->map_version), static_cast<long>(geofence_msg->seq_id)), geofence_msg);
     return;
   } else if (current_map_version_ > geofence_msg->map_version) { // If this update is for an older map
     RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Dropping old map update as newer map is already available.");
     return;
   } else if (most_recent_update_msg_seq_ + 1 < geofence_msg->seq_id) {
     RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Queuing map update as we are waiting on an earlier update to be applied. most_recent_update_msg_seq_: " << most_recent_update_msg_seq_ << "geofence_msg->seq_id: " << geofence_msg->seq_id);
-    map_update_queue_.emplace(geofence_msg);
+    map_update_queue_.emplace(std::make_pair(static_cast<size_t>(geofence_msg->map_version), static_cast<long>(geofence_msg->seq_id)), geofence_msg);
     return;
   }
 
+  // This update continues the sequence so it is applied along with any buffered updates which follow it
+  map_update_queue_.emplace(std::make_pair(static_cast<size_t>(geofence_msg->map_version), static_cast<long>(geofence_msg->seq_id)), geofence_msg);
+  applyQueuedMapUpdates(false);
+}
 
-  if(geofence_msg->invalidates_route==true && world_model_->getRoute())
+void WMListenerWorker::eraseQueuedMapUpdatesFromOtherBroadcasters(const builtin_interfaces::msg::Time& broadcaster_stamp)
+{
+  for (auto it = map_update_queue_.begin(); it != map_update_queue_.end();)
   {
-    rerouting_flag_=true;
-    recompute_route_flag_ = true;
+    if (it->second->header.stamp != broadcaster_stamp)
+    {
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Dropping queued map update of a previous broadcaster instance. Seq: " << it->second->seq_id);
+      it = map_update_queue_.erase(it);
+    }
+    else
+    {
+      ++it;
+    }
+  }
+}
 
-    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Received notice that route has been invalidated in mapUpdateCallback");
+bool WMListenerWorker::applyQueuedMapUpdates(bool defer_route_invalidation)
+{
+  bool route_invalidated = false;
 
-    if(route_node_flag_!=true)
-    {
-     RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Route is not yet available. Therefore queueing the update");
-     map_update_queue_.emplace(geofence_msg);
-     return;
+  if (rerouting_flag_) // no update should be applied if rerouting
+  {
+    return route_invalidated;
+  }
+
+  size_t applied_count = 0;
+  bool wait_for_reroute = false;
+  autoware_lanelet2_msgs::msg::MapBin::SharedPtr graph_update; // Last applied update which provided a routing graph
+
+  auto it = map_update_queue_.begin();
+  while (it != map_update_queue_.end())
+  {
+    auto update = it->second;
+
+    if (update->header.stamp != broadcaster_stamp_) { // Waits for the map of the broadcaster instance which sent it
+      ++it;
+      continue;
+    }
+    if (update->seq_id <= most_recent_update_msg_seq_) {
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Dropping queued map update which has already been processed. Seq: " << update->seq_id);
+      it = map_update_queue_.erase(it);
+      continue;
+    }
+    if (update->map_version < current_map_version_) { // Drop any so far unapplied updates for the previous map
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "There were unapplied updates in carma_wm when a new map was received.");
+      it = map_update_queue_.erase(it);
+      continue;
+    }
+    if (!world_model_->getMap() || update->map_version > current_map_version_) {
+      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Remaining queued updates are waiting for a future map.");
+      break;
+    }
+    if (update->seq_id != most_recent_update_msg_seq_ + 1) {
+      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Waiting on an earlier update to be applied. most_recent_update_msg_seq_: " << most_recent_update_msg_seq_ << " next queued seq: " << update->seq_id);
+      break;
+    }
+
+    if (defer_route_invalidation) {
+      if (update->invalidates_route) {
+        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Applied queued map update has invalidated the route.");
+        route_invalidated = true;
+      }
+    } else if (update->invalidates_route && world_model_->getRoute()) {
+
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Received notice that route has been invalidated in mapUpdateCallback");
+
+      if (route_node_flag_ != true) {
+        RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Route is not yet available. Therefore queueing the update");
+        wait_for_reroute = true;
+        break;
+      }
+
+      // The rest of the batch is still applied so that the route is only recomputed once
+      rerouting_flag_ = true;
+      recompute_route_flag_ = true;
+    }
+
+    // An update which fails to apply is dropped so the updates which follow it are not blocked. It may have been partly
+    // applied so the batch is still finished for it, but its routing graph is not used
+    most_recent_update_msg_seq_ = update->seq_id; // Update current sequence count
+    it = map_update_queue_.erase(it);
+    applied_count++;
+
+    std::set<TiledLaneletMap::TileKey> tiles;
+    try {
+      tiles = applyMapUpdate(*update);
+    } catch (const std::exception& e) {
+      RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Dropping map update which could not be applied. Seq: " << update->seq_id << " Error: " << e.what());
+      continue;
+    }
+
+    for (const auto& tile : tiles) {
+      tiled_map_updates_[tile].push_back(update);
+    }
+
+    if (update->has_routing_graph) {
+      graph_update = update;
+      if (!tiled_map_) {
+        routing_graph_stale_ids_.clear(); // The provided graph already accounts for this and all previous updates
+      }
     }
   }
 
-  most_recent_update_msg_seq_ = geofence_msg->seq_id; // Update current sequence count
+  if (applied_count > 0) {
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Applied batch of " << applied_count << " map updates. Updates still queued: " << map_update_queue_.size());
+    finishMapUpdateBatch(graph_update);
+  }
+
+  // Set after the batch is finished so that the routing graph is recomputed when the invalidating update is applied
+  if (wait_for_reroute) {
+    rerouting_flag_ = true;
+    recompute_route_flag_ = true;
+  }
 
+  return route_invalidated;
+}
+
+std::set<TiledLaneletMap::TileKey> WMListenerWorker::applyMapUpdate(const autoware_lanelet2_msgs::msg::MapBin& geofence_msg,
+                                                                   const std::set<TiledLaneletMap::TileKey>* replay_tiles)
+{
   auto gf_ptr = std::shared_ptr<carma_wm::TrafficControl>(new carma_wm::TrafficControl);
 
   // convert ros msg to geofence object
-  carma_wm::fromBinMsg(*geofence_msg, gf_ptr, world_model_->getMutableMap());
+  carma_wm::fromBinMsg(geofence_msg, gf_ptr, world_model_->getMutableMap());
 
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Processing Map Update with Geofence Id:" << gf_ptr->id_);
 
+  // Record the lanelets touched by this update so the routing graph can be patched instead of fully rebuilt.
+  // They are recorded before the map is changed so an update which fails part way is still covered
+  if (!tiled_map_)
+  {
+    auto affected_ids = routing_graph::getAffectedLaneletOrAreaIds(*gf_ptr);
+    routing_graph_stale_ids_.insert(affected_ids.begin(), affected_ids.end());
+  }
+
+  // In the tiled map mode the parts of the update for lanelets of tiles which are not loaded are skipped. They are applied
+  // once their tile is loaded
+  std::set<TiledLaneletMap::TileKey> tiles;
+  auto applies_to = [this, replay_tiles, &tiles](lanelet::Id lanelet_id)
+  {
+    if (!tiled_map_)
+    {
+      return true;
+    }
+
+    auto tile = tiled_map_->getTile(lanelet_id);
+    if (!tile)
+    {
+      return false;
+    }
+
+    tiles.insert(tile.get());
+    bool applies = replay_tiles ? replay_tiles->count(tile.get()) > 0 : tiled_map_->isLoaded(tile.get());
+    if (applies)
+    {
+      routing_graph_stale_ids_.insert(lanelet_id);
+    }
+    return applies;
+  };
+
   RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " requests addition of lanelets size: " << gf_ptr->lanelet_additions_.size());
   for (auto llt : gf_ptr->lanelet_additions_)
   {
+    if (tiled_map_)
+    {
+      tiled_map_->addLanelet(llt);
+    }
+
+    if (!applies_to(llt.id()))
+    {
+      continue;
+    }
+
     // world model here should blindly accept the map update received
     RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Adding new lanelet with id: " << llt.id());
     auto left = llt.leftBound3d(); //new lanelet coming in
@@ -222,23 +504,32 @@ void WMListenerWorker::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::Sh
     world_model_->getMutableMap()->add(llt);
   }
 
-  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " sends record of traffic_lights_id size: " << gf_ptr->traffic_light_id_lookup_.size());
-  for (auto const &[traffic_light_id, lanelet_id] : gf_ptr->traffic_light_id_lookup_)
+  // The signal records are kept by the world model when the map is replaced so they are not applied again
+  if (!replay_tiles)
   {
-    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Adding new pair for traffic light ids: " << traffic_light_id << ", and lanelet::Id: " << lanelet_id);
-    world_model_->setTrafficLightIds(traffic_light_id, lanelet_id);
-  }
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " sends record of traffic_lights_id size: " << gf_ptr->traffic_light_id_lookup_.size());
+    for (auto const &[traffic_light_id, lanelet_id] : gf_ptr->traffic_light_id_lookup_)
+    {
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Adding new pair for traffic light ids: " << traffic_light_id << ", and lanelet::Id: " << lanelet_id);
+      world_model_->setTrafficLightIds(traffic_light_id, lanelet_id);
+    }
 
-  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " sends record of intersections size: " << gf_ptr->sim_.intersection_id_to_regem_id_.size());
-  if (gf_ptr->sim_.intersection_id_to_regem_id_.size() > 0)
-  {
-    world_model_->sim_ = gf_ptr->sim_;
-    logSignalizedIntersectionManager(world_model_->sim_);
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " sends record of intersections size: " << gf_ptr->sim_.intersection_id_to_regem_id_.size());
+    if (gf_ptr->sim_.intersection_id_to_regem_id_.size() > 0)
+    {
+      world_model_->sim_ = gf_ptr->sim_;
+      logSignalizedIntersectionManager(world_model_->sim_);
+    }
   }
 
   RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Geofence id" << gf_ptr->id_ << " requests removal of size: " << gf_ptr->remove_list_.size());
   for (auto const &[lanelet_id, lanelet_to_remove] : gf_ptr->remove_list_)
   {
+    if (!applies_to(lanelet_id))
+    {
+      continue;
+    }
+
     auto parent_llt = world_model_->getMutableMap()->laneletLayer.get(lanelet_id);
     // we can only check by id, if the element is there
     // this is only for speed optimization, as world model here should blindly accept the map update received
@@ -258,6 +549,10 @@ void WMListenerWorker::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::Sh
   // we should extract general regem to specific type of regem the geofence specifies
   for (auto const &[lanelet_id, lanelet_to_update]: gf_ptr->update_list_)
   {
+    if (!applies_to(lanelet_id))
+    {
+      continue;
+    }
 
     auto parent_llt = world_model_->getMutableMap()->laneletLayer.get(lanelet_id);
 
@@ -279,29 +574,46 @@ void WMListenerWorker::mapUpdateCallback(autoware_lanelet2_msgs::msg::MapBin::Sh
     }
   }
 
-  // set the Map to trigger a new route graph construction if rerouting was required by the updates and a new graph was not provided
-  world_model_->setMap(world_model_->getMutableMap(), current_map_version_, recompute_route_flag_ && !geofence_msg->has_routing_graph );
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Finished Applying the Map Update with Geofence Id:" << gf_ptr->id_);
+
+  return tiles;
+}
+
+void WMListenerWorker::finishMapUpdateBatch(const autoware_lanelet2_msgs::msg::MapBin::SharedPtr& graph_update)
+{
+  world_model_->setMap(world_model_->getMutableMap(), current_map_version_, false);
 
   // If a new graph was provided then set that graph
   // recompute_route_flag_ not checked here to support the case of the first map or map version changing
-  if (geofence_msg->has_routing_graph) {
+  // The provided graph covers the full map so in the tiled map mode the graph of the loaded tiles is updated instead
+  if (graph_update && tiled_map_) {
+    world_model_->updateRoutingGraph(routing_graph_stale_ids_);
+    routing_graph_stale_ids_.clear();
+  }
+  else if (graph_update) {
 
-    LaneletRoutingGraphPtr graph = routingGraphFromMsg(geofence_msg->routing_graph, world_model_->getMutableMap());
+    LaneletRoutingGraphPtr graph = routingGraphFromMsg(graph_update->routing_graph, world_model_->getMutableMap());
 
     if (!graph) {
       throw std::invalid_argument("Map updated provided routing graph which could not be applied to the current map.");
     }
 
     world_model_->setRoutingGraph(graph);
+  }
 
+  // Update the routing graph once for the whole batch if rerouting was required by the updates
+  // and the changes were not already covered by a provided graph
+  if (recompute_route_flag_ && (!graph_update || !routing_graph_stale_ids_.empty())) {
+    world_model_->updateRoutingGraph(routing_graph_stale_ids_);
+    routing_graph_stale_ids_.clear();
   }
 
   // no need to reroute again unless received invalidated msg again
   if (recompute_route_flag_)
     recompute_route_flag_ = false;
 
-
-  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Finished Applying the Map Update with Geofence Id:" << gf_ptr->id_);
+  snapshot_map_stale_ = true;
+  publishSnapshot();
 
   // Call user defined map callback
   if (map_callback_)
@@ -574,16 +886,19 @@ void WMListenerWorker::roadwayObjectListCallback(const carma_perception_msgs::ms
 {
   // this topic publishes only the objects that are on the road
   world_model_->setRoadwayObjects(msg->roadway_obstacles);
+  publishSnapshot([&](CARMAWorldModel& wm) { wm.setRoadwayObjects(msg->roadway_obstacles); });
 }
 
 void WMListenerWorker::ros1ClockCallback(const rosgraph_msgs::msg::Clock::SharedPtr clock_msg)
 {
   world_model_->setRos1Clock(rclcpp::Time(clock_msg->clock));
+  publishSnapshot([&](CARMAWorldModel& wm) { wm.setRos1Clock(rclcpp::Time(clock_msg->clock)); });
 }
 
 void WMListenerWorker::simClockCallback(const rosgraph_msgs::msg::Clock::SharedPtr clock_msg)
 {
   world_model_->setSimulationClock(rclcpp::Time(clock_msg->clock));
+  publishSnapshot([&](CARMAWorldModel& wm) { wm.setSimulationClock(rclcpp::Time(clock_msg->clock)); });
 }
 
 void WMListenerWorker::routeCallback(const carma_planning_msgs::msg::Route::SharedPtr route_msg)
@@ -607,34 +922,8 @@ void WMListenerWorker::routeCallback(const carma_planning_msgs::msg::Route::Shar
 
     rerouting_flag_ = false; // Reset flag since the route node has finished re-routing
 
-    // After setting map evaluate the current update queue to apply any updates that arrived before the map
-    bool more_updates_to_apply = true;
-    while(!map_update_queue_.empty() && more_updates_to_apply) {
-
-      auto update = map_update_queue_.front(); // Get first update
-      map_update_queue_.pop(); // Remove update from queue
-
-      if (update->map_version < current_map_version_) { // Drop any so far unapplied updates for the current map
-        RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Apply from reroute: There were unapplied updates in carma_wm when a new map was recieved.");
-        continue;
-      }
-      if (update->map_version == current_map_version_) { // Current update goes with current map which is also the map used by this route
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Applying queued update after route was recieved. ");
-
-        if (update->invalidates_route == true) {
-          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Applied queued map update has invalidated the route.");
-          route_invalidated_by_queued_map_update = true;
-        }
-
-        update->invalidates_route=false; // Do not trigger recomputation of routing graph in mapUpdateCallback; recomputation of routing graph will occur outside of this loop
-
-        mapUpdateCallback(update); // Apply the update
-      } else {
-        RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Apply from reroute: Done applying updates for new map. However, more updates are waiting for a future map.");
-        more_updates_to_apply = false; // If there is more updates queued that are not for this map version assume they are for a future map version
-      }
-
-    }
+    // After rerouting apply the updates buffered while waiting as a single batch. Recomputation of routing graph will occur below
+    route_invalidated_by_queued_map_update = applyQueuedMapUpdates(true);
 
   }
 
@@ -646,33 +935,33 @@ void WMListenerWorker::routeCallback(const carma_planning_msgs::msg::Route::Shar
   // If one of the applied queued map updates invalidated the route, then the routing graph must be updated again for the route node
   if (route_invalidated_by_queued_map_update && route_node_flag_){
     RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"),"At least one applied queued map update has invalidated the route. Routing graph will be recomputed.");
-    world_model_->setMap(world_model_->getMutableMap(), current_map_version_, route_invalidated_by_queued_map_update);
+    world_model_->setMap(world_model_->getMutableMap(), current_map_version_, false);
+    world_model_->updateRoutingGraph(routing_graph_stale_ids_);
+    routing_graph_stale_ids_.clear();
     RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"),"Finished recomputing the routing graph for the applied queued map update(s)");
 
     rerouting_flag_ = true; // Set flag to trigger a route update by the route node due to the updated routing graph
 
+    snapshot_map_stale_ = true;
+    publishSnapshot();
+
     return;
   }
   else {
     rerouting_flag_ = false; // Reset flag since no applied queued map updates invalidated the route for the route node
 
-    auto path = lanelet::ConstLanelets();
-    for(auto id : route_msg->shortest_path_lanelet_ids)
-    {
-      auto ll = world_model_->getMap()->laneletLayer.get(id);
-      path.push_back(ll);
+    if (tiled_map_) {
+      // The tiles of the whole route must be loaded before the route can be found in the map
+      tiled_map_route_ids_ = route_msg->route_path_lanelet_ids;
+      tiled_map_route_ids_.insert(tiled_map_route_ids_.end(), route_msg->shortest_path_lanelet_ids.begin(), route_msg->shortest_path_lanelet_ids.end());
+      refreshTiledMap(false);
+      applied_route_msg_ = *route_msg;
     }
 
-    auto route_opt = path.size() == 1 ? world_model_->getMapRoutingGraph()->getRoute(path.front(), path.back())
-                                : world_model_->getMapRoutingGraph()->getRouteVia(path.front(), lanelet::ConstLanelets(path.begin() + 1, path.end() - 1), path.back());
-    if(route_opt.is_initialized()) {
-      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Setting route in world model");
-      auto ptr = std::make_shared<lanelet::routing::Route>(std::move(route_opt.get()));
-      world_model_->setRoute(ptr);
-    }
+    applyRouteMsg(*route_msg);
 
-    world_model_->setRouteEndPoint({route_msg->end_point.x,route_msg->end_point.y,route_msg->end_point.z});
-    world_model_->setRouteName(route_msg->route_name);
+    snapshot_map_stale_ = true;
+    publishSnapshot();
 
     // Call route_callback_
     if (route_callback_)
@@ -684,6 +973,157 @@ void WMListenerWorker::routeCallback(const carma_planning_msgs::msg::Route::Shar
   }
 }
 
+void WMListenerWorker::applyRouteMsg(const carma_planning_msgs::msg::Route& route_msg)
+{
+  auto path = lanelet::ConstLanelets();
+  for(auto id : route_msg.shortest_path_lanelet_ids)
+  {
+    auto ll = world_model_->getMap()->laneletLayer.get(id);
+    path.push_back(ll);
+  }
+
+  auto route_opt = path.size() == 1 ? world_model_->getMapRoutingGraph()->getRoute(path.front(), path.back())
+                              : world_model_->getMapRoutingGraph()->getRouteVia(path.front(), lanelet::ConstLanelets(path.begin() + 1, path.end() - 1), path.back());
+  if(route_opt.is_initialized()) {
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Setting route in world model");
+    auto ptr = std::make_shared<lanelet::routing::Route>(std::move(route_opt.get()));
+    world_model_->setRoute(ptr);
+  }
+
+  world_model_->setRouteEndPoint({route_msg.end_point.x,route_msg.end_point.y,route_msg.end_point.z});
+  world_model_->setRouteName(route_msg.route_name);
+}
+
+void WMListenerWorker::enableTiledMap(double tile_size, double load_radius, double evict_radius)
+{
+  tiled_map_ = std::make_unique<TiledLaneletMap>(tile_size, load_radius, evict_radius);
+}
+
+void WMListenerWorker::updateTiledMapPosition(const lanelet::BasicPoint2d& position)
+{
+  if (loadTiledMapTiles(position))
+  {
+    setLoadedTiledMap();
+  }
+}
+
+bool WMListenerWorker::loadTiledMapTiles(const lanelet::BasicPoint2d& position)
+{
+  if (!tiled_map_)
+  {
+    return false;
+  }
+
+  tiled_map_position_ = position;
+
+  if (!world_model_->getMap())
+  {
+    return false;
+  }
+
+  return loadActiveTiles();
+}
+
+void WMListenerWorker::setLoadedTiledMap()
+{
+  setActiveTiledMap(true);
+}
+
+TiledMapStats WMListenerWorker::getTiledMapStats() const
+{
+  if (!tiled_map_)
+  {
+    return TiledMapStats();
+  }
+  return tiled_map_->getStats();
+}
+
+void WMListenerWorker::refreshTiledMap(bool reapply_route)
+{
+  if (loadActiveTiles())
+  {
+    setActiveTiledMap(reapply_route);
+  }
+}
+
+bool WMListenerWorker::loadActiveTiles()
+{
+  std::vector<lanelet::BasicPoint2d> positions;
+  if (tiled_map_position_)
+  {
+    positions.push_back(tiled_map_position_.get());
+  }
+
+  return tiled_map_->updateActiveTiles(positions, tiled_map_route_ids_);
+}
+
+void WMListenerWorker::setActiveTiledMap(bool reapply_route)
+{
+  world_model_->setMap(tiled_map_->getActiveMap(), current_map_version_);
+  routing_graph_stale_ids_.clear(); // The full routing graph was just built for the new map
+
+  // The tiles which stayed loaded keep the updates applied to them. The newly loaded tiles are loaded from the base map
+  // so only the updates which touch them are applied again, in the order they were received
+  const auto& loaded_tiles = tiled_map_->getLoadedTiles();
+  std::map<long, autoware_lanelet2_msgs::msg::MapBin::SharedPtr> replayed_updates;
+  for (const auto& tile : loaded_tiles)
+  {
+    auto updates = tiled_map_updates_.find(tile);
+    if (updates == tiled_map_updates_.end())
+    {
+      continue;
+    }
+
+    for (const auto& update : updates->second)
+    {
+      replayed_updates.emplace(update->seq_id, update);
+    }
+  }
+
+  for (const auto& update : replayed_updates)
+  {
+    try
+    {
+      applyMapUpdate(*update.second, &loaded_tiles);
+    }
+    catch (const std::exception& e)
+    {
+      RCLCPP_ERROR_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Map update could not be applied again to the loaded tiles. Seq: " << update.first << " Error: " << e.what());
+    }
+  }
+
+  if (!replayed_updates.empty())
+  {
+    world_model_->setMap(world_model_->getMutableMap(), current_map_version_, false);
+    world_model_->updateRoutingGraph(routing_graph_stale_ids_);
+    routing_graph_stale_ids_.clear();
+  }
+
+  if (reapply_route && applied_route_msg_)
+  {
+    try
+    {
+      applyRouteMsg(applied_route_msg_.get());
+    }
+    catch (const lanelet::NoSuchPrimitiveError& e)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Route could not be set on the loaded tiles: " << e.what());
+    }
+  }
+
+  auto stats = tiled_map_->getStats();
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm::WMListenerWorker"), "Loaded tiles changed. Active tiles: " << stats.active_tiles << " of " << stats.total_tiles
+    << ". Total loads: " << stats.loads << " evictions: " << stats.evictions << ". Map updates applied again: " << replayed_updates.size());
+
+  snapshot_map_stale_ = true;
+  publishSnapshot();
+
+  if (map_callback_)
+  {
+    map_callback_();
+  }
+}
+
 void WMListenerWorker::setMapCallback(std::function<void()> callback)
 {
   map_callback_ = callback;
@@ -699,6 +1139,7 @@ void WMListenerWorker::setConfigSpeedLimit(double config_lim)
   config_speed_limit_ = config_lim;
   //Function to load config_limit into CarmaWorldModel
    world_model_->setConfigSpeedLimit(config_speed_limit_);
+   publishSnapshot([&](CARMAWorldModel& wm) { wm.setConfigSpeedLimit(config_speed_limit_); });
 }
 
 void WMListenerWorker::isUsingSimTime(bool use_sim_time)
@@ -706,6 +1147,17 @@ void WMListenerWorker::isUsingSimTime(bool use_sim_time)
   use_sim_time_ = use_sim_time;
 }
 
+void WMListenerWorker::setRoutingGraphCacheDirectory(const std::string& directory)
+{
+  if (directory.empty())
+  {
+    routing_graph_cache_.reset();
+    return;
+  }
+
+  routing_graph_cache_ = std::make_unique<RoutingGraphCache>(directory);
+}
+
 double WMListenerWorker::getConfigSpeedLimit() const
 {
   return config_speed_limit_;
@@ -715,6 +1167,8 @@ void WMListenerWorker::setVehicleParticipationType(std::string participant)
 {
   //Function to load participation type into CarmaWorldModel
   world_model_->setVehicleParticipationType(participant);
+  snapshot_map_stale_ = true;
+  publishSnapshot();
 }
 
 
@@ -20,9 +20,15 @@
 #include <carma_v2x_msgs/msg/spat.hpp>
 #include <carma_wm/CARMAWorldModel.hpp>
 #include <carma_wm/TrafficControl.hpp>
-#include <queue>
+#include <carma_wm/RoutingGraphCache.hpp>
+#include <carma_wm/TiledLaneletMap.hpp>
+#include <map>
+#include <memory>
+#include <set>
+#include <unordered_set>
 #include <carma_wm/SignalizedIntersectionManager.hpp>
 #include <utility>
+#include <functional>
 #include <rosgraph_msgs/msg/clock.hpp>
 
 namespace carma_wm
@@ -44,8 +50,25 @@ public:
    */
   WorldModelConstPtr getWorldModel() const;
 
+  /*!
+   * \brief Returns the most recently published world model snapshot. Snapshots are never modified after publication
+   *        so they can be queried from any thread without locking while this worker continues to apply updates.
+   *        This function is lock-free.
+   *
+   * \return Const pointer to the latest snapshot. nullptr if snapshots have not been enabled
+   */
+  WorldModelConstPtr getWorldModelSnapshot() const;
+
+  /*!
+   * \brief Enables publication of world model snapshots. A snapshot of the current world model is published immediately.
+   *        Publication is opt-in as every map or route change requires a copy of the map.
+   */
+  void enableSnapshots();
+
   /*!
    * \brief Callback for new map messages. Updates the underlying map
+   *        The seq_id of the map is the first map update it does not include so earlier updates are dropped. A snapshot
+   *        of the current map version which includes no updates beyond those already applied is ignored.
    *
    * \param map_msg The new map messages to generate the map from
    */
@@ -53,6 +76,8 @@ public:
 
   /*!
    * \brief Callback for new map update messages (geofence). Updates the underlying map
+   *        Updates which arrive out of order are buffered by seq_id. Once the next expected update arrives,
+   *        it is applied together with every buffered update which continues the sequence.
    *
    * \param geofence_msg The new map update messages to generate the map edits from
    */
@@ -151,22 +176,182 @@ public:
    */
   void isUsingSimTime(bool use_sim_time);
 
+  /**
+   * \brief Enables the on-disk routing graph cache. When a map is received whose content matches a cached graph,
+   *        the graph is loaded instead of being rebuilt. Otherwise the built graph is added to the cache.
+   *
+   * \param directory The cache directory. An empty string disables the cache
+   */
+  void setRoutingGraphCacheDirectory(const std::string& directory);
+
+  /*!
+   * \brief Enables the tiled map mode. Received maps are partitioned into tiles and only the tiles around the vehicle
+   *        and along the route are kept loaded in the world model. Must be called before the map is received.
+   *        NOTE: The routing graph cache is not used in this mode as the routing graph only covers the loaded tiles
+   *
+   * \param tile_size The side length in meters of a tile
+   * \param load_radius Tiles within this distance in meters of the vehicle are loaded
+   * \param evict_radius Tiles beyond this distance in meters of the vehicle are evicted unless they are on the route
+   *
+   * \throw std::invalid_argument if the parameters are not valid for a TiledLaneletMap
+   */
+  void enableTiledMap(double tile_size, double load_radius, double evict_radius);
+
+  /*!
+   * \brief Updates the position of the vehicle used to select the loaded tiles. Does nothing if the tiled map mode is not
+   *        enabled. If the loaded tiles change the map is replaced and the user map callback is triggered.
+   *        Equivalent to loadTiledMapTiles() followed by setLoadedTiledMap() if it returned true
+   *
+   * \param position The position of the vehicle in the map frame
+   */
+  void updateTiledMapPosition(const lanelet::BasicPoint2d& position);
+
+  /*!
+   * \brief Updates the position of the vehicle used to select the loaded tiles and loads the tiles it requires.
+   *        The world model is only read, so this may run while other threads read the world model. If the loaded tiles
+   *        changed setLoadedTiledMap() must be called before any other method of this class.
+   *
+   * \param position The position of the vehicle in the map frame
+   *
+   * \return True if the loaded tiles changed
+   */
+  bool loadTiledMapTiles(const lanelet::BasicPoint2d& position);
+
+  /*!
+   * \brief Sets the map of the tiles loaded by loadTiledMapTiles() on the world model, applies the map updates which
+   *        touch the newly loaded tiles to it and triggers the user map callback
+   */
+  void setLoadedTiledMap();
+
+  /*!
+   * \brief Returns the tile load and eviction counters. All zero if the tiled map mode is not enabled
+   */
+  TiledMapStats getTiledMapStats() const;
+
 private:
+  /*!
+   * \brief Sets the provided map on the world model using the routing graph cache to avoid building the routing graph
+   *        when a graph for the same map content is available
+   *
+   * \param map_msg The message the map was deserialized from
+   * \param map The map to set
+   */
+  void setMapUsingRoutingGraphCache(const autoware_lanelet2_msgs::msg::MapBin& map_msg, lanelet::LaneletMapPtr map);
+
+  /*!
+   * \brief Publishes a copy of the world model as the new snapshot if the map, routing graph, or route changed since the
+   *        last publication. Does nothing if snapshots are not enabled
+   */
+  void publishSnapshot();
+
+  /*!
+   * \brief Publishes a new snapshot which is a copy of the current snapshot with the provided change applied.
+   *        Used for changes which do not touch the map so the previous snapshot's map can be shared
+   *
+   * \param apply The change which was applied to world_model_
+   */
+  void publishSnapshot(const std::function<void(CARMAWorldModel&)>& apply);
+
+  /*!
+   * \brief Applies the contiguous run of queued map updates which follows the most recently applied sequence number
+   *        as a single batch. The map is set, the routing graph is recomputed, the snapshot is published,
+   *        and the user map callback is triggered at most once for the whole batch.
+   *        Updates which fail to apply, such as updates of an unsupported format version, are logged and dropped
+   *
+   * \param defer_route_invalidation If true updates which invalidate the route do not trigger rerouting.
+   *                                 Instead the caller is informed through the return value
+   *
+   * \return True if defer_route_invalidation is set and at least one applied update invalidated the route
+   */
+  bool applyQueuedMapUpdates(bool defer_route_invalidation);
+
+  /*!
+   * \brief Drops the queued map updates which were not sent by the broadcaster instance with the provided header stamp
+   */
+  void eraseQueuedMapUpdatesFromOtherBroadcasters(const builtin_interfaces::msg::Time& broadcaster_stamp);
+
+  /*!
+   * \brief Applies the lanelet additions and regulatory element changes of a single map update to the map
+   *        and records the lanelets it touched as stale in the routing graph.
+   *        In the tiled map mode the changes for lanelets of tiles which are not loaded are skipped
+   *
+   * \param geofence_msg The map update to apply
+   * \param replay_tiles If set the update was already applied and is applied again to these newly loaded tiles. Only the
+   *                     changes for lanelets of these tiles are applied
+   *
+   * \return The tiles of the lanelets the update changes. Empty if the tiled map mode is not enabled
+   */
+  std::set<TiledLaneletMap::TileKey> applyMapUpdate(const autoware_lanelet2_msgs::msg::MapBin& geofence_msg,
+                                                    const std::set<TiledLaneletMap::TileKey>* replay_tiles = nullptr);
+
+  /*!
+   * \brief Finalizes a batch of applied map updates by updating the routing graph and notifying users
+   *
+   * \param graph_update The last update in the batch which provided a routing graph. nullptr if there was none.
+   *                     In the tiled map mode the provided graph is not used as it covers the full map
+   */
+  void finishMapUpdateBatch(const autoware_lanelet2_msgs::msg::MapBin::SharedPtr& graph_update);
+
+  /*!
+   * \brief Sets the route described by the route message on the world model
+   *
+   * \param route_msg The route to set. All of its lanelets must be in the current map
+   */
+  void applyRouteMsg(const carma_planning_msgs::msg::Route& route_msg);
+
+  /*!
+   * \brief Updates the loaded tiles for the current vehicle position and route. If they changed the new map is set
+   *        as by setActiveTiledMap()
+   *
+   * \param reapply_route If true the current route is set again on the new map
+   */
+  void refreshTiledMap(bool reapply_route);
+
+  /*!
+   * \brief Loads the tiles required by the current vehicle position and route without changing the world model
+   *
+   * \return True if the loaded tiles changed
+   */
+  bool loadActiveTiles();
+
+  /*!
+   * \brief Sets the active map of the tiled map on the world model, applies the map updates which touch the newly loaded
+   *        tiles to it and notifies users
+   *
+   * \param reapply_route If true the current route is set again on the new map
+   */
+  void setActiveTiledMap(bool reapply_route);
+
   std::shared_ptr<CARMAWorldModel> world_model_;
+  std::shared_ptr<const CARMAWorldModel> snapshot_; // Latest published snapshot. Only accessed through std::atomic_load/std::atomic_store
+  bool snapshots_enabled_ = false;
+  bool snapshot_map_stale_ = false; // True if the map, routing graph, or route changed since the last snapshot was published
   bool use_sim_time_;
   std::function<void()> map_callback_;
   std::function<void()> route_callback_;
   void newRegemUpdateHelper(lanelet::Lanelet parent_llt, lanelet::RegulatoryElement* regem) const;
-  double config_speed_limit_;
+  double config_speed_limit_ = 0.0; // Matches the config_speed_limit parameter default. Part of the routing graph cache key
 
   size_t current_map_version_ = 0; // Current map version based on recived map messages
-  std::queue<autoware_lanelet2_msgs::msg::MapBin::SharedPtr> map_update_queue_; // Update queue used to cache map updates when they cannot be immeadiatly applied due to waiting for rerouting
+  // Reorder buffer keyed by map_version and seq_id used to cache map updates when they cannot be immeadiatly applied due to waiting for rerouting, a map, or an earlier update.
+  // Updates for the current map are ordered before those received early for a future map
+  std::map<std::pair<size_t, long>, autoware_lanelet2_msgs::msg::MapBin::SharedPtr> map_update_queue_;
   boost::optional<carma_planning_msgs::msg::Route> delayed_route_msg_;
 
   bool recompute_route_flag_=false; // indicates whether if this node should recompute its route based on invalidated msg
   bool rerouting_flag_=false; //indicates whether if route node is in middle of rerouting
   bool route_node_flag_=false; //indicates whether if this node is route node
   long most_recent_update_msg_seq_ = -1; // Tracks the current sequence number for map update messages. Dropping even a single message would invalidate the map
+  builtin_interfaces::msg::Time broadcaster_stamp_; // header.stamp of the broadcaster instance which sent the current map. Sequence numbers are only comparable within one instance
+  std::unordered_set<lanelet::Id> routing_graph_stale_ids_; // Lanelets or areas changed by map updates since the routing graph was last computed
+  std::unique_ptr<RoutingGraphCache> routing_graph_cache_; // nullptr if the routing graph cache is disabled
+
+  std::unique_ptr<TiledLaneletMap> tiled_map_; // nullptr if the tiled map mode is disabled
+  boost::optional<lanelet::BasicPoint2d> tiled_map_position_; // Most recent vehicle position used to select the loaded tiles
+  std::vector<lanelet::Id> tiled_map_route_ids_; // Lanelets of the current route whose tiles are always loaded
+  std::map<TiledLaneletMap::TileKey, std::vector<autoware_lanelet2_msgs::msg::MapBin::SharedPtr>> tiled_map_updates_; // Map updates applied to the current map version
+                                                                                                                    // keyed by the tiles they change, in order. Applied again when one of those tiles is loaded
+  boost::optional<carma_planning_msgs::msg::Route> applied_route_msg_; // Most recently applied route. Set again whenever the loaded tiles change
 
 };
 }  // namespace carma_wm
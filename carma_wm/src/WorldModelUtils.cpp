@@ -15,6 +15,8 @@
  */
 
 #include <carma_wm/WorldModelUtils.hpp>
+#include <future>
+#include <thread>
 
 namespace carma_wm
 {
@@ -76,10 +78,17 @@ std::vector<lanelet::Lanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMap
   return return_lanelets;
 }
 
-std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMapConstPtr& semantic_map, const lanelet::BasicPoint2d& input_point,
-                                                                    const unsigned int n)
+namespace
+{
+/*!
+ * \brief Helper function for nonConnectedAdjacentLeft which finds the lanelet containing the input point and mirrors
+ *        the point across its left bound
+ *
+ * \return The lanelet containing the input point and the mirrored point
+ */
+std::pair<lanelet::ConstLanelet, lanelet::BasicPoint2d> pointOnOppositeLane(const lanelet::LaneletMapConstPtr& semantic_map,
+                                                                            const lanelet::BasicPoint2d& input_point)
 {
-  
   // Check if the map is loaded yet
   if (!semantic_map || semantic_map->laneletLayer.size() == 0)
   {
@@ -105,6 +114,15 @@ std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::Lanel
   // threfore point_on_opposite_lane.x() = input_point.x() + 2dx, where dx = point_on_ls.x() - input_point.x(). Here, one of input_point.x() cancels out, results in:
   auto point_on_opposite_lane = lanelet::BasicPoint2d{2 * point_on_ls.x() - input_point.x(), 2 * point_on_ls.y() - input_point.y()};
 
+  return std::make_pair(input_lanelet, point_on_opposite_lane);
+}
+}  // namespace
+
+std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMapConstPtr& semantic_map, const lanelet::BasicPoint2d& input_point,
+                                                                    const unsigned int n)
+{
+  auto point_on_opposite_lane = pointOnOppositeLane(semantic_map, input_point).second;
+
   auto opposite_lanelets = getLaneletsFromPoint(semantic_map, point_on_opposite_lane, n);
 
   // TODO: create opposite direction protection throw
@@ -113,138 +131,182 @@ std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::Lanel
   return opposite_lanelets;
 }
 
-
-lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const lanelet::LaneletMapPtr& lanelet_map, std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph, double max_lane_width)
+std::vector<lanelet::ConstLanelet> nonConnectedAdjacentLeft(const lanelet::LaneletMapConstPtr& semantic_map, const LaneletAdjacencyIndex& adjacency,
+                                                            const lanelet::BasicPoint2d& input_point, const unsigned int n)
 {
-  // Logic to detect which part is affected
-  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Get affected lanelets loop");
-  std::unordered_set<lanelet::Lanelet> affected_lanelets;
-  for (size_t idx = 0; idx < gf_pts.size(); idx ++)
+  auto opposite = pointOnOppositeLane(semantic_map, input_point);
+
+  auto left_neighbours = adjacency.getLeftNeighbours(opposite.first.id());
+  if (!left_neighbours)
   {
-    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Index: " << idx << " Point: " << gf_pts[idx].x() << ", " << gf_pts[idx].y());
-    std::unordered_set<lanelet::Lanelet> possible_lanelets;
-
-    // This loop identifes the lanelets which this point lies within that could be impacted by the geofence
-    // This loop somewhat inefficiently calls the findNearest method iteratively until all the possible lanelets are identified. 
-    // The reason findNearest is used instead of nearestUntil is because that method orders results by bounding box which
-    // can give invalid sequences when dealing with large curved lanelets.  
-    bool continue_search = true; 
-    size_t nearest_count = 0;
-    while (continue_search) {
-      
-      nearest_count += 10; // Increase the index search radius by 10 each loop until all nearby lanelets are found
+    // The lanelet was added after the table was built
+    return getLaneletsFromPoint(semantic_map, opposite.second, n);
+  }
 
-      for (const auto& ll_pair : lanelet::geometry::findNearest(lanelet_map->laneletLayer, gf_pts[idx].basicPoint2d(), nearest_count)) { // Get the nearest lanelets and iterate over them
-        auto ll = std::get<1>(ll_pair);
+  std::vector<lanelet::ConstLanelet> opposite_lanelets;
+  for (auto id : *left_neighbours)
+  {
+    if (opposite_lanelets.size() >= n)
+      break;
 
-        if (possible_lanelets.find(ll) != possible_lanelets.end()) { // Skip if already found
-          continue;
-        }
+    lanelet::ConstLanelet llt = semantic_map->laneletLayer.get(id);
+    if (boost::geometry::within(opposite.second, llt.polygon2d()))
+    {
+      opposite_lanelets.push_back(llt);
+    }
+  }
 
-        double dist = std::get<0>(ll_pair);
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Distance to lanelet " << ll.id() << ": " << dist << " max_lane_width: " << max_lane_width);
-        
-        if (dist > max_lane_width) { // Only save values closer than max_lane_width. Since we are iterating in distance order when we reach this distance the search can stop
-          continue_search = false;
-          break;
-        }
+  return opposite_lanelets;
+}
 
-        // Check if the point is inside this lanelet
-        if(dist == 0.0) { // boost geometry uses a distance of 0 to indicate a point is within a polygon
-          possible_lanelets.insert(ll);
-        }
 
+namespace
+{
+/*!
+ * \brief Helper function for getAffectedLaneletOrAreas which finds the lanelets containing the point by searching the
+ *        lanelets within max_lane_width of it
+ */
+std::unordered_set<lanelet::Lanelet> findContainingLanelets(const lanelet::BasicPoint2d& point, const lanelet::LaneletMapPtr& lanelet_map,
+                                                            double max_lane_width)
+{
+  std::unordered_set<lanelet::Lanelet> possible_lanelets;
+
+  // This loop identifes the lanelets which this point lies within that could be impacted by the geofence
+  // This loop somewhat inefficiently calls the findNearest method iteratively until all the possible lanelets are identified. 
+  // The reason findNearest is used instead of nearestUntil is because that method orders results by bounding box which
+  // can give invalid sequences when dealing with large curved lanelets.  
+  bool continue_search = true; 
+  size_t nearest_count = 0;
+  while (continue_search) {
+    
+    nearest_count += 10; // Increase the index search radius by 10 each loop until all nearby lanelets are found
+
+    for (const auto& ll_pair : lanelet::geometry::findNearest(lanelet_map->laneletLayer, point, nearest_count)) { // Get the nearest lanelets and iterate over them
+      auto ll = std::get<1>(ll_pair);
+
+      if (possible_lanelets.find(ll) != possible_lanelets.end()) { // Skip if already found
+        continue;
       }
 
-      if (nearest_count >= lanelet_map->laneletLayer.size()) { // if we are out of lanelets to evaluate then end the search
+      double dist = std::get<0>(ll_pair);
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Distance to lanelet " << ll.id() << ": " << dist << " max_lane_width: " << max_lane_width);
+      
+      if (dist > max_lane_width) { // Only save values closer than max_lane_width. Since we are iterating in distance order when we reach this distance the search can stop
         continue_search = false;
+        break;
+      }
+
+      // Check if the point is inside this lanelet
+      if(dist == 0.0) { // boost geometry uses a distance of 0 to indicate a point is within a polygon
+        possible_lanelets.insert(ll);
       }
+
     }
 
-    // among these llts, filter the ones that are on same direction as the geofence using routing
-    if (idx + 1 == gf_pts.size()) // we only check this for the last gf_pt after saving everything
+    if (nearest_count >= lanelet_map->laneletLayer.size()) { // if we are out of lanelets to evaluate then end the search
+      continue_search = false;
+    }
+  }
+
+  return possible_lanelets;
+}
+
+/*!
+ * \brief Helper function for getAffectedLaneletOrAreas which records the lanelets containing gf_pts[idx] that the
+ *        segment from gf_pts[idx] to gf_pts[idx + 1] travels along in the direction of the lanelet
+ */
+void addSegmentLanelets(const lanelet::Points3d& gf_pts, size_t idx, const std::unordered_set<lanelet::Lanelet>& possible_lanelets,
+                        std::unordered_set<lanelet::Lanelet>& affected_lanelets)
+{
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Checking possible lanelets");
+  // check if each lines connecting end points of the llt is crossing with the line connecting current and next gf_pts
+  for (auto llt: possible_lanelets)
+  {
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Evaluating lanelet: " << llt.id());
+    lanelet::BasicLineString2d gf_dir_line({gf_pts[idx].basicPoint2d(), gf_pts[idx+1].basicPoint2d()});
+    lanelet::BasicLineString2d llt_boundary({(llt.leftBound2d().end() -1)->basicPoint2d(), (llt.rightBound2d().end() - 1)->basicPoint2d()});
+    
+    // record the llts that are on the same dir
+    if (boost::geometry::intersects(llt_boundary, gf_dir_line))
+    {
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Overlaps end line");
+      affected_lanelets.insert(llt);
+    }
+    // check condition if two geofence points are in one lanelet then check matching direction and record it also
+    else if (boost::geometry::within(gf_pts[idx+1].basicPoint2d(), llt.polygon2d()) && 
+            affected_lanelets.find(llt) == affected_lanelets.end())
+    { 
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Within new lanelet");
+      lanelet::BasicPoint2d median({((llt.leftBound2d().end() - 1)->basicPoint2d().x() + (llt.rightBound2d().end() - 1)->basicPoint2d().x())/2 , 
+                                    ((llt.leftBound2d().end() - 1)->basicPoint2d().y() + (llt.rightBound2d().end() - 1)->basicPoint2d().y())/2});
+      // turn into vectors
+      Eigen::Vector2d vec_to_median(median);
+      Eigen::Vector2d vec_to_gf_start(gf_pts[idx].basicPoint2d());
+      Eigen::Vector2d vec_to_gf_end(gf_pts[idx + 1].basicPoint2d());
+
+      // Get vector from start to external point
+      Eigen::Vector2d start_to_median = vec_to_median - vec_to_gf_start;
+
+      // Get vector from start to end point
+      Eigen::Vector2d start_to_end = vec_to_gf_end - vec_to_gf_start;
+
+      // Get angle between both vectors
+      double interior_angle = carma_wm::geometry::getAngleBetweenVectors(start_to_median, start_to_end);
+
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_median: " << vec_to_median.x() << ", " << vec_to_median.y());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_gf_start: " << vec_to_gf_start.x() << ", " << vec_to_gf_start.y());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_gf_end: " << vec_to_gf_end.x() << ", " << vec_to_gf_end.y());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "start_to_median: " << start_to_median.x() << ", " << start_to_median.y());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "start_to_end: " << start_to_end.x() << ", " << start_to_end.y());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "interior_angle: " << interior_angle);
+      // Save the lanelet if the direction of two points inside aligns with that of the lanelet
+
+      if (interior_angle < M_PI_2 && interior_angle >= 0) 
+        affected_lanelets.insert(llt); 
+    }
+    else
     {
-      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Last point");
-      std::unordered_set<lanelet::Lanelet> filtered = filterSuccessorLanelets(possible_lanelets, affected_lanelets, lanelet_map, routing_graph);
-      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Got successor lanelets of size: " << filtered.size());
-      affected_lanelets.insert(filtered.begin(), filtered.end());
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "------ Did not record anything...");
+    }
+
+  }
+}
 
+/*!
+ * \brief Helper function for getAffectedLaneletOrAreas which applies the checks of the last point once every segment has
+ *        been evaluated and returns the affected lanelets in descending downtrack order from the first point
+ */
+lanelet::ConstLaneletOrAreas finishAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const std::unordered_set<lanelet::Lanelet>& possible_lanelets,
+                                                          std::unordered_set<lanelet::Lanelet>& affected_lanelets,
+                                                          const lanelet::LaneletMapPtr& lanelet_map, std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph)
+{
+  size_t idx = gf_pts.size() - 1;
 
-      if (affected_lanelets.empty() && !possible_lanelets.empty() && idx !=0 )
-      {
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Checking if it is the edge case where only last point falls on a valid (correct direction) lanelet");
-        for (auto llt: possible_lanelets)
-        {
-          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Evaluating lanelet: " << llt.id());
-          lanelet::BasicLineString2d gf_dir_line({gf_pts[idx - 1].basicPoint2d(), gf_pts[idx].basicPoint2d()});
-          lanelet::BasicLineString2d llt_boundary({(llt.leftBound2d().begin())->basicPoint2d(), (llt.rightBound2d().begin())->basicPoint2d()});
-
-          // record the llts that are on the same dir
-          if (boost::geometry::intersects(llt_boundary, gf_dir_line))
-          {
-            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Overlaps starting line... Picking llt: " << llt.id());
-            affected_lanelets.insert(llt);
-          }  
-        }
-      }
+  // among these llts, filter the ones that are on same direction as the geofence using routing
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Last point");
+  std::unordered_set<lanelet::Lanelet> filtered = filterSuccessorLanelets(possible_lanelets, affected_lanelets, lanelet_map, routing_graph);
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Got successor lanelets of size: " << filtered.size());
+  affected_lanelets.insert(filtered.begin(), filtered.end());
 
-      break;
-    } 
 
-    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Checking possible lanelets");
-    // check if each lines connecting end points of the llt is crossing with the line connecting current and next gf_pts
+  if (affected_lanelets.empty() && !possible_lanelets.empty() && idx != 0 )
+  {
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Checking if it is the edge case where only last point falls on a valid (correct direction) lanelet");
     for (auto llt: possible_lanelets)
     {
       RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Evaluating lanelet: " << llt.id());
-      lanelet::BasicLineString2d gf_dir_line({gf_pts[idx].basicPoint2d(), gf_pts[idx+1].basicPoint2d()});
-      lanelet::BasicLineString2d llt_boundary({(llt.leftBound2d().end() -1)->basicPoint2d(), (llt.rightBound2d().end() - 1)->basicPoint2d()});
-      
+      lanelet::BasicLineString2d gf_dir_line({gf_pts[idx - 1].basicPoint2d(), gf_pts[idx].basicPoint2d()});
+      lanelet::BasicLineString2d llt_boundary({(llt.leftBound2d().begin())->basicPoint2d(), (llt.rightBound2d().begin())->basicPoint2d()});
+
       // record the llts that are on the same dir
       if (boost::geometry::intersects(llt_boundary, gf_dir_line))
       {
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Overlaps end line");
+        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Overlaps starting line... Picking llt: " << llt.id());
         affected_lanelets.insert(llt);
-      }
-      // check condition if two geofence points are in one lanelet then check matching direction and record it also
-      else if (boost::geometry::within(gf_pts[idx+1].basicPoint2d(), llt.polygon2d()) && 
-              affected_lanelets.find(llt) == affected_lanelets.end())
-      { 
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Within new lanelet");
-        lanelet::BasicPoint2d median({((llt.leftBound2d().end() - 1)->basicPoint2d().x() + (llt.rightBound2d().end() - 1)->basicPoint2d().x())/2 , 
-                                      ((llt.leftBound2d().end() - 1)->basicPoint2d().y() + (llt.rightBound2d().end() - 1)->basicPoint2d().y())/2});
-        // turn into vectors
-        Eigen::Vector2d vec_to_median(median);
-        Eigen::Vector2d vec_to_gf_start(gf_pts[idx].basicPoint2d());
-        Eigen::Vector2d vec_to_gf_end(gf_pts[idx + 1].basicPoint2d());
-
-        // Get vector from start to external point
-        Eigen::Vector2d start_to_median = vec_to_median - vec_to_gf_start;
-
-        // Get vector from start to end point
-        Eigen::Vector2d start_to_end = vec_to_gf_end - vec_to_gf_start;
-
-        // Get angle between both vectors
-        double interior_angle = carma_wm::geometry::getAngleBetweenVectors(start_to_median, start_to_end);
-
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_median: " << vec_to_median.x() << ", " << vec_to_median.y());
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_gf_start: " << vec_to_gf_start.x() << ", " << vec_to_gf_start.y());
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "vec_to_gf_end: " << vec_to_gf_end.x() << ", " << vec_to_gf_end.y());
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "start_to_median: " << start_to_median.x() << ", " << start_to_median.y());
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "start_to_end: " << start_to_end.x() << ", " << start_to_end.y());
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "interior_angle: " << interior_angle);
-        // Save the lanelet if the direction of two points inside aligns with that of the lanelet
-
-        if (interior_angle < M_PI_2 && interior_angle >= 0) 
-          affected_lanelets.insert(llt); 
-      }
-      else
-      {
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "------ Did not record anything...");
-      }
-
+      }  
     }
   }
-  
+
   RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "affected_lanelets size: " << affected_lanelets.size());
   // Currently only returning lanelet, but this could be expanded to LanelerOrArea compound object 
   // by implementing non-const version of that LaneletOrArea
@@ -266,6 +328,96 @@ lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d&
   return affected_parts;
 }
 
+}  // namespace
+
+lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const lanelet::LaneletMapPtr& lanelet_map, std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph, double max_lane_width)
+{
+  // Logic to detect which part is affected
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Get affected lanelets loop");
+  std::unordered_set<lanelet::Lanelet> affected_lanelets;
+  for (size_t idx = 0; idx < gf_pts.size(); idx ++)
+  {
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::query"), "Index: " << idx << " Point: " << gf_pts[idx].x() << ", " << gf_pts[idx].y());
+    std::unordered_set<lanelet::Lanelet> possible_lanelets = findContainingLanelets(gf_pts[idx].basicPoint2d(), lanelet_map, max_lane_width);
+
+    if (idx + 1 == gf_pts.size()) // we only check this for the last gf_pt after saving everything
+    {
+      return finishAffectedLaneletOrAreas(gf_pts, possible_lanelets, affected_lanelets, lanelet_map, routing_graph);
+    }
+
+    addSegmentLanelets(gf_pts, idx, possible_lanelets, affected_lanelets);
+  }
+
+  return {};
+}
+
+lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts, const LaneletPolygonIndex& index, const lanelet::LaneletMapPtr& lanelet_map,
+                                                       std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph, size_t num_threads)
+{
+  if (gf_pts.empty())
+  {
+    return {};
+  }
+
+  lanelet::BasicPoints2d points;
+  points.reserve(gf_pts.size());
+  for (const auto& point : gf_pts)
+  {
+    points.push_back(point.basicPoint2d());
+  }
+
+  auto containing_lanelets = index.getContainingLanelets(points, num_threads);
+
+  std::vector<std::unordered_set<lanelet::Lanelet>> possible_lanelets;
+  possible_lanelets.reserve(containing_lanelets.size());
+  for (const auto& lanelets : containing_lanelets)
+  {
+    possible_lanelets.emplace_back(lanelets.begin(), lanelets.end());
+  }
+
+  // Each segment only depends on its own points so the segments are split between threads and the results combined
+  size_t num_segments = gf_pts.size() - 1;
+  auto evaluate_segments = [&](size_t begin, size_t end) {
+    std::unordered_set<lanelet::Lanelet> affected_lanelets;
+    for (size_t idx = begin; idx < end; idx++)
+    {
+      addSegmentLanelets(gf_pts, idx, possible_lanelets[idx], affected_lanelets);
+    }
+    return affected_lanelets;
+  };
+
+  if (num_threads == 0)
+  {
+    num_threads = std::max(1u, std::thread::hardware_concurrency());
+  }
+  num_threads = std::min(num_threads, (num_segments + LaneletPolygonIndex::PARALLEL_MIN_POINTS - 1) / LaneletPolygonIndex::PARALLEL_MIN_POINTS);
+
+  std::unordered_set<lanelet::Lanelet> affected_lanelets;
+  if (num_threads > 1)
+  {
+    size_t chunk_size = (num_segments + num_threads - 1) / num_threads;
+    std::vector<std::future<std::unordered_set<lanelet::Lanelet>>> tasks;
+    tasks.reserve(num_threads);
+
+    for (size_t begin = 0; begin < num_segments; begin += chunk_size)
+    {
+      tasks.emplace_back(std::async(std::launch::async, evaluate_segments, begin, std::min(begin + chunk_size, num_segments)));
+    }
+
+    for (auto& task : tasks)
+    {
+      auto chunk_lanelets = task.get();
+      affected_lanelets.insert(chunk_lanelets.begin(), chunk_lanelets.end());
+    }
+  }
+  else
+  {
+    affected_lanelets = evaluate_segments(0, num_segments);
+  }
+
+  return finishAffectedLaneletOrAreas(gf_pts, possible_lanelets.back(), affected_lanelets, lanelet_map, routing_graph);
+}
+
 // helper function that filters successor lanelets of root_lanelets from possible_lanelets
 std::unordered_set<lanelet::Lanelet> filterSuccessorLanelets(const std::unordered_set<lanelet::Lanelet>& possible_lanelets, const std::unordered_set<lanelet::Lanelet>& root_lanelets,
                                                               const lanelet::LaneletMapPtr& lanelet_map, std::shared_ptr<const lanelet::routing::RoutingGraph> routing_graph)
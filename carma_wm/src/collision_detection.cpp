@@ -17,74 +17,168 @@
 ------------------------------------------------------------------------------*/
 
 #include "carma_wm/collision_detection.hpp"
+#include <algorithm>
+#include <future>
+#include <limits>
+#include <thread>
 
 namespace carma_wm {
 
     namespace collision_detection {
 
-        //TODO: consider rewriting this method to improve efficiency; it has object_count*prediction_count*trajectory_point sqrt calls!
-        std::vector<carma_perception_msgs::msg::RoadwayObstacle> WorldCollisionDetection(const carma_perception_msgs::msg::RoadwayObstacleList& rwol, const carma_planning_msgs::msg::TrajectoryPlan& tp, 
-                                                                        const geometry_msgs::msg::Vector3& size, const geometry_msgs::msg::Twist& velocity) {
+        namespace {
 
+            // Obstacle lists smaller than this are checked on the calling thread as the cost of spawning workers outweighs the gain
+            constexpr size_t PARALLEL_NARROW_PHASE_MIN_OBSTACLES = 32;
 
-            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "WorldCollisionDetection");
+            /*! \brief Axis aligned bounds swept by the host vehicle trajectory in space and time
+            */
+            struct TrajectoryBounds {
+                double min_x = std::numeric_limits<double>::max();
+                double min_y = std::numeric_limits<double>::max();
+                double max_x = std::numeric_limits<double>::lowest();
+                double max_y = std::numeric_limits<double>::lowest();
+                rclcpp::Time latest_time;
+            };
 
-            std::vector<carma_perception_msgs::msg::RoadwayObstacle> rwo_collison;
+            TrajectoryBounds ComputeTrajectoryBounds(const carma_planning_msgs::msg::TrajectoryPlan& tp) {
 
+                TrajectoryBounds bounds;
+                bounds.latest_time = rclcpp::Time(tp.trajectory_points.front().target_time);
 
-            for (auto i : rwol.roadway_obstacles) {
+                for (const auto& point : tp.trajectory_points) {
+                    bounds.min_x = std::min(bounds.min_x, point.x);
+                    bounds.min_y = std::min(bounds.min_y, point.y);
+                    bounds.max_x = std::max(bounds.max_x, point.x);
+                    bounds.max_y = std::max(bounds.max_y, point.y);
 
-                for (auto j : i.object.predictions) {
+                    rclcpp::Time target_time(point.target_time);
+                    if (target_time > bounds.latest_time) {
+                        bounds.latest_time = target_time;
+                    }
+                }
 
-                    for(size_t k=0; k < tp.trajectory_points.size(); k++) {
+                return bounds;
+            }
 
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "in for loop");
+            /*! \brief Squared distance from the provided point to the closest point of the trajectory bounds. Zero if inside.
+            */
+            double SquaredDistanceToBounds(const TrajectoryBounds& bounds, double x, double y) {
 
-                        double distancex = (tp.trajectory_points[k].x - j.predicted_position.position.x)*(tp.trajectory_points[k].x - j.predicted_position.position.x);
-                        double distancey = (tp.trajectory_points[k].y - j.predicted_position.position.y)*(tp.trajectory_points[k].y - j.predicted_position.position.y);
+                double dx = std::max({bounds.min_x - x, 0.0, x - bounds.max_x});
+                double dy = std::max({bounds.min_y - y, 0.0, y - bounds.max_y});
 
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "tp.trajectory_points[k].x");
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), tp.trajectory_points[k].x);
+                return dx * dx + dy * dy;
+            }
 
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "j.predicted_position.position.x");
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), j.predicted_position.position.x);
+            /*! \brief Returns the number of predictions of the provided obstacle which collide with the trajectory.
+            *          The obstacle is reported once per colliding prediction by WorldCollisionDetection.
+            *
+            * The broad phase rejects predictions which are too late for every trajectory point or too far from the swept
+            * bounds of the trajectory. The remaining predictions are checked against each trajectory point with the
+            * original distance and time criteria so the result is unchanged.
+            */
+            size_t CountPredictionCollisions(const carma_perception_msgs::msg::RoadwayObstacle& rwo, const carma_planning_msgs::msg::TrajectoryPlan& tp,
+                                             const geometry_msgs::msg::Vector3& size, const TrajectoryBounds& bounds) {
+
+                double x = (rwo.object.size.x - size.x)*(rwo.object.size.x - size.x);
+                double y = (rwo.object.size.y - size.y)*(rwo.object.size.y - size.y);
+
+                // The collision radius is sqrt(x - y) which is NaN, and therefore never satisfied, when x < y
+                double squared_radius = x - y;
+                if (!(squared_radius >= 0)) {
+                    return 0;
+                }
 
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "tp.trajectory_points[k].y");
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), tp.trajectory_points[k].y);
+                // abs may resolve to the integer overload which truncates the squared distance.
+                // The additional square meter keeps the broad phase conservative in that case.
+                double broad_phase_squared_radius = squared_radius + 1.0;
 
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "j.predicted_position.position.y");
-                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), j.predicted_position.position.y);
+                size_t collision_count = 0;
 
+                for (const auto& j : rwo.object.predictions) {
 
-                        double calcdistance = sqrt(abs(distancex + distancey));
+                    // The time difference only grows as the trajectory time decreases so the latest point bounds every point
+                    if ((rclcpp::Time(j.header.stamp) - bounds.latest_time).seconds() > 5) {
+                        continue;
+                    }
 
-                        rclcpp::Duration diff= rclcpp::Time(j.header.stamp) - rclcpp::Time(tp.trajectory_points[k].target_time);
+                    if (SquaredDistanceToBounds(bounds, j.predicted_position.position.x, j.predicted_position.position.y) > broad_phase_squared_radius) {
+                        continue;
+                    }
 
-                        double timediff = diff.seconds();
+                    for(size_t k=0; k < tp.trajectory_points.size(); k++) {
 
-                        double x = (i.object.size.x - size.x)*(i.object.size.x - size.x);
-                        double y = (i.object.size.y - size.y)*(i.object.size.y - size.y);
-                        
-                        double car_t_x = tp.trajectory_points[k].x - tp.trajectory_points[0].x / velocity.linear.x;
-                        // double car_t_y = tp.trajectory_points[k].y - tp.trajectory_points[0].y/velocity.linear.y;
+                        double distancex = (tp.trajectory_points[k].x - j.predicted_position.position.x)*(tp.trajectory_points[k].x - j.predicted_position.position.x);
+                        double distancey = (tp.trajectory_points[k].y - j.predicted_position.position.y)*(tp.trajectory_points[k].y - j.predicted_position.position.y);
 
-                        double object_t_x = j.predicted_position.position.x - i.object.predictions[0].predicted_position.position.x / i.object.velocity.twist.linear.x;
-                        // double object_t_y = j.predicted_position.position.y - i.object.predictions[0].predicted_position.position.y / j.predicted_velocity.linear.y;
+                        double calcdistance = sqrt(abs(distancex + distancey));
 
+                        rclcpp::Duration diff= rclcpp::Time(j.header.stamp) - rclcpp::Time(tp.trajectory_points[k].target_time);
+
+                        double timediff = diff.seconds();
 
                         if(timediff <= 5) {
                             if(calcdistance <= sqrt(x - y) ) {
-                                rwo_collison.push_back(i);
+                                collision_count++;
                                 break;
                             }
                         }
                     }
                 }
 
+                return collision_count;
+            }
+
+        }
+
+        std::vector<carma_perception_msgs::msg::RoadwayObstacle> WorldCollisionDetection(const carma_perception_msgs::msg::RoadwayObstacleList& rwol, const carma_planning_msgs::msg::TrajectoryPlan& tp, 
+                                                                        const geometry_msgs::msg::Vector3& size, [[maybe_unused]] const geometry_msgs::msg::Twist& velocity) {
+
 
+            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "WorldCollisionDetection");
+
+            std::vector<carma_perception_msgs::msg::RoadwayObstacle> rwo_collison;
+
+            if (tp.trajectory_points.empty()) {
+                return rwo_collison;
             }
 
+            TrajectoryBounds bounds = ComputeTrajectoryBounds(tp);
+
+            const auto& obstacles = rwol.roadway_obstacles;
+            std::vector<size_t> collision_counts(obstacles.size(), 0);
+
+            auto check_range = [&](size_t begin, size_t end) {
+                for (size_t i = begin; i < end; i++) {
+                    collision_counts[i] = CountPredictionCollisions(obstacles[i], tp, size, bounds);
+                }
+            };
+
+            size_t num_workers = std::max(1u, std::thread::hardware_concurrency());
+
+            if (obstacles.size() < PARALLEL_NARROW_PHASE_MIN_OBSTACLES || num_workers == 1) {
+                check_range(0, obstacles.size());
+            }
+            else {
+                // Each worker writes to its own slice of collision_counts so the results can be merged in obstacle order
+                size_t chunk_size = (obstacles.size() + num_workers - 1) / num_workers;
+                std::vector<std::future<void>> workers;
+
+                for (size_t begin = 0; begin < obstacles.size(); begin += chunk_size) {
+                    workers.emplace_back(std::async(std::launch::async, check_range, begin, std::min(begin + chunk_size, obstacles.size())));
+                }
+
+                for (auto& worker : workers) {
+                    worker.get();
+                }
+            }
+
+            for (size_t i = 0; i < obstacles.size(); i++) {
+                rwo_collison.insert(rwo_collison.end(), collision_counts[i], obstacles[i]);
+            }
 
+            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm::collision_detection"), "Found " << rwo_collison.size() << " collisions");
 
             return rwo_collison;
         }
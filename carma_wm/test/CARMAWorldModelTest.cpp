@@ -16,6 +16,7 @@
 
 #include <gtest/gtest.h>
 #include <iostream>
+#include <algorithm>
 #include <carma_wm/CARMAWorldModel.hpp>
 #include <lanelet2_core/geometry/LineString.h>
 #include <lanelet2_traffic_rules/TrafficRulesFactory.h>
@@ -461,6 +462,10 @@ TEST(CARMAWorldModelTest, distToNearestObjInLane)
   result = cmw.distToNearestObjInLane(car_pose).get();
   ASSERT_NEAR(result, 4.5, 0.00001);
 
+  // Objects in other lanes are ignored even when closer. Only the lane changing 45deg obj is considered
+  result = cmw.distToNearestObjInLane({5, 1}).get();
+  ASSERT_NEAR(result, 6.7154, 0.001);
+
   // Check an object on a different lane
   car_pose = {12.6, 7}; 
   result = cmw.distToNearestObjInLane(car_pose).get();
@@ -873,6 +878,182 @@ TEST(CARMAWorldModelTest, getLaneletsBetween) // HERE
   ASSERT_NEAR(result[0].id(), (cmw.getRoute()->shortestPath().begin() + 1)->id(), 0.000001);
 }
 
+TEST(CARMAWorldModelTest, getLaneletsBetweenMatchesProjection)
+{
+  auto cmw = test::getGuidanceTestMap();
+  test::setRouteByIds({ 1210, 1213 }, cmw);
+
+  ASSERT_LT(cmw->getRoute()->shortestPath().size(), cmw->getRoute()->laneletMap()->laneletLayer.size());
+
+  // Projects every route lanelet onto the route as getLaneletsBetween did before its downtrack index was introduced
+  auto projected_lanelets_between = [&](double start, double end, bool shortest_path_only) {
+    std::vector<std::pair<double, lanelet::Id>> in_range;
+    for (lanelet::ConstLanelet llt : cmw->getRoute()->laneletMap()->laneletLayer)
+    {
+      if (shortest_path_only && std::find(cmw->getRoute()->shortestPath().begin(), cmw->getRoute()->shortestPath().end(),
+                                          llt) == cmw->getRoute()->shortestPath().end())
+        continue;
+
+      auto centerline = lanelet::utils::to2D(llt.centerline());
+      double min = cmw->routeTrackPos(centerline.front()).downtrack;
+      double max = cmw->routeTrackPos(centerline.back()).downtrack;
+      if (std::max(min, start) > std::min(max, end) || (start == end && (min > start || max < end)))
+        continue;
+
+      in_range.emplace_back(min, llt.id());
+    }
+    std::sort(in_range.begin(), in_range.end());
+
+    std::vector<lanelet::Id> ids;
+    for (const auto& pair : in_range)
+    {
+      ids.push_back(pair.second);
+    }
+    return ids;
+  };
+
+  auto to_ids = [](const std::vector<lanelet::ConstLanelet>& lanelets) {
+    std::vector<lanelet::Id> ids;
+    for (const auto& llt : lanelets)
+    {
+      ids.push_back(llt.id());
+    }
+    return ids;
+  };
+
+  for (double start = -10.0; start < 110.0; start += 7.5)
+  {
+    for (double length : { 0.0, 1.0, 25.0, 60.0 })
+    {
+      double end = start + length;
+      // Parallel lanelets share a start downtrack so their relative order is unspecified
+      auto expected = projected_lanelets_between(start, end, false);
+      auto actual = to_ids(cmw->getLaneletsBetween(start, end));
+      std::sort(expected.begin(), expected.end());
+      std::sort(actual.begin(), actual.end());
+      EXPECT_EQ(expected, actual) << "Window: " << start << " to " << end;
+
+      EXPECT_EQ(projected_lanelets_between(start, end, true), to_ids(cmw->getLaneletsBetween(start, end, true)))
+          << "Window: " << start << " to " << end;
+    }
+  }
+}
+
+TEST(CARMAWorldModelTest, queryResultCache)
+{
+  auto cmw = test::getGuidanceTestMap();
+  test::setRouteByIds({ 1200, 1201, 1202, 1203 }, cmw);
+
+  auto result = cmw->getLaneletsBetween(10, 30, true);
+  ASSERT_EQ(2u, result.size());
+  EXPECT_EQ(0u, cmw->getLaneletsBetweenCacheStats().hits);
+  EXPECT_EQ(1u, cmw->getLaneletsBetweenCacheStats().misses);
+
+  auto cached = cmw->getLaneletsBetween(10, 30, true);
+  ASSERT_EQ(result.size(), cached.size());
+  EXPECT_EQ(result[0].id(), cached[0].id());
+  EXPECT_EQ(result[1].id(), cached[1].id());
+  EXPECT_EQ(1u, cmw->getLaneletsBetweenCacheStats().hits);
+  EXPECT_EQ(1u, cmw->getLaneletsBetweenCacheStats().size);
+
+  // Different flags are cached separately
+  cmw->getLaneletsBetween(10, 30, true, false);
+  EXPECT_EQ(2u, cmw->getLaneletsBetweenCacheStats().misses);
+
+  // A new route invalidates the cached results
+  test::setRouteByIds({ 1210, 1211, 1212, 1213 }, cmw);
+  EXPECT_EQ(0u, cmw->getLaneletsBetweenCacheStats().size);
+  result = cmw->getLaneletsBetween(10, 30, true);
+  ASSERT_EQ(2u, result.size());
+  EXPECT_EQ(1211, result[0].id());
+  EXPECT_EQ(1212, result[1].id());
+  EXPECT_EQ(3u, cmw->getLaneletsBetweenCacheStats().misses);
+
+  // Windows between the same lanelet bounds share a result even though their positions differ
+  result = cmw->getLaneletsBetween(10.37, 29.81, true);
+  ASSERT_EQ(2u, result.size());
+  EXPECT_EQ(1211, result[0].id());
+  EXPECT_EQ(2u, cmw->getLaneletsBetweenCacheStats().hits);
+
+  // A window ending past another lanelet bound does not
+  result = cmw->getLaneletsBetween(10, 50.5, true);
+  ASSERT_EQ(3u, result.size());
+  EXPECT_EQ(4u, cmw->getLaneletsBetweenCacheStats().misses);
+
+  auto lane = cmw->getLane(cmw->getMap()->laneletLayer.get(1201));
+  lane = cmw->getLane(cmw->getMap()->laneletLayer.get(1201));
+  ASSERT_EQ(3u, lane.size());
+  EXPECT_EQ(1201, lane[0].id());
+  EXPECT_EQ(1u, cmw->getLaneCacheStats().hits);
+  EXPECT_EQ(1u, cmw->getLaneCacheStats().misses);
+
+  // Setting the map invalidates the cached lanes
+  cmw->setMap(cmw->getMutableMap(), cmw->getMapVersion() + 1, false);
+  EXPECT_EQ(0u, cmw->getLaneCacheStats().size);
+
+  // The cache is bounded by its capacity
+  cmw->setQueryCacheCapacity(1);
+  cmw->getLane(cmw->getMap()->laneletLayer.get(1200));
+  cmw->getLane(cmw->getMap()->laneletLayer.get(1210));
+  EXPECT_EQ(1u, cmw->getLaneCacheStats().size);
+  EXPECT_EQ(1u, cmw->getLaneCacheStats().capacity);
+}
+
+TEST(CARMAWorldModelTest, clone)
+{
+  auto cmw = test::getGuidanceTestMap();
+  test::setRouteByIds({ 1200, 1201, 1202, 1203 }, cmw);
+  cmw->setRouteEndPoint({ 1.85, 95.0, 0.0 });
+
+  auto copy = cmw->clone();
+
+  ASSERT_TRUE((bool)copy->getMap());
+  ASSERT_TRUE((bool)copy->getMapRoutingGraph());
+  ASSERT_TRUE((bool)copy->getRoute());
+  ASSERT_NE(cmw->getMap(), copy->getMap());
+  ASSERT_NE(cmw->getMapRoutingGraph(), copy->getMapRoutingGraph());
+  ASSERT_EQ(cmw->getMap()->laneletLayer.size(), copy->getMap()->laneletLayer.size());
+  ASSERT_EQ(cmw->getMapVersion(), copy->getMapVersion());
+
+  ///// Test route is reproduced on the copied map
+  ASSERT_EQ(cmw->getRoute()->shortestPath().size(), copy->getRoute()->shortestPath().size());
+  for (size_t i = 0; i < cmw->getRoute()->shortestPath().size(); i++)
+  {
+    ASSERT_EQ(cmw->getRoute()->shortestPath()[i].id(), copy->getRoute()->shortestPath()[i].id());
+    ASSERT_TRUE(copy->getMap()->laneletLayer.get(cmw->getRoute()->shortestPath()[i].id()) ==
+                copy->getRoute()->shortestPath()[i]);
+  }
+  ASSERT_NEAR(cmw->getRouteEndTrackPos().downtrack, copy->getRouteEndTrackPos().downtrack, 0.00001);
+  ASSERT_EQ(cmw->getLaneletsBetween(10.0, 60.0, true).size(), copy->getLaneletsBetween(10.0, 60.0, true).size());
+
+  ///// Test routing graph relations are preserved
+  auto llt = copy->getMap()->laneletLayer.get(1201);
+  ASSERT_EQ(cmw->getMapRoutingGraph()->following(cmw->getMap()->laneletLayer.get(1201)).size(),
+            copy->getMapRoutingGraph()->following(llt).size());
+  ASSERT_TRUE(!!copy->getMapRoutingGraph()->right(llt));
+  ASSERT_EQ(1211, copy->getMapRoutingGraph()->right(llt)->id());
+
+  ///// Test only the primitives which are edited in place are copied
+  auto original_llt = cmw->getMap()->laneletLayer.get(1201);
+  ASSERT_NE(original_llt.constData(), llt.constData());
+  ASSERT_EQ(original_llt.leftBound().constData(), llt.leftBound().constData());
+  ASSERT_EQ(original_llt.regulatoryElements().size(), llt.regulatoryElements().size());
+  for (size_t i = 0; i < llt.regulatoryElements().size(); i++)
+  {
+    ASSERT_EQ(original_llt.regulatoryElements()[i]->id(), llt.regulatoryElements()[i]->id());
+    ASSERT_NE(original_llt.regulatoryElements()[i], llt.regulatoryElements()[i]);
+  }
+
+  ///// Test edits to the original map are not visible through the copy
+  lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(
+      lanelet::utils::getId(), 5_mph, { cmw->getMutableMap()->laneletLayer.get(1201) }, {}, { lanelet::Participants::VehicleCar }));
+  auto regem_count = copy->getMap()->laneletLayer.get(1201).regulatoryElements().size();
+  cmw->getMutableMap()->update(cmw->getMutableMap()->laneletLayer.get(1201), speed_limit);
+
+  ASSERT_EQ(regem_count + 1, cmw->getMap()->laneletLayer.get(1201).regulatoryElements().size());
+  ASSERT_EQ(regem_count, copy->getMap()->laneletLayer.get(1201).regulatoryElements().size());
+}
+
 TEST(CARMAWorldModelTest, getTrafficRules)
 {
   CARMAWorldModel cmw;
@@ -1391,6 +1572,101 @@ TEST(CARMAWorldModelTest, processSpatFromMsg)
   EXPECT_EQ(lanelet::CarmaTrafficSignalState::STOP_AND_REMAIN, lights1[0]->recorded_time_stamps.back().second);
 }
 
+TEST(CARMAWorldModelTest, processSpatFromMsgIndexesSignalPhases)
+{
+  CARMAWorldModel cmw;
+  auto pl1 = carma_wm::getPoint(0, 0, 0);
+  auto pl2 = carma_wm::getPoint(0, 1, 0);
+  auto pr1 = carma_wm::getPoint(1, 0, 0);
+  auto pr2 = carma_wm::getPoint(1, 1, 0);
+  std::vector<lanelet::Point3d> left_1 = { pl1, pl2 };
+  std::vector<lanelet::Point3d> right_1 = { pr1, pr2 };
+  auto ll_1 = carma_wm::getLanelet(left_1, right_1, lanelet::AttributeValueString::SolidDashed,lanelet::AttributeValueString::Dashed);
+  lanelet::Id traffic_light_id = lanelet::utils::getId();
+  lanelet::LineString3d virtual_stop_line(lanelet::utils::getId(), {pl2, pr2});
+  std::shared_ptr<lanelet::CarmaTrafficSignal> traffic_light(new lanelet::CarmaTrafficSignal(lanelet::CarmaTrafficSignal::buildData(traffic_light_id, { virtual_stop_line }, { ll_1 }, { ll_1 })));
+  traffic_light->revision_ = 0;
+  ll_1.addRegulatoryElement(traffic_light);
+  auto map = lanelet::utils::createMap({ ll_1 }, {});
+  map->add(traffic_light);
+  cmw.setMap(std::move(map));
+
+  cmw.sim_.intersection_id_to_regem_id_[1] = 1001;
+  cmw.sim_.signal_group_to_traffic_light_id_[1] = traffic_light_id;
+
+  ASSERT_FALSE((bool)cmw.getSignalPhaseTimeline(1, 1));
+
+  carma_v2x_msgs::msg::SPAT spat;
+  carma_v2x_msgs::msg::IntersectionState state;
+  state.id.id = 1;
+  state.revision = 0;
+  carma_v2x_msgs::msg::MovementState movement;
+  movement.signal_group = 1;
+  carma_v2x_msgs::msg::MovementEvent event;
+  event.event_state.movement_phase_state = 5;
+  event.timing.min_end_time = 20;
+  event.timing.start_time = 0;
+  movement.movement_event_list.push_back(event);
+  event.event_state.movement_phase_state = 3;
+  event.timing.min_end_time = 40;
+  event.timing.start_time = 20;
+  movement.movement_event_list.push_back(event);
+  state.movement_list.push_back(movement);
+  spat.intersection_state_list.push_back(state);
+
+  cmw.processSpatFromMsg(spat);
+
+  auto timeline = cmw.getSignalPhaseTimeline(1, 1);
+  ASSERT_TRUE((bool)timeline);
+  ASSERT_EQ(2u, timeline->min_end_times.size());
+  ASSERT_EQ(2u, timeline->start_times.size());
+  EXPECT_NEAR(40.0, lanelet::time::toSec(timeline->min_end_times.back().first), 0.0001);
+  EXPECT_EQ(lanelet::CarmaTrafficSignalState::STOP_AND_REMAIN, timeline->min_end_times.back().second);
+  EXPECT_EQ(timeline->min_end_times, traffic_light->recorded_time_stamps);
+  EXPECT_EQ(timeline->start_times, traffic_light->recorded_start_time_stamps);
+
+  // Identical content is not reapplied to the signal
+  traffic_light->recorded_time_stamps.clear();
+  traffic_light->recorded_start_time_stamps.clear();
+  cmw.processSpatFromMsg(spat);
+  EXPECT_TRUE(traffic_light->recorded_time_stamps.empty());
+  EXPECT_TRUE(traffic_light->recorded_start_time_stamps.empty());
+  EXPECT_EQ(timeline->min_end_times, cmw.getSignalPhaseTimeline(1, 1)->min_end_times);
+
+  // A drifting simulation clock offset within the tolerance does not cause identical content to be reapplied
+  cmw.setSimulationClock(rclcpp::Time(100, 0));
+  cmw.setRos1Clock(rclcpp::Time(100, 50000000));
+  EXPECT_FALSE(cmw.processSpatFromMsg(spat, true));
+  EXPECT_TRUE(traffic_light->recorded_time_stamps.empty());
+
+  cmw.setRos1Clock(rclcpp::Time(101, 0));
+  EXPECT_TRUE(cmw.processSpatFromMsg(spat, true));
+  EXPECT_EQ(2u, traffic_light->recorded_time_stamps.size());
+
+  // Changed content updates both the signal and the timeline. Previously returned timelines are copies
+  spat.intersection_state_list[0].movement_list[0].movement_event_list.pop_back();
+  cmw.processSpatFromMsg(spat);
+  ASSERT_EQ(1u, traffic_light->recorded_time_stamps.size());
+  ASSERT_EQ(1u, traffic_light->recorded_start_time_stamps.size());
+  EXPECT_NEAR(20.0, lanelet::time::toSec(traffic_light->recorded_time_stamps.front().first), 0.0001);
+  EXPECT_EQ(1u, cmw.getSignalPhaseTimeline(1, 1)->min_end_times.size());
+  EXPECT_EQ(2u, timeline->min_end_times.size());
+
+  // Setting the map again requires the content to be reapplied to the signal
+  traffic_light->recorded_time_stamps.clear();
+  cmw.setMap(cmw.getMutableMap());
+  cmw.processSpatFromMsg(spat);
+  EXPECT_EQ(1u, traffic_light->recorded_time_stamps.size());
+
+  // A copy which shares the signal phases keeps them when the original processes a changed SPaT
+  CARMAWorldModel copy(cmw);
+  copy.shareSignalPhases(cmw);
+  spat.intersection_state_list[0].movement_list[0].movement_event_list.push_back(event);
+  ASSERT_TRUE(cmw.processSpatFromMsg(spat));
+  EXPECT_EQ(2u, cmw.getSignalPhaseTimeline(1, 1)->min_end_times.size());
+  EXPECT_EQ(1u, copy.getSignalPhaseTimeline(1, 1)->min_end_times.size());
+}
+
 TEST(CARMAWorldModelTest, getSignalsAlongRoute)
 {
   carma_wm::CARMAWorldModel cmw;
@@ -1423,6 +1699,46 @@ TEST(CARMAWorldModelTest, getSignalsAlongRoute)
 
 }
 
+TEST(CARMAWorldModelTest, getSignalsAlongRouteAfterMapUpdate)
+{
+  test::MapOptions mp(1,1);
+  auto cmw_ptr = test::getGuidanceTestMap(mp);
+  auto map = cmw_ptr->getMutableMap();
+
+  auto pl2 = carma_wm::getPoint(0, 1, 0);
+  auto pl3 = carma_wm::getPoint(0, 2, 0);
+  auto pr2 = carma_wm::getPoint(1, 1, 0);
+  auto pr3 = carma_wm::getPoint(1, 2, 0);
+
+  lanelet::Id traffic_light_id1 = lanelet::utils::getId();
+  lanelet::Id traffic_light_id2 = lanelet::utils::getId();
+  lanelet::LineString3d virtual_stop_line1(lanelet::utils::getId(), {pl2, pr2});
+  std::shared_ptr<lanelet::CarmaTrafficSignal> traffic_light1(new lanelet::CarmaTrafficSignal(lanelet::CarmaTrafficSignal::buildData(traffic_light_id1, { virtual_stop_line1 }, { map->laneletLayer.get(1200) },  { map->laneletLayer.get(1200) })));
+  lanelet::LineString3d virtual_stop_line2(lanelet::utils::getId(), {pl3, pr3});
+  std::shared_ptr<lanelet::CarmaTrafficSignal> traffic_light2(new lanelet::CarmaTrafficSignal(lanelet::CarmaTrafficSignal::buildData(traffic_light_id2, { virtual_stop_line2 }, { map->laneletLayer.get(1201) },  { map->laneletLayer.get(1201) })));
+
+  map->update(map->laneletLayer.get(1200), traffic_light1);
+  carma_wm::test::setRouteByIds({ 1200, 1201, 1202}, cmw_ptr);
+
+  auto lights = cmw_ptr->getSignalsAlongRoute({0.5, 0});
+  ASSERT_EQ(lights.size(), 1u);
+  EXPECT_EQ(lights[0]->id(), traffic_light_id1);
+
+  // Signals which are added by a map update are included once the map is set
+  map->update(map->laneletLayer.get(1201), traffic_light2);
+  cmw_ptr->setMap(map, 1, false);
+
+  lights = cmw_ptr->getSignalsAlongRoute({0.5, 0});
+  ASSERT_EQ(lights.size(), 2u);
+  EXPECT_EQ(lights[0]->id(), traffic_light_id1);
+  EXPECT_EQ(lights[1]->id(), traffic_light_id2);
+
+  // Signals whose stop lines have been passed are excluded
+  lights = cmw_ptr->getSignalsAlongRoute({0.5, 1.5});
+  ASSERT_EQ(lights.size(), 1u);
+  EXPECT_EQ(lights[0]->id(), traffic_light_id2);
+}
+
 TEST(CARMAWorldModelTest, getIntersectionAlongRoute)
 {
   lanelet::Id id{1200};
@@ -497,4 +497,91 @@ namespace carma_wm
 
   }
 
+  TEST(CollisionDetectionTest, WorldCollisionDetectionMatchesExhaustiveCheck)
+  {
+    // Exhaustive check of every prediction against every trajectory point using the collision criteria of WorldCollisionDetection
+    auto exhaustive_check = [](const carma_perception_msgs::msg::RoadwayObstacleList& rwol, const carma_planning_msgs::msg::TrajectoryPlan& tp,
+                               const geometry_msgs::msg::Vector3& size) {
+      std::vector<uint32_t> ids;
+      for (const auto& i : rwol.roadway_obstacles) {
+        for (const auto& j : i.object.predictions) {
+          for (const auto& point : tp.trajectory_points) {
+            double distance = std::hypot(point.x - j.predicted_position.position.x, point.y - j.predicted_position.position.y);
+            double timediff = (rclcpp::Time(j.header.stamp) - rclcpp::Time(point.target_time)).seconds();
+            double radius = std::sqrt((i.object.size.x - size.x)*(i.object.size.x - size.x) - (i.object.size.y - size.y)*(i.object.size.y - size.y));
+
+            if (timediff <= 5 && distance <= radius) {
+              ids.push_back(i.object.id);
+              break;
+            }
+          }
+        }
+      }
+      return ids;
+    };
+
+    geometry_msgs::msg::Twist velocity;
+    velocity.linear.x = 5;
+
+    geometry_msgs::msg::Vector3 size;
+    size.x = 1;
+    size.y = 0.5;
+    size.z = 1;
+
+    carma_planning_msgs::msg::TrajectoryPlan tp;
+    for (int i = 0; i < 50; i++) {
+      carma_planning_msgs::msg::TrajectoryPlanPoint point;
+      point.x = i;
+      point.y = 0;
+      point.target_time = rclcpp::Time(i / 5, (i % 5) * 200000000);
+      tp.trajectory_points.push_back(point);
+    }
+
+    // Obstacles spread over an integer grid around the trajectory with varied sizes and prediction times.
+    // Integer positions keep the squared distances exact. The list is large enough for the narrow phase to be run in parallel.
+    carma_perception_msgs::msg::RoadwayObstacleList rwol;
+    for (uint32_t id = 0; id < 200; id++) {
+      carma_perception_msgs::msg::RoadwayObstacle rwo;
+      rwo.object.id = id;
+      rwo.object.size.x = 1 + (id % 7);
+      rwo.object.size.y = 0.5 + (id % 3);
+      rwo.object.size.z = 1;
+
+      for (int p = 0; p < 10; p++) {
+        carma_perception_msgs::msg::PredictedState ps;
+        ps.header.stamp = rclcpp::Time((id % 20) + p, 0);
+        ps.predicted_position.position.x = -20.0 + (id % 20) * 5.0 + p;
+        ps.predicted_position.position.y = -10.0 + (id / 20) * 2.0 + (p % 3);
+        ps.predicted_position.orientation.w = 1;
+        rwo.object.predictions.push_back(ps);
+      }
+
+      rwol.roadway_obstacles.push_back(rwo);
+    }
+
+    auto expected = exhaustive_check(rwol, tp, size);
+    ASSERT_FALSE(expected.empty());
+
+    std::vector<uint32_t> actual;
+    for (const auto& rwo : collision_detection::WorldCollisionDetection(rwol, tp, size, velocity)) {
+      actual.push_back(rwo.object.id);
+    }
+
+    ASSERT_EQ(expected, actual);
+
+    // Same result with the sequential narrow phase
+    rwol.roadway_obstacles.resize(10);
+    expected = exhaustive_check(rwol, tp, size);
+
+    actual.clear();
+    for (const auto& rwo : collision_detection::WorldCollisionDetection(rwol, tp, size, velocity)) {
+      actual.push_back(rwo.object.id);
+    }
+
+    ASSERT_EQ(expected, actual);
+
+    tp.trajectory_points.clear();
+    ASSERT_TRUE(collision_detection::WorldCollisionDetection(rwol, tp, size, velocity).empty());
+  }
+
 }  // namespace carma_wm
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <carma_wm/Geometry.hpp>
+
+/**
+ * Compares the allocating geometry functions against their buffered overloads on centerlines of 1k to 10k points.
+ * The curvature -> tangent orientation -> arc length chain mirrors the one run on every trajectory plan.
+ */
+namespace
+{
+std::vector<lanelet::BasicPoint2d> buildCenterline(size_t num_points)
+{
+  std::vector<lanelet::BasicPoint2d> points;
+  points.reserve(num_points);
+  for (size_t i = 0; i < num_points; i++)
+  {
+    // A gentle s-curve sampled every meter
+    double x = static_cast<double>(i);
+    points.emplace_back(x, 50.0 * std::sin(x / 200.0));
+  }
+  return points;
+}
+
+}  // namespace
+
+static void BM_AllocatingCurvatureOrientationArcLengthChain(benchmark::State& state)
+{
+  auto points = buildCenterline(state.range(0));
+
+  for (auto _ : state)
+  {
+    auto curvatures = carma_wm::geometry::local_curvatures(points);
+    auto orientations = carma_wm::geometry::compute_tangent_orientations(points);
+    auto arc_lengths = carma_wm::geometry::compute_arc_lengths(points);
+    benchmark::DoNotOptimize(curvatures.data());
+    benchmark::DoNotOptimize(orientations.data());
+    benchmark::DoNotOptimize(arc_lengths.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+static void BM_FusedCurvatureOrientationArcLengthChain(benchmark::State& state)
+{
+  auto points = buildCenterline(state.range(0));
+  std::vector<double> curvatures, orientations, arc_lengths;
+
+  for (auto _ : state)
+  {
+    carma_wm::geometry::compute_curvatures_orientations_arc_lengths(points, curvatures, orientations, arc_lengths);
+    benchmark::DoNotOptimize(curvatures.data());
+    benchmark::DoNotOptimize(orientations.data());
+    benchmark::DoNotOptimize(arc_lengths.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+static void BM_AllocatingArcLengths(benchmark::State& state)
+{
+  auto points = buildCenterline(state.range(0));
+
+  for (auto _ : state)
+  {
+    auto arc_lengths = carma_wm::geometry::compute_arc_lengths(points);
+    benchmark::DoNotOptimize(arc_lengths.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+static void BM_BufferedArcLengths(benchmark::State& state)
+{
+  auto points = buildCenterline(state.range(0));
+  std::vector<double> arc_lengths;
+
+  for (auto _ : state)
+  {
+    carma_wm::geometry::compute_arc_lengths(points, arc_lengths);
+    benchmark::DoNotOptimize(arc_lengths.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+static void BM_AllocatingFiniteDifferences(benchmark::State& state)
+{
+  auto arc_lengths = carma_wm::geometry::compute_arc_lengths(buildCenterline(state.range(0)));
+
+  for (auto _ : state)
+  {
+    auto derivatives = carma_wm::geometry::compute_finite_differences(arc_lengths);
+    benchmark::DoNotOptimize(derivatives.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+static void BM_BufferedFiniteDifferences(benchmark::State& state)
+{
+  auto arc_lengths = carma_wm::geometry::compute_arc_lengths(buildCenterline(state.range(0)));
+  std::vector<double> derivatives;
+
+  for (auto _ : state)
+  {
+    carma_wm::geometry::compute_finite_differences(arc_lengths, derivatives);
+    benchmark::DoNotOptimize(derivatives.data());
+  }
+  state.SetItemsProcessed(state.iterations() * state.range(0));
+}
+
+BENCHMARK(BM_AllocatingCurvatureOrientationArcLengthChain)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_FusedCurvatureOrientationArcLengthChain)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_AllocatingArcLengths)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_BufferedArcLengths)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_AllocatingFiniteDifferences)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_BufferedFiniteDifferences)->Arg(1000)->Arg(10000)->Unit(benchmark::kMicrosecond);
@@ -764,4 +764,64 @@ TEST(GeometryTest, circular_arc_curvature)
 }
 
 
+TEST(GeometryTest, buffered_kernels_match_allocating_functions)
+{
+  // Spiral with uneven point spacing so that every derivative term is exercised
+  std::vector<lanelet::BasicPoint2d> points;
+  for (int i = 0; i < 200; i++)
+  {
+    double t = 0.05 * i + 0.001 * (i % 3);
+    double r = 20.0 + t;
+    points.emplace_back(r * std::cos(t), r * std::sin(t));
+  }
+  lanelet::BasicLineString2d line_string(points.begin(), points.end());
+
+  auto expect_near_all = [](const std::vector<double>& expected, const std::vector<double>& actual) {
+    ASSERT_EQ(expected.size(), actual.size());
+    for (size_t i = 0; i < expected.size(); i++)
+    {
+      EXPECT_NEAR(expected[i], actual[i], 0.000001) << "Index: " << i;
+    }
+  };
+
+  // Buffers start with different sizes and are reused to verify they are resized correctly
+  std::vector<double> curvatures(5, -1.0);
+  std::vector<double> orientations(500, -1.0);
+  std::vector<double> arc_lengths;
+
+  geometry::local_curvatures(points, curvatures);
+  expect_near_all(geometry::local_curvatures(points), curvatures);
+
+  geometry::compute_tangent_orientations(line_string, orientations);
+  expect_near_all(geometry::compute_tangent_orientations(line_string), orientations);
+
+  geometry::compute_arc_lengths(points, arc_lengths);
+  expect_near_all(geometry::compute_arc_lengths(points), arc_lengths);
+
+  geometry::compute_curvatures_orientations_arc_lengths(line_string, curvatures, orientations, arc_lengths);
+  expect_near_all(geometry::local_curvatures(line_string), curvatures);
+  expect_near_all(geometry::compute_tangent_orientations(line_string), orientations);
+  expect_near_all(geometry::compute_arc_lengths(line_string), arc_lengths);
+
+  std::vector<double> derivatives;
+  geometry::compute_finite_differences(arc_lengths, derivatives);
+  expect_near_all(geometry::compute_finite_differences(arc_lengths), derivatives);
+
+  geometry::local_circular_arc_curvatures(points, 5, curvatures);
+  expect_near_all(geometry::local_circular_arc_curvatures(points, 5), curvatures);
+
+  // Two point case uses only the forward and backward differences
+  std::vector<lanelet::BasicPoint2d> two_points = { { 0.0, 0.0 }, { 1.0, 1.0 } };
+  geometry::compute_curvatures_orientations_arc_lengths(two_points, curvatures, orientations, arc_lengths);
+  expect_near_all(geometry::local_curvatures(two_points), curvatures);
+  expect_near_all(geometry::compute_tangent_orientations(two_points), orientations);
+  expect_near_all(geometry::compute_arc_lengths(two_points), arc_lengths);
+
+  std::vector<lanelet::BasicPoint2d> empty_points;
+  ASSERT_THROW(geometry::local_curvatures(empty_points, curvatures), std::invalid_argument);
+  geometry::compute_tangent_orientations(empty_points, orientations);
+  ASSERT_EQ(0u, orientations.size());
+  ASSERT_THROW(geometry::local_circular_arc_curvatures(points, 0, curvatures), std::invalid_argument);
+}
+
 }  // namespace carma_wm
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <algorithm>
+#include <carma_wm/LaneletAdjacencyIndex.hpp>
+#include <carma_wm/WorldModelUtils.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+#include <carma_wm/CARMAWorldModel.hpp>
+
+namespace carma_wm
+{
+namespace
+{
+std::vector<lanelet::Id> sortedIds(const std::vector<lanelet::Id>* ids)
+{
+  if (!ids)
+    return {};
+
+  std::vector<lanelet::Id> sorted(*ids);
+  std::sort(sorted.begin(), sorted.end());
+  return sorted;
+}
+
+bool contains(const std::vector<lanelet::Id>* ids, lanelet::Id id)
+{
+  return ids && std::find(ids->begin(), ids->end(), id) != ids->end();
+}
+
+}  // namespace
+
+TEST(LaneletAdjacencyIndexTest, build)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25, 25);
+
+  LaneletAdjacencyIndex index;
+  index.build(map);
+
+  ASSERT_EQ(map->laneletLayer.size(), index.size());
+  EXPECT_TRUE(contains(index.getLeftNeighbours(1210), 1200));
+  EXPECT_TRUE(contains(index.getRightNeighbours(1210), 1220));
+  EXPECT_TRUE(contains(index.getRightNeighbours(1200), 1210));
+  EXPECT_FALSE(contains(index.getLeftNeighbours(1200), 1220));
+  EXPECT_EQ(nullptr, index.getLeftNeighbours(lanelet::InvalId));
+}
+
+TEST(LaneletAdjacencyIndexTest, nonConnectedAdjacentLeftMatchesSearch)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25, 25);
+
+  LaneletAdjacencyIndex index;
+  index.build(map);
+
+  for (double y = 0.5; y < 100.0; y += 3.0)
+  {
+    for (double x : { 1.85, 5.55, 9.25 })
+    {
+      lanelet::BasicPoint2d point(x, y);
+      auto expected = query::nonConnectedAdjacentLeft(map, point);
+      auto actual = query::nonConnectedAdjacentLeft(map, index, point);
+
+      ASSERT_EQ(expected.size(), actual.size()) << "Point: " << x << ", " << y;
+      for (size_t i = 0; i < expected.size(); i++)
+      {
+        EXPECT_EQ(expected[i].id(), actual[i].id()) << "Point: " << x << ", " << y;
+      }
+    }
+  }
+
+  auto opposite = query::nonConnectedAdjacentLeft(map, index, { 5.55, 12.3 });
+  ASSERT_EQ(1u, opposite.size());
+  EXPECT_EQ(1200, opposite[0].id());
+
+  ASSERT_THROW(query::nonConnectedAdjacentLeft(map, index, { -20, 12.3 }), std::invalid_argument);
+}
+
+TEST(LaneletAdjacencyIndexTest, worldModelNonConnectedAdjacentLeft)
+{
+  auto cmw = test::getGuidanceTestMap();
+  const CARMAWorldModel& const_cmw = *cmw;
+
+  auto opposite = const_cmw.nonConnectedAdjacentLeft({ 5.55, 12.3 });
+  ASSERT_EQ(1u, opposite.size());
+  EXPECT_EQ(1200, opposite[0].id());
+  ASSERT_EQ(1u, cmw->nonConnectedAdjacentLeft({ 5.55, 12.3 }).size());
+
+  // Points off the map have no adjacent lanelets rather than throwing
+  EXPECT_TRUE(const_cmw.nonConnectedAdjacentLeft({ -20, 12.3 }).empty());
+  EXPECT_TRUE(cmw->nonConnectedAdjacentLeft({ -20, 12.3 }).empty());
+
+  // A world model without a map still throws
+  CARMAWorldModel empty;
+  const CARMAWorldModel& const_empty = empty;
+  ASSERT_THROW(const_empty.nonConnectedAdjacentLeft({ 5.55, 12.3 }), std::invalid_argument);
+}
+
+TEST(LaneletAdjacencyIndexTest, updateMatchesBuild)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25, 25);
+
+  LaneletAdjacencyIndex index;
+  index.build(map);
+
+  // Add a lane to the left of the road as a geofence adding lanelets would
+  std::vector<lanelet::Point3d> left_pts;
+  for (int i = 0; i <= 25; i++)
+  {
+    left_pts.push_back(test::getPoint(-3.7, i, 0));
+  }
+  auto right_bound = map->laneletLayer.get(1200).leftBound();
+  auto new_llt = test::getLanelet(1190, left_pts, std::vector<lanelet::Point3d>(right_bound.begin(), right_bound.end()));
+  map->add(new_llt);
+
+  EXPECT_EQ(1u, index.update(map));
+  EXPECT_EQ(0u, index.update(map));
+
+  LaneletAdjacencyIndex rebuilt;
+  rebuilt.build(map);
+
+  ASSERT_EQ(rebuilt.size(), index.size());
+  for (const auto& llt : map->laneletLayer)
+  {
+    EXPECT_EQ(sortedIds(rebuilt.getLeftNeighbours(llt.id())), sortedIds(index.getLeftNeighbours(llt.id())))
+        << "Lanelet: " << llt.id();
+    EXPECT_EQ(sortedIds(rebuilt.getRightNeighbours(llt.id())), sortedIds(index.getRightNeighbours(llt.id())))
+        << "Lanelet: " << llt.id();
+  }
+
+  EXPECT_TRUE(contains(index.getLeftNeighbours(1200), 1190));
+
+  auto opposite = query::nonConnectedAdjacentLeft(map, index, { 1.85, 12.3 });
+  ASSERT_EQ(1u, opposite.size());
+  EXPECT_EQ(1190, opposite[0].id());
+}
+
+}  // namespace carma_wm
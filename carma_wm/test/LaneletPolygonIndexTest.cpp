@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <algorithm>
+#include <carma_wm/LaneletPolygonIndex.hpp>
+#include <carma_wm/WorldModelUtils.hpp>
+#include <carma_wm/CARMAWorldModel.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+
+namespace carma_wm
+{
+namespace
+{
+std::vector<lanelet::Id> sortedIds(const lanelet::Lanelets& lanelets)
+{
+  std::vector<lanelet::Id> ids;
+  std::transform(lanelets.begin(), lanelets.end(), std::back_inserter(ids), [](const auto& l) { return l.id(); });
+  std::sort(ids.begin(), ids.end());
+  return ids;
+}
+
+std::vector<lanelet::Id> ids(const lanelet::ConstLaneletOrAreas& parts)
+{
+  std::vector<lanelet::Id> ids;
+  std::transform(parts.begin(), parts.end(), std::back_inserter(ids), [](const auto& p) { return p.id(); });
+  return ids;
+}
+
+lanelet::Points3d geofencePoints(double x, double start_y, double end_y, double step)
+{
+  lanelet::Points3d points;
+  for (double y = start_y; y <= end_y; y += step)
+  {
+    points.push_back(test::getPoint(x, y, 0));
+  }
+  return points;
+}
+
+}  // namespace
+
+TEST(LaneletPolygonIndexTest, containingLanelets)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25, 25);
+
+  LaneletPolygonIndex index;
+  index.build(map);
+  ASSERT_EQ(map->laneletLayer.size(), index.size());
+
+  // Points on shared bounds and outside of the map are compared to the lanelets at a distance of 0
+  lanelet::BasicPoints2d points;
+  for (double y = -1.0; y <= 101.0; y += 2.5)
+  {
+    for (double x : { -1.0, 0.0, 1.85, 3.7, 5.55, 9.25, 11.1, 12.0 })
+    {
+      points.emplace_back(x, y);
+    }
+  }
+
+  auto batch = index.getContainingLanelets(points, 4);
+  ASSERT_EQ(points.size(), batch.size());
+
+  for (size_t i = 0; i < points.size(); i++)
+  {
+    lanelet::Lanelets expected;
+    for (const auto& llt : map->laneletLayer)
+    {
+      if (boost::geometry::distance(points[i], llt.polygon2d().basicPolygon()) == 0.0)
+      {
+        expected.push_back(llt);
+      }
+    }
+
+    EXPECT_EQ(sortedIds(expected), sortedIds(index.getContainingLanelets(points[i])))
+        << "Point: " << points[i].x() << ", " << points[i].y();
+    EXPECT_EQ(sortedIds(expected), sortedIds(batch[i])) << "Point: " << points[i].x() << ", " << points[i].y();
+  }
+
+  EXPECT_EQ(std::vector<lanelet::Id>({ 1200 }), sortedIds(index.getContainingLanelets(lanelet::BasicPoint2d(1.85, 10))));
+  EXPECT_TRUE(index.getContainingAreas(lanelet::BasicPoint2d(1.85, 10)).empty());
+}
+
+TEST(LaneletPolygonIndexTest, update)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25);
+
+  LaneletPolygonIndex index;
+  index.build(map);
+  size_t initial_size = index.size();
+  EXPECT_EQ(0u, index.update(map));
+
+  auto llt = test::getLanelet(9000, { test::getPoint(0, 200, 0), test::getPoint(0, 210, 0) },
+                              { test::getPoint(3.7, 200, 0), test::getPoint(3.7, 210, 0) });
+  map->add(llt);
+
+  EXPECT_TRUE(index.getContainingLanelets(lanelet::BasicPoint2d(1.85, 205)).empty());
+  EXPECT_EQ(1u, index.update(map));
+  EXPECT_EQ(initial_size + 1, index.size());
+  EXPECT_EQ(std::vector<lanelet::Id>({ 9000 }), sortedIds(index.getContainingLanelets(lanelet::BasicPoint2d(1.85, 205))));
+
+  // A different map rebuilds the index
+  auto other_map = test::buildGuidanceTestMap(3.7, 25);
+  EXPECT_EQ(initial_size, index.update(other_map));
+  EXPECT_TRUE(index.getContainingLanelets(lanelet::BasicPoint2d(1.85, 205)).empty());
+
+  index.clear();
+  EXPECT_EQ(0u, index.size());
+  EXPECT_TRUE(index.getContainingLanelets(lanelet::BasicPoint2d(1.85, 10)).empty());
+}
+
+TEST(LaneletPolygonIndexTest, affectedLaneletsMatchSearch)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25, 25);
+
+  CARMAWorldModel cmw;
+  cmw.setMap(map);
+  auto routing_graph = cmw.getMapRoutingGraph();
+
+  LaneletPolygonIndex index;
+  index.build(map);
+
+  std::vector<lanelet::Points3d> geofences = {
+    geofencePoints(1.85, 1, 99, 0.25),   // Enough segments to be split between threads
+    geofencePoints(5.55, 30, 60, 5),     // Spans two lanelets
+    geofencePoints(9.25, 80, 80, 1),     // Single point
+    { test::getPoint(1.85, 10, 0), test::getPoint(5.55, 40, 0), test::getPoint(9.25, 70, 0) },  // Changes lanes
+    {},
+  };
+
+  // Against the direction of the lane
+  auto reversed = geofencePoints(1.85, 1, 99, 1);
+  std::reverse(reversed.begin(), reversed.end());
+  geofences.push_back(reversed);
+
+  for (size_t i = 0; i < geofences.size(); i++)
+  {
+    auto expected = query::getAffectedLaneletOrAreas(geofences[i], map, routing_graph, 3.7);
+
+    EXPECT_EQ(ids(expected), ids(query::getAffectedLaneletOrAreas(geofences[i], index, map, routing_graph, 1)))
+        << "Geofence: " << i;
+    EXPECT_EQ(ids(expected), ids(query::getAffectedLaneletOrAreas(geofences[i], index, map, routing_graph, 4)))
+        << "Geofence: " << i;
+  }
+
+  EXPECT_EQ(4u, query::getAffectedLaneletOrAreas(geofences[0], index, map, routing_graph).size());
+}
+
+}  // namespace carma_wm
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <carma_wm/MapConformer.hpp>
+#include <lanelet2_io/Io.h>
+#include <lanelet2_extension/projection/local_frame_projector.h>
+#include <lanelet2_extension/io/autoware_osm_parser.h>
+
+/**
+ * Measures the map startup work done by carma_wm_ctrl when a base map is received. The compliance pass is run with a
+ * varying number of threads on the maps in the testing_maps directory. The map is reloaded before each iteration
+ * as the compliance pass modifies it in place.
+ */
+namespace
+{
+lanelet::LaneletMapPtr loadTestingMap(const std::string& file_name)
+{
+  std::string file = std::string(TESTING_MAPS_DIR) + "/" + file_name;
+
+  int projector_type = 0;
+  std::string target_frame;
+  lanelet::ErrorMessages load_errors;
+  lanelet::io_handlers::AutowareOsmParser::parseMapParams(file, &projector_type, &target_frame);
+  lanelet::projection::LocalFrameProjector local_projector(target_frame.c_str());
+
+  return lanelet::load(file, local_projector, &load_errors);
+}
+
+lanelet::traffic_rules::TrafficRulesPtr getTrafficRules()
+{
+  return lanelet::traffic_rules::TrafficRulesFactory::create(lanelet::traffic_rules::CarmaUSTrafficRules::Location,
+                                                             lanelet::Participants::Vehicle);
+}
+
+}  // namespace
+
+static void BM_EnsureCompliance(benchmark::State& state)
+{
+  size_t lanelets = 0;
+
+  for (auto _ : state)
+  {
+    state.PauseTiming();
+    auto map = loadTestingMap("Town04.osm");
+    lanelets = map->laneletLayer.size();
+    state.ResumeTiming();
+
+    lanelet::MapConformer::ensureCompliance(map, 80_mph, state.range(0));
+  }
+  state.counters["lanelets"] = lanelets;
+  state.counters["threads"] = state.range(0);
+}
+
+static void BM_BaseMapStartup(benchmark::State& state)
+{
+  auto traffic_rules = getTrafficRules();
+  size_t lanelets = 0;
+
+  for (auto _ : state)
+  {
+    state.PauseTiming();
+    auto map = loadTestingMap("Town04.osm");
+    lanelets = map->laneletLayer.size();
+    state.ResumeTiming();
+
+    // Mirrors WMBroadcaster::baseMapCallback
+    lanelet::MapConformer::ensureCompliance(map, 80_mph, state.range(0));
+    benchmark::DoNotOptimize(lanelet::routing::RoutingGraph::build(*map, *traffic_rules));
+  }
+  state.counters["lanelets"] = lanelets;
+  state.counters["threads"] = state.range(0);
+}
+
+BENCHMARK(BM_EnsureCompliance)->Arg(1)->Arg(2)->Arg(4)->Arg(8)->Iterations(5)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_BaseMapStartup)->Arg(1)->Arg(4)->Iterations(3)->Unit(benchmark::kMillisecond);
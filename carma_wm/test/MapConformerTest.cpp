@@ -19,6 +19,7 @@
 #include <lanelet2_core/utility/Units.h>
 #include <boost/algorithm/string.hpp>
 #include "TestHelpers.hpp"
+#include <limits>
 using namespace lanelet::units::literals;
 
 
@@ -288,4 +289,92 @@ std::vector<lanelet::Lanelet> llt2;
 
 
 }
+
+namespace
+{
+/**
+ * Builds a map of num_lanes adjacent lanes each made of num_segments lanelets. Adjacent lanelets share their bounds
+ */
+lanelet::LaneletMapPtr buildLaneGridMap(size_t num_lanes, size_t num_segments)
+{
+  std::vector<std::vector<lanelet::LineString3d>> bounds(num_lanes + 1);
+  for (size_t b = 0; b <= num_lanes; b++)
+  {
+    for (size_t s = 0; s < num_segments; s++)
+    {
+      bounds[b].emplace_back(lanelet::utils::getId(), lanelet::Points3d{ carma_wm::getPoint(b * 3.7, s * 10.0, 0),
+                                                                         carma_wm::getPoint(b * 3.7, (s + 1) * 10.0, 0) });
+    }
+  }
+
+  std::vector<lanelet::Lanelet> llts;
+  for (size_t l = 0; l < num_lanes; l++)
+  {
+    for (size_t s = 0; s < num_segments; s++)
+    {
+      llts.push_back(carma_wm::getLanelet(
+          100000 + l * num_segments + s, bounds[l][s], bounds[l + 1][s],
+          l == 0 ? lanelet::AttributeValueString::Solid : lanelet::AttributeValueString::Dashed,
+          l == num_lanes - 1 ? lanelet::AttributeValueString::Solid : lanelet::AttributeValueString::Dashed));
+    }
+  }
+
+  return lanelet::utils::createMap(llts, {});
+}
+
+/**
+ * Returns the subtype and id of each regulatory element of the lanelet. Ids are relative to the smallest regulatory
+ * element id in the map so maps conformed at different times can be compared
+ */
+std::vector<std::pair<std::string, lanelet::Id>> relativeRegulations(const lanelet::LaneletMapPtr& map,
+                                                                     const lanelet::ConstLanelet& llt)
+{
+  lanelet::Id min_id = std::numeric_limits<lanelet::Id>::max();
+  for (const auto& regem : map->regulatoryElementLayer)
+  {
+    min_id = std::min(min_id, regem->id());
+  }
+
+  std::vector<std::pair<std::string, lanelet::Id>> regulations;
+  for (const auto& regem : llt.regulatoryElements())
+  {
+    regulations.emplace_back(regem->attribute(lanelet::AttributeName::Subtype).value(), regem->id() - min_id);
+  }
+  return regulations;
+}
+
+}  // namespace
+
+TEST(MapConformer, ensureComplianceIsIndependentOfThreadCount)
+{
+  constexpr size_t num_lanes = 4;
+  constexpr size_t num_segments = 200;
+
+  auto serial_map = buildLaneGridMap(num_lanes, num_segments);
+  lanelet::MapConformer::ensureCompliance(serial_map, 0_mph, 1);
+
+  auto parallel_map = buildLaneGridMap(num_lanes, num_segments);
+  lanelet::MapConformer::ensureCompliance(parallel_map, 0_mph, 4);
+
+  // Each of the num_lanes + 1 bounds gets one control line in addition to the per lanelet regulations
+  ASSERT_LT((num_lanes + 1) * num_segments, serial_map->regulatoryElementLayer.size());
+  ASSERT_EQ(serial_map->regulatoryElementLayer.size(), parallel_map->regulatoryElementLayer.size());
+
+  for (const auto& llt : serial_map->laneletLayer)
+  {
+    ASSERT_TRUE(parallel_map->laneletLayer.exists(llt.id()));
+    EXPECT_EQ(relativeRegulations(serial_map, llt), relativeRegulations(parallel_map, parallel_map->laneletLayer.get(llt.id())))
+        << "Lanelet: " << llt.id();
+  }
+
+  // Adjacent lanelets share the control line of their shared bound
+  auto left_llt = parallel_map->laneletLayer.get(100000);
+  auto right_llt = parallel_map->laneletLayer.get(100000 + num_segments);
+  auto left_lines = left_llt.regulatoryElementsAs<lanelet::PassingControlLine>();
+  auto right_lines = right_llt.regulatoryElementsAs<lanelet::PassingControlLine>();
+  ASSERT_EQ(2u, left_lines.size());
+  ASSERT_EQ(2u, right_lines.size());
+  EXPECT_TRUE(lanelet::utils::contains(right_lines, left_lines[1]));
+}
+
 }  // namespace carma_wm
\ No newline at end of file
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <algorithm>
+#include <cmath>
+#include <limits>
+#include <rclcpp/time.hpp>
+#include <carma_wm/ObstacleOccupancyIndex.hpp>
+#include <carma_wm/CARMAWorldModel.hpp>
+
+namespace carma_wm
+{
+namespace
+{
+/**
+ * Builds an obstacle of 4x2 meters at (x, y) at time 0 moving with the provided velocity with one prediction per second
+ */
+carma_perception_msgs::msg::RoadwayObstacle buildObstacle(uint32_t id, double x, double y, double vx, double vy,
+                                                          int num_predictions)
+{
+  carma_perception_msgs::msg::RoadwayObstacle rwo;
+  rwo.object.id = id;
+  rwo.object.size.x = 4;
+  rwo.object.size.y = 2;
+  rwo.object.header.stamp = rclcpp::Time(0, 0);
+  rwo.object.pose.pose.position.x = x;
+  rwo.object.pose.pose.position.y = y;
+
+  for (int i = 1; i <= num_predictions; i++)
+  {
+    carma_perception_msgs::msg::PredictedState prediction;
+    prediction.header.stamp = rclcpp::Time(i, 0);
+    prediction.predicted_position.position.x = x + vx * i;
+    prediction.predicted_position.position.y = y + vy * i;
+    rwo.object.predictions.push_back(prediction);
+  }
+  return rwo;
+}
+
+lanelet::BoundingBox2d box(double min_x, double min_y, double max_x, double max_y)
+{
+  return lanelet::BoundingBox2d(lanelet::BasicPoint2d(min_x, min_y), lanelet::BasicPoint2d(max_x, max_y));
+}
+
+// Reference implementation evaluating every pose and prediction
+std::vector<size_t> bruteForce(const std::vector<carma_perception_msgs::msg::RoadwayObstacle>& obstacles,
+                               const lanelet::BoundingBox2d& region, double start_time, double end_time)
+{
+  std::vector<size_t> result;
+  for (size_t i = 0; i < obstacles.size(); i++)
+  {
+    const auto& object = obstacles[i].object;
+    double radius = 0.5 * std::hypot(object.size.x, object.size.y);
+
+    auto occupies = [&](double x, double y, double t) {
+      double dx = std::max({ region.min().x() - x, 0.0, x - region.max().x() });
+      double dy = std::max({ region.min().y() - y, 0.0, y - region.max().y() });
+      return t >= start_time && t <= end_time && std::hypot(dx, dy) <= radius;
+    };
+
+    bool found = occupies(object.pose.pose.position.x, object.pose.pose.position.y,
+                          rclcpp::Time(object.header.stamp).seconds());
+    for (const auto& prediction : object.predictions)
+    {
+      found = found || occupies(prediction.predicted_position.position.x, prediction.predicted_position.position.y,
+                                rclcpp::Time(prediction.header.stamp).seconds());
+    }
+
+    if (found)
+      result.push_back(i);
+  }
+  return result;
+}
+
+}  // namespace
+
+TEST(ObstacleOccupancyIndexTest, query)
+{
+  // One obstacle driving north along x = 0, one driving east along y = 50 and one stopped at the origin of the second
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle> obstacles = {
+    buildObstacle(1, 0, 0, 0, 10, 10),
+    buildObstacle(2, 0, 50, 10, 0, 10),
+    buildObstacle(3, 100, 100, 0, 0, 0),
+  };
+
+  ObstacleOccupancyIndex index;
+  index.build(obstacles);
+  ASSERT_EQ(23u, index.size());
+
+  // Both moving obstacles cross (0, 50). The first at 5 s and the second at 0 s
+  EXPECT_EQ(std::vector<size_t>({ 0, 1 }), index.query(box(-1, 49, 1, 51), 0, 10));
+  EXPECT_EQ(std::vector<size_t>({ 0 }), index.query(box(-1, 49, 1, 51), 4.5, 5.5));
+  EXPECT_EQ(std::vector<size_t>({ 1 }), index.query(box(-1, 49, 1, 51), -1, 0));
+  EXPECT_TRUE(index.query(box(-1, 49, 1, 51), 1, 4.5).empty());
+
+  // The footprint is accounted for. The radius of the obstacles is sqrt(5)
+  EXPECT_EQ(std::vector<size_t>({ 2 }), index.query(box(102, 100, 110, 110), 0, 0));
+  EXPECT_TRUE(index.query(box(102.3, 100, 110, 110), 0, 0).empty());
+
+  // Empty windows
+  EXPECT_TRUE(index.query(box(-1000, -1000, 1000, 1000), 5, 4).empty());
+  EXPECT_TRUE(index.query(box(-1000, -1000, 1000, 1000), 11, 20).empty());
+
+  index.clear();
+  EXPECT_EQ(0u, index.size());
+  EXPECT_TRUE(index.query(box(-1000, -1000, 1000, 1000), 0, 10).empty());
+
+  ASSERT_THROW(ObstacleOccupancyIndex(0, 1), std::invalid_argument);
+  ASSERT_THROW(ObstacleOccupancyIndex(1, -1), std::invalid_argument);
+}
+
+TEST(ObstacleOccupancyIndexTest, extremeValues)
+{
+  auto huge = buildObstacle(1, 0, 0, 0, 0, 0);
+  huge.object.size.x = 1e12;  // Covers far more cells than the grid stores
+  auto far = buildObstacle(2, 1e300, -1e300, 0, 0, 0);
+  auto invalid = buildObstacle(3, std::nan(""), 0, 0, 0, 0);
+
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle> obstacles = { huge, far, invalid,
+                                                                          buildObstacle(4, 0, 0, 0, 0, 0) };
+
+  ObstacleOccupancyIndex index;
+  index.build(obstacles);
+  ASSERT_EQ(3u, index.size());  // The non-finite pose is not added
+
+  // The oversized sample is found by queries which visit the grid
+  EXPECT_EQ(std::vector<size_t>({ 0, 3 }), index.query(box(-1, -1, 1, 1), 0, 0));
+  EXPECT_EQ(std::vector<size_t>({ 0 }), index.query(box(1e9, 0, 1e9 + 1, 1), 0, 0));
+  EXPECT_EQ(std::vector<size_t>({ 1 }), index.query(box(1e300, -1e300, 1e300, -1e300), 0, 0));
+
+  EXPECT_TRUE(index.query(box(std::nan(""), -1, 1, 1), 0, 0).empty());
+  EXPECT_TRUE(index.query(box(-1, -1, 1, 1), 0, std::numeric_limits<double>::infinity()).empty());
+}
+
+TEST(ObstacleOccupancyIndexTest, matchesBruteForce)
+{
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle> obstacles;
+  for (uint32_t i = 0; i < 40; i++)
+  {
+    double angle = i * 0.37;
+    obstacles.push_back(buildObstacle(i, std::fmod(i * 17.3, 200.0) - 100.0, std::fmod(i * 29.1, 200.0) - 100.0,
+                                      8.0 * std::cos(angle), 8.0 * std::sin(angle), 15));
+  }
+
+  ObstacleOccupancyIndex index(3.0, 0.5);
+  index.build(obstacles);
+
+  // Small regions use the cells while the largest ones are evaluated directly
+  for (double size : { 1.0, 7.5, 40.0, 400.0 })
+  {
+    for (double x = -150; x < 150; x += 23.0)
+    {
+      for (double y = -150; y < 150; y += 19.0)
+      {
+        for (double t : { -1.0, 0.0, 2.3, 7.0, 14.9 })
+        {
+          auto region = box(x, y, x + size, y + size);
+          EXPECT_EQ(bruteForce(obstacles, region, t, t + 1.7), index.query(region, t, t + 1.7))
+              << "Region: " << x << ", " << y << " size " << size << " time " << t;
+        }
+      }
+    }
+  }
+}
+
+TEST(ObstacleOccupancyIndexTest, worldModelQuery)
+{
+  CARMAWorldModel cmw;
+
+  std::vector<carma_perception_msgs::msg::RoadwayObstacle> obstacles = {
+    buildObstacle(1, 0, 0, 0, 10, 10),
+    buildObstacle(2, 0, 50, 10, 0, 10),
+  };
+  cmw.setRoadwayObjects(obstacles);
+
+  auto occupants = cmw.getRoadwayObjectsOccupying(box(-1, 49, 1, 51), rclcpp::Time(4, 0), rclcpp::Time(6, 0));
+  ASSERT_EQ(1u, occupants.size());
+  EXPECT_EQ(1u, occupants[0].object.id);
+
+  occupants = cmw.getRoadwayObjectsOccupying(box(-1, 49, 1, 51), rclcpp::Time(0, 0), rclcpp::Time(10, 0));
+  ASSERT_EQ(2u, occupants.size());
+  EXPECT_EQ(1u, occupants[0].object.id);
+  EXPECT_EQ(2u, occupants[1].object.id);
+
+  // The index is rebuilt on every update
+  cmw.setRoadwayObjects({ obstacles[1] });
+  occupants = cmw.getRoadwayObjectsOccupying(box(-1, 49, 1, 51), rclcpp::Time(0, 0), rclcpp::Time(10, 0));
+  ASSERT_EQ(1u, occupants.size());
+  EXPECT_EQ(2u, occupants[0].object.id);
+}
+
+}  // namespace carma_wm
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <carma_wm/CARMAWorldModel.hpp>
+#include <carma_wm/MapConformer.hpp>
+#include <lanelet2_core/utility/Utilities.h>
+
+/**
+ * Measures route relative queries on a two lane straight route made of a varying number of 25m lanelets.
+ * The indexed getLaneletsBetween is compared against the previous approach of projecting every route lanelet onto the
+ * route reference line for each query.
+ */
+namespace
+{
+using namespace lanelet::units::literals;
+
+constexpr double LANELET_LENGTH = 25.0;
+constexpr double LANE_WIDTH = 3.7;
+constexpr double POINT_SPACING = 5.0;
+
+/**
+ * Builds a lanelet bound running along the y axis which starts at the provided point
+ */
+lanelet::LineString3d buildBound(const lanelet::Point3d& start, const lanelet::Attribute& sub_type)
+{
+  lanelet::LineString3d bound(lanelet::utils::getId(), { start });
+  for (double offset = POINT_SPACING; offset <= LANELET_LENGTH; offset += POINT_SPACING)
+  {
+    bound.push_back(lanelet::Point3d(lanelet::utils::getId(), start.x(), start.y() + offset, 0));
+  }
+  bound.attributes()[lanelet::AttributeName::Type] = lanelet::AttributeValueString::LineThin;
+  bound.attributes()[lanelet::AttributeName::Subtype] = sub_type;
+  return bound;
+}
+
+lanelet::Lanelet buildLanelet(const lanelet::LineString3d& left, const lanelet::LineString3d& right)
+{
+  lanelet::Lanelet llt(lanelet::utils::getId(), left, right);
+  llt.attributes()[lanelet::AttributeName::Type] = lanelet::AttributeValueString::Lanelet;
+  llt.attributes()[lanelet::AttributeName::Subtype] = lanelet::AttributeValueString::Road;
+  llt.attributes()[lanelet::AttributeName::Location] = lanelet::AttributeValueString::Urban;
+  llt.attributes()[lanelet::AttributeName::OneWay] = "yes";
+  return llt;
+}
+
+/**
+ * Builds a world model containing a two lane road of num_lanelets lanelets per lane with a route along the right lane
+ */
+std::shared_ptr<carma_wm::CARMAWorldModel> buildStraightRoute(size_t num_lanelets)
+{
+  auto map = std::make_shared<lanelet::LaneletMap>();
+  lanelet::ConstLanelets route_lanelets;
+
+  // Consecutive lanelets share their boundary end points so they are connected
+  lanelet::Point3d left_start(lanelet::utils::getId(), 0, 0, 0);
+  lanelet::Point3d center_start(lanelet::utils::getId(), LANE_WIDTH, 0, 0);
+  lanelet::Point3d right_start(lanelet::utils::getId(), 2 * LANE_WIDTH, 0, 0);
+
+  for (size_t i = 0; i < num_lanelets; i++)
+  {
+    lanelet::LineString3d left = buildBound(left_start, lanelet::AttributeValueString::Solid);
+    lanelet::LineString3d center = buildBound(center_start, lanelet::AttributeValueString::Dashed);
+    lanelet::LineString3d right = buildBound(right_start, lanelet::AttributeValueString::Solid);
+
+    map->add(buildLanelet(left, center));
+    lanelet::Lanelet route_llt = buildLanelet(center, right);
+    map->add(route_llt);
+    route_lanelets.push_back(route_llt);
+
+    left_start = left.back();
+    center_start = center.back();
+    right_start = right.back();
+  }
+
+  lanelet::MapConformer::ensureCompliance(map, 80_mph);
+
+  auto cmw = std::make_shared<carma_wm::CARMAWorldModel>();
+  cmw->setMap(map);
+
+  auto route = cmw->getMapRoutingGraph()->getRoute(route_lanelets.front(), route_lanelets.back());
+  cmw->setRoute(std::make_shared<lanelet::routing::Route>(std::move(*route)));
+
+  return cmw;
+}
+
+/**
+ * The implementation of getLaneletsBetween prior to the route lanelet downtrack index
+ */
+std::vector<lanelet::ConstLanelet> projectLaneletsBetween(const carma_wm::CARMAWorldModel& cmw, double start, double end)
+{
+  std::vector<std::pair<double, lanelet::ConstLanelet>> in_range;
+  for (lanelet::ConstLanelet llt : cmw.getRoute()->laneletMap()->laneletLayer)
+  {
+    auto centerline = lanelet::utils::to2D(llt.centerline());
+    double min = cmw.routeTrackPos(centerline.front()).downtrack;
+    double max = cmw.routeTrackPos(centerline.back()).downtrack;
+    if (std::max(min, start) > std::min(max, end))
+      continue;
+
+    in_range.emplace_back(min, llt);
+  }
+  std::stable_sort(in_range.begin(), in_range.end(),
+                   [](const auto& a, const auto& b) { return a.first < b.first; });
+
+  std::vector<lanelet::ConstLanelet> output;
+  output.reserve(in_range.size());
+  for (const auto& pair : in_range)
+  {
+    output.push_back(pair.second);
+  }
+  return output;
+}
+
+}  // namespace
+
+static void BM_RouteTrackPos(benchmark::State& state)
+{
+  auto cmw = buildStraightRoute(state.range(0));
+  double route_length = state.range(0) * LANELET_LENGTH;
+
+  double y = 0;
+  for (auto _ : state)
+  {
+    y = y + 13.7 > route_length ? 0 : y + 13.7;
+    benchmark::DoNotOptimize(cmw->routeTrackPos(lanelet::BasicPoint2d(1.5 * LANE_WIDTH, y)));
+  }
+  state.counters["route_km"] = route_length / 1000.0;
+}
+
+static void BM_ProjectedGetLaneletsBetween(benchmark::State& state)
+{
+  auto cmw = buildStraightRoute(state.range(0));
+  double route_length = state.range(0) * LANELET_LENGTH;
+
+  double start = 0;
+  for (auto _ : state)
+  {
+    start = start + 13.7 > route_length ? 0 : start + 13.7;
+    benchmark::DoNotOptimize(projectLaneletsBetween(*cmw, start, start + 100.0));
+  }
+  state.counters["route_km"] = route_length / 1000.0;
+}
+
+static void BM_IndexedGetLaneletsBetween(benchmark::State& state)
+{
+  auto cmw = buildStraightRoute(state.range(0));
+  double route_length = state.range(0) * LANELET_LENGTH;
+  cmw->setQueryCacheCapacity(0);  // Measure the index itself rather than the result cache
+
+  double start = 0;
+  for (auto _ : state)
+  {
+    start = start + 13.7 > route_length ? 0 : start + 13.7;
+    benchmark::DoNotOptimize(cmw->getLaneletsBetween(start, start + 100.0));
+  }
+  state.counters["route_km"] = route_length / 1000.0;
+}
+
+// 2000 lanelets per lane corresponds to a 50km route
+BENCHMARK(BM_RouteTrackPos)->Arg(40)->Arg(400)->Arg(2000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_ProjectedGetLaneletsBetween)->Arg(40)->Arg(400)->Arg(2000)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_IndexedGetLaneletsBetween)->Arg(40)->Arg(400)->Arg(2000)->Unit(benchmark::kMicrosecond);
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <filesystem>
+#include <fstream>
+#include <unistd.h>
+#include <autoware_lanelet2_ros2_interface/utility/message_conversion.hpp>
+#include <carma_wm/RoutingGraphCache.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+#include <../src/WMListenerWorker.hpp>
+
+namespace carma_wm
+{
+namespace
+{
+std::string makeCacheDirectory(const std::string& name)
+{
+  auto dir = std::filesystem::temp_directory_path() / (name + "_" + std::to_string(::getpid()));
+  std::filesystem::remove_all(dir);
+  return dir.string();
+}
+
+lanelet::Id optionalId(const lanelet::Optional<lanelet::ConstLanelet>& llt)
+{
+  return llt ? llt.get().id() : lanelet::InvalId;
+}
+
+}  // namespace
+
+TEST(RoutingGraphCacheTest, storeAndLoad)
+{
+  auto cmw = test::getGuidanceTestMap();
+  auto graph = cmw->getMapRoutingGraph();
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  lanelet::utils::conversion::toBinMsg(cmw->getMutableMap(), &msg);
+
+  auto dir = makeCacheDirectory("routing_graph_cache_store");
+  RoutingGraphCache cache(dir);
+
+  uint64_t key = RoutingGraphCache::computeKey(msg, cmw->getVehicleParticipationType(), 0.0);
+  EXPECT_EQ(key, RoutingGraphCache::computeKey(msg, cmw->getVehicleParticipationType(), 0.0));
+  EXPECT_NE(key, RoutingGraphCache::computeKey(msg, lanelet::Participants::Pedestrian, 0.0));
+  EXPECT_NE(key, RoutingGraphCache::computeKey(msg, cmw->getVehicleParticipationType(), 20.0));
+
+  lanelet::LaneletMapPtr map(new lanelet::LaneletMap);
+  lanelet::utils::conversion::fromBinMsg(msg, map);
+
+  ASSERT_EQ(nullptr, cache.load(key, map));
+  ASSERT_TRUE(cache.store(key, *graph, 10.0));
+  ASSERT_TRUE(std::filesystem::exists(cache.getPath(key)));
+
+  auto loaded = cache.load(key, map);
+  ASSERT_NE(nullptr, loaded);
+  ASSERT_EQ(graph->passableSubmap()->laneletLayer.size(), loaded->passableSubmap()->laneletLayer.size());
+
+  for (const auto& llt : map->laneletLayer)
+  {
+    EXPECT_EQ(graph->following(llt).size(), loaded->following(llt).size()) << "Lanelet: " << llt.id();
+    EXPECT_EQ(graph->previous(llt).size(), loaded->previous(llt).size()) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(graph->left(llt)), optionalId(loaded->left(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(graph->right(llt)), optionalId(loaded->right(llt))) << "Lanelet: " << llt.id();
+  }
+
+  // The loaded graph references the primitives of the provided map
+  EXPECT_EQ(map->laneletLayer.get(1200).constData(), loaded->passableSubmap()->laneletLayer.get(1200).constData());
+
+  auto stats = cache.getStats();
+  EXPECT_EQ(1u, stats.hits);
+  EXPECT_EQ(1u, stats.misses);
+  EXPECT_EQ(1u, stats.stores);
+  EXPECT_LT(0.0, stats.last_time_saved);
+  EXPECT_DOUBLE_EQ(stats.last_time_saved, stats.time_saved);
+
+  std::filesystem::remove_all(dir);
+}
+
+TEST(RoutingGraphCacheTest, invalidFilesAreMisses)
+{
+  auto cmw = test::getGuidanceTestMap();
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  lanelet::utils::conversion::toBinMsg(cmw->getMutableMap(), &msg);
+
+  auto dir = makeCacheDirectory("routing_graph_cache_invalid");
+  RoutingGraphCache cache(dir);
+
+  uint64_t key = RoutingGraphCache::computeKey(msg, cmw->getVehicleParticipationType(), 0.0);
+  ASSERT_TRUE(cache.store(key, *cmw->getMapRoutingGraph(), 1.0));
+
+  // A map without the cached primitives
+  lanelet::LaneletMapPtr empty_map(new lanelet::LaneletMap);
+  ASSERT_EQ(nullptr, cache.load(key, empty_map));
+
+  // Truncated file
+  auto size = std::filesystem::file_size(cache.getPath(key));
+  std::filesystem::resize_file(cache.getPath(key), size - 1);
+  ASSERT_EQ(nullptr, cache.load(key, cmw->getMutableMap()));
+
+  // File stored for another key
+  ASSERT_TRUE(cache.store(key, *cmw->getMapRoutingGraph(), 1.0));
+  std::filesystem::copy_file(cache.getPath(key), cache.getPath(key + 1));
+  ASSERT_EQ(nullptr, cache.load(key + 1, cmw->getMutableMap()));
+
+  ASSERT_NE(nullptr, cache.load(key, cmw->getMutableMap()));
+
+  // Corrupt routing cost id and relation of the last edge, which are the last 8 bytes of the file
+  {
+    std::fstream file(cache.getPath(key), std::ios::binary | std::ios::in | std::ios::out);
+    file.seekp(-8, std::ios::end);
+    const uint32_t corrupt[2] = { 0xFFFFFFFF, 0xFFFFFFFF };
+    file.write(reinterpret_cast<const char*>(corrupt), sizeof(corrupt));
+  }
+  ASSERT_EQ(nullptr, cache.load(key, cmw->getMutableMap()));
+
+  // Duplicate vertex id. The first two vertex records directly follow the 48 byte header and start with their id
+  ASSERT_TRUE(cache.store(key, *cmw->getMapRoutingGraph(), 1.0));
+  {
+    std::fstream file(cache.getPath(key), std::ios::binary | std::ios::in | std::ios::out);
+    int64_t first_id;
+    file.seekg(48);
+    file.read(reinterpret_cast<char*>(&first_id), sizeof(first_id));
+    file.seekp(64);
+    file.write(reinterpret_cast<const char*>(&first_id), sizeof(first_id));
+  }
+  ASSERT_EQ(nullptr, cache.load(key, cmw->getMutableMap()));
+
+  auto stats = cache.getStats();
+  EXPECT_EQ(1u, stats.hits);
+  EXPECT_EQ(5u, stats.misses);
+
+  std::filesystem::remove_all(dir);
+}
+
+TEST(RoutingGraphCacheTest, mapCallbackUsesCache)
+{
+  auto cmw = test::getGuidanceTestMap();
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  lanelet::utils::conversion::toBinMsg(cmw->getMutableMap(), &msg);
+  msg.map_version = 1;
+
+  auto dir = makeCacheDirectory("routing_graph_cache_listener");
+
+  // The first node to receive the map populates the cache
+  WMListenerWorker first_worker;
+  first_worker.setRoutingGraphCacheDirectory(dir);
+  first_worker.mapCallback(std::make_shared<autoware_lanelet2_msgs::msg::MapBin>(msg));
+
+  uint64_t key = RoutingGraphCache::computeKey(msg, first_worker.getVehicleParticipationType(),
+                                               first_worker.getConfigSpeedLimit());
+  ASSERT_TRUE(std::filesystem::exists(RoutingGraphCache(dir).getPath(key)));
+
+  // Later nodes load it
+  WMListenerWorker second_worker;
+  second_worker.setRoutingGraphCacheDirectory(dir);
+  second_worker.mapCallback(std::make_shared<autoware_lanelet2_msgs::msg::MapBin>(msg));
+
+  auto wm = second_worker.getWorldModel();
+  ASSERT_TRUE((bool)wm->getMap());
+  ASSERT_TRUE((bool)wm->getMapRoutingGraph());
+  EXPECT_EQ(1u, wm->getMapVersion());
+
+  auto llt = wm->getMap()->laneletLayer.get(1200);
+  ASSERT_EQ(1u, wm->getMapRoutingGraph()->following(llt).size());
+  EXPECT_EQ(1201, wm->getMapRoutingGraph()->following(llt).front().id());
+  EXPECT_EQ(wm->getMap()->laneletLayer.get(1201).constData(),
+            wm->getMapRoutingGraph()->following(llt).front().constData());
+
+  std::filesystem::remove_all(dir);
+}
+
+}  // namespace carma_wm
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <carma_wm/RoutingGraphUpdater.hpp>
+#include <carma_wm/MapConformer.hpp>
+#include <lanelet2_io/Io.h>
+#include <lanelet2_extension/projection/local_frame_projector.h>
+#include <lanelet2_extension/io/autoware_osm_parser.h>
+
+/**
+ * Compares patching the routing graph for a map update touching a varying number of lanelets against rebuilding the
+ * routing graph for the whole map. The maps in the testing_maps directory are used as input.
+ */
+namespace
+{
+using namespace lanelet::units::literals;
+
+lanelet::LaneletMapPtr loadTestingMap(const std::string& file_name)
+{
+  std::string file = std::string(TESTING_MAPS_DIR) + "/" + file_name;
+
+  int projector_type = 0;
+  std::string target_frame;
+  lanelet::ErrorMessages load_errors;
+  lanelet::io_handlers::AutowareOsmParser::parseMapParams(file, &projector_type, &target_frame);
+  lanelet::projection::LocalFrameProjector local_projector(target_frame.c_str());
+
+  lanelet::LaneletMapPtr map = lanelet::load(file, local_projector, &load_errors);
+  lanelet::MapConformer::ensureCompliance(map, 80_mph);
+
+  return map;
+}
+
+/**
+ * Replaces the speed limit of the first num_changed lanelets in the map as a geofence would and returns their ids
+ */
+std::unordered_set<lanelet::Id> applySpeedLimitUpdate(const lanelet::LaneletMapPtr& map, size_t num_changed)
+{
+  std::unordered_set<lanelet::Id> changed_ids;
+  for (auto llt : map->laneletLayer)
+  {
+    if (changed_ids.size() >= num_changed)
+      break;
+
+    for (auto regem : llt.regulatoryElementsAs<lanelet::DigitalSpeedLimit>())
+    {
+      map->remove(llt, regem);
+    }
+    lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(
+        lanelet::DigitalSpeedLimit::buildData(lanelet::utils::getId(), 25_mph, { llt }, {}, { lanelet::Participants::Vehicle }));
+    map->update(llt, speed_limit);
+    changed_ids.emplace(llt.id());
+  }
+  return changed_ids;
+}
+
+lanelet::traffic_rules::TrafficRulesPtr getTrafficRules()
+{
+  return lanelet::traffic_rules::TrafficRulesFactory::create(lanelet::traffic_rules::CarmaUSTrafficRules::Location,
+                                                             lanelet::Participants::Vehicle);
+}
+
+}  // namespace
+
+static void BM_FullRoutingGraphBuild(benchmark::State& state)
+{
+  auto map = loadTestingMap("Town04.osm");
+  auto traffic_rules = getTrafficRules();
+  applySpeedLimitUpdate(map, state.range(0));
+
+  for (auto _ : state)
+  {
+    benchmark::DoNotOptimize(lanelet::routing::RoutingGraph::build(*map, *traffic_rules));
+  }
+  state.counters["lanelets"] = map->laneletLayer.size();
+}
+
+static void BM_IncrementalRoutingGraphUpdate(benchmark::State& state)
+{
+  auto map = loadTestingMap("Town04.osm");
+  auto traffic_rules = getTrafficRules();
+  auto prev_graph = lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+  auto changed_ids = applySpeedLimitUpdate(map, state.range(0));
+
+  for (auto _ : state)
+  {
+    benchmark::DoNotOptimize(carma_wm::routing_graph::updateRoutingGraph(*prev_graph, map, *traffic_rules, changed_ids));
+  }
+  state.counters["lanelets"] = map->laneletLayer.size();
+}
+
+BENCHMARK(BM_FullRoutingGraphBuild)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_IncrementalRoutingGraphUpdate)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <algorithm>
+#include <carma_wm/RoutingGraphUpdater.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+#include <lanelet2_extension/regulatory_elements/RegionAccessRule.h>
+
+namespace carma_wm
+{
+namespace
+{
+std::vector<lanelet::Id> sortedIds(const lanelet::ConstLanelets& lanelets)
+{
+  std::vector<lanelet::Id> ids;
+  for (const auto& llt : lanelets)
+  {
+    ids.push_back(llt.id());
+  }
+  std::sort(ids.begin(), ids.end());
+  return ids;
+}
+
+lanelet::Id optionalId(const lanelet::Optional<lanelet::ConstLanelet>& llt)
+{
+  return llt ? llt.get().id() : lanelet::InvalId;
+}
+
+void expectEquivalentGraphs(const lanelet::routing::RoutingGraph& expected, const lanelet::routing::RoutingGraph& actual,
+                            const lanelet::LaneletMapPtr& map)
+{
+  ASSERT_EQ(expected.passableSubmap()->laneletLayer.size(), actual.passableSubmap()->laneletLayer.size());
+
+  for (const auto& llt : map->laneletLayer)
+  {
+    EXPECT_EQ(sortedIds(expected.following(llt)), sortedIds(actual.following(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(sortedIds(expected.previous(llt)), sortedIds(actual.previous(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(expected.left(llt)), optionalId(actual.left(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(expected.right(llt)), optionalId(actual.right(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(expected.adjacentLeft(llt)), optionalId(actual.adjacentLeft(llt))) << "Lanelet: " << llt.id();
+    EXPECT_EQ(optionalId(expected.adjacentRight(llt)), optionalId(actual.adjacentRight(llt))) << "Lanelet: " << llt.id();
+  }
+}
+
+}  // namespace
+
+TEST(RoutingGraphUpdaterTest, getAffectedLaneletOrAreaIds)
+{
+  auto map = test::buildGuidanceTestMap(3.7, 25);
+
+  lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(
+      lanelet::DigitalSpeedLimit::buildData(lanelet::utils::getId(), 5_mph, {}, {}, { lanelet::Participants::Vehicle }));
+
+  carma_wm::TrafficControl gf;
+  gf.update_list_.push_back(std::make_pair(1210, speed_limit));
+  gf.remove_list_.push_back(std::make_pair(1211, speed_limit));
+  gf.lanelet_additions_.push_back(map->laneletLayer.get(1212));
+
+  auto ids = routing_graph::getAffectedLaneletOrAreaIds(gf);
+
+  ASSERT_EQ(3u, ids.size());
+  EXPECT_EQ(1u, ids.count(1210));
+  EXPECT_EQ(1u, ids.count(1211));
+  EXPECT_EQ(1u, ids.count(1212));
+}
+
+TEST(RoutingGraphUpdaterTest, updateRoutingGraphMatchesFullBuild)
+{
+  auto cmw = test::getGuidanceTestMap();
+  auto map = cmw->getMutableMap();
+  auto traffic_rules = *cmw->getTrafficRules();
+
+  auto prev_graph = lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+
+  // Close the middle lane to vehicles which removes its vertex and all of its lane change edges
+  lanelet::RegionAccessRulePtr closed = std::make_shared<lanelet::RegionAccessRule>(lanelet::RegionAccessRule::buildData(
+      lanelet::utils::getId(), { map->laneletLayer.get(1211) }, {}, { lanelet::Participants::VehicleEmergency }));
+
+  auto llt = map->laneletLayer.get(1211);
+  for (auto regem : llt.regulatoryElementsAs<lanelet::RegionAccessRule>())
+  {
+    map->remove(llt, regem);
+  }
+  map->update(llt, closed);
+
+  auto patched_graph = routing_graph::updateRoutingGraph(*prev_graph, map, *traffic_rules, { 1211 });
+  auto full_graph = lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+
+  ASSERT_FALSE(patched_graph->passableSubmap()->laneletLayer.exists(1211));
+  expectEquivalentGraphs(*full_graph, *patched_graph, map);
+
+  // Reopen the lane and ensure the patched graph matches the original again
+  map->remove(llt, closed);
+  lanelet::RegionAccessRulePtr open = std::make_shared<lanelet::RegionAccessRule>(lanelet::RegionAccessRule::buildData(
+      lanelet::utils::getId(), { llt }, {}, { lanelet::Participants::Vehicle }));
+  map->update(llt, open);
+
+  auto reopened_graph = routing_graph::updateRoutingGraph(*patched_graph, map, *traffic_rules, { 1211 });
+
+  ASSERT_TRUE(reopened_graph->passableSubmap()->laneletLayer.exists(1211));
+  expectEquivalentGraphs(*prev_graph, *reopened_graph, map);
+}
+
+TEST(RoutingGraphUpdaterTest, updateRoutingGraphWithNewLanelet)
+{
+  auto cmw = test::getGuidanceTestMap();
+  auto map = cmw->getMutableMap();
+  auto traffic_rules = *cmw->getTrafficRules();
+
+  auto prev_graph = lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+
+  // Extend the right lane past the end of the map by reusing the end points of lanelet 1203
+  auto end_llt = map->laneletLayer.get(1203);
+  auto left_start = end_llt.leftBound().back();
+  auto right_start = end_llt.rightBound().back();
+
+  lanelet::LineString3d left(lanelet::utils::getId(), { left_start, test::getPoint(left_start.x(), left_start.y() + 25, 0) });
+  lanelet::LineString3d right(lanelet::utils::getId(), { right_start, test::getPoint(right_start.x(), right_start.y() + 25, 0) });
+  auto new_llt = test::getLanelet(1204, left, right, lanelet::AttributeValueString::Solid, lanelet::AttributeValueString::Dashed);
+  map->add(new_llt);
+  lanelet::MapConformer::ensureCompliance(map, 0_mph);
+
+  auto patched_graph = routing_graph::updateRoutingGraph(*prev_graph, map, *traffic_rules, { 1204 });
+  auto full_graph = lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+
+  ASSERT_TRUE(patched_graph->passableSubmap()->laneletLayer.exists(1204));
+  ASSERT_EQ(1u, patched_graph->following(end_llt).size());
+  EXPECT_EQ(1204, patched_graph->following(end_llt).front().id());
+  expectEquivalentGraphs(*full_graph, *patched_graph, map);
+}
+
+TEST(RoutingGraphUpdaterTest, updateRoutingGraphInWorldModel)
+{
+  auto cmw = test::getGuidanceTestMap();
+  auto prev_graph = cmw->getMapRoutingGraph();
+
+  cmw->updateRoutingGraph({});
+
+  ASSERT_NE(prev_graph, cmw->getMapRoutingGraph());
+  expectEquivalentGraphs(*prev_graph, *cmw->getMapRoutingGraph(), cmw->getMutableMap());
+}
+
+}  // namespace carma_wm
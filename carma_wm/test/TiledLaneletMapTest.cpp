@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <algorithm>
+#include <carma_wm/TiledLaneletMap.hpp>
+#include <carma_wm/CARMAWorldModel.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+
+namespace carma_wm
+{
+TEST(TiledLaneletMapTest, loadAndEvict)
+{
+  // 3 lanes of 20 lanelets running north from y = 0. Tiles of 250 m hold 2 or 3 rows of lanelets
+  auto synthetic = test::buildSyntheticHighwayMap(2000, 3, 100);
+  const auto& lane = synthetic.lanes[0];
+
+  TiledLaneletMap tiled(250, 100, 300);
+  tiled.setMap(synthetic.map);
+
+  auto stats = tiled.getStats();
+  EXPECT_EQ(8u, stats.total_tiles);
+  EXPECT_EQ(0u, stats.active_tiles);
+  EXPECT_EQ(0u, tiled.getActiveMap()->laneletLayer.size());
+
+  // The first tile holds the lanelets from y = 0 to 200
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 1.85, 10 } }, {}));
+  EXPECT_FALSE(tiled.updateActiveTiles({ { 1.85, 10 } }, {}));
+  EXPECT_EQ(6u, tiled.getActiveMap()->laneletLayer.size());
+  EXPECT_TRUE(tiled.isLoaded(lane[1]));
+  EXPECT_FALSE(tiled.isLoaded(lane[2]));
+  auto first_map = tiled.getActiveMap();
+
+  // Loading the second tile connects the lanes across the tile edge at y = 200
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 1.85, 150 } }, {}));
+  auto active_map = tiled.getActiveMap();
+  EXPECT_EQ(15u, active_map->laneletLayer.size());
+
+  // Only the new tile is loaded. The lanelets of the first tile are carried over
+  EXPECT_EQ(1u, tiled.getLoadedTiles().size());
+  EXPECT_EQ(first_map->laneletLayer.get(lane[1]).constData(), active_map->laneletLayer.get(lane[1]).constData());
+
+  auto before_edge = active_map->laneletLayer.get(lane[1]);
+  auto after_edge = active_map->laneletLayer.get(lane[2]);
+  EXPECT_EQ(before_edge.leftBound().back(), after_edge.leftBound().front());
+
+  CARMAWorldModel cmw;
+  cmw.setMap(active_map);
+  auto following = cmw.getMapRoutingGraph()->following(before_edge);
+  ASSERT_EQ(1u, following.size());
+  EXPECT_EQ(lane[2], following[0].id());
+
+  stats = tiled.getStats();
+  EXPECT_EQ(2u, stats.active_tiles);
+  EXPECT_EQ(2u, stats.loads);
+  EXPECT_EQ(0u, stats.evictions);
+
+  // Moving away evicts both tiles
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 1.85, 1000 } }, {}));
+  EXPECT_FALSE(tiled.isLoaded(lane[1]));
+  EXPECT_TRUE(tiled.isLoaded(lane[9]));
+
+  stats = tiled.getStats();
+  EXPECT_EQ(2u, stats.active_tiles);
+  EXPECT_EQ(4u, stats.loads);
+  EXPECT_EQ(2u, stats.evictions);
+
+  // The tile from y = 700 to 1000 is beyond the load radius but kept as it is within the eviction radius
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 1.85, 1250 } }, {}));
+  EXPECT_TRUE(tiled.isLoaded(lane[9]));
+
+  stats = tiled.getStats();
+  EXPECT_EQ(3u, stats.active_tiles);
+  EXPECT_EQ(5u, stats.loads);
+  EXPECT_EQ(2u, stats.evictions);
+
+  // Tiles of the lanelets of interest are loaded regardless of distance
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 1.85, 1250 } }, { lane[0], lanelet::InvalId }));
+  EXPECT_TRUE(tiled.isLoaded(lane[0]));
+  EXPECT_EQ(4u, tiled.getStats().active_tiles);
+
+  // Previously returned maps keep their lanelets and the full map is left as is
+  EXPECT_EQ(15u, active_map->laneletLayer.size());
+  EXPECT_EQ(60u, synthetic.map->laneletLayer.size());
+
+  // Setting a new map resets the tiles
+  tiled.setMap(synthetic.map);
+  stats = tiled.getStats();
+  EXPECT_EQ(0u, stats.active_tiles);
+  EXPECT_EQ(0u, stats.loads);
+  EXPECT_EQ(0u, tiled.getActiveMap()->laneletLayer.size());
+}
+
+TEST(TiledLaneletMapTest, allTilesMatchFullMap)
+{
+  auto synthetic = test::buildSyntheticGridMap(3, 3, 100);
+
+  TiledLaneletMap tiled(120, 1000, 1000);
+  tiled.setMap(synthetic.map);
+  ASSERT_LT(1u, tiled.getStats().total_tiles);
+
+  ASSERT_TRUE(tiled.updateActiveTiles({ { 100, 100 } }, {}));
+  auto active_map = tiled.getActiveMap();
+
+  EXPECT_EQ(synthetic.map->laneletLayer.size(), active_map->laneletLayer.size());
+  EXPECT_EQ(synthetic.map->regulatoryElementLayer.size(), active_map->regulatoryElementLayer.size());
+
+  // Shared primitives are merged so the routing graph is the same as for the full map
+  CARMAWorldModel full_cmw;
+  full_cmw.setMap(synthetic.map);
+  CARMAWorldModel tiled_cmw;
+  tiled_cmw.setMap(active_map);
+
+  for (const auto& llt : synthetic.map->laneletLayer)
+  {
+    auto expected = full_cmw.getMapRoutingGraph()->following(llt);
+    auto actual = tiled_cmw.getMapRoutingGraph()->following(active_map->laneletLayer.get(llt.id()));
+
+    std::vector<lanelet::Id> expected_ids, actual_ids;
+    std::transform(expected.begin(), expected.end(), std::back_inserter(expected_ids), [](const auto& l) { return l.id(); });
+    std::transform(actual.begin(), actual.end(), std::back_inserter(actual_ids), [](const auto& l) { return l.id(); });
+    std::sort(expected_ids.begin(), expected_ids.end());
+    std::sort(actual_ids.begin(), actual_ids.end());
+
+    EXPECT_EQ(expected_ids, actual_ids) << "Lanelet: " << llt.id();
+  }
+}
+
+TEST(TiledLaneletMapTest, invalidParameters)
+{
+  ASSERT_THROW(TiledLaneletMap(0, 100, 100), std::invalid_argument);
+  ASSERT_THROW(TiledLaneletMap(100, 0, 100), std::invalid_argument);
+  ASSERT_THROW(TiledLaneletMap(100, 200, 100), std::invalid_argument);
+}
+
+}  // namespace carma_wm
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <carma_wm/TrafficControl.hpp>
+#include <sstream>
+
+/**
+ * Compares a full toBinMsg/fromBinMsg round trip of a work zone sized TrafficControl against the previous
+ * stringstream based codec. The bytes_copied counter reports the payload bytes copied into intermediate buffers
+ * per round trip, not counting the archive writes themselves.
+ */
+namespace
+{
+using namespace lanelet::units::literals;
+
+/**
+ * Builds a TrafficControl which adds num_lanelets 25m lanelets sampled every meter, each with a new speed limit
+ */
+std::shared_ptr<carma_wm::TrafficControl> buildWorkZoneControl(size_t num_lanelets)
+{
+  std::vector<std::pair<lanelet::Id, lanelet::RegulatoryElementPtr>> update_list;
+  std::vector<lanelet::Lanelet> lanelet_additions;
+
+  for (size_t i = 0; i < num_lanelets; i++)
+  {
+    lanelet::LineString3d left(lanelet::utils::getId());
+    lanelet::LineString3d right(lanelet::utils::getId());
+    for (size_t j = 0; j <= 25; j++)
+    {
+      double y = static_cast<double>(i * 25 + j);
+      left.push_back(lanelet::Point3d(lanelet::utils::getId(), 0.0, y, 0.0));
+      right.push_back(lanelet::Point3d(lanelet::utils::getId(), 3.7, y, 0.0));
+    }
+    lanelet::Lanelet llt(lanelet::utils::getId(), left, right);
+
+    lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(
+        lanelet::DigitalSpeedLimit::buildData(lanelet::utils::getId(), 25_mph, { llt }, {}, { lanelet::Participants::VehicleCar }));
+
+    update_list.emplace_back(llt.id(), speed_limit);
+    lanelet_additions.push_back(llt);
+  }
+
+  return std::make_shared<carma_wm::TrafficControl>(
+      carma_wm::TrafficControl(boost::uuids::random_generator()(), update_list, {}, lanelet_additions));
+}
+
+/**
+ * The codec used before the data field was streamed into directly
+ */
+void stringStreamToBinMsg(std::shared_ptr<carma_wm::TrafficControl> gf_ptr, autoware_lanelet2_msgs::msg::MapBin* msg)
+{
+  std::stringstream ss;
+  boost::archive::binary_oarchive oa(ss);
+  oa << *gf_ptr;
+  std::string data_str(ss.str());
+
+  msg->data.clear();
+  msg->data.assign(data_str.begin(), data_str.end());
+}
+
+void stringStreamFromBinMsg(const autoware_lanelet2_msgs::msg::MapBin& msg, std::shared_ptr<carma_wm::TrafficControl> gf_ptr)
+{
+  std::string data_str;
+  data_str.assign(msg.data.begin(), msg.data.end());
+
+  std::stringstream ss;
+  ss << data_str;
+  boost::archive::binary_iarchive oa(ss);
+
+  oa >> *gf_ptr;
+}
+
+}  // namespace
+
+static void BM_StringStreamRoundTrip(benchmark::State& state)
+{
+  auto send_data = buildWorkZoneControl(state.range(0));
+  autoware_lanelet2_msgs::msg::MapBin msg;
+
+  for (auto _ : state)
+  {
+    stringStreamToBinMsg(send_data, &msg);
+    auto data_received = std::make_shared<carma_wm::TrafficControl>();
+    stringStreamFromBinMsg(msg, data_received);
+    benchmark::DoNotOptimize(data_received);
+  }
+
+  // ss.str() and assign on send then assign and operator<< on receive
+  state.counters["payload_bytes"] = msg.data.size();
+  state.counters["bytes_copied"] = 4 * msg.data.size();
+  state.SetBytesProcessed(state.iterations() * msg.data.size());
+}
+
+static void BM_DirectRoundTrip(benchmark::State& state)
+{
+  auto send_data = buildWorkZoneControl(state.range(0));
+  autoware_lanelet2_msgs::msg::MapBin msg;
+
+  for (auto _ : state)
+  {
+    carma_wm::toBinMsg(send_data, &msg);
+    auto data_received = std::make_shared<carma_wm::TrafficControl>();
+    carma_wm::fromBinMsg(msg, data_received);
+    benchmark::DoNotOptimize(data_received);
+  }
+
+  state.counters["payload_bytes"] = msg.data.size();
+  state.counters["bytes_copied"] = 0;
+  state.SetBytesProcessed(state.iterations() * msg.data.size());
+}
+
+BENCHMARK(BM_StringStreamRoundTrip)->Arg(1)->Arg(50)->Arg(500)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_DirectRoundTrip)->Arg(1)->Arg(50)->Arg(500)->Unit(benchmark::kMicrosecond);
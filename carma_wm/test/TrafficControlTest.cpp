@@ -88,4 +88,105 @@ TEST(TrafficControl, TrafficControlBinMsgTest)
 
 }
 
+TEST(TrafficControl, TrafficControlBinMsgFormatVersion)
+{
+  using namespace lanelet::units::literals;
+  auto p1 = getPoint(0, 0, 0);
+  auto p2 = getPoint(0, 1, 0);
+  auto p3 = getPoint(1, 1, 0);
+  auto p4 = getPoint(1, 0, 0);
+
+  lanelet::LineString3d left_ls_1(lanelet::utils::getId(), { p1, p2 });
+  lanelet::LineString3d right_ls_1(lanelet::utils::getId(), { p4, p3 });
+
+  auto ll_1 = getLanelet(left_ls_1, right_ls_1, lanelet::AttributeValueString::SolidSolid,
+                         lanelet::AttributeValueString::Dashed);
+
+  lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9002, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+
+  auto send_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(), {std::make_pair(ll_1.id(), speed_limit)}, {}, {ll_1}));
+
+  autoware_lanelet2_msgs::msg::MapBin gf_obj_msg;
+  carma_wm::toBinMsg(send_data, &gf_obj_msg);
+  ASSERT_EQ(gf_obj_msg.format_version, carma_wm::TRAFFIC_CONTROL_BIN_FORMAT_VERSION);
+  ASSERT_FALSE(gf_obj_msg.data.empty());
+
+  // Converting into the same message again replaces its data and reuses its buffer
+  auto data_size = gf_obj_msg.data.size();
+  auto data_ptr = gf_obj_msg.data.data();
+  carma_wm::toBinMsg(send_data, &gf_obj_msg);
+  ASSERT_EQ(data_size, gf_obj_msg.data.size());
+  ASSERT_EQ(data_ptr, gf_obj_msg.data.data());
+
+  auto data_received = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
+  carma_wm::fromBinMsg(gf_obj_msg, data_received);
+  ASSERT_EQ(data_received->id_, send_data->id_);
+  ASSERT_EQ(data_received->update_list_.size(), 1);
+  ASSERT_EQ(data_received->lanelet_additions_.size(), 1);
+
+  // Messages without a format version are read as the current version
+  gf_obj_msg.format_version = "";
+  data_received = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
+  carma_wm::fromBinMsg(gf_obj_msg, data_received);
+  ASSERT_EQ(data_received->id_, send_data->id_);
+
+  // Messages with an unknown format version are not read
+  gf_obj_msg.format_version = "unknown";
+  data_received = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
+  ASSERT_THROW(carma_wm::fromBinMsg(gf_obj_msg, data_received), std::invalid_argument);
+  ASSERT_TRUE(data_received->update_list_.empty());
+  ASSERT_TRUE(data_received->lanelet_additions_.empty());
+}
+
+TEST(TrafficControl, mergeTrafficControls)
+{
+  using namespace lanelet::units::literals;
+  auto ll_1 = getLanelet({ getPoint(0, 0, 0), getPoint(0, 1, 0) }, { getPoint(1, 0, 0), getPoint(1, 1, 0) });
+  auto ll_2 = getLanelet({ getPoint(0, 1, 0), getPoint(0, 2, 0) }, { getPoint(1, 1, 0), getPoint(1, 2, 0) });
+
+  lanelet::DigitalSpeedLimitPtr speed_limit_old = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9010, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  lanelet::DigitalSpeedLimitPtr speed_limit_a = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9011, 10_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  lanelet::DigitalSpeedLimitPtr speed_limit_b = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9012, 15_mph, {ll_2}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+
+  // Geofence a replaces the old speed limit
+  auto activate_a = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(),
+      { std::make_pair(ll_1.id(), speed_limit_a) }, { std::make_pair(ll_1.id(), speed_limit_old) }, {}));
+  // Geofence b adds a lanelet with its own speed limit
+  auto activate_b = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(),
+      { std::make_pair(ll_2.id(), speed_limit_b) }, {}, { ll_2 }));
+  activate_b->traffic_light_id_lookup_.push_back(std::make_pair(1, ll_2.id()));
+  // Geofence a ends and the old speed limit is restored
+  auto deactivate_a = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(activate_a->id_,
+      { std::make_pair(ll_1.id(), speed_limit_old) }, { std::make_pair(ll_1.id(), speed_limit_a) }, {}));
+
+  auto merged = carma_wm::mergeTrafficControls({ activate_a, activate_b, deactivate_a });
+
+  ASSERT_EQ(merged->id_, deactivate_a->id_);
+  ASSERT_EQ(1u, merged->remove_list_.size());
+  ASSERT_EQ(speed_limit_a->id(), merged->remove_list_[0].second->id());
+  ASSERT_EQ(2u, merged->update_list_.size());
+  ASSERT_EQ(speed_limit_b->id(), merged->update_list_[0].second->id());
+  ASSERT_EQ(speed_limit_old->id(), merged->update_list_[1].second->id());
+  ASSERT_EQ(1u, merged->lanelet_additions_.size());
+  ASSERT_EQ(1u, merged->traffic_light_id_lookup_.size());
+
+  // The merged update can be sent as a single message
+  autoware_lanelet2_msgs::msg::MapBin gf_obj_msg;
+  carma_wm::toBinMsg(merged, &gf_obj_msg);
+  auto data_received = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
+  carma_wm::fromBinMsg(gf_obj_msg, data_received);
+  ASSERT_EQ(1u, data_received->remove_list_.size());
+  ASSERT_EQ(2u, data_received->update_list_.size());
+
+  // A single update is unchanged and no updates give an empty update
+  merged = carma_wm::mergeTrafficControls({ activate_a });
+  ASSERT_EQ(1u, merged->remove_list_.size());
+  ASSERT_EQ(1u, merged->update_list_.size());
+  ASSERT_TRUE(carma_wm::mergeTrafficControls({})->update_list_.empty());
+}
+
 }  // namespace carma_wm_ctrl
\ No newline at end of file
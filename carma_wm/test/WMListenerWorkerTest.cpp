@@ -26,6 +26,7 @@
 #include <sstream>
 #include <string>
 #include "TestHelpers.hpp"
+#include <carma_wm/WMTestLibForGuidance.hpp>
 #include <carma_wm/MapConformer.hpp>
 #include <lanelet2_io/Io.h>
 #include <lanelet2_io/io_handlers/Factory.h>
@@ -134,6 +135,119 @@ TEST(WMListenerWorkerTest, routeCallback)
   
 }
 
+TEST(WMListenerWorkerTest, tiledMap)
+{
+  // 3 lanes of 20 lanelets running north from y = 0. Tiles of 250 m hold 2 or 3 rows of lanelets
+  auto synthetic = test::buildSyntheticHighwayMap(2000, 3, 100);
+  const auto& lane = synthetic.lanes[0];
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  lanelet::utils::conversion::toBinMsg(synthetic.map, &msg);
+
+  WMListenerWorker wmlw;
+  wmlw.enableTiledMap(250, 100, 300);
+
+  size_t map_callbacks = 0;
+  wmlw.setMapCallback([&map_callbacks]() { map_callbacks++; });
+
+  // No tiles are loaded until the vehicle position is known
+  wmlw.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(msg));
+  ASSERT_TRUE((bool)wmlw.getWorldModel()->getMap());
+  EXPECT_EQ(0u, wmlw.getWorldModel()->getMap()->laneletLayer.size());
+  EXPECT_EQ(8u, wmlw.getTiledMapStats().total_tiles);
+
+  wmlw.updateTiledMapPosition({ 1.85, 10 });
+  EXPECT_EQ(6u, wmlw.getWorldModel()->getMap()->laneletLayer.size());
+  EXPECT_EQ(1u, wmlw.getTiledMapStats().loads);
+  EXPECT_EQ(2u, map_callbacks);
+
+  // Positions which do not change the loaded tiles do not replace the map
+  wmlw.updateTiledMapPosition({ 1.85, 20 });
+  EXPECT_EQ(2u, map_callbacks);
+
+  // The tiles of the whole route are loaded
+  carma_planning_msgs::msg::Route route_msg;
+  route_msg.shortest_path_lanelet_ids = { lane.front(), lane.back() };
+  route_msg.route_path_lanelet_ids = lane;
+  wmlw.routeCallback(std::make_unique<carma_planning_msgs::msg::Route>(route_msg));
+
+  ASSERT_TRUE((bool)wmlw.getWorldModel()->getRoute());
+  EXPECT_EQ(lane.size(), wmlw.getWorldModel()->getRoute()->shortestPath().size());
+  EXPECT_EQ(60u, wmlw.getWorldModel()->getMap()->laneletLayer.size());
+
+  // Tiles on the route are not evicted as the vehicle moves and the route is kept on the new map
+  wmlw.updateTiledMapPosition({ 1.85, 1000 });
+  auto stats = wmlw.getTiledMapStats();
+  EXPECT_EQ(8u, stats.active_tiles);
+  EXPECT_EQ(0u, stats.evictions);
+  ASSERT_TRUE((bool)wmlw.getWorldModel()->getRoute());
+
+  // Tiles are no longer required by the route once a new map is received
+  wmlw.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(msg));
+  EXPECT_EQ(15u, wmlw.getWorldModel()->getMap()->laneletLayer.size());
+  EXPECT_EQ(2u, wmlw.getTiledMapStats().active_tiles);
+}
+
+TEST(WMListenerWorkerTest, tiledMapUpdates)
+{
+  using namespace lanelet::units::literals;
+  auto synthetic = test::buildSyntheticHighwayMap(2000, 3, 100);
+  const auto& lane = synthetic.lanes[0];
+
+  autoware_lanelet2_msgs::msg::MapBin map_msg;
+  lanelet::utils::conversion::toBinMsg(synthetic.map, &map_msg);
+
+  WMListenerWorker wmlw;
+  wmlw.enableTiledMap(250, 100, 300);
+  wmlw.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(map_msg));
+  wmlw.updateTiledMapPosition({ 1.85, 10 });
+
+  // The update changes a lanelet at each end of the lane. Only the first one is loaded
+  auto first = synthetic.map->laneletLayer.get(lane.front());
+  auto last = synthetic.map->laneletLayer.get(lane.back());
+  lanelet::DigitalSpeedLimitPtr first_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9200, 5_mph, { first }, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  lanelet::DigitalSpeedLimitPtr last_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9201, 5_mph, { last }, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  auto update_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(),
+                                                     { std::make_pair(first.id(), first_limit), std::make_pair(last.id(), last_limit) }, {}, {}));
+
+  autoware_lanelet2_msgs::msg::MapBin update_msg;
+  carma_wm::toBinMsg(update_data, &update_msg);
+
+  // The provided routing graph covers the full map so it is not used in the tiled map mode
+  update_msg.has_routing_graph = true;
+  update_msg.routing_graph.participant_type = lanelet::Participants::VehicleCar;
+
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msg));
+
+  auto map = wmlw.getWorldModel()->getMap();
+  ASSERT_TRUE(map->laneletLayer.exists(first.id()));
+  EXPECT_EQ(1u, map->laneletLayer.get(first.id()).regulatoryElements().size());
+  EXPECT_FALSE(map->laneletLayer.exists(last.id()));
+  EXPECT_FALSE(map->regulatoryElementLayer.exists(last_limit->id()));
+
+  // The update is applied to the other lanelet once its tile is loaded
+  wmlw.updateTiledMapPosition({ 1.85, 1990 });
+
+  map = wmlw.getWorldModel()->getMap();
+  EXPECT_FALSE(map->laneletLayer.exists(first.id()));
+  ASSERT_TRUE(map->laneletLayer.exists(last.id()));
+  ASSERT_EQ(1u, map->laneletLayer.get(last.id()).regulatoryElements().size());
+  EXPECT_EQ(last_limit->id(), map->laneletLayer.get(last.id()).regulatoryElements()[0]->id());
+
+  // Tiles which stay loaded keep the applied changes and reloaded tiles get them again exactly once
+  wmlw.updateTiledMapPosition({ 1.85, 1000 });
+  wmlw.updateTiledMapPosition({ 1.85, 10 });
+
+  map = wmlw.getWorldModel()->getMap();
+  ASSERT_TRUE(map->laneletLayer.exists(first.id()));
+  ASSERT_EQ(1u, map->laneletLayer.get(first.id()).regulatoryElements().size());
+  EXPECT_EQ(first_limit->id(), map->laneletLayer.get(first.id()).regulatoryElements()[0]->id());
+  ASSERT_TRUE((bool)wmlw.getWorldModel()->getMapRoutingGraph());
+  EXPECT_EQ(0u, wmlw.getWorldModel()->getMapRoutingGraph()->checkValidity().size());
+}
+
 TEST(WMListenerWorkerTest, mapUpdateCallback)
 {
   // build the geofence msg to test the mapUpdateCallback
@@ -226,7 +340,7 @@ TEST(WMListenerWorkerTest, mapUpdateCallback)
   // test the MapUpdateCallback reverse
   auto gf_rev_msg_ptr =  boost::make_shared<autoware_lanelet2_msgs::msg::MapBin>(gf_reverse_msg);
   gf_obj_msg.seq_id ++;
-  EXPECT_THROW(wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(gf_obj_msg)), lanelet::InvalidInputError); // because we are trying update the exact same llt and regem relationship again
+  EXPECT_NO_THROW(wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(gf_obj_msg))); // updating the exact same llt and regem relationship again fails, so the update is dropped
   wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(gf_reverse_msg));
 
   // check above conditions again on old speed
@@ -245,6 +359,252 @@ TEST(WMListenerWorkerTest, mapUpdateCallback)
   
 }
 
+TEST(WMListenerWorkerTest, mapUpdateCallbackBatchesOutOfOrderUpdates)
+{
+  using namespace lanelet::units::literals;
+  auto p1 = getPoint(0, 0, 0);
+  auto p2 = getPoint(0, 1, 0);
+  auto p3 = getPoint(1, 1, 0);
+  auto p4 = getPoint(1, 0, 0);
+  lanelet::LineString3d left_ls_1(lanelet::utils::getId(), { p1, p2 });
+  lanelet::LineString3d right_ls_1(lanelet::utils::getId(), { p4, p3 });
+
+  auto ll_1 = getLanelet(left_ls_1, right_ls_1, lanelet::AttributeValueString::SolidSolid,
+                         lanelet::AttributeValueString::Dashed);
+
+  WMListenerWorker wmlw;
+  lanelet::LaneletMapPtr map = lanelet::utils::createMap({ ll_1 }, { });
+  autoware_lanelet2_msgs::msg::MapBin map_msg;
+  lanelet::utils::conversion::toBinMsg(map, &map_msg);
+
+  wmlw.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(map_msg));
+
+  size_t map_callback_count = 0;
+  wmlw.setMapCallback([&map_callback_count]() { map_callback_count++; });
+
+  // Each update adds a new speed limit to the lanelet
+  std::vector<autoware_lanelet2_msgs::msg::MapBin> update_msgs;
+  for (long seq = 0; seq < 3; seq++)
+  {
+    lanelet::DigitalSpeedLimitPtr speed_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9100 + seq, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+    auto update_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(), { std::make_pair(ll_1.id(), speed_limit) }, {}, {}));
+
+    autoware_lanelet2_msgs::msg::MapBin update_msg;
+    carma_wm::toBinMsg(update_data, &update_msg);
+    update_msg.seq_id = seq;
+    update_msgs.push_back(update_msg);
+  }
+
+  // Updates after a missing sequence number are buffered
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[2]));
+
+  // An update received early for the next map does not replace the update with the same seq_id for this map
+  autoware_lanelet2_msgs::msg::MapBin next_map_update_msg = update_msgs[1];
+  next_map_update_msg.map_version = map_msg.map_version + 1;
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(next_map_update_msg));
+
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[1]));
+
+  ASSERT_EQ(0u, map_callback_count);
+  ASSERT_EQ(0u, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  // The missing update allows the whole run to be applied as one batch
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[0]));
+
+  ASSERT_EQ(1u, map_callback_count);
+  ASSERT_EQ(3u, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  // Already applied updates are dropped
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[1]));
+
+  ASSERT_EQ(1u, map_callback_count);
+  ASSERT_EQ(3u, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  // An update which cannot be read is dropped once and does not block the updates which follow it
+  autoware_lanelet2_msgs::msg::MapBin malformed_msg = update_msgs[0];
+  malformed_msg.seq_id = 3;
+  malformed_msg.format_version = "unknown";
+
+  autoware_lanelet2_msgs::msg::MapBin following_msg = update_msgs[0];
+  following_msg.seq_id = 4;
+  lanelet::DigitalSpeedLimitPtr following_limit = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9103, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  auto following_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(), { std::make_pair(ll_1.id(), following_limit) }, {}, {}));
+  carma_wm::toBinMsg(following_data, &following_msg);
+
+  EXPECT_NO_THROW(wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(malformed_msg)));
+  EXPECT_NO_THROW(wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(malformed_msg)));
+  ASSERT_EQ(3u, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  EXPECT_NO_THROW(wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(following_msg)));
+  ASSERT_EQ(4u, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+}
+
+TEST(WMListenerWorkerTest, mapSnapshotCatchUp)
+{
+  using namespace lanelet::units::literals;
+  auto p1 = getPoint(0, 0, 0);
+  auto p2 = getPoint(0, 1, 0);
+  auto p3 = getPoint(1, 1, 0);
+  auto p4 = getPoint(1, 0, 0);
+  lanelet::LineString3d left_ls_1(lanelet::utils::getId(), { p1, p2 });
+  lanelet::LineString3d right_ls_1(lanelet::utils::getId(), { p4, p3 });
+
+  auto ll_1 = getLanelet(left_ls_1, right_ls_1, lanelet::AttributeValueString::SolidSolid,
+                         lanelet::AttributeValueString::Dashed);
+
+  // Each update adds a new speed limit to the lanelet
+  std::vector<lanelet::DigitalSpeedLimitPtr> speed_limits;
+  std::vector<autoware_lanelet2_msgs::msg::MapBin> update_msgs;
+  for (long seq = 0; seq < 3; seq++)
+  {
+    speed_limits.push_back(std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9200 + seq, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar })));
+    auto update_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(), { std::make_pair(ll_1.id(), speed_limits.back()) }, {}, {}));
+
+    autoware_lanelet2_msgs::msg::MapBin update_msg;
+    carma_wm::toBinMsg(update_data, &update_msg);
+    update_msg.seq_id = seq;
+    update_msgs.push_back(update_msg);
+  }
+
+  lanelet::LaneletMapPtr map = lanelet::utils::createMap({ ll_1 }, { });
+  autoware_lanelet2_msgs::msg::MapBin map_msg;
+  lanelet::utils::conversion::toBinMsg(map, &map_msg);
+
+  // The snapshot includes the first two updates so its seq_id is that of the third
+  ll_1.addRegulatoryElement(speed_limits[0]);
+  ll_1.addRegulatoryElement(speed_limits[1]);
+  lanelet::LaneletMapPtr snapshot = lanelet::utils::createMap({ ll_1 }, { });
+  autoware_lanelet2_msgs::msg::MapBin snapshot_msg;
+  lanelet::utils::conversion::toBinMsg(snapshot, &snapshot_msg);
+  snapshot_msg.seq_id = 2;
+
+  ///// A listener which already applied the included updates ignores the snapshot
+  WMListenerWorker up_to_date;
+  up_to_date.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(map_msg));
+  up_to_date.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[0]));
+  up_to_date.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[1]));
+
+  auto up_to_date_map = up_to_date.getWorldModel()->getMap();
+  size_t map_callback_count = 0;
+  up_to_date.setMapCallback([&map_callback_count]() { map_callback_count++; });
+
+  up_to_date.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(snapshot_msg));
+  ASSERT_EQ(0u, map_callback_count);
+  ASSERT_EQ(up_to_date_map, up_to_date.getWorldModel()->getMap());
+
+  up_to_date.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[2]));
+  ASSERT_EQ(3u, up_to_date.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  ///// A restarted broadcaster numbers its maps and updates from the start again but its base map is still applied
+  autoware_lanelet2_msgs::msg::MapBin restarted_map_msg = map_msg;
+  restarted_map_msg.header.stamp.sec = 1;
+  restarted_map_msg.seq_id = 1;
+
+  autoware_lanelet2_msgs::msg::MapBin restarted_update_msg = update_msgs[0];
+  restarted_update_msg.header.stamp.sec = 1;
+  restarted_update_msg.seq_id = 1;
+
+  // An update which arrives before the map of its broadcaster waits for that map
+  up_to_date.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(restarted_update_msg));
+  ASSERT_EQ(3u, up_to_date.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  up_to_date.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(restarted_map_msg));
+  ASSERT_NE(up_to_date_map, up_to_date.getWorldModel()->getMap());
+  ASSERT_EQ(1u, up_to_date.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  ///// A late joiner starts from the snapshot and only applies the updates after it
+  WMListenerWorker late_joiner;
+  late_joiner.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[1]));
+  late_joiner.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(snapshot_msg));
+  ASSERT_EQ(2u, late_joiner.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  late_joiner.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[2]));
+  late_joiner.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[0]));
+  ASSERT_EQ(3u, late_joiner.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  ///// A listener which missed an update recovers from the snapshot
+  WMListenerWorker missed_update;
+  missed_update.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(map_msg));
+  missed_update.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[1]));
+  ASSERT_EQ(0u, missed_update.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+
+  missed_update.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(snapshot_msg));
+  missed_update.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(update_msgs[2]));
+  ASSERT_EQ(3u, missed_update.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+}
+
+TEST(WMListenerWorkerTest, worldModelSnapshot)
+{
+  using namespace lanelet::units::literals;
+  auto p1 = getPoint(0, 0, 0);
+  auto p2 = getPoint(0, 1, 0);
+  auto p3 = getPoint(1, 1, 0);
+  auto p4 = getPoint(1, 0, 0);
+  lanelet::LineString3d left_ls_1(lanelet::utils::getId(), { p1, p2 });
+  lanelet::LineString3d right_ls_1(lanelet::utils::getId(), { p4, p3 });
+
+  auto ll_1 = getLanelet(left_ls_1, right_ls_1, lanelet::AttributeValueString::SolidSolid,
+                         lanelet::AttributeValueString::Dashed);
+
+  lanelet::DigitalSpeedLimitPtr speed_limit_old = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9000, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+  lanelet::DigitalSpeedLimitPtr speed_limit_new = std::make_shared<lanelet::DigitalSpeedLimit>(lanelet::DigitalSpeedLimit::buildData(9001, 5_mph, {ll_1}, {},
+                                                     { lanelet::Participants::VehicleCar }));
+
+  auto gf_ptr = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl());
+  gf_ptr->id_ = boost::uuids::random_generator()();
+  gf_ptr->remove_list_.push_back(std::make_pair(ll_1.id(), speed_limit_old));
+  gf_ptr->update_list_.push_back(std::make_pair(ll_1.id(), speed_limit_new));
+
+  autoware_lanelet2_msgs::msg::MapBin gf_obj_msg;
+  carma_wm::toBinMsg(gf_ptr, &gf_obj_msg);
+
+  ll_1.addRegulatoryElement(speed_limit_old);
+  lanelet::LaneletMapPtr map = lanelet::utils::createMap({ ll_1 }, { });
+  autoware_lanelet2_msgs::msg::MapBin map_msg;
+  lanelet::utils::conversion::toBinMsg(map, &map_msg);
+
+  WMListenerWorker wmlw;
+
+  ///// Test snapshots are not published until enabled
+  wmlw.mapCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(map_msg));
+  ASSERT_FALSE((bool)wmlw.getWorldModelSnapshot());
+
+  wmlw.enableSnapshots();
+  auto first_snapshot = wmlw.getWorldModelSnapshot();
+  ASSERT_TRUE((bool)first_snapshot);
+  ASSERT_TRUE((bool)first_snapshot->getMap());
+  ASSERT_TRUE((bool)first_snapshot->getMapRoutingGraph());
+  ASSERT_NE(first_snapshot->getMap(), wmlw.getWorldModel()->getMap());
+  ASSERT_EQ(9000, first_snapshot->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements()[0]->id());
+
+  ///// Test map update does not modify a pinned snapshot
+  wmlw.mapUpdateCallback(std::make_unique<autoware_lanelet2_msgs::msg::MapBin>(gf_obj_msg));
+
+  ASSERT_EQ(9001, wmlw.getWorldModel()->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements()[0]->id());
+  ASSERT_EQ(1u, first_snapshot->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+  ASSERT_EQ(9000, first_snapshot->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements()[0]->id());
+
+  auto second_snapshot = wmlw.getWorldModelSnapshot();
+  ASSERT_NE(first_snapshot, second_snapshot);
+  ASSERT_EQ(1u, second_snapshot->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements().size());
+  ASSERT_EQ(9001, second_snapshot->getMap()->laneletLayer.get(ll_1.id()).regulatoryElements()[0]->id());
+
+  ///// Test changes which do not touch the map share the snapshot map
+  auto objects = std::make_shared<carma_perception_msgs::msg::RoadwayObstacleList>();
+  objects->roadway_obstacles.emplace_back();
+  wmlw.roadwayObjectListCallback(objects);
+
+  auto third_snapshot = wmlw.getWorldModelSnapshot();
+  ASSERT_NE(second_snapshot, third_snapshot);
+  ASSERT_EQ(second_snapshot->getMap(), third_snapshot->getMap());
+  ASSERT_EQ(0u, second_snapshot->getRoadwayObjects().size());
+  ASSERT_EQ(1u, third_snapshot->getRoadwayObjects().size());
+}
+
 TEST(WMListenerWorkerTest, setConfigSpeedLimitTest)
 {
   WMListenerWorker wmlw;
@@ -223,5 +223,50 @@ TEST(WMTestLibForGuidanceTest, setSpeedLimit)
     ASSERT_EQ(cmw->getMutableMap()->regulatoryElementLayer.size(), 52); // old speed limit exists but is not assigned to any llt
     ASSERT_NEAR(cmw->getMutableMap()->laneletLayer.get(1200).regulatoryElementsAs<lanelet::DigitalSpeedLimit>()[0]->getSpeedLimit().value(), 11.176, 0.0001); 
 }
+
+TEST(WMTestLibForGuidanceTest, buildSyntheticHighwayMap)
+{
+    auto synthetic = buildSyntheticHighwayMap(1000, 3, 100);
+    ASSERT_EQ(30, synthetic.map->laneletLayer.size());
+    ASSERT_EQ(3, synthetic.lanes.size());
+    ASSERT_EQ(10, synthetic.lanes[0].size());
+
+    auto cmw = std::make_shared<carma_wm::CARMAWorldModel>();
+    cmw->setMap(synthetic.map);
+
+    // Consecutive lanelets are connected and neighbouring lanes allow lane changes
+    auto first = cmw->getMap()->laneletLayer.get(synthetic.lanes[1].front());
+    ASSERT_EQ(1, cmw->getMapRoutingGraph()->following(first).size());
+    EXPECT_EQ(synthetic.lanes[1][1], cmw->getMapRoutingGraph()->following(first).front().id());
+    ASSERT_TRUE(!!cmw->getMapRoutingGraph()->left(first));
+    EXPECT_EQ(synthetic.lanes[0].front(), cmw->getMapRoutingGraph()->left(first)->id());
+
+    setRouteByIds({ synthetic.lanes[1].front(), synthetic.lanes[1].back() }, cmw);
+    EXPECT_NEAR(1000, cmw->getRouteEndTrackPos().downtrack, 0.001);
+}
+
+TEST(WMTestLibForGuidanceTest, buildSyntheticGridMap)
+{
+    auto synthetic = buildSyntheticGridMap(3, 4, 100);
+    // Each road has a lane per direction with a lanelet per block
+    ASSERT_EQ(3 * 3 * 2 + 4 * 2 * 2, synthetic.map->laneletLayer.size());
+    ASSERT_EQ(3 * 2 + 4 * 2, synthetic.lanes.size());
+    ASSERT_EQ(12, synthetic.intersection_signals.size());
+
+    // Corner intersections are entered from two directions but only through movements are signalized so none
+    // continue past the corner, while a center intersection controls all four approaches
+    EXPECT_EQ(0, synthetic.intersection_signals[0].size());
+    EXPECT_EQ(4, synthetic.intersection_signals[1 * 4 + 1].size());
+
+    auto cmw = std::make_shared<carma_wm::CARMAWorldModel>();
+    cmw->setMap(synthetic.map);
+    setRouteByIds({ synthetic.lanes[0].front(), synthetic.lanes[0].back() }, cmw);
+    EXPECT_NEAR(300, cmw->getRouteEndTrackPos().downtrack, 0.001);
+    EXPECT_EQ(2, cmw->getSignalsAlongRoute({ 1, -1 }).size());
+
+    setSyntheticSignalGroups(synthetic, cmw);
+    EXPECT_NE(lanelet::InvalId, cmw->getTrafficSignalId(2, 1));
+}
+
 }  // namespace test
 }  // namespace carma_wm
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <benchmark/benchmark.h>
+#include <map>
+#include <numeric>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+#include <autoware_lanelet2_ros2_interface/utility/message_conversion.hpp>
+
+/**
+ * Measures the core world model operations on synthetic maps of increasing size generated by the WMTestLibForGuidance.
+ * Highway maps are sized in kilometers of three lane road and grid maps in number of signalized intersections.
+ *
+ * Each benchmark reports the size of its map as counters so results can be compared across sizes.
+ * Machine readable results are produced with the standard Google Benchmark options, for example:
+ *   world_model_scale_benchmark --benchmark_out=results.json --benchmark_out_format=json
+ * When run through colcon test the results are written in the same JSON format to the package's test_results.
+ */
+namespace
+{
+constexpr size_t HIGHWAY_LANES = 3;
+constexpr double HIGHWAY_LANELET_LENGTH = 100.0;
+constexpr double GRID_BLOCK_LENGTH = 100.0;
+
+// Maps are expensive to generate so they are built once per size and shared between benchmarks. Benchmarks which
+// modify the map must use their own copy
+const carma_wm::test::SyntheticMap& highwayMap(size_t km)
+{
+  static std::map<size_t, carma_wm::test::SyntheticMap> maps;
+  auto it = maps.find(km);
+  if (it == maps.end())
+  {
+    it = maps.emplace(km, carma_wm::test::buildSyntheticHighwayMap(km * 1000.0, HIGHWAY_LANES, HIGHWAY_LANELET_LENGTH)).first;
+  }
+  return it->second;
+}
+
+// The grid is the smallest square containing at least the requested number of intersections
+const carma_wm::test::SyntheticMap& gridMap(size_t num_intersections)
+{
+  static std::map<size_t, carma_wm::test::SyntheticMap> maps;
+  auto it = maps.find(num_intersections);
+  if (it == maps.end())
+  {
+    size_t side = static_cast<size_t>(std::ceil(std::sqrt(static_cast<double>(num_intersections))));
+    it = maps.emplace(num_intersections, carma_wm::test::buildSyntheticGridMap(side, side, GRID_BLOCK_LENGTH)).first;
+  }
+  return it->second;
+}
+
+/**
+ * Builds a world model for the synthetic map with a route along its first lane
+ */
+std::shared_ptr<carma_wm::CARMAWorldModel> buildWorldModel(const carma_wm::test::SyntheticMap& synthetic)
+{
+  auto cmw = std::make_shared<carma_wm::CARMAWorldModel>();
+  cmw->setMap(synthetic.map);
+  carma_wm::test::setRouteByIds({ synthetic.lanes[0].front(), synthetic.lanes[0].back() }, cmw);
+  return cmw;
+}
+
+/**
+ * Builds a SPaT message containing every signalized intersection of the map with one movement per signal
+ */
+carma_v2x_msgs::msg::SPAT buildSpat(const carma_wm::test::SyntheticMap& synthetic)
+{
+  carma_v2x_msgs::msg::SPAT spat;
+  for (size_t i = 0; i < synthetic.intersection_signals.size(); i++)
+  {
+    if (synthetic.intersection_signals[i].empty())
+      continue;
+
+    carma_v2x_msgs::msg::IntersectionState state;
+    state.id.id = static_cast<uint16_t>(i + 1);
+    state.revision = 1;
+
+    for (size_t group = 0; group < synthetic.intersection_signals[i].size(); group++)
+    {
+      carma_v2x_msgs::msg::MovementState movement;
+      movement.signal_group = static_cast<uint8_t>(group + 1);
+
+      // Green, yellow, red
+      for (uint8_t phase : { 6, 8, 3 })
+      {
+        carma_v2x_msgs::msg::MovementEvent event;
+        event.event_state.movement_phase_state = phase;
+        event.timing.start_time = movement.movement_event_list.size() * 200;
+        event.timing.min_end_time = (movement.movement_event_list.size() + 1) * 200;
+        movement.movement_event_list.push_back(event);
+      }
+      state.movement_list.push_back(movement);
+    }
+    spat.intersection_state_list.push_back(state);
+  }
+  return spat;
+}
+
+void setHighwayCounters(benchmark::State& state, const carma_wm::test::SyntheticMap& synthetic)
+{
+  state.counters["route_km"] = state.range(0);
+  state.counters["lanelets"] = synthetic.map->laneletLayer.size();
+}
+
+void setGridCounters(benchmark::State& state, const carma_wm::test::SyntheticMap& synthetic)
+{
+  state.counters["intersections"] = synthetic.intersection_signals.size();
+  state.counters["lanelets"] = synthetic.map->laneletLayer.size();
+}
+
+}  // namespace
+
+static void BM_SetMapHighway(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+
+  for (auto _ : state)
+  {
+    carma_wm::CARMAWorldModel cmw;
+    cmw.setMap(synthetic.map);
+    benchmark::DoNotOptimize(cmw.getMapRoutingGraph());
+  }
+  setHighwayCounters(state, synthetic);
+}
+
+static void BM_SetMapGrid(benchmark::State& state)
+{
+  const auto& synthetic = gridMap(state.range(0));
+
+  for (auto _ : state)
+  {
+    carma_wm::CARMAWorldModel cmw;
+    cmw.setMap(synthetic.map);
+    benchmark::DoNotOptimize(cmw.getMapRoutingGraph());
+  }
+  setGridCounters(state, synthetic);
+}
+
+static void BM_SetRoute(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+  auto cmw = buildWorldModel(synthetic);
+  auto route = cmw->getRoute();
+
+  for (auto _ : state)
+  {
+    cmw->setRoute(route);
+  }
+  setHighwayCounters(state, synthetic);
+}
+
+static void BM_RouteTrackPos(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+  auto cmw = buildWorldModel(synthetic);
+  double route_length = cmw->getRouteEndTrackPos().downtrack;
+
+  double y = 0;
+  for (auto _ : state)
+  {
+    y = y + 13.7 > route_length ? 0 : y + 13.7;
+    benchmark::DoNotOptimize(cmw->routeTrackPos(lanelet::BasicPoint2d(1.85, y)));
+  }
+  setHighwayCounters(state, synthetic);
+}
+
+// The second argument enables the query result cache. Windows repeat each time the query wraps back to the start of
+// the route so with the cache enabled the hit rate depends on the route length relative to the cache capacity
+static void BM_GetLaneletsBetween(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+  auto cmw = buildWorldModel(synthetic);
+  double route_length = cmw->getRouteEndTrackPos().downtrack;
+
+  if (!state.range(1))
+  {
+    cmw->setQueryCacheCapacity(0);
+  }
+
+  double start = 0;
+  for (auto _ : state)
+  {
+    start = start + 13.7 > route_length ? 0 : start + 13.7;
+    benchmark::DoNotOptimize(cmw->getLaneletsBetween(start, start + 150.0));
+  }
+  setHighwayCounters(state, synthetic);
+  state.counters["cache_hits"] = cmw->getLaneletsBetweenCacheStats().hits;
+}
+
+// The second argument selects whether the timing changes between messages. Unchanged messages are the common case
+// as SPaT is broadcast far more often than signal timing is updated
+static void BM_ProcessSpatFromMsg(benchmark::State& state)
+{
+  const auto& synthetic = gridMap(state.range(0));
+  auto cmw = buildWorldModel(synthetic);
+  carma_wm::test::setSyntheticSignalGroups(synthetic, cmw);
+
+  auto spat = buildSpat(synthetic);
+  cmw->processSpatFromMsg(spat);
+
+  for (auto _ : state)
+  {
+    if (state.range(1))
+    {
+      for (auto& intersection : spat.intersection_state_list)
+      {
+        intersection.moy_exists = true;
+        intersection.moy = (intersection.moy + 1) % 527040;  // minutes in a leap year
+      }
+    }
+    cmw->processSpatFromMsg(spat);
+  }
+  setGridCounters(state, synthetic);
+  state.counters["movements"] = std::accumulate(
+      spat.intersection_state_list.begin(), spat.intersection_state_list.end(), 0.0,
+      [](double sum, const carma_v2x_msgs::msg::IntersectionState& s) { return sum + s.movement_list.size(); });
+}
+
+static void BM_ToBinMsg(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  for (auto _ : state)
+  {
+    lanelet::utils::conversion::toBinMsg(synthetic.map, &msg);
+  }
+  setHighwayCounters(state, synthetic);
+  state.counters["bytes"] = msg.data.size();
+}
+
+static void BM_FromBinMsg(benchmark::State& state)
+{
+  const auto& synthetic = highwayMap(state.range(0));
+
+  autoware_lanelet2_msgs::msg::MapBin msg;
+  lanelet::utils::conversion::toBinMsg(synthetic.map, &msg);
+
+  for (auto _ : state)
+  {
+    lanelet::LaneletMapPtr map(new lanelet::LaneletMap);
+    lanelet::utils::conversion::fromBinMsg(msg, map);
+    benchmark::DoNotOptimize(map);
+  }
+  setHighwayCounters(state, synthetic);
+  state.counters["bytes"] = msg.data.size();
+}
+
+// Highway sizes are in km and grid sizes are in number of intersections
+BENCHMARK(BM_SetMapHighway)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_SetMapGrid)->Arg(100)->Arg(1000)->Arg(5000)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_SetRoute)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_RouteTrackPos)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_GetLaneletsBetween)->ArgsProduct({ { 1, 10, 100 }, { 0, 1 } })->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_ProcessSpatFromMsg)->ArgsProduct({ { 100, 1000, 5000 }, { 0, 1 } })->Unit(benchmark::kMicrosecond);
+BENCHMARK(BM_ToBinMsg)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
+BENCHMARK(BM_FromBinMsg)->Arg(1)->Arg(10)->Arg(100)->Unit(benchmark::kMillisecond);
@@ -0,0 +1,112 @@
+#pragma once
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+#include <unordered_set>
+#include <vector>
+#include <boost/optional.hpp>
+#include <lanelet2_core/LaneletMap.h>
+#include <lanelet2_core/primitives/Lanelet.h>
+#include <lanelet2_routing/RoutingGraph.h>
+
+namespace carma_wm_ctrl
+{
+/*!
+ * \brief Counts of how the lanelet containing each position given to an ActiveGeofenceTracker was found
+ */
+struct ActiveGeofenceTrackerStats
+{
+  size_t hint_hits = 0;       // Position was still inside the previous lanelet
+  size_t neighbour_hits = 0;  // Position was inside a successor, predecessor or adjacent lanelet of the previous lanelet
+  size_t full_searches = 0;   // Position required a search of the full lanelet layer
+};
+
+/*!
+ * \brief Tracks the lanelet the vehicle is on and the lanelets which have an active geofence.
+ *
+ * The lanelet found for the previous position is used as a hint for the next one. Only when the position leaves that
+ * lanelet are its successors, predecessors and adjacent lanelets checked, and only when none of them contain the
+ * position is the full lanelet layer searched. Where lanelets overlap the previous lanelet is kept for as long as it
+ * contains the position.
+ *
+ * The active geofence lanelets are indexed by id and the active lanelets on the route are cached in route order, so a
+ * position update does not depend on the size of the map or the number of active geofences.
+ *
+ * This class is not thread safe.
+ */
+class ActiveGeofenceTracker
+{
+public:
+  /*!
+   * \brief Sets the map positions are located on. Resets the hint, the active lanelets and the route
+   *
+   * \param map The map
+   * \param routing_graph The routing graph of the map used to find the neighbours of the hint
+   */
+  void setMap(const lanelet::LaneletMapPtr& map, const lanelet::routing::RoutingGraphPtr& routing_graph);
+
+  /*!
+   * \brief Replaces the routing graph after it was rebuilt for the same map
+   */
+  void setRoutingGraph(const lanelet::routing::RoutingGraphPtr& routing_graph);
+
+  /*!
+   * \brief Sets the route whose active lanelets are returned by activeLaneletsOnRoute()
+   */
+  void setRoute(const lanelet::ConstLanelets& route);
+
+  /*!
+   * \brief Returns the lanelet containing the provided point
+   *
+   * \param point The point in the map frame
+   *
+   * \return The containing lanelet or none if the point is not within any lanelet. A point in no lanelet keeps the
+   *         previous hint
+   */
+  boost::optional<lanelet::Lanelet> locate(const lanelet::BasicPoint2d& point);
+
+  void addActiveLanelet(lanelet::Id id);
+
+  void removeActiveLanelet(lanelet::Id id);
+
+  bool isActive(lanelet::Id id) const;
+
+  /*!
+   * \brief Number of lanelets with an active geofence
+   */
+  size_t activeCount() const;
+
+  /*!
+   * \brief Returns the lanelets of the route which have an active geofence in route order
+   */
+  const lanelet::ConstLanelets& activeLaneletsOnRoute();
+
+  ActiveGeofenceTrackerStats getStats() const;
+
+private:
+  bool setHintIfWithin(const lanelet::Lanelet& llt, const lanelet::BasicPoint2d& point);
+
+  lanelet::LaneletMapPtr map_;
+  lanelet::routing::RoutingGraphPtr routing_graph_;
+  boost::optional<lanelet::Lanelet> hint_;
+  lanelet::BasicPolygon2d hint_polygon_;  // Cached polygon of the hint
+  std::unordered_set<lanelet::Id> active_ids_;
+  lanelet::ConstLanelets route_;
+  lanelet::ConstLanelets active_on_route_;
+  bool active_on_route_stale_ = false;  // True if the route or active lanelets changed since active_on_route_ was built
+  ActiveGeofenceTrackerStats stats_;
+};
+
+}  // namespace carma_wm_ctrl
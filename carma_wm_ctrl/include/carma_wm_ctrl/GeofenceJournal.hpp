@@ -0,0 +1,211 @@
+#pragma once
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+#include <cstdint>
+#include <fstream>
+#include <mutex>
+#include <string>
+#include <unordered_map>
+#include <unordered_set>
+#include <utility>
+#include <vector>
+#include <boost/functional/hash.hpp>
+#include <boost/optional.hpp>
+#include <boost/uuid/uuid.hpp>
+#include <lanelet2_core/primitives/Point.h>
+#include <rclcpp/time.hpp>
+#include <carma_v2x_msgs/msg/traffic_control_message_v01.hpp>
+
+namespace carma_wm_ctrl
+{
+/**
+ * @brief Record counts of a GeofenceJournal
+ */
+struct GeofenceJournalStats
+{
+  size_t geofences = 0;         // Number of journaled geofences
+  size_t affected_parts = 0;    // Number of journaled affected lanelet and area lists
+  size_t discarded_bytes = 0;   // Bytes of incomplete or corrupt records dropped by the last load
+  size_t appends = 0;           // Records written to the file since the journal was loaded
+  size_t compactions = 0;       // Number of times the file was rewritten
+};
+
+/**
+ * @brief Durable append-only journal of the geofences accepted by the WMBroadcaster and the lanelets and areas each
+ * geofence geometry was matched to.
+ *
+ * Records are queued in memory as they are added and flush() appends every queued record and syncs it to disk with a
+ * single fsync, so callers can batch records and sync them without holding their own locks. Once flushed, a restarted
+ * broadcaster can reschedule the accepted geofences without requesting them again and can skip matching geofence geometry
+ * to the map. This holds for power loss as well as process crashes. A record left incomplete by a crash is detected by its
+ * checksum and dropped when the journal is loaded. A batch left incomplete by a failed write is truncated away before the
+ * next append, and the failure requests a compaction so the batch is rewritten from memory.
+ *
+ * The journal does not hold the map changes geofences produced, such as their update and remove lists or added lanelets.
+ * A restarted broadcaster starts from the base map. Each rescheduled geofence recomputes its changes when it becomes
+ * active, and only its lanelet match is read from the journal.
+ *
+ * The file is compacted when loaded and after every compaction_interval appends. Compaction drops geofences whose
+ * schedule has ended, repeated geofences and matches made for a map other than the current one. The compacted file is
+ * written to a temporary path, synced, and renamed into place before the directory is synced, so a crash or power loss
+ * during compaction leaves either the previous or the compacted file intact.
+ *
+ * This class is thread safe. Records can be added and read while another thread flushes or compacts the file.
+ */
+class GeofenceJournal
+{
+public:
+  // Lanelet or area ids in the order they were matched. The flag is true for lanelets
+  using AffectedPartIds = std::vector<std::pair<lanelet::Id, bool>>;
+
+  // Incremented whenever the file layout changes. Files of other versions are discarded
+  static constexpr uint32_t FORMAT_VERSION = 1;
+
+  /**
+   * @brief Constructor
+   *
+   * @param path The journal file. Its directory is created when the journal is first written if it does not exist
+   * @param compaction_interval Number of appends after which needsCompaction() returns true
+   *
+   * @throw std::invalid_argument if the path is empty or compaction_interval is 0
+   */
+  explicit GeofenceJournal(const std::string& path, size_t compaction_interval = 256);
+
+  /**
+   * @brief Destructor. Flushes any queued records
+   */
+  ~GeofenceJournal();
+
+  GeofenceJournal(const GeofenceJournal&) = delete;
+  GeofenceJournal& operator=(const GeofenceJournal&) = delete;
+
+  /**
+   * @brief Loads the journal file and compacts it
+   *
+   * @param now The current time used to drop geofences whose schedule has ended
+   *
+   * @return The journaled geofence messages in the order they were accepted
+   */
+  std::vector<carma_v2x_msgs::msg::TrafficControlMessageV01> load(const rclcpp::Time& now);
+
+  /**
+   * @brief Queues an accepted geofence message to be written by the next flush(). Messages whose id is already journaled
+   * are ignored
+   *
+   * @param msg The geofence message
+   * @param expiry The end of the geofence schedule after which the record can be dropped
+   *
+   * @return True if the record was queued
+   */
+  bool appendGeofence(const carma_v2x_msgs::msg::TrafficControlMessageV01& msg, const rclcpp::Time& expiry);
+
+  /**
+   * @brief Computes the key of the lanelets and areas matched to the provided geofence points on the map with the
+   * provided key
+   */
+  static uint64_t computeAffectedPartsKey(uint64_t map_key, const lanelet::Points3d& gf_pts);
+
+  /**
+   * @brief Queues the lanelets and areas matched to a geofence geometry to be written by the next flush()
+   *
+   * @param map_key Key of the map the match was made on
+   * @param key The key returned by computeAffectedPartsKey
+   * @param parts The matched lanelets and areas
+   */
+  void appendAffectedParts(uint64_t map_key, uint64_t key, const AffectedPartIds& parts);
+
+  /**
+   * @brief Returns the journaled lanelets and areas for the provided key or none if there are none
+   */
+  boost::optional<AffectedPartIds> getAffectedParts(uint64_t key) const;
+
+  /**
+   * @brief Sets the key of the current map. Compaction drops matches made on other maps
+   */
+  void setMapKey(uint64_t map_key);
+
+  /**
+   * @brief Appends the queued records to the file and syncs them to disk with a single fsync
+   *
+   * @return True if the records were written or none were queued
+   */
+  bool flush();
+
+  /**
+   * @brief Rewrites the journal with only its live records. Queued records are written as part of the new file
+   *
+   * @param now The current time used to drop geofences whose schedule has ended
+   *
+   * @return True if the file was rewritten
+   */
+  bool compact(const rclcpp::Time& now);
+
+  /**
+   * @brief True if compaction_interval records were appended since the last compaction
+   */
+  bool needsCompaction() const;
+
+  GeofenceJournalStats getStats() const;
+
+  std::string getPath() const;
+
+private:
+  enum class RecordType : uint32_t
+  {
+    GEOFENCE = 1,
+    AFFECTED_PARTS = 2
+  };
+
+  struct JournaledGeofence
+  {
+    int64_t expiry_ns;
+    std::vector<uint8_t> data;  // Serialized message
+  };
+
+  struct JournaledAffectedParts
+  {
+    uint64_t map_key;
+    AffectedPartIds parts;
+  };
+
+  // Must be called with mutex_ held
+  void queueRecord(RecordType type, const std::vector<uint8_t>& payload);
+  static void encodeRecord(std::vector<uint8_t>& out, RecordType type, const std::vector<uint8_t>& payload);
+  // Must be called with file_mutex_ held and mutex_ not held
+  bool compactFile(const rclcpp::Time& now);
+  // Must be called with file_mutex_ held
+  bool openForAppend();
+
+  std::string path_;
+  size_t compaction_interval_;
+  // file_mutex_ is held while the file is written so a slow fsync only blocks other writes of the file. mutex_ guards the
+  // records held in memory and is only held briefly
+  std::mutex file_mutex_;   // Acquired before mutex_. Guards out_, valid_size_ and truncate_pending_
+  mutable std::mutex mutex_;
+  uint64_t map_key_ = 0;  // 0 until the map is known, which keeps the matches for every map
+  size_t appends_since_compaction_ = 0;
+  std::uintmax_t valid_size_ = 0;  // Size of the file up to the end of its last complete record
+  bool truncate_pending_ = false;  // True while the file may hold a partial record after valid_size_
+  std::vector<JournaledGeofence> geofences_;  // In order of acceptance
+  std::unordered_set<boost::uuids::uuid, boost::hash<boost::uuids::uuid>> geofence_ids_;
+  std::unordered_map<uint64_t, JournaledAffectedParts> affected_parts_;
+  std::vector<uint8_t> pending_;  // Encoded records waiting for flush()
+  size_t pending_records_ = 0;
+  std::ofstream out_;
+  GeofenceJournalStats stats_;
+};
+
+}  // namespace carma_wm_ctrl
@@ -19,6 +19,7 @@
 #include <memory>
 #include <unordered_map>
 #include <carma_wm_ctrl/Geofence.hpp>
+#include <carma_wm_ctrl/TimingWheel.hpp>
 #include <carma_ros2_utils/timers/Timer.hpp>
 #include <carma_ros2_utils/timers/TimerFactory.hpp>
 #include <carma_ros2_utils/timers/ROSTimerFactory.hpp>
@@ -27,9 +28,26 @@
 
 namespace carma_wm_ctrl
 {
+/**
+ * @brief Queue and timing metrics of a GeofenceScheduler
+ */
+struct GeofenceSchedulerStats
+{
+  size_t queue_depth = 0;      // Number of pending activations and deactivations
+  size_t last_batch_size = 0;  // Number of activations and deactivations processed by the last tick
+  size_t activations = 0;      // Total number of activations
+  size_t deactivations = 0;    // Total number of deactivations
+  double last_tick_lag = 0;    // Seconds between the earliest due time of the last non-empty batch and its processing
+  double max_tick_lag = 0;     // Largest tick lag seen in seconds
+};
+
 /**
  * @brief A GeofenceScheduler is responsable for notifying the user when a geofence is active or inactive according to
  * its schedule
+ *
+ * Pending activations and deactivations are held in a hierarchical timing wheel which is advanced by a single repeating
+ * timer, so the number of timers does not grow with the number of scheduled geofences. Every event due by a tick is
+ * processed as one batch, which means events fire up to one tick period after their scheduled time.
  */
 class GeofenceScheduler
 {
@@ -38,23 +56,41 @@ class GeofenceScheduler
   using ROSTimerFactory = carma_ros2_utils::timers::ROSTimerFactory;
   using TimerPtr = std::unique_ptr<Timer>;
 
+  /**
+   * @brief A pending activation or deactivation of one of the schedules of a geofence
+   */
+  struct ScheduledEvent
+  {
+    std::shared_ptr<Geofence> gf_ptr;
+    unsigned int schedule_id;  // index number of the schedule this event belongs to
+    bool activate;             // true if the geofence becomes active, false if it becomes inactive
+  };
+
   std::mutex mutex_;
   std::shared_ptr<TimerFactory> timerFactory_;
-  std::unordered_map<uint32_t, std::pair<TimerPtr, bool>> timers_;  // Pairing of timers with their Id and valid status
-  std::unique_ptr<Timer> deletion_timer_;
+  TimingWheel<ScheduledEvent> wheel_;
+  int64_t tick_period_ns_;
+  GeofenceSchedulerStats stats_;
   std::function<void(std::shared_ptr<Geofence>)> active_callback_;
   std::function<void(std::shared_ptr<Geofence>)> inactive_callback_;
   uint32_t next_id_ = 0;  // Timer id counter
   rcl_clock_type_t clock_type_ = RCL_SYSTEM_TIME;
+  TimerPtr tick_timer_;  // Single repeating timer which advances the wheel. Declared last so it is stopped first
 
 public:
+  // Default resolution of geofence activations and deactivations
+  static constexpr int64_t DEFAULT_TICK_PERIOD_NS = 100000000;
+
   /**
    * @brief Constructor which takes in a TimerFactory. Timers from this factory will be used to generate the triggers
    * for goefence activity.
    *
    * @param timerFactory A pointer to a TimerFactory which can be used to generate timers for geofence triggers.
+   * @param tick_period_ns The period in nanoseconds at which due activations and deactivations are processed.
+   *
+   * @throw std::invalid_argument if the tick period is not positive
    */
-  GeofenceScheduler(std::shared_ptr<TimerFactory> timerFactory);
+  GeofenceScheduler(std::shared_ptr<TimerFactory> timerFactory, int64_t tick_period_ns = DEFAULT_TICK_PERIOD_NS);
 
   /**
    * @brief Add a geofence to the scheduler. This will cause it to trigger an event when it becomes active or goes
@@ -78,10 +114,16 @@ public:
   void onGeofenceInactive(std::function<void(std::shared_ptr<Geofence>)> inactive_callback);
 
   /**
-   * @brief Clears the expired timers from the memory of this scheduler
+   * @brief Clears the expired timers from the memory of this scheduler.
+   *        Events are removed from the timing wheel as they are processed so there is nothing left to clear.
    */
   void clearTimers();
 
+  /**
+   * @brief Returns the queue depth and tick lag metrics of this scheduler
+   */
+  GeofenceSchedulerStats getStats();
+
   /**
    * @brief Get the clock type of the clock being created by the timer factory
    */
@@ -101,25 +143,42 @@ private:
   uint32_t nextId();
 
   /**
-   * @brief The callback which is triggered when a geofence becomes active
+   * @brief Converts a time to the first tick at or after it
+   */
+  uint64_t toTick(const rclcpp::Time& time) const;
+
+  /**
+   * @brief Adds an activation or deactivation of a geofence schedule to the wheel
+   *
+   * @param event The event to add
+   * @param time The time at which the event is due
+   */
+  void scheduleEvent(ScheduledEvent event, const rclcpp::Time& time);
+
+  /**
+   * @brief The callback of the tick timer. Processes every activation and deactivation due by the current time as one
+   * batch
+   */
+  void tickCallback();
+
+  /**
+   * @brief Activates a geofence and schedules its deactivation
    *        This will call the user set active_callback set from the onGeofenceActive function
    *
-   * @param event The record of the timer event causing this to trigger
    * @param gf The geofence which is being activated
    * @param schedule_id index number of the schedule being used corresponding to this geofence
-   * @param timer_id The id of the timer which caused this callback to occur
+   * @param now The time at which the activation is processed
    */
-  void startGeofenceCallback(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const int32_t timer_id);
+  void startGeofence(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const rclcpp::Time& now);
   /**
-   * @brief The callback which is triggered when a geofence becomes in-active
+   * @brief Deactivates a geofence and schedules its next activation if its schedule has one
    *        This will call the user set inactive_callback set from the onGeofenceInactive function
    *
-   * @param event The record of the timer event causing this to trigger
    * @param gf The geofence which is being un-activated
    * @param schedule_id index number of the schedule being used corresponding to this geofence
-   * @param timer_id The id of the timer which caused this callback to occur
+   * @param now The time at which the deactivation is processed
    */
-  void endGeofenceCallback(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const int32_t timer_id);
+  void endGeofence(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const rclcpp::Time& now);
 
 };
 }  // namespace carma_wm_ctrl
\ No newline at end of file
@@ -0,0 +1,116 @@
+#pragma once
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+#include <array>
+#include <atomic>
+#include <chrono>
+#include <string>
+
+namespace carma_wm_ctrl
+{
+/*!
+ * \brief Histogram of how long a lock was held.
+ *
+ * Bucket 0 counts hold times below 1 us and bucket i counts hold times from 2^(i-1) us up to 2^i us. The last bucket
+ * also counts every longer hold time. Recording is lock free so it can be done from any thread.
+ */
+class LockHoldTimeHistogram
+{
+public:
+  static constexpr size_t NUM_BUCKETS = 24;  // The last bucket starts at 2^22 us, about 4 s
+
+  using Counts = std::array<uint64_t, NUM_BUCKETS>;
+
+  /*!
+   * \brief Adds a hold time to the histogram
+   */
+  void record(std::chrono::nanoseconds hold_time);
+
+  /*!
+   * \brief Returns the number of hold times in each bucket
+   */
+  Counts getCounts() const;
+
+  /*!
+   * \brief Returns the exclusive upper bound of the provided bucket. The last bucket has no upper bound
+   */
+  static std::chrono::microseconds bucketUpperBound(size_t bucket);
+
+  /*!
+   * \brief Number of recorded hold times
+   */
+  uint64_t count() const;
+
+  /*!
+   * \brief Longest recorded hold time
+   */
+  std::chrono::nanoseconds max() const;
+
+  /*!
+   * \brief Returns the smallest bucket upper bound below which the provided fraction of hold times fall
+   */
+  std::chrono::microseconds percentile(double fraction) const;
+
+  /*!
+   * \brief Summarizes the histogram on one line for logging
+   */
+  std::string toString() const;
+
+private:
+  std::array<std::atomic<uint64_t>, NUM_BUCKETS> counts_{};
+  std::atomic<uint64_t> total_{ 0 };
+  std::atomic<int64_t> max_ns_{ 0 };
+};
+
+/*!
+ * \brief Acquires a lock on construction and records how long it was held in a LockHoldTimeHistogram on destruction
+ *
+ * \tparam Lock The lock type such as std::unique_lock<std::shared_mutex> or std::shared_lock<std::shared_mutex>
+ */
+template <typename Lock>
+class TimedLock
+{
+public:
+  TimedLock(typename Lock::mutex_type& mutex, LockHoldTimeHistogram& histogram)
+    : lock_(mutex), histogram_(histogram), start_(std::chrono::steady_clock::now())
+  {
+  }
+
+  ~TimedLock()
+  {
+    if (lock_.owns_lock())
+      histogram_.record(std::chrono::steady_clock::now() - start_);
+  }
+
+  /*!
+   * \brief Releases the lock before the end of the scope and records the hold time
+   */
+  void unlock()
+  {
+    histogram_.record(std::chrono::steady_clock::now() - start_);
+    lock_.unlock();
+  }
+
+  TimedLock(const TimedLock&) = delete;
+  TimedLock& operator=(const TimedLock&) = delete;
+
+private:
+  Lock lock_;
+  LockHoldTimeHistogram& histogram_;
+  std::chrono::steady_clock::time_point start_;
+};
+
+}  // namespace carma_wm_ctrl
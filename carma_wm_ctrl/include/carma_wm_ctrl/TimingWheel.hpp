@@ -0,0 +1,230 @@
+#pragma once
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <algorithm>
+#include <array>
+#include <cstdint>
+#include <map>
+#include <utility>
+#include <vector>
+
+namespace carma_wm_ctrl
+{
+/**
+ * @brief Hierarchical timing wheel which holds values until the tick they expire at.
+ *
+ * Each level has SLOTS slots and each slot of a level covers a full turn of the level below it. A value is placed in
+ * the lowest level which can hold its expiry tick and is moved down a level each time the wheel reaches the start of
+ * the slot holding it, so inserting and advancing by one tick are constant time regardless of the number of values.
+ * Values beyond the range of the top level are held in an overflow list until they come within range.
+ *
+ * This class is not thread safe.
+ */
+template <typename T>
+class TimingWheel
+{
+public:
+  static constexpr uint64_t SLOT_BITS = 6;
+  static constexpr uint64_t SLOTS = 1 << SLOT_BITS;
+  static constexpr size_t LEVELS = 4;
+
+  // Ticks covered by the full wheel
+  static constexpr uint64_t SPAN = uint64_t(1) << (SLOT_BITS * LEVELS);
+
+  // Advancing by more than this many ticks re-places every value rather than stepping through each tick
+  static constexpr uint64_t MAX_STEPS = SLOTS * SLOTS;
+
+  /**
+   * @brief Constructor
+   *
+   * @param current_tick The tick the wheel starts at
+   */
+  explicit TimingWheel(uint64_t current_tick = 0) : current_tick_(current_tick)
+  {
+  }
+
+  /**
+   * @brief Adds a value which expires at the provided tick. A value whose tick has already been reached is returned by
+   * the next call to advance()
+   */
+  void insert(uint64_t expiry_tick, T value)
+  {
+    place({ expiry_tick, next_sequence_++, std::move(value) });
+    size_++;
+  }
+
+  /**
+   * @brief Advances the wheel to the provided tick
+   *
+   * @param tick The tick to advance to. Ticks before the current tick are treated as the current tick
+   *
+   * @return The expired values with their expiry ticks in order of expiry. Values with the same expiry are in order of
+   * insertion
+   */
+  std::vector<std::pair<uint64_t, T>> advance(uint64_t tick)
+  {
+    if (tick > current_tick_ && tick - current_tick_ > MAX_STEPS)
+    {
+      jump(tick);
+    }
+
+    while (current_tick_ < tick)
+    {
+      current_tick_++;
+
+      // Higher levels are cascaded first so their values can fall through to the slots cascaded after them
+      for (size_t level = LEVELS - 1; level > 0; level--)
+      {
+        if ((current_tick_ & (levelTicks(level) - 1)) == 0)
+        {
+          if (level == LEVELS - 1)
+          {
+            pullOverflow();
+          }
+          cascade(level);
+        }
+      }
+
+      auto& slot = wheels_[0][current_tick_ & (SLOTS - 1)];
+      std::move(slot.begin(), slot.end(), std::back_inserter(expired_));
+      slot.clear();
+    }
+
+    std::sort(expired_.begin(), expired_.end(), [](const Entry& a, const Entry& b) {
+      return a.expiry < b.expiry || (a.expiry == b.expiry && a.sequence < b.sequence);
+    });
+
+    std::vector<std::pair<uint64_t, T>> result;
+    result.reserve(expired_.size());
+    for (auto& entry : expired_)
+    {
+      result.emplace_back(entry.expiry, std::move(entry.value));
+    }
+
+    size_ -= expired_.size();
+    expired_.clear();
+
+    return result;
+  }
+
+  uint64_t currentTick() const
+  {
+    return current_tick_;
+  }
+
+  /**
+   * @brief Number of values which have not yet been returned by advance()
+   */
+  size_t size() const
+  {
+    return size_;
+  }
+
+private:
+  struct Entry
+  {
+    uint64_t expiry;
+    uint64_t sequence;
+    T value;
+  };
+
+  // Number of ticks covered by a slot of the provided level
+  static constexpr uint64_t levelTicks(size_t level)
+  {
+    return uint64_t(1) << (SLOT_BITS * level);
+  }
+
+  void place(Entry entry)
+  {
+    if (entry.expiry <= current_tick_)
+    {
+      expired_.push_back(std::move(entry));
+      return;
+    }
+
+    uint64_t delta = entry.expiry - current_tick_;
+    for (size_t level = 0; level < LEVELS; level++)
+    {
+      if (delta < levelTicks(level + 1))
+      {
+        wheels_[level][(entry.expiry >> (SLOT_BITS * level)) & (SLOTS - 1)].push_back(std::move(entry));
+        return;
+      }
+    }
+
+    uint64_t expiry = entry.expiry;
+    overflow_.emplace(expiry, std::move(entry));
+  }
+
+  void cascade(size_t level)
+  {
+    auto& slot = wheels_[level][(current_tick_ >> (SLOT_BITS * level)) & (SLOTS - 1)];
+    std::vector<Entry> entries;
+    entries.swap(slot);
+
+    for (auto& entry : entries)
+    {
+      place(std::move(entry));
+    }
+  }
+
+  void pullOverflow()
+  {
+    auto end = overflow_.lower_bound(current_tick_ + SPAN);
+    for (auto it = overflow_.begin(); it != end; it++)
+    {
+      place(std::move(it->second));
+    }
+    overflow_.erase(overflow_.begin(), end);
+  }
+
+  // Moves directly to the provided tick by re-placing every value, which is cheaper than stepping through long gaps
+  // such as the clock jumping when simulation time starts
+  void jump(uint64_t tick)
+  {
+    std::vector<Entry> entries;
+    for (auto& level : wheels_)
+    {
+      for (auto& slot : level)
+      {
+        std::move(slot.begin(), slot.end(), std::back_inserter(entries));
+        slot.clear();
+      }
+    }
+
+    for (auto& overflow : overflow_)
+    {
+      entries.push_back(std::move(overflow.second));
+    }
+    overflow_.clear();
+
+    current_tick_ = tick;
+    for (auto& entry : entries)
+    {
+      place(std::move(entry));
+    }
+  }
+
+  std::array<std::array<std::vector<Entry>, SLOTS>, LEVELS> wheels_;
+  std::multimap<uint64_t, Entry> overflow_;  // Values beyond the range of the top level by expiry tick
+  std::vector<Entry> expired_;               // Values which expired but have not been returned yet
+  uint64_t current_tick_;
+  uint64_t next_sequence_ = 0;
+  size_t size_ = 0;
+};
+
+}  // namespace carma_wm_ctrl
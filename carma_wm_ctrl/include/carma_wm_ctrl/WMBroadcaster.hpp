@@ -17,7 +17,9 @@
  */
 
 #include <functional>
+#include <limits>
 #include <mutex>
+#include <shared_mutex>
 #include <lanelet2_core/LaneletMap.h>
 #include <boost/date_time/posix_time/posix_time.hpp>
 #include <boost/date_time/date_defs.hpp>
@@ -30,6 +32,10 @@
 #include <autoware_lanelet2_ros2_interface/utility/message_conversion.hpp>
 #include <lanelet2_extension/projection/local_frame_projector.h>
 #include <carma_wm_ctrl/GeofenceScheduler.hpp>
+#include <carma_wm_ctrl/ActiveGeofenceTracker.hpp>
+#include <carma_wm_ctrl/GeofenceJournal.hpp>
+#include <carma_wm_ctrl/LockHoldTimeHistogram.hpp>
+#include <carma_wm_ctrl/WorkzoneGeometryCache.hpp>
 #include <lanelet2_core/geometry/BoundingBox.h>
 #include <lanelet2_core/primitives/BoundingBox.h>
 #include <carma_wm/WMListener.hpp>
@@ -50,6 +56,7 @@
 #include <visualization_msgs/msg/marker_array.hpp>
 #include <carma_v2x_msgs/msg/traffic_control_request_polygon.hpp>
 #include <carma_wm/WorldModelUtils.hpp>
+#include <carma_wm/LaneletPolygonIndex.hpp>
 #include <std_msgs/msg/int32_multi_array.hpp>
 #include <carma_v2x_msgs/msg/map_data.hpp>
 #include <carma_wm/SignalizedIntersectionManager.hpp>
@@ -124,6 +131,51 @@ public:
    * \brief Removes a geofence from the current map and publishes the ROS msg
    */
   void removeGeofence(std::shared_ptr<Geofence> gf_ptr);
+
+  /*!
+   * \brief Sets the window in seconds over which the map updates of geofence additions and removals are merged into
+   *        a single published update. A window of 0 publishes every update immediately
+   */
+  void setMapUpdateCoalescingWindow(double window);
+
+  /*!
+   * \brief Publishes the map updates held by the current coalescing window as a single update. Does nothing if no
+   *        updates are held
+   */
+  void flushMapUpdates();
+
+  /*!
+   * \brief Sets the number of published map updates after which a snapshot of the current map is published on the map
+   *        topic. A listener which joins late then only needs the latest snapshot and the updates sent after it.
+   *        An interval of 0 disables snapshots
+   */
+  void setMapSnapshotInterval(size_t interval);
+
+  /*!
+   * \brief Sets the file accepted geofences and their matched lanelets are journaled to. Geofences found in an existing
+   *        journal are rescheduled, without being acknowledged again, once both the base map and its georeference have
+   *        been received. An empty path disables the journal
+   *
+   *        Only the geofence messages and lanelet matches are restored. The map changes of geofences which were active
+   *        before a restart are not journaled. They are recomputed on the base map as each rescheduled geofence
+   *        activates, so the map is not restored until the scheduler activates them again
+   */
+  void setGeofenceJournal(const std::string& path);
+
+  /*!
+   * \brief Hold times of map changes, measured from when the change starts until it has been published
+   */
+  const LockHoldTimeHistogram& getMapWriterHoldTimes() const;
+
+  /*!
+   * \brief Hold times of the exclusive map lock taken while the map is changed
+   */
+  const LockHoldTimeHistogram& getMapExclusiveHoldTimes() const;
+
+  /*!
+   * \brief Hold times of the shared map lock taken by map queries
+   */
+  const LockHoldTimeHistogram& getMapSharedHoldTimes() const;
   
   /*!
   * \brief Calls controlRequestFromRoute() and publishes the TrafficControlRequest Message returned after the completed operations
@@ -164,6 +216,8 @@ public:
    * \param geofence_msg lanelet::Points3d in local frame
    * NOTE:Currently this function only checks lanelets and will be expanded 
    * to areas in the future.
+   * While the map and routing graph are unchanged from the base map the result is read from and written to the
+   * geofence journal, if one is set, so geofences seen before a restart are not matched again.
    */
   lanelet::ConstLaneletOrAreas getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts);
 
@@ -274,6 +328,17 @@ public:
    */ 
   carma_planning_msgs::msg::Route getRoute();
 
+  /*!
+   * \brief Returns a copy of the intersection and signal group ids along the route populated by publishLightId() and
+   *        updateUpcomingSGIntersectionIds()
+   */
+  std_msgs::msg::Int32MultiArray getUpcomingIntersectionIds();
+
+  /*!
+   * \brief Returns a copy of the polygon of the most recent traffic control request for visualization
+   */
+  carma_v2x_msgs::msg::TrafficControlRequestPolygon getTcrPolygon();
+
   /*!
    * \brief Creates a single workzone geofence (in the vector) that includes all additional lanelets (housing traffic lights) and update_list that blocks old lanelets.
             Geofence will have minimum of 6 lanelet_additions_ (front parallel, front diagonal, middle lanelet(s), back diagonal, back parallel, 1 opposing lanelet with trafficlight). 
@@ -316,6 +381,17 @@ public:
   std::shared_ptr<Geofence> createWorkzoneGeometry(std::unordered_map<uint8_t, std::shared_ptr<Geofence>> work_zone_geofence_cache, lanelet::Lanelet parallel_llt_front,  lanelet::Lanelet parallel_llt_back, 
                                                     std::shared_ptr<std::vector<lanelet::Lanelet>> middle_opposite_lanelets);
 
+  /*!
+   * \brief Prepares a copy of a work zone geofence from workzone_geometry_cache_ to be added to the current map again.
+            Lanelet additions which are already in the map are dropped, the affected parts are looked up in the current map,
+            and a new region_access_rule is created in place of the cached one which may already be in the map.
+
+   * \param gf_ptr Copy of the cached geofence which is modified in place
+   * \param work_zone_geofence_cache Geofence map of the activated work zone. TAPERRIGHT's id and schedule is used
+     \throw InvalidObjectStateError if no map is available
+   */
+  void prepareCachedWorkzoneGeofence(std::shared_ptr<Geofence> gf_ptr, std::unordered_map<uint8_t, std::shared_ptr<Geofence>> work_zone_geofence_cache) const;
+
   /*!
    * \brief Split given lanelet with same proportion as the given points' downtrack relative to the lanelet. 
             Newly created lanelet will have old regulatory elements copied into each of them. 
@@ -402,19 +478,65 @@ public:
   void updateUpcomingSGIntersectionIds();
 
   visualization_msgs::msg::MarkerArray tcm_marker_array_;
-  carma_v2x_msgs::msg::TrafficControlRequestPolygon tcr_polygon_;
-  std_msgs::msg::Int32MultiArray upcoming_intersection_ids_;
 
 private:
+  carma_v2x_msgs::msg::TrafficControlRequestPolygon tcr_polygon_;
+  std_msgs::msg::Int32MultiArray upcoming_intersection_ids_;
   double error_distance_ = 5; //meters
   lanelet::ConstLanelets route_path_;
-  std::unordered_set<lanelet::Id> active_geofence_llt_ids_; 
   std::unordered_map<uint8_t, std::shared_ptr<Geofence>> work_zone_geofence_cache_;
   std::unordered_map<uint32_t, lanelet::Id> traffic_light_id_lookup_;
   void addRegulatoryComponent(std::shared_ptr<Geofence> gf_ptr) const;
   void addBackRegulatoryComponent(std::shared_ptr<Geofence> gf_ptr) const;
   void removeGeofenceHelper(std::shared_ptr<Geofence> gf_ptr) const;
   void addGeofenceHelper(std::shared_ptr<Geofence> gf_ptr);
+  /*!
+   * \brief Builds the routing graph of current_map_ and swaps it in under the exclusive map lock. Must be called with
+   *        map_writer_mutex_ held and map_mutex_ not held
+   */
+  void rebuildRoutingGraph();
+  /*!
+   * \brief Implements distToNearestActiveGeofence(). Must be called with map_mutex_ held
+   */
+  double distToNearestActiveGeofenceImpl(const lanelet::BasicPoint2d& curr_pos);
+  /*!
+   * \brief Reschedules the geofences loaded from the journal. Their map changes are recomputed when they activate.
+   *        Must be called with map_writer_mutex_ held
+   */
+  void replayGeofenceJournal();
+  /*!
+   * \brief Queues an accepted geofence in the journal. Must be called with map_writer_mutex_ held. The record is written
+   *        by flushGeofenceJournal
+   */
+  void journalGeofence(const carma_v2x_msgs::msg::TrafficControlMessageV01& msg_v01);
+  /*!
+   * \brief Writes the queued journal records with a single fsync and compacts the journal when needed. Must be called
+   *        with map_writer_mutex_ not held so a slow disk does not block map writers
+   *
+   * \param journal The journal copied from geofence_journal_ while map_writer_mutex_ was held. May be null
+   */
+  void flushGeofenceJournal(const std::shared_ptr<GeofenceJournal>& journal);
+  /*!
+   * \brief Publishes the map update or holds it until the end of the coalescing window. Must be called with map_writer_mutex_ held
+   * \param update The map update to publish
+   * \param invalidates_route True if map users should reroute after applying the update
+   * \param routing_graph_changed True if the routing graph was rebuilt for the update and should be sent with it
+   */
+  void sendMapUpdate(std::shared_ptr<carma_wm::TrafficControl> update, bool invalidates_route, bool routing_graph_changed);
+  /*!
+   * \brief Merges the held map updates into one and publishes it. Must be called with map_writer_mutex_ held
+   */
+  void publishPendingMapUpdates();
+  /*!
+   * \brief Publishes current_map_ and its routing graph as the current map version. The seq_id of the message is that of
+   *        the next map update, which is the first update the map does not include. Must be called with map_writer_mutex_ held
+   */
+  void publishCurrentMap();
+  /*!
+   * \brief Publishes a snapshot of the current map followed by an update holding the signalized intersections and
+   *        traffic light ids which are not part of the map. Must be called with map_writer_mutex_ held
+   */
+  void publishMapSnapshot();
   bool shouldChangeControlLine(const lanelet::ConstLaneletOrArea& el,const lanelet::RegulatoryElementConstPtr& regem, std::shared_ptr<Geofence> gf_ptr) const;
   bool shouldChangeTrafficSignal(const lanelet::ConstLaneletOrArea& el,const lanelet::RegulatoryElementConstPtr& regem, std::shared_ptr<carma_wm::SignalizedIntersectionManager> sim) const;
   void addPassingControlLineFromMsg(std::shared_ptr<Geofence> gf_ptr, const carma_v2x_msgs::msg::TrafficControlMessageV01& msg_v01, const std::vector<lanelet::Lanelet>& affected_llts) const; 
@@ -426,14 +548,29 @@ private:
   std::unordered_set<lanelet::Lanelet> filterSuccessorLanelets(const std::unordered_set<lanelet::Lanelet>& possible_lanelets, const std::unordered_set<lanelet::Lanelet>& root_lanelets);
   
   lanelet::LaneletMapPtr base_map_;
+  // current_map_ and current_routing_graph_ are only changed with map_writer_mutex_ held and map_mutex_ held exclusively.
+  // Readers must hold either of them. Map writers such as addGeofence, removeGeofence, and rebuildRoutingGraph read
+  // them while only holding map_writer_mutex_ so they must not be called with map_mutex_ held or from queries
   lanelet::LaneletMapPtr current_map_;
   lanelet::routing::RoutingGraphPtr current_routing_graph_; // Current map routing graph
+  carma_wm::LaneletPolygonIndex lanelet_polygon_index_; // Polygon index of current_map_ used to match geofences to lanelets
+  std::mutex lanelet_polygon_index_mutex_;
+  ActiveGeofenceTracker active_geofence_tracker_; // Vehicle lanelet and active geofence lanelets of current_map_
+  std::mutex active_geofence_tracker_mutex_; // Acquired after map_mutex_ when both are held
   lanelet::Velocity config_limit;
   std::string participant_ = lanelet::Participants::VehicleCar;//Default participant type
   std::unordered_set<std::string>  checked_geofence_ids_;
   std::unordered_set<std::string>  generated_geofence_reqids_;
   std::vector<lanelet::LaneletMapPtr> cached_maps_;
-  std::mutex map_mutex_;
+  // Map writers hold map_writer_mutex_ for the whole change so they can read the map and compute geofence geometry
+  // without map_mutex_, which they only hold exclusively while changing the map. Queries hold map_mutex_ shared
+  std::mutex map_writer_mutex_; // Acquired before map_mutex_
+  std::shared_mutex map_mutex_;
+  LockHoldTimeHistogram map_writer_hold_times_;
+  LockHoldTimeHistogram map_exclusive_hold_times_;
+  LockHoldTimeHistogram map_shared_hold_times_;
+  std::mutex generated_geofence_reqids_mutex_; // Guards generated_geofence_reqids_ which route queries add to
+  std::mutex route_state_mutex_; // Guards current_route, route_path_, tcr_polygon_, and upcoming_intersection_ids_ which queries holding map_mutex_ shared read and write. Acquired after map_mutex_
   PublishMapCallback map_pub_;
   PublishMapUpdateCallback map_update_pub_;
   PublishCtrlRequestCallback control_msg_pub_;
@@ -460,6 +597,12 @@ private:
 
   size_t update_count_ = -1; // Records the total number of sent map updates. Used as the set value for update.seq_id
 
+  /* Wall clock time at which this broadcaster was created. Sent as header.stamp of every map and map update so listeners
+   * can tell the maps and updates of a restarted broadcaster, which numbers them from the start again, from those of
+   * the instance they are already in sync with
+   */
+  builtin_interfaces::msg::Time instance_stamp_;
+
   std::shared_ptr<carma_wm::SignalizedIntersectionManager> sim_;
 
   enum class AcknowledgementStatus {
@@ -469,6 +612,21 @@ private:
   const std::string geofence_ack_strategy_ = "carma3/Geofence_Acknowledgement";
   int ack_pub_times_ = 1;
   std::string vehicle_id_;
+
+  static constexpr uint32_t COALESCING_TIMER_ID = std::numeric_limits<uint32_t>::max(); // Distinct from the scheduler's timer ids
+  std::shared_ptr<carma_ros2_utils::timers::TimerFactory> timer_factory_;
+  double map_update_coalescing_window_ = 0; // seconds. 0 publishes every map update immediately
+  std::vector<std::shared_ptr<carma_wm::TrafficControl>> pending_map_updates_; // Map updates held by the coalescing window
+  bool pending_invalidates_route_ = false;
+  bool pending_routing_graph_changed_ = false;
+  size_t map_snapshot_interval_ = 0; // Map updates between snapshots of the current map. 0 disables snapshots
+  size_t updates_since_snapshot_ = 0; // Map updates published since the map or its last snapshot was published
+  std::shared_ptr<GeofenceJournal> geofence_journal_; // Null when journaling is disabled. Copied so it can be flushed without map_writer_mutex_
+  std::vector<carma_v2x_msgs::msg::TrafficControlMessageV01> journaled_geofences_; // Loaded from the journal and waiting for the map to be rescheduled
+  uint64_t base_map_key_ = 0; // Identifies the base map, participant and config speed limit the journaled lanelet matches were made for
+  size_t active_route_invalidations_ = 0; // Active geofences which rebuilt the routing graph. While 0 the graph matches the base map
+  WorkzoneGeometryCache workzone_geometry_cache_; // Work zone geofences already created for the current map version
+  std::unique_ptr<carma_ros2_utils::timers::Timer> coalescing_timer_; // Declared last so it is stopped before the members its callback uses are destroyed
 };
 
 
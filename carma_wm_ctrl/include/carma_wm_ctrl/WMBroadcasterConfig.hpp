@@ -30,6 +30,9 @@ namespace carma_wm_ctrl
     int ack_pub_times = 1; // The number of times it publishes Geofence Acknowledgement.
     double max_lane_width = 4.0; // Max lane width in meters within which geofence points are associated to a lanelet as those points are guaranteed to apply to a single lane
     double traffic_control_request_period = 1.0; //Period in seconds between traffic control requests after route selection
+    double map_update_coalescing_window = 0.0; // Window in seconds over which geofence map updates are merged into a single published update. 0 publishes every update immediately
+    int map_snapshot_interval = 0; // Number of published map updates after which a snapshot of the current map is published. 0 disables snapshots
+    std::string geofence_journal_path = ""; // File accepted geofences are journaled to so they survive a restart. Empty disables the journal
     std::vector<double> intersection_coord_correction = {}; // Every element corresponds to intersection_id of every two elements (x,y) in intersection_coord_correction (id must be [0, +65535] ranges)
     std::vector<int64_t> intersection_ids_for_correction = {}; //Every 2 element describes coordinate correction [delta_x, delta_y] for each intersection_id in intersection_ids_for_correction in same order
     double config_limit = 6.67; //config speed limit in m/s
@@ -43,6 +46,9 @@ namespace carma_wm_ctrl
            << "ack_pub_times: " << c.ack_pub_times << std::endl
            << "max_lane_width: " << c.max_lane_width << std::endl
            << "traffic_control_request_period: " << c.traffic_control_request_period << std::endl
+           << "map_update_coalescing_window: " << c.map_update_coalescing_window << std::endl
+           << "map_snapshot_interval: " << c.map_snapshot_interval << std::endl
+           << "geofence_journal_path: " << c.geofence_journal_path << std::endl
            << "intersection_coord_correction.size(): " << c.intersection_coord_correction.size() << std::endl
            << "intersection_ids_for_correction.size(): " << c.intersection_ids_for_correction.size() << std::endl
            << "vehicle_id: " << c.vehicle_id << std::endl
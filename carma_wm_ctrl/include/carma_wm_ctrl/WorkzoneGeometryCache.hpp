@@ -0,0 +1,102 @@
+#pragma once
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+#include <list>
+#include <memory>
+#include <unordered_map>
+#include <utility>
+#include <carma_wm_ctrl/Geofence.hpp>
+
+namespace carma_wm_ctrl
+{
+/*!
+ * \brief Hit and miss counts of a WorkzoneGeometryCache
+ */
+struct WorkzoneGeometryCacheStats
+{
+  size_t hits = 0;
+  size_t misses = 0;
+  size_t evictions = 0;
+};
+
+/*!
+ * \brief Least recently used cache of the geofences created from complete sets of work zone TCMs.
+ *
+ * Creating a work zone geofence splits the lanelets under the work zone and interpolates the lanelets which connect
+ * them. The result only depends on the work zone TCMs and the map they were matched to, so a set which is activated
+ * again or re-broadcast with new ids can reuse the lanelets created the first time instead of splitting the map again.
+ * The entries are keyed by the content of the TCMs, leaving out the fields which identify a particular broadcast, by
+ * the lanelets the TCMs were matched to, and by the map version.
+ *
+ * Entries are stored as snapshots taken on insertion and copies are returned, so adding a returned geofence to the map
+ * does not change the cached entry. The copies share their lanelets and regulatory elements with the entry, which may
+ * already be in the map, so a copy has to be prepared against the current map before it is added. See
+ * WMBroadcaster::prepareCachedWorkzoneGeofence
+ *
+ * This class is not thread safe.
+ */
+class WorkzoneGeometryCache
+{
+public:
+  /*!
+   * \brief Constructor
+   *
+   * \param capacity Maximum number of cached geofences. 0 disables the cache
+   */
+  explicit WorkzoneGeometryCache(size_t capacity = 8);
+
+  /*!
+   * \brief Computes the key of a set of work zone TCMs
+   *
+   * \param work_zone_geofence_cache The work zone geofences keyed by WorkZoneSection. Only their msg_ and affected_parts_
+   *                                 are used
+   * \param map_version Version of the map the geometry is created on
+   *
+   * \return Key which is equal for sets which only differ in their request ids, message ids or update times and are
+   *         matched to the same lanelets
+   */
+  static uint64_t computeKey(const std::unordered_map<uint8_t, std::shared_ptr<Geofence>>& work_zone_geofence_cache,
+                             size_t map_version);
+
+  /*!
+   * \brief Returns a copy of the geofence cached under key, or nullptr if there is none
+   */
+  std::shared_ptr<Geofence> get(uint64_t key);
+
+  /*!
+   * \brief Caches a snapshot of the provided geofence under key, evicting the least recently used entry when full
+   */
+  void insert(uint64_t key, const Geofence& gf);
+
+  /*!
+   * \brief Drops every cached geofence
+   */
+  void clear();
+
+  size_t size() const;
+
+  WorkzoneGeometryCacheStats getStats() const;
+
+private:
+  using Entry = std::pair<uint64_t, std::shared_ptr<const Geofence>>;
+
+  size_t capacity_;
+  std::list<Entry> entries_;  // Most recently used first
+  std::unordered_map<uint64_t, std::list<Entry>::iterator> index_;
+  WorkzoneGeometryCacheStats stats_;
+};
+
+}  // namespace carma_wm_ctrl
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm_ctrl/ActiveGeofenceTracker.hpp>
+#include <lanelet2_core/geometry/Lanelet.h>
+#include <lanelet2_core/geometry/Polygon.h>
+
+namespace carma_wm_ctrl
+{
+void ActiveGeofenceTracker::setMap(const lanelet::LaneletMapPtr& map,
+                                   const lanelet::routing::RoutingGraphPtr& routing_graph)
+{
+  map_ = map;
+  routing_graph_ = routing_graph;
+  hint_ = boost::none;
+  hint_polygon_.clear();
+  active_ids_.clear();
+  route_.clear();
+  active_on_route_.clear();
+  active_on_route_stale_ = false;
+}
+
+void ActiveGeofenceTracker::setRoutingGraph(const lanelet::routing::RoutingGraphPtr& routing_graph)
+{
+  routing_graph_ = routing_graph;
+}
+
+void ActiveGeofenceTracker::setRoute(const lanelet::ConstLanelets& route)
+{
+  route_ = route;
+  active_on_route_stale_ = true;
+}
+
+bool ActiveGeofenceTracker::setHintIfWithin(const lanelet::Lanelet& llt, const lanelet::BasicPoint2d& point)
+{
+  auto polygon = llt.polygon2d().basicPolygon();
+  if (!boost::geometry::within(point, polygon))
+  {
+    return false;
+  }
+
+  hint_ = llt;
+  hint_polygon_ = std::move(polygon);
+  return true;
+}
+
+boost::optional<lanelet::Lanelet> ActiveGeofenceTracker::locate(const lanelet::BasicPoint2d& point)
+{
+  if (!map_ || map_->laneletLayer.empty())
+  {
+    return boost::none;
+  }
+
+  if (hint_ && boost::geometry::within(point, hint_polygon_))
+  {
+    stats_.hint_hits++;
+    return hint_;
+  }
+
+  if (hint_ && routing_graph_)
+  {
+    lanelet::ConstLanelets neighbours = routing_graph_->following(*hint_);
+    auto previous = routing_graph_->previous(*hint_);
+    neighbours.insert(neighbours.end(), previous.begin(), previous.end());
+
+    for (const auto& adjacent : { routing_graph_->left(*hint_), routing_graph_->right(*hint_),
+                                  routing_graph_->adjacentLeft(*hint_), routing_graph_->adjacentRight(*hint_) })
+    {
+      if (adjacent)
+        neighbours.push_back(*adjacent);
+    }
+
+    for (const auto& neighbour : neighbours)
+    {
+      // The graph holds const lanelets so the mutable instance is taken from the map
+      if (map_->laneletLayer.exists(neighbour.id()) && setHintIfWithin(map_->laneletLayer.get(neighbour.id()), point))
+      {
+        stats_.neighbour_hits++;
+        return hint_;
+      }
+    }
+  }
+
+  stats_.full_searches++;
+
+  auto nearest = lanelet::geometry::findNearest(map_->laneletLayer, point, 1);
+  if (nearest.empty() || !setHintIfWithin(nearest[0].second, point))
+  {
+    return boost::none;
+  }
+
+  return hint_;
+}
+
+void ActiveGeofenceTracker::addActiveLanelet(lanelet::Id id)
+{
+  active_on_route_stale_ |= active_ids_.insert(id).second;
+}
+
+void ActiveGeofenceTracker::removeActiveLanelet(lanelet::Id id)
+{
+  active_on_route_stale_ |= active_ids_.erase(id) > 0;
+}
+
+bool ActiveGeofenceTracker::isActive(lanelet::Id id) const
+{
+  return active_ids_.find(id) != active_ids_.end();
+}
+
+size_t ActiveGeofenceTracker::activeCount() const
+{
+  return active_ids_.size();
+}
+
+const lanelet::ConstLanelets& ActiveGeofenceTracker::activeLaneletsOnRoute()
+{
+  if (active_on_route_stale_)
+  {
+    active_on_route_.clear();
+    for (const auto& llt : route_)
+    {
+      if (isActive(llt.id()))
+        active_on_route_.push_back(llt);
+    }
+    active_on_route_stale_ = false;
+  }
+
+  return active_on_route_;
+}
+
+ActiveGeofenceTrackerStats ActiveGeofenceTracker::getStats() const
+{
+  return stats_;
+}
+
+}  // namespace carma_wm_ctrl
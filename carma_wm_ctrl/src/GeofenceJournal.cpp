@@ -0,0 +1,615 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm_ctrl/GeofenceJournal.hpp>
+#include <algorithm>
+#include <cstring>
+#include <filesystem>
+#include <iterator>
+#include <stdexcept>
+#include <fcntl.h>
+#include <unistd.h>
+#include <rclcpp/rclcpp.hpp>
+#include <rclcpp/serialization.hpp>
+#include <rclcpp/serialized_message.hpp>
+
+namespace carma_wm_ctrl
+{
+namespace
+{
+constexpr char JOURNAL_MAGIC[8] = { 'C', 'W', 'M', 'G', 'F', 'J', 'N', 'L' };
+
+struct FileHeader
+{
+  char magic[8];
+  uint32_t format_version;
+  uint32_t reserved;
+};
+
+// Precedes every record. The checksum covers the payload so a record torn by a crash is detected
+struct RecordHeader
+{
+  uint32_t type;
+  uint32_t size;
+  uint64_t checksum;
+};
+
+// 64bit FNV-1a which, unlike std::hash, is stable between processes
+constexpr uint64_t FNV_OFFSET_BASIS = 14695981039346656037ULL;
+constexpr uint64_t FNV_PRIME = 1099511628211ULL;
+
+uint64_t fnv1a(uint64_t hash, const void* data, size_t size)
+{
+  const auto* bytes = static_cast<const unsigned char*>(data);
+  for (size_t i = 0; i < size; ++i)
+  {
+    hash ^= bytes[i];
+    hash *= FNV_PRIME;
+  }
+  return hash;
+}
+
+// Flushes the data of a file, or the entries of a directory, written through another descriptor to the disk
+bool syncPath(const std::string& path, bool directory)
+{
+  int fd = ::open(path.c_str(), directory ? (O_RDONLY | O_DIRECTORY) : O_RDONLY);
+  if (fd < 0)
+  {
+    return false;
+  }
+
+  bool synced = ::fsync(fd) == 0;
+  ::close(fd);
+  return synced;
+}
+
+std::string parentDirectory(const std::string& path)
+{
+  auto directory = std::filesystem::path(path).parent_path();
+  return directory.empty() ? std::string(".") : directory.string();
+}
+
+template <typename T>
+void appendValue(std::vector<uint8_t>& payload, const T& value)
+{
+  const auto* bytes = reinterpret_cast<const uint8_t*>(&value);
+  payload.insert(payload.end(), bytes, bytes + sizeof(T));
+}
+
+template <typename T>
+T readValue(const uint8_t* data, size_t size, size_t& offset)
+{
+  if (offset + sizeof(T) > size)
+  {
+    throw std::invalid_argument("Record is smaller than its contents");
+  }
+
+  T value;
+  std::memcpy(&value, data + offset, sizeof(T));
+  offset += sizeof(T);
+  return value;
+}
+
+std::vector<uint8_t> geofencePayload(int64_t expiry_ns, const std::vector<uint8_t>& data)
+{
+  std::vector<uint8_t> payload;
+  payload.reserve(sizeof(int64_t) + data.size());
+  appendValue(payload, expiry_ns);
+  payload.insert(payload.end(), data.begin(), data.end());
+  return payload;
+}
+
+std::vector<uint8_t> affectedPartsPayload(uint64_t map_key, uint64_t key, const GeofenceJournal::AffectedPartIds& parts)
+{
+  std::vector<uint8_t> payload;
+  payload.reserve((3 + 2 * parts.size()) * sizeof(uint64_t));
+  appendValue(payload, map_key);
+  appendValue(payload, key);
+  appendValue(payload, static_cast<uint64_t>(parts.size()));
+  for (const auto& part : parts)
+  {
+    appendValue(payload, static_cast<int64_t>(part.first));
+    appendValue(payload, static_cast<uint64_t>(part.second ? 1u : 0u));
+  }
+  return payload;
+}
+
+boost::uuids::uuid toUuid(const carma_v2x_msgs::msg::TrafficControlMessageV01& msg)
+{
+  boost::uuids::uuid id;
+  std::copy(msg.id.id.begin(), msg.id.id.end(), id.begin());
+  return id;
+}
+
+}  // namespace
+
+GeofenceJournal::GeofenceJournal(const std::string& path, size_t compaction_interval)
+  : path_(path), compaction_interval_(compaction_interval)
+{
+  if (path_.empty())
+  {
+    throw std::invalid_argument("Geofence journal path must not be empty");
+  }
+
+  if (compaction_interval_ == 0)
+  {
+    throw std::invalid_argument("Geofence journal compaction interval must be greater than 0");
+  }
+}
+
+GeofenceJournal::~GeofenceJournal()
+{
+  flush();
+}
+
+std::vector<carma_v2x_msgs::msg::TrafficControlMessageV01> GeofenceJournal::load(const rclcpp::Time& now)
+{
+  std::lock_guard<std::mutex> file_guard(file_mutex_);
+  std::unique_lock<std::mutex> guard(mutex_);
+
+  geofences_.clear();
+  geofence_ids_.clear();
+  affected_parts_.clear();
+  pending_.clear();
+  pending_records_ = 0;
+  stats_ = GeofenceJournalStats();
+
+  std::vector<uint8_t> file;
+  {
+    std::ifstream in(path_, std::ios::binary);
+    if (in)
+    {
+      file.assign(std::istreambuf_iterator<char>(in), std::istreambuf_iterator<char>());
+    }
+  }
+
+  size_t offset = 0;
+  FileHeader header;
+
+  if (file.size() >= sizeof(FileHeader))
+  {
+    std::memcpy(&header, file.data(), sizeof(FileHeader));
+
+    if (std::memcmp(header.magic, JOURNAL_MAGIC, sizeof(JOURNAL_MAGIC)) == 0 && header.format_version == FORMAT_VERSION)
+    {
+      offset = sizeof(FileHeader);
+    }
+  }
+
+  if (offset == 0 && !file.empty())
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Ignoring geofence journal " << path_
+                                                                                 << " with an unknown header");
+  }
+
+  rclcpp::Serialization<carma_v2x_msgs::msg::TrafficControlMessageV01> serializer;
+  std::vector<carma_v2x_msgs::msg::TrafficControlMessageV01> msgs;
+
+  // Records are read until the first one that is incomplete or corrupt. Only the tail of the file can be torn by a
+  // crash so everything after it is dropped
+  while (offset != 0 && offset + sizeof(RecordHeader) <= file.size())
+  {
+    RecordHeader record;
+    std::memcpy(&record, file.data() + offset, sizeof(RecordHeader));
+
+    size_t payload_offset = offset + sizeof(RecordHeader);
+    if (payload_offset + record.size > file.size())
+    {
+      break;
+    }
+
+    const uint8_t* payload = file.data() + payload_offset;
+    if (fnv1a(FNV_OFFSET_BASIS, payload, record.size) != record.checksum)
+    {
+      break;
+    }
+
+    try
+    {
+      size_t pos = 0;
+      if (record.type == static_cast<uint32_t>(RecordType::GEOFENCE))
+      {
+        JournaledGeofence geofence;
+        geofence.expiry_ns = readValue<int64_t>(payload, record.size, pos);
+        geofence.data.assign(payload + pos, payload + record.size);
+
+        rclcpp::SerializedMessage serialized(geofence.data.size());
+        auto& rcl_msg = serialized.get_rcl_serialized_message();
+        std::memcpy(rcl_msg.buffer, geofence.data.data(), geofence.data.size());
+        rcl_msg.buffer_length = geofence.data.size();
+
+        carma_v2x_msgs::msg::TrafficControlMessageV01 msg;
+        serializer.deserialize_message(&serialized, &msg);
+
+        if (geofence.expiry_ns > now.nanoseconds() && geofence_ids_.insert(toUuid(msg)).second)
+        {
+          geofences_.emplace_back(std::move(geofence));
+          msgs.emplace_back(std::move(msg));
+        }
+      }
+      else if (record.type == static_cast<uint32_t>(RecordType::AFFECTED_PARTS))
+      {
+        JournaledAffectedParts entry;
+        entry.map_key = readValue<uint64_t>(payload, record.size, pos);
+        auto key = readValue<uint64_t>(payload, record.size, pos);
+        auto count = readValue<uint64_t>(payload, record.size, pos);
+
+        for (uint64_t i = 0; i < count; ++i)
+        {
+          auto id = readValue<int64_t>(payload, record.size, pos);
+          auto is_lanelet = readValue<uint64_t>(payload, record.size, pos);
+          entry.parts.emplace_back(id, is_lanelet != 0);
+        }
+
+        affected_parts_[key] = std::move(entry);
+      }
+      else
+      {
+        throw std::invalid_argument("Unknown record type " + std::to_string(record.type));
+      }
+    }
+    catch (const std::exception& e)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Dropping the tail of geofence journal "
+                                                                                   << path_ << " from an unreadable record: " << e.what());
+      break;
+    }
+
+    offset = payload_offset + record.size;
+  }
+
+  stats_.discarded_bytes = offset == 0 ? file.size() : file.size() - offset;
+
+  // Should compaction fail the discarded tail must still be removed before anything is appended after it
+  valid_size_ = offset;
+  truncate_pending_ = stats_.discarded_bytes > 0;
+
+  if (stats_.discarded_bytes > 0)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Discarded " << stats_.discarded_bytes
+                                                                                 << " bytes from the end of geofence journal " << path_);
+  }
+
+  // Compaction keeps only the records which were just read so any expired or discarded records are removed from disk
+  guard.unlock();
+  compactFile(now);
+  guard.lock();
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Loaded " << geofences_.size() << " geofences and "
+                                                                              << affected_parts_.size() << " affected part lists from " << path_);
+
+  return msgs;
+}
+
+bool GeofenceJournal::appendGeofence(const carma_v2x_msgs::msg::TrafficControlMessageV01& msg, const rclcpp::Time& expiry)
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+
+  if (!geofence_ids_.insert(toUuid(msg)).second)
+  {
+    return false;
+  }
+
+  rclcpp::Serialization<carma_v2x_msgs::msg::TrafficControlMessageV01> serializer;
+  rclcpp::SerializedMessage serialized;
+  serializer.serialize_message(&msg, &serialized);
+
+  const auto& rcl_msg = serialized.get_rcl_serialized_message();
+
+  JournaledGeofence geofence;
+  geofence.expiry_ns = expiry.nanoseconds();
+  geofence.data.assign(rcl_msg.buffer, rcl_msg.buffer + rcl_msg.buffer_length);
+
+  queueRecord(RecordType::GEOFENCE, geofencePayload(geofence.expiry_ns, geofence.data));
+  geofences_.emplace_back(std::move(geofence));
+
+  return true;
+}
+
+uint64_t GeofenceJournal::computeAffectedPartsKey(uint64_t map_key, const lanelet::Points3d& gf_pts)
+{
+  uint64_t hash = FNV_OFFSET_BASIS;
+  hash = fnv1a(hash, &map_key, sizeof(map_key));
+  for (const auto& pt : gf_pts)
+  {
+    double coords[3] = { pt.x(), pt.y(), pt.z() };
+    hash = fnv1a(hash, coords, sizeof(coords));
+  }
+  hash = fnv1a(hash, &FORMAT_VERSION, sizeof(FORMAT_VERSION));
+  return hash;
+}
+
+void GeofenceJournal::appendAffectedParts(uint64_t map_key, uint64_t key, const AffectedPartIds& parts)
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+
+  affected_parts_[key] = JournaledAffectedParts{ map_key, parts };
+  queueRecord(RecordType::AFFECTED_PARTS, affectedPartsPayload(map_key, key, parts));
+}
+
+boost::optional<GeofenceJournal::AffectedPartIds> GeofenceJournal::getAffectedParts(uint64_t key) const
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+
+  auto it = affected_parts_.find(key);
+  if (it == affected_parts_.end())
+  {
+    return boost::none;
+  }
+
+  return it->second.parts;
+}
+
+void GeofenceJournal::setMapKey(uint64_t map_key)
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+  map_key_ = map_key;
+}
+
+bool GeofenceJournal::flush()
+{
+  std::lock_guard<std::mutex> file_guard(file_mutex_);
+
+  // Records queued while this batch is written are left for the next flush
+  std::vector<uint8_t> records;
+  size_t count = 0;
+  {
+    std::lock_guard<std::mutex> guard(mutex_);
+    records.swap(pending_);
+    std::swap(count, pending_records_);
+  }
+
+  if (count == 0)
+  {
+    return true;
+  }
+
+  bool written = out_.is_open() || openForAppend();
+  if (written)
+  {
+    out_.write(reinterpret_cast<const char*>(records.data()), records.size());
+    out_.flush();
+
+    written = out_ && syncPath(path_, false);
+    if (!written)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to append to geofence journal " << path_);
+      out_.close();
+    }
+  }
+
+  std::lock_guard<std::mutex> guard(mutex_);
+
+  if (!written)
+  {
+    // Part of the batch may have reached the file. It is truncated away before the next append, as load() would drop
+    // every record after it, and compaction is requested so the batch is rewritten from memory
+    truncate_pending_ = true;
+    appends_since_compaction_ = compaction_interval_;
+    return false;
+  }
+
+  valid_size_ += records.size();
+  stats_.appends += count;
+  appends_since_compaction_ += count;
+  return true;
+}
+
+bool GeofenceJournal::compact(const rclcpp::Time& now)
+{
+  std::lock_guard<std::mutex> file_guard(file_mutex_);
+  return compactFile(now);
+}
+
+bool GeofenceJournal::compactFile(const rclcpp::Time& now)
+{
+  std::vector<uint8_t> records;
+  size_t compacted_pending_bytes = 0;
+  size_t compacted_pending_records = 0;
+  {
+    std::lock_guard<std::mutex> guard(mutex_);
+
+    appends_since_compaction_ = 0;
+
+    geofences_.erase(std::remove_if(geofences_.begin(), geofences_.end(),
+                                    [&now](const JournaledGeofence& gf) { return gf.expiry_ns <= now.nanoseconds(); }),
+                     geofences_.end());
+
+    if (map_key_ != 0)
+    {
+      for (auto it = affected_parts_.begin(); it != affected_parts_.end();)
+      {
+        if (it->second.map_key != map_key_)
+          it = affected_parts_.erase(it);
+        else
+          ++it;
+      }
+    }
+
+    // geofence_ids_ is left unchanged so an expired geofence received again is not journaled again
+
+    for (const auto& geofence : geofences_)
+    {
+      encodeRecord(records, RecordType::GEOFENCE, geofencePayload(geofence.expiry_ns, geofence.data));
+    }
+
+    for (const auto& entry : affected_parts_)
+    {
+      encodeRecord(records, RecordType::AFFECTED_PARTS, affectedPartsPayload(entry.second.map_key, entry.first, entry.second.parts));
+    }
+
+    // The queued records are part of the compacted file so they are dropped from the queue once it is in place
+    compacted_pending_bytes = pending_.size();
+    compacted_pending_records = pending_records_;
+  }
+
+  std::error_code ec;
+  auto directory = std::filesystem::path(path_).parent_path();
+  if (!directory.empty())
+  {
+    std::filesystem::create_directories(directory, ec);
+    if (ec)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to create geofence journal directory "
+                                                                                   << directory << ": " << ec.message());
+      return false;
+    }
+  }
+
+  out_.close();
+
+  std::string tmp_path = path_ + ".tmp" + std::to_string(::getpid());
+
+  {
+    std::ofstream out(tmp_path, std::ios::binary | std::ios::trunc);
+
+    FileHeader header;
+    std::memcpy(header.magic, JOURNAL_MAGIC, sizeof(JOURNAL_MAGIC));
+    header.format_version = FORMAT_VERSION;
+    header.reserved = 0;
+    out.write(reinterpret_cast<const char*>(&header), sizeof(header));
+    out.write(reinterpret_cast<const char*>(records.data()), records.size());
+
+    out.close();
+    // The compacted file must be on disk before it replaces the journal or a power loss could leave an empty journal
+    if (!out || !syncPath(tmp_path, false))
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to write geofence journal file " << tmp_path);
+      std::filesystem::remove(tmp_path, ec);
+      openForAppend();
+      return false;
+    }
+  }
+
+  // Rename is atomic so a crash leaves either the previous or the compacted journal in place
+  std::filesystem::rename(tmp_path, path_, ec);
+  if (ec)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to move geofence journal file into place "
+                                                                                 << path_ << ": " << ec.message());
+    std::filesystem::remove(tmp_path, ec);
+    openForAppend();
+    return false;
+  }
+
+  // The rename itself is only durable once the directory is synced
+  if (!syncPath(parentDirectory(path_), true))
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to sync geofence journal directory of " << path_);
+  }
+
+  // The compacted file replaced any partially written records
+  truncate_pending_ = false;
+
+  {
+    std::lock_guard<std::mutex> guard(mutex_);
+    pending_.erase(pending_.begin(), pending_.begin() + compacted_pending_bytes);
+    pending_records_ -= compacted_pending_records;
+    stats_.compactions++;
+  }
+
+  return openForAppend();
+}
+
+bool GeofenceJournal::needsCompaction() const
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+  return appends_since_compaction_ >= compaction_interval_;
+}
+
+GeofenceJournalStats GeofenceJournal::getStats() const
+{
+  std::lock_guard<std::mutex> guard(mutex_);
+
+  GeofenceJournalStats stats = stats_;
+  stats.geofences = geofences_.size();
+  stats.affected_parts = affected_parts_.size();
+  return stats;
+}
+
+std::string GeofenceJournal::getPath() const
+{
+  return path_;
+}
+
+void GeofenceJournal::queueRecord(RecordType type, const std::vector<uint8_t>& payload)
+{
+  encodeRecord(pending_, type, payload);
+  pending_records_++;
+}
+
+void GeofenceJournal::encodeRecord(std::vector<uint8_t>& out, RecordType type, const std::vector<uint8_t>& payload)
+{
+  RecordHeader record;
+  record.type = static_cast<uint32_t>(type);
+  record.size = static_cast<uint32_t>(payload.size());
+  record.checksum = fnv1a(FNV_OFFSET_BASIS, payload.data(), payload.size());
+
+  appendValue(out, record);
+  out.insert(out.end(), payload.begin(), payload.end());
+}
+
+bool GeofenceJournal::openForAppend()
+{
+  std::error_code ec;
+
+  out_.close();
+
+  if (truncate_pending_ && std::filesystem::exists(path_, ec))
+  {
+    std::filesystem::resize_file(path_, valid_size_, ec);
+    if (ec || !syncPath(path_, false))
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to truncate geofence journal " << path_
+                                                                                   << " to its last complete record");
+      return false;
+    }
+  }
+  truncate_pending_ = false;
+
+  bool write_header = !std::filesystem::exists(path_, ec) || std::filesystem::file_size(path_, ec) == 0;
+
+  out_.clear();
+  out_.open(path_, std::ios::binary | std::ios::app);
+
+  if (write_header)
+  {
+    FileHeader header;
+    std::memcpy(header.magic, JOURNAL_MAGIC, sizeof(JOURNAL_MAGIC));
+    header.format_version = FORMAT_VERSION;
+    header.reserved = 0;
+    out_.write(reinterpret_cast<const char*>(&header), sizeof(header));
+    out_.flush();
+
+    // A new file is only durable once both its data and its directory entry are synced
+    if (out_ && (!syncPath(path_, false) || !syncPath(parentDirectory(path_), true)))
+    {
+      out_.setstate(std::ios::failbit);
+    }
+  }
+
+  if (!out_)
+  {
+    RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl::GeofenceJournal"), "Failed to open geofence journal " << path_);
+    out_.close();
+    return false;
+  }
+
+  valid_size_ = std::filesystem::file_size(path_, ec);
+  return true;
+}
+
+}  // namespace carma_wm_ctrl
@@ -15,18 +15,25 @@
  */
 
 #include <carma_wm_ctrl/GeofenceScheduler.hpp>
+#include <chrono>
+#include <stdexcept>
 
 namespace carma_wm_ctrl
 {
-using std::placeholders::_1;
-
-GeofenceScheduler::GeofenceScheduler(std::shared_ptr<TimerFactory> timerFactory)
-  : timerFactory_(timerFactory)
+GeofenceScheduler::GeofenceScheduler(std::shared_ptr<TimerFactory> timerFactory, int64_t tick_period_ns)
+  : timerFactory_(timerFactory), tick_period_ns_(tick_period_ns)
 {
-  // Create repeating loop to clear geofence timers which are no longer needed
-  deletion_timer_ =
-      timerFactory_->buildTimer(nextId(), rclcpp::Duration(1), std::bind(&GeofenceScheduler::clearTimers, this));
+  if (tick_period_ns_ <= 0)
+  {
+    throw std::invalid_argument("GeofenceScheduler tick period must be positive");
+  }
+
   clock_type_ = timerFactory_->now().get_clock_type();
+  wheel_ = TimingWheel<ScheduledEvent>(std::max<int64_t>(timerFactory_->now().nanoseconds(), 0) / tick_period_ns_);
+
+  // Create repeating loop to process the geofence activations and deactivations which are due
+  tick_timer_ = timerFactory_->buildTimer(nextId(), rclcpp::Duration(std::chrono::nanoseconds(tick_period_ns_)),
+                                          std::bind(&GeofenceScheduler::tickCallback, this));
 }
 
 rclcpp::Time GeofenceScheduler::now()
@@ -46,25 +53,26 @@ rcl_clock_type_t GeofenceScheduler::getClockType()
 }
 
 void GeofenceScheduler::clearTimers()
+{
+  // Events are removed from the wheel as they are processed
+}
+
+GeofenceSchedulerStats GeofenceScheduler::getStats()
 {
   std::lock_guard<std::mutex> guard(mutex_);
-  auto it = timers_.begin();
+  return stats_;
+}
 
-  // Erase all expired timers_ using iterators to ensure operation is safe
-  while (it != timers_.end())
-  {
-    // Check if timer is marked for deletion
-    if (it->second.second)
-    {
-      // erase() function returns the iterator of the next
-      // to last deleted element.
-      it = timers_.erase(it);
-    }
-    else
-    {
-      it++;
-    }
-  }
+uint64_t GeofenceScheduler::toTick(const rclcpp::Time& time) const
+{
+  int64_t time_ns = std::max<int64_t>(time.nanoseconds(), 0);
+  return (time_ns + tick_period_ns_ - 1) / tick_period_ns_;
+}
+
+void GeofenceScheduler::scheduleEvent(ScheduledEvent event, const rclcpp::Time& time)
+{
+  wheel_.insert(toTick(time), std::move(event));
+  stats_.queue_depth = wheel_.size();
 }
 
 void GeofenceScheduler::addGeofence(std::shared_ptr<Geofence> gf_ptr)
@@ -73,7 +81,7 @@ void GeofenceScheduler::addGeofence(std::shared_ptr<Geofence> gf_ptr)
 
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Attempting to add Geofence with Id: " << gf_ptr->id_);
 
-  // Create timer for next start time
+  // Schedule next start time
   for (size_t schedule_idx = 0; schedule_idx < gf_ptr->schedules.size(); schedule_idx++)
   {
     // resolve clock type
@@ -93,59 +101,75 @@ void GeofenceScheduler::addGeofence(std::shared_ptr<Geofence> gf_ptr)
       startTime = timerFactory_->now();
     }
 
-    int32_t timer_id = nextId();
-
-    rclcpp::Duration control_duration = rclcpp::Duration(std::max((startTime - timerFactory_->now()).seconds() * 1e9, 0.0)); //guard for negative value
-
-    // Build timer to trigger when this geofence becomes active
-    TimerPtr timer = timerFactory_->buildTimer(
-        timer_id, control_duration,
-        std::bind(&GeofenceScheduler::startGeofenceCallback, this, gf_ptr, schedule_idx, timer_id), true, true);
-
-    timers_[timer_id] = std::make_pair(std::move(timer), false);  // Add start timer to map by Id
+    // The activation is processed by the next tick at or after the start time
+    scheduleEvent({ gf_ptr, static_cast<unsigned int>(schedule_idx), true }, startTime);
   }
 
 }
 
-void GeofenceScheduler::startGeofenceCallback(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const int32_t timer_id)
+void GeofenceScheduler::tickCallback()
 {
   std::lock_guard<std::mutex> guard(mutex_);
-  rclcpp::Time endTime = timerFactory_->now() + gf_ptr->schedules[schedule_id].control_span_;
+  rclcpp::Time now = timerFactory_->now();
 
-  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Activating Geofence with Id: " << gf_ptr->id_ << ", which will end at:" << endTime.seconds());
+  auto due = wheel_.advance(std::max<int64_t>(now.nanoseconds(), 0) / tick_period_ns_);
 
-  active_callback_(gf_ptr);
+  stats_.last_batch_size = due.size();
 
-  // Build timer to trigger when this geofence becomes inactive
-  int32_t ending_timer_id = nextId();
+  if (!due.empty())
+  {
+    // Events are returned in order of their due time so the first event has waited the longest
+    int64_t earliest_due_ns = static_cast<int64_t>(due.front().first) * tick_period_ns_;
+    stats_.last_tick_lag = std::max(0.0, (now.nanoseconds() - earliest_due_ns) / 1e9);
+    stats_.max_tick_lag = std::max(stats_.max_tick_lag, stats_.last_tick_lag);
 
-  rclcpp::Duration control_duration = rclcpp::Duration(std::max((endTime - timerFactory_->now()).seconds() * 1e9, 0.0)); //guard for negative value
+    RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Processing " << due.size() << " geofence events with tick lag: "
+                        << stats_.last_tick_lag << " queue depth: " << wheel_.size());
+  }
 
-  TimerPtr timer = timerFactory_->buildTimer(
-      ending_timer_id, control_duration,
-      std::bind(&GeofenceScheduler::endGeofenceCallback, this, gf_ptr, schedule_id, ending_timer_id), true, true);
-  timers_[ending_timer_id] = std::make_pair(std::move(timer), false);  // Add end timer to map by Id
+  for (auto& event : due)
+  {
+    if (event.second.activate)
+    {
+      startGeofence(event.second.gf_ptr, event.second.schedule_id, now);
+    }
+    else
+    {
+      endGeofence(event.second.gf_ptr, event.second.schedule_id, now);
+    }
+  }
 
-  timers_[timer_id].second = true;  // Mark start timer for deletion
+  stats_.queue_depth = wheel_.size();
 }
 
-void GeofenceScheduler::endGeofenceCallback(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const int32_t timer_id)
+void GeofenceScheduler::startGeofence(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const rclcpp::Time& now)
 {
-  std::lock_guard<std::mutex> guard(mutex_);
+  rclcpp::Time endTime = now + gf_ptr->schedules[schedule_id].control_span_;
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Activating Geofence with Id: " << gf_ptr->id_ << ", which will end at:" << endTime.seconds());
 
+  active_callback_(gf_ptr);
+  stats_.activations++;
+
+  // Schedule the time at which this geofence becomes inactive
+  scheduleEvent({ gf_ptr, schedule_id, false }, endTime);
+}
+
+void GeofenceScheduler::endGeofence(std::shared_ptr<Geofence> gf_ptr, const unsigned int schedule_id, const rclcpp::Time& now)
+{
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Deactivating Geofence with Id: " << gf_ptr->id_);
 
   inactive_callback_(gf_ptr);
-  timers_[timer_id].second = true;  // Mark timer for deletion
+  stats_.deactivations++;
 
-  // Determine if a new timer is needed for this geofence
-  auto interval_info = gf_ptr->schedules[schedule_id].getNextInterval(timerFactory_->now());
+  // Determine if a new activation is needed for this geofence
+  auto interval_info = gf_ptr->schedules[schedule_id].getNextInterval(now);
   rclcpp::Time startTime = interval_info.second;
 
   // If this geofence should currently be active set the start time to now
   if (interval_info.first)
   {
-    startTime = timerFactory_->now();
+    startTime = now;
   }
 
   if (!interval_info.first && startTime == rclcpp::Time(0, 0, clock_type_))
@@ -154,16 +178,7 @@ void GeofenceScheduler::endGeofenceCallback(std::shared_ptr<Geofence> gf_ptr, co
     return;
   }
 
-  // Build timer to trigger when this geofence becomes active
-  int32_t start_timer_id = nextId();
-
-  rclcpp::Duration control_duration = rclcpp::Duration(std::max((startTime - timerFactory_->now()).seconds() * 1e9, 0.0)); //guard for negative value
-
-  TimerPtr timer = timerFactory_->buildTimer(
-      start_timer_id, control_duration,
-      std::bind(&GeofenceScheduler::startGeofenceCallback, this, gf_ptr, schedule_id, start_timer_id), true, true);
-
-  timers_[start_timer_id] = std::make_pair(std::move(timer), false);  // Add start timer to map by Id
+  scheduleEvent({ gf_ptr, schedule_id, true }, startTime);
 }
 
 void GeofenceScheduler::onGeofenceActive(std::function<void(std::shared_ptr<Geofence>)> active_callback)
@@ -177,4 +192,4 @@ void GeofenceScheduler::onGeofenceInactive(std::function<void(std::shared_ptr<Ge
   std::lock_guard<std::mutex> guard(mutex_);
   inactive_callback_ = inactive_callback;
 }
-}  // namespace carma_wm_ctrl
\ No newline at end of file
+}  // namespace carma_wm_ctrl
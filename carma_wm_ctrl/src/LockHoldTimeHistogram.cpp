@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm_ctrl/LockHoldTimeHistogram.hpp>
+#include <algorithm>
+#include <sstream>
+
+namespace carma_wm_ctrl
+{
+void LockHoldTimeHistogram::record(std::chrono::nanoseconds hold_time)
+{
+  int64_t ns = std::max<int64_t>(hold_time.count(), 0);
+  uint64_t us = static_cast<uint64_t>(ns / 1000);
+
+  // Bucket i holds [2^(i-1), 2^i) us so the bucket is the bit width of the hold time in microseconds
+  size_t bucket = 0;
+  while (us > 0 && bucket < NUM_BUCKETS - 1)
+  {
+    us >>= 1;
+    bucket++;
+  }
+
+  counts_[bucket].fetch_add(1, std::memory_order_relaxed);
+  total_.fetch_add(1, std::memory_order_relaxed);
+
+  int64_t prev_max = max_ns_.load(std::memory_order_relaxed);
+  while (ns > prev_max && !max_ns_.compare_exchange_weak(prev_max, ns, std::memory_order_relaxed))
+  {
+  }
+}
+
+LockHoldTimeHistogram::Counts LockHoldTimeHistogram::getCounts() const
+{
+  Counts counts;
+  for (size_t i = 0; i < NUM_BUCKETS; ++i)
+  {
+    counts[i] = counts_[i].load(std::memory_order_relaxed);
+  }
+  return counts;
+}
+
+std::chrono::microseconds LockHoldTimeHistogram::bucketUpperBound(size_t bucket)
+{
+  if (bucket >= NUM_BUCKETS - 1)
+  {
+    return std::chrono::microseconds::max();
+  }
+
+  return std::chrono::microseconds(1LL << bucket);
+}
+
+uint64_t LockHoldTimeHistogram::count() const
+{
+  return total_.load(std::memory_order_relaxed);
+}
+
+std::chrono::nanoseconds LockHoldTimeHistogram::max() const
+{
+  return std::chrono::nanoseconds(max_ns_.load(std::memory_order_relaxed));
+}
+
+std::chrono::microseconds LockHoldTimeHistogram::percentile(double fraction) const
+{
+  auto counts = getCounts();
+
+  uint64_t total = 0;
+  for (auto c : counts)
+    total += c;
+
+  if (total == 0)
+  {
+    return std::chrono::microseconds(0);
+  }
+
+  uint64_t cumulative = 0;
+  for (size_t i = 0; i < NUM_BUCKETS; ++i)
+  {
+    cumulative += counts[i];
+    if (static_cast<double>(cumulative) >= fraction * static_cast<double>(total))
+    {
+      return bucketUpperBound(i);
+    }
+  }
+
+  return bucketUpperBound(NUM_BUCKETS - 1);
+}
+
+std::string LockHoldTimeHistogram::toString() const
+{
+  auto counts = getCounts();
+
+  auto format_bound = [](std::chrono::microseconds bound) {
+    return bound == std::chrono::microseconds::max() ? std::string("inf") : std::to_string(bound.count()) + "us";
+  };
+
+  std::ostringstream ss;
+  ss << "count: " << count() << " p50 < " << format_bound(percentile(0.5)) << " p99 < " << format_bound(percentile(0.99))
+     << " max: " << std::chrono::duration_cast<std::chrono::microseconds>(max()).count() << "us buckets(us):";
+
+  for (size_t i = 0; i < NUM_BUCKETS; ++i)
+  {
+    if (counts[i] == 0)
+      continue;
+
+    if (i == NUM_BUCKETS - 1)
+      ss << " >=" << bucketUpperBound(i - 1).count() << ":" << counts[i];
+    else
+      ss << " <" << bucketUpperBound(i).count() << ":" << counts[i];
+  }
+
+  return ss.str();
+}
+
+}  // namespace carma_wm_ctrl
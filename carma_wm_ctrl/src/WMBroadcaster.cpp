@@ -14,11 +14,13 @@
  * the License.
  */
 
+#include <chrono>
 #include <functional>
 #include <mutex>
 #include <carma_wm_ctrl/WMBroadcaster.hpp>
 #include <carma_wm/Geometry.hpp>
 #include <carma_wm/MapConformer.hpp>
+#include <carma_wm/RoutingGraphCache.hpp>
 #include <autoware_lanelet2_ros2_interface/utility/message_conversion.hpp>
 #include <lanelet2_extension/projection/local_frame_projector.h>
 #include <lanelet2_core/primitives/Lanelet.h>
@@ -44,10 +46,44 @@ namespace carma_wm_ctrl
 {
 using std::placeholders::_1;
 
+namespace
+{
+// Region access rule parameters of the lanelets blocked by a work zone
+carma_v2x_msgs::msg::TrafficControlMessageV01 createWorkzoneAccessRuleMsg()
+{
+  carma_v2x_msgs::msg::TrafficControlMessageV01 participants_and_reason_only;
+
+  j2735_v2x_msgs::msg::TrafficControlVehClass participant; // sending all possible VEHICLE will be processed as they are not accessuble by regionAccessRule
+  
+  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::MICROMOBILE;
+
+  participants_and_reason_only.params.vclasses.push_back(participant);
+
+  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::BUS;
+
+  participants_and_reason_only.params.vclasses.push_back(participant);
+
+  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::PASSENGER_CAR;
+
+  participants_and_reason_only.params.vclasses.push_back(participant);
+
+  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::TWO_AXLE_SIX_TIRE_SINGLE_UNIT_TRUCK;
+
+  participants_and_reason_only.params.vclasses.push_back(participant);
+
+  participants_and_reason_only.package.label = "SIG_WZ";
+
+  return participants_and_reason_only;
+}
+}  // namespace
+
 WMBroadcaster::WMBroadcaster(const PublishMapCallback& map_pub, const PublishMapUpdateCallback& map_update_pub, const PublishCtrlRequestCallback& control_msg_pub,
 const PublishActiveGeofCallback& active_pub, std::shared_ptr<carma_ros2_utils::timers::TimerFactory> timer_factory, const PublishMobilityOperationCallback& tcm_ack_pub)
-  : map_pub_(map_pub), map_update_pub_(map_update_pub), control_msg_pub_(control_msg_pub), active_pub_(active_pub), scheduler_(timer_factory), tcm_ack_pub_(tcm_ack_pub)
+  : map_pub_(map_pub), map_update_pub_(map_update_pub), control_msg_pub_(control_msg_pub), active_pub_(active_pub), scheduler_(timer_factory), tcm_ack_pub_(tcm_ack_pub),
+    timer_factory_(timer_factory)
 {
+  instance_stamp_ = rclcpp::Time(std::chrono::duration_cast<std::chrono::nanoseconds>(
+      std::chrono::system_clock::now().time_since_epoch()).count());
   scheduler_.onGeofenceActive(std::bind(&WMBroadcaster::addGeofence, this, _1));
   scheduler_.onGeofenceInactive(std::bind(&WMBroadcaster::removeGeofence, this, _1));
   std::bind(&WMBroadcaster::routeCallbackMessage, this, _1);
@@ -55,7 +91,7 @@ const PublishActiveGeofCallback& active_pub, std::shared_ptr<carma_ros2_utils::t
 
 void WMBroadcaster::baseMapCallback(autoware_lanelet2_msgs::msg::MapBin::UniquePtr map_msg)
 {
-  std::lock_guard<std::mutex> guard(map_mutex_);
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
 
   static bool firstCall = true;
   // This function should generally only ever be called one time so log a warning if it occurs multiple times
@@ -69,29 +105,66 @@ void WMBroadcaster::baseMapCallback(autoware_lanelet2_msgs::msg::MapBin::UniqueP
     RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "WMBroadcaster::baseMapCallback called multiple times in the same node");
   }
 
+  // Matches journaled for a different map, participant or config speed limit are ignored
+  base_map_key_ = carma_wm::RoutingGraphCache::computeKey(*map_msg, participant_, config_limit.value());
+  active_route_invalidations_ = 0;
+  if (geofence_journal_)
+  {
+    geofence_journal_->setMapKey(base_map_key_);
+  }
+
   lanelet::LaneletMapPtr new_map(new lanelet::LaneletMap);
   lanelet::LaneletMapPtr new_map_to_change(new lanelet::LaneletMap);
 
   lanelet::utils::conversion::fromBinMsg(*map_msg, new_map);
   lanelet::utils::conversion::fromBinMsg(*map_msg, new_map_to_change);
 
-  base_map_ = new_map;  // Store map
-  current_map_ = new_map_to_change; // broadcaster makes changes to this
+  // Updates held by the coalescing window apply to the previous map version so they are dropped
+  pending_map_updates_.clear();
+  pending_invalidates_route_ = false;
+  pending_routing_graph_changed_ = false;
 
-  lanelet::MapConformer::ensureCompliance(base_map_, config_limit);     // Update map to ensure it complies with expectations
-  lanelet::MapConformer::ensureCompliance(current_map_, config_limit);
+  // Work zone geometry references the lanelets of the previous map
+  workzone_geometry_cache_.clear();
+
+  // The new map is prepared before the map lock is taken so queries of the previous map are not blocked
+  lanelet::MapConformer::ensureCompliance(new_map, config_limit);     // Update map to ensure it complies with expectations
+  lanelet::MapConformer::ensureCompliance(new_map_to_change, config_limit);
 
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Building routing graph for base map");
 
   lanelet::traffic_rules::TrafficRulesUPtr traffic_rules_car = lanelet::traffic_rules::TrafficRulesFactory::create(
   lanelet::traffic_rules::CarmaUSTrafficRules::Location, participant_);
-  current_routing_graph_ = lanelet::routing::RoutingGraph::build(*current_map_, *traffic_rules_car);
+  lanelet::routing::RoutingGraphPtr new_routing_graph = lanelet::routing::RoutingGraph::build(*new_map_to_change, *traffic_rules_car);
 
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done building routing graph for base map");
 
+  {
+    TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
+
+    base_map_ = new_map;  // Store map
+    current_map_ = new_map_to_change; // broadcaster makes changes to this
+    current_routing_graph_ = new_routing_graph;
+
+    std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+    active_geofence_tracker_.setMap(current_map_, current_routing_graph_);
+  }
+
+  {
+    std::lock_guard<std::mutex> index_guard(lanelet_polygon_index_mutex_);
+    lanelet_polygon_index_.build(current_map_);
+  }
+
   // Publish map
   current_map_version_ += 1; // Increment the map version. It should always start from 1 for the first map
   
+  publishCurrentMap();
+
+  replayGeofenceJournal();
+};
+
+void WMBroadcaster::publishCurrentMap()
+{
   autoware_lanelet2_msgs::msg::MapBin compliant_map_msg;
 
   // Populate the routing graph message
@@ -106,8 +179,48 @@ void WMBroadcaster::baseMapCallback(autoware_lanelet2_msgs::msg::MapBin::UniqueP
 
   lanelet::utils::conversion::toBinMsg(current_map_, &compliant_map_msg);
   compliant_map_msg.map_version = current_map_version_;
+  compliant_map_msg.seq_id = update_count_ + 1; // The map includes every update before the next one to be sent
+  compliant_map_msg.header.stamp = instance_stamp_;
+  updates_since_snapshot_ = 0;
   map_pub_(compliant_map_msg);
-};
+}
+
+void WMBroadcaster::publishMapSnapshot()
+{
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Publishing snapshot of map version " << current_map_version_
+                     << " which includes the " << updates_since_snapshot_ << " map updates since the previous snapshot");
+
+  publishCurrentMap();
+
+  // The map does not carry the signalized intersections or traffic light ids so listeners which start from the
+  // snapshot receive them as the first update which follows it
+  bool has_intersections = sim_ && !sim_->intersection_id_to_regem_id_.empty();
+  if (!has_intersections && traffic_light_id_lookup_.empty())
+    return;
+
+  auto catch_up = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(boost::uuids::random_generator()(), {}, {}, {}));
+  catch_up->traffic_light_id_lookup_.assign(traffic_light_id_lookup_.begin(), traffic_light_id_lookup_.end());
+  if (has_intersections)
+  {
+    catch_up->sim_ = *sim_;
+  }
+
+  // Sent directly rather than through publishPendingMapUpdates so it does not count towards the next snapshot
+  autoware_lanelet2_msgs::msg::MapBin gf_msg;
+  carma_wm::toBinMsg(catch_up, &gf_msg);
+  update_count_++;
+  gf_msg.seq_id = update_count_;
+  gf_msg.map_version = current_map_version_;
+  gf_msg.header.stamp = instance_stamp_;
+
+  map_update_pub_(gf_msg);
+}
+
+void WMBroadcaster::setMapSnapshotInterval(size_t interval)
+{
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+  map_snapshot_interval_ = interval;
+}
 
 /*!
   * \brief Populates the schedules member of the geofence object from given TrafficControlMessageV01 message
@@ -533,27 +646,7 @@ std::shared_ptr<Geofence> WMBroadcaster::createWorkzoneGeometry(std::unordered_m
   //////////////////////////////
     
   // fill information for paricipants and reason for blocking
-  carma_v2x_msgs::msg::TrafficControlMessageV01 participants_and_reason_only;
-
-  j2735_v2x_msgs::msg::TrafficControlVehClass participant; // sending all possible VEHICLE will be processed as they are not accessuble by regionAccessRule
-  
-  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::MICROMOBILE;
-
-  participants_and_reason_only.params.vclasses.push_back(participant);
-
-  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::BUS;
-
-  participants_and_reason_only.params.vclasses.push_back(participant);
-
-  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::PASSENGER_CAR;
-
-  participants_and_reason_only.params.vclasses.push_back(participant);
-
-  participant.vehicle_class =  j2735_v2x_msgs::msg::TrafficControlVehClass::TWO_AXLE_SIX_TIRE_SINGLE_UNIT_TRUCK;
-
-  participants_and_reason_only.params.vclasses.push_back(participant);
-
-  participants_and_reason_only.package.label = "SIG_WZ";
+  carma_v2x_msgs::msg::TrafficControlMessageV01 participants_and_reason_only = createWorkzoneAccessRuleMsg();
 
   std::vector<lanelet::Lanelet> old_or_blocked_llts; // this is needed to addRegionAccessRule input signatures
   
@@ -592,6 +685,48 @@ std::shared_ptr<Geofence> WMBroadcaster::createWorkzoneGeometry(std::unordered_m
   return gf_ptr;
 }
 
+void WMBroadcaster::prepareCachedWorkzoneGeofence(std::shared_ptr<Geofence> gf_ptr, std::unordered_map<uint8_t, std::shared_ptr<Geofence>> work_zone_geofence_cache) const
+{
+  gf_ptr->id_ = work_zone_geofence_cache[WorkZoneSection::TAPERRIGHT]->id_;
+  gf_ptr->schedules = work_zone_geofence_cache[WorkZoneSection::TAPERRIGHT]->schedules;
+  gf_ptr->prev_regems_ = {};
+  gf_ptr->update_list_ = {};
+  gf_ptr->remove_list_ = {};
+
+  // Deactivating a work zone leaves the lanelets it added in the map so they are neither added nor published again
+  std::vector<lanelet::Lanelet> missing_additions;
+  for (const auto& llt : gf_ptr->lanelet_additions_)
+  {
+    if (!current_map_->laneletLayer.exists(llt.id()))
+    {
+      missing_additions.push_back(llt);
+    }
+    else
+    {
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Cached workzone lanelet is already in the map. Not adding it again. Id: " << llt.id());
+    }
+  }
+  gf_ptr->lanelet_additions_ = missing_additions;
+
+  // The blocked lanelets are looked up again so the update and remove lists are built against their current regulatory elements
+  lanelet::ConstLaneletOrAreas affected_parts;
+  std::vector<lanelet::Lanelet> blocked_llts;
+  for (const auto& part : gf_ptr->affected_parts_)
+  {
+    if (!part.isLanelet() || !current_map_->laneletLayer.exists(part.id()))
+    {
+      continue;
+    }
+    auto llt = current_map_->laneletLayer.get(part.id());
+    affected_parts.push_back(llt);
+    blocked_llts.push_back(llt);
+  }
+  gf_ptr->affected_parts_ = affected_parts;
+
+  // The region access rule of the earlier activation may still be in the map so a new one replaces it
+  addRegionAccessRule(gf_ptr, createWorkzoneAccessRuleMsg(), blocked_llts);
+}
+
 void WMBroadcaster::setErrorDistance(double error_distance)
 {
   error_distance_ = error_distance;
@@ -1029,6 +1164,8 @@ std::vector<std::string> WMBroadcaster::combineParticipantsToVehicle(const std::
 
 void WMBroadcaster::externalMapMsgCallback(carma_v2x_msgs::msg::MapData::UniquePtr map_msg)
 {
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+
   auto gf_ptr = std::make_shared<Geofence>();
 
   if (!current_map_ || current_map_->laneletLayer.size() == 0)
@@ -1077,7 +1214,7 @@ void WMBroadcaster::externalMapMsgCallback(carma_v2x_msgs::msg::MapData::UniqueP
 void WMBroadcaster::geofenceCallback(carma_v2x_msgs::msg::TrafficControlMessage::UniquePtr geofence_msg)
 {
   
-  std::lock_guard<std::mutex> guard(map_mutex_);
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
   std::stringstream reason_ss;
   // quickly check if the id has been added
   if (geofence_msg->choice != carma_v2x_msgs::msg::TrafficControlMessage::TCMV01) {
@@ -1104,7 +1241,12 @@ void WMBroadcaster::geofenceCallback(carma_v2x_msgs::msg::TrafficControlMessage:
   std::copy(req_id.begin(),req_id.end(), uuid_id.begin());
   std::string reqid = boost::uuids::to_string(uuid_id).substr(0, 8);
   // drop if the req has never been sent
-  if (generated_geofence_reqids_.find(reqid) == generated_geofence_reqids_.end() && reqid.compare("00000000") != 0)
+  bool known_reqid = false;
+  {
+    std::lock_guard<std::mutex> reqids_guard(generated_geofence_reqids_mutex_);
+    known_reqid = generated_geofence_reqids_.find(reqid) != generated_geofence_reqids_.end();
+  }
+  if (!known_reqid && reqid.compare("00000000") != 0)
   {
     RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "CARMA_WM_CTRL received a TrafficControlMessage with unknown TrafficControlRequest ID (reqid): " << reqid);
     return;
@@ -1121,6 +1263,13 @@ void WMBroadcaster::geofenceCallback(carma_v2x_msgs::msg::TrafficControlMessage:
     // process schedule from message
     addScheduleFromMsg(gf_ptr, geofence_msg->tcm_v01);    
     scheduleGeofence(gf_ptr);
+    journalGeofence(geofence_msg->tcm_v01);
+
+    // The geofence is synced to the journal before it is acknowledged, without blocking other map writers
+    auto journal = geofence_journal_;
+    writer_guard.unlock();
+    flushGeofenceJournal(journal);
+
     reason_ss.str("");
     reason_ss << "Successfully processed TCM.";
     pubTCMACK(geofence_msg->tcm_v01.reqid, geofence_msg->tcm_v01.msgnum, static_cast<int>(AcknowledgementStatus::ACKNOWLEDGED), reason_ss.str());
@@ -1197,9 +1346,14 @@ void WMBroadcaster::scheduleGeofence(std::shared_ptr<carma_wm_ctrl::Geofence> gf
 
 void WMBroadcaster::geoReferenceCallback(std_msgs::msg::String::UniquePtr geo_ref)
 {
-  std::lock_guard<std::mutex> guard(map_mutex_);
-  sim_->setTargetFrame(geo_ref->data);
-  base_map_georef_ = geo_ref->data;
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+  {
+    TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
+    sim_->setTargetFrame(geo_ref->data);
+    base_map_georef_ = geo_ref->data;
+  }
+
+  replayGeofenceJournal();
 }
 
 void WMBroadcaster::setMaxLaneWidth(double max_lane_width)
@@ -1343,7 +1497,58 @@ lanelet::Points3d WMBroadcaster::getPointsInLocalFrame(const carma_v2x_msgs::msg
 
 lanelet::ConstLaneletOrAreas WMBroadcaster::getAffectedLaneletOrAreas(const lanelet::Points3d& gf_pts)
 {
-  return carma_wm::query::getAffectedLaneletOrAreas(gf_pts, current_map_, current_routing_graph_, max_lane_width_);
+  // Journaled matches only hold while no geofence has added lanelets or areas or rebuilt the routing graph
+  bool use_journal = geofence_journal_ && base_map_ && active_route_invalidations_ == 0 &&
+                     current_map_->laneletLayer.size() == base_map_->laneletLayer.size() &&
+                     current_map_->areaLayer.size() == base_map_->areaLayer.size();
+
+  uint64_t journal_key = 0;
+  if (use_journal)
+  {
+    journal_key = GeofenceJournal::computeAffectedPartsKey(base_map_key_, gf_pts);
+    auto journaled_ids = geofence_journal_->getAffectedParts(journal_key);
+
+    if (journaled_ids)
+    {
+      lanelet::ConstLaneletOrAreas journaled_parts;
+      for (const auto& part : *journaled_ids)
+      {
+        if (part.second && current_map_->laneletLayer.exists(part.first))
+          journaled_parts.push_back(lanelet::ConstLanelet(current_map_->laneletLayer.get(part.first)));
+        else if (!part.second && current_map_->areaLayer.exists(part.first))
+          journaled_parts.push_back(lanelet::ConstArea(current_map_->areaLayer.get(part.first)));
+        else
+          break;
+      }
+
+      if (journaled_parts.size() == journaled_ids->size())
+        return journaled_parts;
+
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Journaled geofence match references a primitive which is not in the map. Matching again");
+    }
+  }
+
+  lanelet::ConstLaneletOrAreas affected_parts;
+  {
+    std::lock_guard<std::mutex> guard(lanelet_polygon_index_mutex_);
+
+    // Lanelets added by previously applied geofences are indexed before matching
+    lanelet_polygon_index_.update(current_map_);
+
+    affected_parts = carma_wm::query::getAffectedLaneletOrAreas(gf_pts, lanelet_polygon_index_, current_map_, current_routing_graph_);
+  }
+
+  if (use_journal)
+  {
+    GeofenceJournal::AffectedPartIds ids;
+    ids.reserve(affected_parts.size());
+    for (const auto& part : affected_parts)
+      ids.emplace_back(part.id(), part.isLanelet());
+
+    geofence_journal_->appendAffectedParts(base_map_key_, journal_key, ids);
+  }
+
+  return affected_parts;
 }
 
 /*!
@@ -1487,8 +1692,9 @@ void WMBroadcaster::addBackRegulatoryComponent(std::shared_ptr<Geofence> gf_ptr)
 
 void WMBroadcaster::addGeofence(std::shared_ptr<Geofence> gf_ptr)
 {
-   
-  std::lock_guard<std::mutex> guard(map_mutex_);
+  // The geometry is computed from the map without map_mutex_ as no other writer can change it. Only applying the
+  // result to the map excludes queries
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Adding active geofence to the map with geofence id: " << gf_ptr->id_);
   
   // if applying workzone geometry geofence, utilize workzone chache to create one 
@@ -1503,10 +1709,29 @@ void WMBroadcaster::addGeofence(std::shared_ptr<Geofence> gf_ptr)
     {
       geofenceFromMsg(gf_cache_ptr.second, gf_cache_ptr.second->msg_);
     }
-    updates_to_send.push_back(createWorkzoneGeofence(work_zone_geofence_cache_));
+
+    // Splitting the map for the same work zone gives the same geometry so a reactivated or re-broadcast work zone
+    // reuses the lanelets created the first time
+    uint64_t workzone_key = WorkzoneGeometryCache::computeKey(work_zone_geofence_cache_, current_map_version_);
+    auto workzone_gf_ptr = workzone_geometry_cache_.get(workzone_key);
+
+    if (workzone_gf_ptr)
+    {
+      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Reusing workzone geometry created earlier from the same TCMs on map version " << current_map_version_);
+      prepareCachedWorkzoneGeofence(workzone_gf_ptr, work_zone_geofence_cache_);
+    }
+    else
+    {
+      workzone_gf_ptr = createWorkzoneGeofence(work_zone_geofence_cache_);
+      workzone_geometry_cache_.insert(workzone_key, *workzone_gf_ptr);
+    }
+
+    updates_to_send.push_back(workzone_gf_ptr);
   }
   else if (detected_map_msg_signal)
   {
+    // Creating the intersections changes the signalized intersection manager which queries read
+    TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
     updates_to_send = geofenceFromMapMsg(gf_ptr, gf_ptr->map_msg_);
   }
   else
@@ -1523,38 +1748,24 @@ void WMBroadcaster::addGeofence(std::shared_ptr<Geofence> gf_ptr)
     if (update->affected_parts_.empty())
       continue;
 
-    // Process the geofence object to populate update remove lists
-    addGeofenceHelper(update);
-    
-    if (!detected_map_msg_signal)
     {
-      for (auto pair : update->update_list_) active_geofence_llt_ids_.insert(pair.first);
+      TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
+
+      // Process the geofence object to populate update remove lists
+      addGeofenceHelper(update);
+
+      if (!detected_map_msg_signal)
+      {
+        std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+        for (auto pair : update->update_list_) active_geofence_tracker_.addActiveLanelet(pair.first);
+      }
     }
 
-    autoware_lanelet2_msgs::msg::MapBin gf_msg;
-    
     // If the geofence invalidates the route graph then recompute the routing graph now that the map has been updated
     if (update->invalidate_route_) {
-
-      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Rebuilding routing graph after is was invalidated by geofence");
-
-      lanelet::traffic_rules::TrafficRulesUPtr traffic_rules_car = lanelet::traffic_rules::TrafficRulesFactory::create(
-      lanelet::traffic_rules::CarmaUSTrafficRules::Location, participant_);
-      current_routing_graph_ = lanelet::routing::RoutingGraph::build(*current_map_, *traffic_rules_car);
-
-      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done rebuilding routing graph after is was invalidated by geofence");
-
-      // Populate routing graph structure
-      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Creating routing graph message");
-
-      auto readable_graph = std::static_pointer_cast<RoutingGraphAccessor>(current_routing_graph_);
-
-      gf_msg.routing_graph = readable_graph->routingGraphToMsg(participant_);
-      gf_msg.has_routing_graph = true;
-
-      RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done creating routing graph message");
+      active_route_invalidations_++;
+      rebuildRoutingGraph();
     }
-    
 
     // Publish
     auto send_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(update->id_, update->update_list_, update->remove_list_, update->lanelet_additions_));
@@ -1565,73 +1776,273 @@ void WMBroadcaster::addGeofence(std::shared_ptr<Geofence> gf_ptr)
       send_data->sim_ = *sim_;
     }
 
-    carma_wm::toBinMsg(send_data, &gf_msg);
-    update_count_++; // Update the sequence count for the geofence messages
-    gf_msg.seq_id = update_count_;
-    gf_msg.invalidates_route=update->invalidate_route_; 
-    gf_msg.map_version = current_map_version_;
-    map_update_pub_(gf_msg);
+    sendMapUpdate(send_data, update->invalidate_route_, update->invalidate_route_);
   }
-  
+
+  // Lanelet matches journaled while computing the geometry are synced once other map writers are no longer blocked
+  auto journal = geofence_journal_;
+  writer_guard.unlock();
+  flushGeofenceJournal(journal);
 }
 
 void WMBroadcaster::removeGeofence(std::shared_ptr<Geofence> gf_ptr)
 {
-  std::lock_guard<std::mutex> guard(map_mutex_);
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
   RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Removing inactive geofence from the map with geofence id: " << gf_ptr->id_);
   
   // Process the geofence object to populate update remove lists
   if (gf_ptr->affected_parts_.empty())
     return;
 
-  removeGeofenceHelper(gf_ptr);
+  {
+    TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
+
+    removeGeofenceHelper(gf_ptr);
 
-  for (auto pair : gf_ptr->remove_list_) active_geofence_llt_ids_.erase(pair.first);
+    std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+    for (auto pair : gf_ptr->remove_list_) active_geofence_tracker_.removeActiveLanelet(pair.first);
+  }
 
   // publish
-  autoware_lanelet2_msgs::msg::MapBin gf_msg_revert;
   auto send_data = std::make_shared<carma_wm::TrafficControl>(carma_wm::TrafficControl(gf_ptr->id_, gf_ptr->update_list_, gf_ptr->remove_list_, {}));
 
   if (gf_ptr->invalidate_route_) { // If a geofence initially invalidated the route it stands to reason its removal should as well
+    if (active_route_invalidations_ > 0)
+      active_route_invalidations_--;
+    rebuildRoutingGraph();
+  }
+
+  sendMapUpdate(send_data, false, gf_ptr->invalidate_route_);
+}
+
+void WMBroadcaster::rebuildRoutingGraph()
+{
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Rebuilding routing graph after is was invalidated by geofence");
+
+  lanelet::traffic_rules::TrafficRulesUPtr traffic_rules_car = lanelet::traffic_rules::TrafficRulesFactory::create(
+    lanelet::traffic_rules::CarmaUSTrafficRules::Location, participant_
+  );
+  lanelet::routing::RoutingGraphPtr new_routing_graph = lanelet::routing::RoutingGraph::build(*current_map_, *traffic_rules_car);
+
+  {
+    TimedLock<std::unique_lock<std::shared_mutex>> guard(map_mutex_, map_exclusive_hold_times_);
+    current_routing_graph_ = new_routing_graph;
+
+    std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+    active_geofence_tracker_.setRoutingGraph(current_routing_graph_);
+  }
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done rebuilding routing graph after is was invalidated by geofence");
+}
+
+void WMBroadcaster::setGeofenceJournal(const std::string& path)
+{
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+
+  journaled_geofences_.clear();
+
+  if (path.empty())
+  {
+    geofence_journal_.reset();
+    return;
+  }
+
+  geofence_journal_ = std::make_shared<GeofenceJournal>(path);
+  if (base_map_)
+  {
+    geofence_journal_->setMapKey(base_map_key_);
+  }
+
+  journaled_geofences_ = geofence_journal_->load(scheduler_.now());
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Loaded " << journaled_geofences_.size() << " geofences from journal " << path);
+
+  replayGeofenceJournal();
+}
+
+const LockHoldTimeHistogram& WMBroadcaster::getMapWriterHoldTimes() const
+{
+  return map_writer_hold_times_;
+}
+
+const LockHoldTimeHistogram& WMBroadcaster::getMapExclusiveHoldTimes() const
+{
+  return map_exclusive_hold_times_;
+}
+
+const LockHoldTimeHistogram& WMBroadcaster::getMapSharedHoldTimes() const
+{
+  return map_shared_hold_times_;
+}
+
+void WMBroadcaster::replayGeofenceJournal()
+{
+  // Geofences are only matched to the map once it and its georeference are available
+  if (journaled_geofences_.empty() || !current_map_ || base_map_georef_.empty())
+    return;
+
+  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Rescheduling " << journaled_geofences_.size() << " journaled geofences");
+
+  for (const auto& msg_v01 : journaled_geofences_)
+  {
+    boost::uuids::uuid id;
+    std::copy(msg_v01.id.id.begin(), msg_v01.id.id.end(), id.begin());
+
+    // The same geofence may have been received again before the map was
+    if (!checked_geofence_ids_.insert(boost::uuids::to_string(id)).second)
+      continue;
+
+    auto gf_ptr = std::make_shared<Geofence>();
+    gf_ptr->msg_ = msg_v01;
+
+    try
+    {
+      addScheduleFromMsg(gf_ptr, msg_v01);
+      scheduleGeofence(gf_ptr);
+    }
+    catch (const std::exception& ex)
+    {
+      RCLCPP_WARN_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Failed to reschedule journaled geofence " << boost::uuids::to_string(id) << ". " << ex.what());
+    }
+  }
+
+  journaled_geofences_.clear();
+}
+
+void WMBroadcaster::journalGeofence(const carma_v2x_msgs::msg::TrafficControlMessageV01& msg_v01)
+{
+  if (!geofence_journal_)
+    return;
+
+  rclcpp::Time expiry = rclcpp::Time::max();
+  if (msg_v01.params.schedule.end_exists)
+  {
+    expiry = rclcpp::Time(msg_v01.params.schedule.end, scheduler_.getClockType());
+  }
+
+  geofence_journal_->appendGeofence(msg_v01, expiry);
+}
+
+void WMBroadcaster::flushGeofenceJournal(const std::shared_ptr<GeofenceJournal>& journal)
+{
+  if (!journal)
+    return;
+
+  journal->flush();
+
+  if (journal->needsCompaction())
+  {
+    journal->compact(scheduler_.now());
+  }
+}
 
-    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Rebuilding routing graph after is was invalidated by geofence removal");
+void WMBroadcaster::sendMapUpdate(std::shared_ptr<carma_wm::TrafficControl> update, bool invalidates_route, bool routing_graph_changed)
+{
+  pending_map_updates_.push_back(update);
+  pending_invalidates_route_ = pending_invalidates_route_ || invalidates_route;
+  pending_routing_graph_changed_ = pending_routing_graph_changed_ || routing_graph_changed;
+
+  if (map_update_coalescing_window_ <= 0)
+  {
+    publishPendingMapUpdates();
+  }
+}
 
-    lanelet::traffic_rules::TrafficRulesUPtr traffic_rules_car = lanelet::traffic_rules::TrafficRulesFactory::create(
-      lanelet::traffic_rules::CarmaUSTrafficRules::Location, participant_
-    );
-    current_routing_graph_ = lanelet::routing::RoutingGraph::build(*current_map_, *traffic_rules_car);
+void WMBroadcaster::publishPendingMapUpdates()
+{
+  if (pending_map_updates_.empty())
+    return;
 
-    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done rebuilding routing graph after is was invalidated by geofence removal");
+  autoware_lanelet2_msgs::msg::MapBin gf_msg;
 
+  // The graph is only serialized once per published update as it already reflects every update held by the window
+  if (pending_routing_graph_changed_) {
     // Populate routing graph structure
-    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Creating routing graph message for geofence removal");
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Creating routing graph message");
 
     auto readable_graph = std::static_pointer_cast<RoutingGraphAccessor>(current_routing_graph_);
 
-    gf_msg_revert.routing_graph = readable_graph->routingGraphToMsg(participant_);
-    gf_msg_revert.has_routing_graph = true;
+    gf_msg.routing_graph = readable_graph->routingGraphToMsg(participant_);
+    gf_msg.has_routing_graph = true;
 
-    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done creating routing graph message for geofence removal");
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Done creating routing graph message");
   }
-  
-  carma_wm::toBinMsg(send_data, &gf_msg_revert);
-  update_count_++; // Update the sequence count for geofence messages
-  gf_msg_revert.seq_id = update_count_;
-  gf_msg_revert.map_version = current_map_version_;
 
-  map_update_pub_(gf_msg_revert);
+  auto send_data = pending_map_updates_.size() == 1 ? pending_map_updates_.front() : carma_wm::mergeTrafficControls(pending_map_updates_);
+
+  if (pending_map_updates_.size() > 1)
+  {
+    RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Publishing " << pending_map_updates_.size() << " geofence map updates as one update");
+  }
+
+  carma_wm::toBinMsg(send_data, &gf_msg);
+  update_count_++; // Update the sequence count for the geofence messages
+  gf_msg.seq_id = update_count_;
+  gf_msg.invalidates_route = pending_invalidates_route_;
+  gf_msg.map_version = current_map_version_;
+  gf_msg.header.stamp = instance_stamp_;
+
+  pending_map_updates_.clear();
+  pending_invalidates_route_ = false;
+  pending_routing_graph_changed_ = false;
+
+  map_update_pub_(gf_msg);
+
+  updates_since_snapshot_++;
+  if (map_snapshot_interval_ > 0 && updates_since_snapshot_ >= map_snapshot_interval_)
+  {
+    publishMapSnapshot();
+  }
+}
+
+void WMBroadcaster::flushMapUpdates()
+{
+  TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+  publishPendingMapUpdates();
+}
 
+void WMBroadcaster::setMapUpdateCoalescingWindow(double window)
+{
+  // The timer is stopped without holding the map mutex as its callback acquires it
+  coalescing_timer_.reset();
+
+  {
+    TimedLock<std::unique_lock<std::mutex>> writer_guard(map_writer_mutex_, map_writer_hold_times_);
+    map_update_coalescing_window_ = std::max(window, 0.0);
+    publishPendingMapUpdates(); // Updates held by the previous window are not delayed further
+  }
 
+  if (window > 0)
+  {
+    coalescing_timer_ = timer_factory_->buildTimer(COALESCING_TIMER_ID, rclcpp::Duration(std::chrono::nanoseconds(static_cast<int64_t>(window * 1e9))),
+                                                   std::bind(&WMBroadcaster::flushMapUpdates, this));
+  }
 }
   
 carma_planning_msgs::msg::Route WMBroadcaster::getRoute()
 {
+  std::lock_guard<std::mutex> route_guard(route_state_mutex_);
   return current_route;
 }
 
+std_msgs::msg::Int32MultiArray WMBroadcaster::getUpcomingIntersectionIds()
+{
+  std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+  return upcoming_intersection_ids_;
+}
+
+carma_v2x_msgs::msg::TrafficControlRequestPolygon WMBroadcaster::getTcrPolygon()
+{
+  std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+  return tcr_polygon_;
+}
+
 void  WMBroadcaster::routeCallbackMessage(carma_planning_msgs::msg::Route::UniquePtr route_msg)
 {
- current_route = *route_msg;
+ {
+   std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+   current_route = *route_msg;
+ }
  carma_v2x_msgs::msg::TrafficControlRequest cR; 
  cR =  controlRequestFromRoute(*route_msg);
  control_msg_pub_(cR);
@@ -1640,6 +2051,8 @@ void  WMBroadcaster::routeCallbackMessage(carma_planning_msgs::msg::Route::Uniqu
 
 carma_v2x_msgs::msg::TrafficControlRequest WMBroadcaster::controlRequestFromRoute(const carma_planning_msgs::msg::Route& route_msg, std::shared_ptr<j2735_v2x_msgs::msg::Id64b> req_id_for_testing)
 {
+  TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
+
   lanelet::ConstLanelets path; 
 
   if (!current_map_ || current_map_->laneletLayer.size() == 0)
@@ -1657,7 +2070,14 @@ carma_v2x_msgs::msg::TrafficControlRequest WMBroadcaster::controlRequestFromRout
   }
 
   // update local copy
-  route_path_ = path;
+  {
+    std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+    route_path_ = path;
+  }
+  {
+    std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+    active_geofence_tracker_.setRoute(path);
+  }
   
   if(path.size() == 0) throw lanelet::InvalidObjectStateError(std::string("No lanelets available in path."));
 
@@ -1759,7 +2179,10 @@ carma_v2x_msgs::msg::TrafficControlRequest WMBroadcaster::controlRequestFromRout
   cB.offsets[2].deltax = 0.0;
   cB.offsets[2].deltay = pj_max_tmerc.xyz.y - pj_min_tmerc.xyz.y;
 
-  tcr_polygon_ = composeTCRStatus(localPoint, cB, local_projector); // TCR polygon can be visualized in UI
+  {
+    std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+    tcr_polygon_ = composeTCRStatus(localPoint, cB, local_projector); // TCR polygon can be visualized in UI
+  }
 
   cB.oldest =rclcpp::Time(0.0,0.0, scheduler_.getClockType()); // TODO this needs to be set to 0 or an older value as otherwise this will filter out all controls
   
@@ -1770,8 +2193,11 @@ carma_v2x_msgs::msg::TrafficControlRequest WMBroadcaster::controlRequestFromRout
   // take half as string
   std::string reqid = boost::uuids::to_string(uuid_id).substr(0, 8);
   std::string req_id_test = "12345678"; // TODO this is an extremely risky way of performing a unit test. This method needs to be refactored so that unit tests cannot side affect actual implementations
-  generated_geofence_reqids_.insert(req_id_test);
-  generated_geofence_reqids_.insert(reqid);
+  {
+    std::lock_guard<std::mutex> reqids_guard(generated_geofence_reqids_mutex_);
+    generated_geofence_reqids_.insert(req_id_test);
+    generated_geofence_reqids_.insert(reqid);
+  }
 
 
   // copy to reqid array
@@ -1867,36 +2293,35 @@ visualization_msgs::msg::Marker WMBroadcaster::composeTCMMarkerVisualizer(const
 
 double WMBroadcaster::distToNearestActiveGeofence(const lanelet::BasicPoint2d& curr_pos)
 {
-  std::lock_guard<std::mutex> guard(map_mutex_);
+  TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
+  return distToNearestActiveGeofenceImpl(curr_pos);
+}
 
+double WMBroadcaster::distToNearestActiveGeofenceImpl(const lanelet::BasicPoint2d& curr_pos)
+{
   if (!current_map_ || current_map_->laneletLayer.size() == 0) 
   {
     throw lanelet::InvalidObjectStateError(std::string("Lanelet map (current_map_) is not loaded to the WMBroadcaster"));
   }
 
-  // filter only the lanelets in the route
-  std::vector<lanelet::Id> active_geofence_on_route;
-  for (auto llt : route_path_)
-  {
-    if (active_geofence_llt_ids_.find(llt.id()) != active_geofence_llt_ids_.end()) 
-      active_geofence_on_route.push_back(llt.id());
-  }
+  std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
+
   // Get the lanelet of this point
-  auto curr_lanelet = lanelet::geometry::findNearest(current_map_->laneletLayer, curr_pos, 1)[0].second;
+  auto curr_lanelet = active_geofence_tracker_.locate(curr_pos);
 
   // Check if this point at least is actually within this lanelets
-  if (!boost::geometry::within(curr_pos, curr_lanelet.polygon2d().basicPolygon()))
+  if (!curr_lanelet)
     throw std::invalid_argument("Given point is not within any lanelet");
 
-  // get route distance (downtrack + cross_track) distances to every lanelets by their ids
+  // get route distance (downtrack + cross_track) distances to every active geofence lanelet in the route
   std::vector<double> route_distances;
   // and take abs of cross_track to add them to get route distance
-  for (auto id: active_geofence_on_route)
+  for (const auto& llt : active_geofence_tracker_.activeLaneletsOnRoute())
   {
-    carma_wm::TrackPos tp = carma_wm::geometry::trackPos(current_map_->laneletLayer.get(id), curr_pos);
+    carma_wm::TrackPos tp = carma_wm::geometry::trackPos(llt, curr_pos);
     // downtrack needs to be negative for lanelet to be in front of the point, 
     // also we don't account for the lanelet that the vehicle is on
-    if (tp.downtrack < 0 && id != curr_lanelet.id())
+    if (tp.downtrack < 0 && llt.id() != curr_lanelet->id())
     {
       double dist = fabs(tp.downtrack) + fabs(tp.crosstrack);
       route_distances.push_back(dist);
@@ -1945,7 +2370,13 @@ void WMBroadcaster::removeGeofenceHelper(std::shared_ptr<Geofence> gf_ptr) const
 
 void WMBroadcaster::currentLocationCallback(geometry_msgs::msg::PoseStamped::UniquePtr current_pos)
 {
-  if (current_map_ && current_map_->laneletLayer.size() != 0) {
+  bool map_loaded = false;
+  {
+    TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
+    map_loaded = current_map_ && current_map_->laneletLayer.size() != 0;
+  }
+
+  if (map_loaded) {
     carma_perception_msgs::msg::CheckActiveGeofence check = checkActiveGeofenceLogic(*current_pos);
     active_pub_(check);//Publish
   } else {
@@ -1970,6 +2401,10 @@ bool WMBroadcaster::convertLightIdToInterGroupId(unsigned& intersection_id, unsi
 
 void WMBroadcaster::publishLightId()
 {
+  TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
+  // Other queries may hold map_mutex_ shared at the same time so the route state needs its own lock
+  std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+
   if (traffic_light_id_lookup_.empty())
   {
     return;
@@ -1993,7 +2428,7 @@ void WMBroadcaster::publishLightId()
 
     RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Found Traffic Light with Intersection id: " << intersection_id << " Group id:" << group_id);
     bool id_exists = false;
-    for (int idx = 0; idx < upcoming_intersection_ids_.data.size(); idx +2)
+    for (size_t idx = 0; idx + 1 < upcoming_intersection_ids_.data.size(); idx += 2)
     {
       if (upcoming_intersection_ids_.data[idx] == intersection_id && upcoming_intersection_ids_.data[idx + 1] == group_id) //check if already there
       {
@@ -2011,6 +2446,7 @@ void WMBroadcaster::publishLightId()
 }
 carma_perception_msgs::msg::CheckActiveGeofence WMBroadcaster::checkActiveGeofenceLogic(const geometry_msgs::msg::PoseStamped& current_pos)
 {
+  TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
 
   if (!current_map_ || current_map_->laneletLayer.size() == 0) 
   {
@@ -2031,129 +2467,133 @@ carma_perception_msgs::msg::CheckActiveGeofence WMBroadcaster::checkActiveGeofen
   carma_perception_msgs::msg::CheckActiveGeofence outgoing_geof; //message to publish
   double next_distance = 0 ; //Distance to next geofence
 
-  if (active_geofence_llt_ids_.size() <= 0 ) 
+  boost::optional<lanelet::Lanelet> located_llt;
+  bool on_active_geofence = false;
   {
-    return outgoing_geof;
-  }
-  
-  RCLCPP_INFO_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence llt ids are loaded to the WMBroadcaster");
+    std::lock_guard<std::mutex> tracker_guard(active_geofence_tracker_mutex_);
 
-  // Obtain the closest lanelet to the vehicle's current position
-  auto current_llt = lanelet::geometry::findNearest(current_map_->laneletLayer, curr_pos, 1)[0].second;
+    if (active_geofence_tracker_.activeCount() == 0) 
+    {
+      return outgoing_geof;
+    }
 
+    // Obtain the lanelet containing the vehicle's current position starting from the lanelet of the previous position
+    located_llt = active_geofence_tracker_.locate(curr_pos);
+    on_active_geofence = located_llt && active_geofence_tracker_.isActive(located_llt->id());
+  }
+  
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence llt ids are loaded to the WMBroadcaster");
 
   /* determine whether or not the vehicle's current position is within an active geofence */
-  if (boost::geometry::within(curr_pos, current_llt.polygon2d().basicPolygon()))
+  if (located_llt)
   {         
-    next_distance = distToNearestActiveGeofence(curr_pos);
+    auto current_llt = *located_llt;
+    next_distance = distToNearestActiveGeofenceImpl(curr_pos);
     outgoing_geof.distance_to_next_geofence = next_distance;
 
-    for(auto id : active_geofence_llt_ids_) 
+    if (on_active_geofence)
     {
-      if (id == current_llt.id())
-      {           
-        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Vehicle is on Lanelet " << current_llt.id() << ", which has an active geofence");
-        outgoing_geof.is_on_active_geofence = true;
-        for (auto regem: current_llt.regulatoryElements())
+      RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Vehicle is on Lanelet " << current_llt.id() << ", which has an active geofence");
+      outgoing_geof.is_on_active_geofence = true;
+      for (auto regem: current_llt.regulatoryElements())
+      {
+        // Assign active geofence fields based on the speed limit associated with this lanelet
+        if (regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::DigitalSpeedLimit::RuleName) == 0)
         {
-          // Assign active geofence fields based on the speed limit associated with this lanelet
-          if (regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::DigitalSpeedLimit::RuleName) == 0)
+          lanelet::DigitalSpeedLimitPtr speed =  std::dynamic_pointer_cast<lanelet::DigitalSpeedLimit>
+          (current_map_->regulatoryElementLayer.get(regem->id()));
+          outgoing_geof.value = speed->speed_limit_.value();
+          outgoing_geof.advisory_speed = speed->speed_limit_.value();
+          outgoing_geof.reason = speed->getReason(); 
+
+          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence has a speed limit of " << speed->speed_limit_.value());
+                  
+          // Cannot overrule outgoing_geof.type if it is already set to LANE_CLOSED
+          if(outgoing_geof.type != carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED)
           {
-            lanelet::DigitalSpeedLimitPtr speed =  std::dynamic_pointer_cast<lanelet::DigitalSpeedLimit>
-            (current_map_->regulatoryElementLayer.get(regem->id()));
-            outgoing_geof.value = speed->speed_limit_.value();
-            outgoing_geof.advisory_speed = speed->speed_limit_.value();
-            outgoing_geof.reason = speed->getReason(); 
-
-            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence has a speed limit of " << speed->speed_limit_.value());
-                    
-            // Cannot overrule outgoing_geof.type if it is already set to LANE_CLOSED
-            if(outgoing_geof.type != carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED)
-            {
-              outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::SPEED_LIMIT;
-            }
+            outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::SPEED_LIMIT;
           }
+        }
+
+        // Assign active geofence fields based on the minimum gap associated with this lanelet (if it exists)
+        if(regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::DigitalMinimumGap::RuleName) == 0)
+        {
+          lanelet::DigitalMinimumGapPtr min_gap =  std::dynamic_pointer_cast<lanelet::DigitalMinimumGap>
+          (current_map_->regulatoryElementLayer.get(regem->id()));
+          outgoing_geof.minimum_gap = min_gap->getMinimumGap();
+          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence has a minimum gap of " << min_gap->getMinimumGap());
+        }
+               
+        // Assign active geofence fields based on whether the current lane is closed or is immediately adjacent to a closed lane
+        if(regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
+        {
+          lanelet::RegionAccessRulePtr accessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
+          (current_map_->regulatoryElementLayer.get(regem->id()));
 
-          // Assign active geofence fields based on the minimum gap associated with this lanelet (if it exists)
-          if(regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::DigitalMinimumGap::RuleName) == 0)
+          // Update the 'type' and 'reason' for this active geofence if the vehicle is in a closed lane
+          if(!accessRuleReg->accessable(lanelet::Participants::VehicleCar) || !accessRuleReg->accessable(lanelet::Participants::VehicleTruck)) 
           {
-            lanelet::DigitalMinimumGapPtr min_gap =  std::dynamic_pointer_cast<lanelet::DigitalMinimumGap>
-            (current_map_->regulatoryElementLayer.get(regem->id()));
-            outgoing_geof.minimum_gap = min_gap->getMinimumGap();
-            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence has a minimum gap of " << min_gap->getMinimumGap());
+            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence is a closed lane.");
+            RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Closed lane reason: " << accessRuleReg->getReason());
+            outgoing_geof.reason = accessRuleReg->getReason();
+            outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
           }
-                 
-          // Assign active geofence fields based on whether the current lane is closed or is immediately adjacent to a closed lane
-          if(regem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
+          // Otherwise, update the 'type' and 'reason' for this active geofence if the vehicle is in a lane immediately adjacent to a closed lane with the same travel direction
+          else 
           {
-            lanelet::RegionAccessRulePtr accessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
-            (current_map_->regulatoryElementLayer.get(regem->id()));
+            // Obtain all same-direction lanes sharing the right lane boundary (will include the current lanelet)
+            auto right_boundary_lanelets = current_map_->laneletLayer.findUsages(current_llt.rightBound());
 
-            // Update the 'type' and 'reason' for this active geofence if the vehicle is in a closed lane
-            if(!accessRuleReg->accessable(lanelet::Participants::VehicleCar) || !accessRuleReg->accessable(lanelet::Participants::VehicleTruck)) 
-            {
-              RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Active geofence is a closed lane.");
-              RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Closed lane reason: " << accessRuleReg->getReason());
-              outgoing_geof.reason = accessRuleReg->getReason();
-              outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
-            }
-            // Otherwise, update the 'type' and 'reason' for this active geofence if the vehicle is in a lane immediately adjacent to a closed lane with the same travel direction
-            else 
+            // Check if the adjacent right lane is closed
+            if(right_boundary_lanelets.size() > 1)
             {
-              // Obtain all same-direction lanes sharing the right lane boundary (will include the current lanelet)
-              auto right_boundary_lanelets = current_map_->laneletLayer.findUsages(current_llt.rightBound());
-
-              // Check if the adjacent right lane is closed
-              if(right_boundary_lanelets.size() > 1)
+              for(auto lanelet : right_boundary_lanelets)
               {
-                for(auto lanelet : right_boundary_lanelets)
+                // Only check the adjacent right lanelet; ignore the current lanelet
+                if(lanelet.id() != current_llt.id())
                 {
-                  // Only check the adjacent right lanelet; ignore the current lanelet
-                  if(lanelet.id() != current_llt.id())
+                  for (auto rightRegem: lanelet.regulatoryElements())
                   {
-                    for (auto rightRegem: lanelet.regulatoryElements())
+                    if(rightRegem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
                     {
-                      if(rightRegem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
+                      lanelet::RegionAccessRulePtr rightAccessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
+                      (current_map_->regulatoryElementLayer.get(rightRegem->id()));
+                      if(!rightAccessRuleReg->accessable(lanelet::Participants::VehicleCar) || !rightAccessRuleReg->accessable(lanelet::Participants::VehicleTruck))
                       {
-                        lanelet::RegionAccessRulePtr rightAccessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
-                        (current_map_->regulatoryElementLayer.get(rightRegem->id()));
-                        if(!rightAccessRuleReg->accessable(lanelet::Participants::VehicleCar) || !rightAccessRuleReg->accessable(lanelet::Participants::VehicleTruck))
-                        {
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Right adjacent Lanelet " << lanelet.id() << " is CLOSED");
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning LANE_CLOSED type to active geofence");
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning reason " << rightAccessRuleReg->getReason());
-                          outgoing_geof.reason = rightAccessRuleReg->getReason();
-                          outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
-                        }
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Right adjacent Lanelet " << lanelet.id() << " is CLOSED");
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning LANE_CLOSED type to active geofence");
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning reason " << rightAccessRuleReg->getReason());
+                        outgoing_geof.reason = rightAccessRuleReg->getReason();
+                        outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
                       }
                     }
                   }
                 }
               }
+            }
 
-              // Check if the adjacent left lane is closed
-              auto left_boundary_lanelets = current_map_->laneletLayer.findUsages(current_llt.leftBound());
-              if(left_boundary_lanelets.size() > 1)
+            // Check if the adjacent left lane is closed
+            auto left_boundary_lanelets = current_map_->laneletLayer.findUsages(current_llt.leftBound());
+            if(left_boundary_lanelets.size() > 1)
+            {
+              for(auto lanelet : left_boundary_lanelets)
               {
-                for(auto lanelet : left_boundary_lanelets)
+                // Only check the adjacent left lanelet; ignore the current lanelet
+                if(lanelet.id() != current_llt.id())
                 {
-                  // Only check the adjacent left lanelet; ignore the current lanelet
-                  if(lanelet.id() != current_llt.id())
+                  for (auto leftRegem: lanelet.regulatoryElements())
                   {
-                    for (auto leftRegem: lanelet.regulatoryElements())
+                    if(leftRegem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
                     {
-                      if(leftRegem->attribute(lanelet::AttributeName::Subtype).value().compare(lanelet::RegionAccessRule::RuleName) == 0)
+                      lanelet::RegionAccessRulePtr leftAccessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
+                      (current_map_->regulatoryElementLayer.get(leftRegem->id()));
+                      if(!leftAccessRuleReg->accessable(lanelet::Participants::VehicleCar) || !leftAccessRuleReg->accessable(lanelet::Participants::VehicleTruck))
                       {
-                        lanelet::RegionAccessRulePtr leftAccessRuleReg =  std::dynamic_pointer_cast<lanelet::RegionAccessRule>
-                        (current_map_->regulatoryElementLayer.get(leftRegem->id()));
-                        if(!leftAccessRuleReg->accessable(lanelet::Participants::VehicleCar) || !leftAccessRuleReg->accessable(lanelet::Participants::VehicleTruck))
-                        {
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Left adjacent Lanelet " << lanelet.id() << " is CLOSED");
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning LANE_CLOSED type to active geofence");
-                          RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning reason " << leftAccessRuleReg->getReason());
-                          outgoing_geof.reason = leftAccessRuleReg->getReason();
-                          outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
-                        }
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Left adjacent Lanelet " << lanelet.id() << " is CLOSED");
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning LANE_CLOSED type to active geofence");
+                        RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Assigning reason " << leftAccessRuleReg->getReason());
+                        outgoing_geof.reason = leftAccessRuleReg->getReason();
+                        outgoing_geof.type = carma_perception_msgs::msg::CheckActiveGeofence::LANE_CLOSED;
                       }
                     }
                   }
@@ -2196,11 +2636,18 @@ lanelet::Lanelet  WMBroadcaster::createLinearInterpolatingLanelet(const lanelet:
 
 void WMBroadcaster::updateUpcomingSGIntersectionIds()
 {
+  TimedLock<std::shared_lock<std::shared_mutex>> guard(map_mutex_, map_shared_hold_times_);
+
   uint16_t map_msg_intersection_id = 0;
   uint16_t cur_signal_group_id = 0;
   std::vector<lanelet::CarmaTrafficSignalPtr> traffic_lights;
   lanelet::Lanelet route_lanelet;
-  lanelet::Ids cur_route_lanelet_ids = current_route.route_path_lanelet_ids;
+  lanelet::Ids cur_route_lanelet_ids;
+  {
+    // Other queries may hold map_mutex_ shared at the same time so the route state needs its own lock
+    std::lock_guard<std::mutex> route_guard(route_state_mutex_);
+    cur_route_lanelet_ids = current_route.route_path_lanelet_ids;
+  }
   bool isLightFound = false;
   
   for(auto id : cur_route_lanelet_ids) 
@@ -2253,6 +2700,7 @@ void WMBroadcaster::updateUpcomingSGIntersectionIds()
   RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "MAP msg: Intersection ID = " <<  map_msg_intersection_id << ", Signal Group ID =" << cur_signal_group_id );
   if(map_msg_intersection_id != 0 && cur_signal_group_id != 0)
   { 
+    std::lock_guard<std::mutex> route_guard(route_state_mutex_);
     upcoming_intersection_ids_.data.clear();
     upcoming_intersection_ids_.data.push_back(static_cast<int>(map_msg_intersection_id));
     upcoming_intersection_ids_.data.push_back(static_cast<int>(cur_signal_group_id));
@@ -58,6 +58,9 @@ WMBroadcasterNode::WMBroadcasterNode(const rclcpp::NodeOptions &options)
   config_.ack_pub_times = declare_parameter<int>("ack_pub_times", config_.ack_pub_times);
   config_.max_lane_width = declare_parameter<double>("max_lane_width", config_.max_lane_width);
   config_.traffic_control_request_period = declare_parameter<double>("traffic_control_request_period", config_.traffic_control_request_period);
+  config_.map_update_coalescing_window = declare_parameter<double>("map_update_coalescing_window", config_.map_update_coalescing_window);
+  config_.map_snapshot_interval = declare_parameter<int>("map_snapshot_interval", config_.map_snapshot_interval);
+  config_.geofence_journal_path = declare_parameter<std::string>("geofence_journal_path", config_.geofence_journal_path);
   config_.vehicle_id = declare_parameter<std::string>("vehicle_id", config_.vehicle_id);
   config_.participant = declare_parameter<std::string>("vehicle_participant_type", config_.participant);
   config_.participant = declare_parameter<double>("config_speed_limit", config_.config_limit);
@@ -88,6 +91,9 @@ carma_ros2_utils::CallbackReturn WMBroadcasterNode::handle_on_configure(const rc
   get_parameter<int>("ack_pub_times", config_.ack_pub_times);
   get_parameter<double>("max_lane_width", config_.max_lane_width);
   get_parameter<double>("traffic_control_request_period", config_.traffic_control_request_period);
+  get_parameter<double>("map_update_coalescing_window", config_.map_update_coalescing_window);
+  get_parameter<int>("map_snapshot_interval", config_.map_snapshot_interval);
+  get_parameter<std::string>("geofence_journal_path", config_.geofence_journal_path);
   get_parameter<std::string>("vehicle_id", config_.vehicle_id);
   get_parameter<std::string>("vehicle_participant_type", config_.participant);
   get_parameter<double>("config_speed_limit", config_.config_limit);
@@ -97,6 +103,9 @@ carma_ros2_utils::CallbackReturn WMBroadcasterNode::handle_on_configure(const rc
   wmb_->setConfigSpeedLimit(config_.config_limit);
   wmb_->setConfigVehicleId(config_.vehicle_id);
   wmb_->setVehicleParticipationType(config_.participant);
+  wmb_->setMapUpdateCoalescingWindow(config_.map_update_coalescing_window);
+  wmb_->setMapSnapshotInterval(static_cast<size_t>(std::max(config_.map_snapshot_interval, 0)));
+  wmb_->setGeofenceJournal(config_.geofence_journal_path);
 
   rclcpp::Parameter intersection_coord_correction_param = get_parameter("intersection_coord_correction");
   config_.intersection_coord_correction = intersection_coord_correction_param.as_double_array();
@@ -121,11 +130,21 @@ carma_ros2_utils::CallbackReturn WMBroadcasterNode::handle_on_configure(const rc
   pub_qos_transient_local.transient_local();  // A publisher with this QoS will re-send all (when KeepAll is used) messages to all late-joining subscribers
                                          // NOTE: The subscriber's QoS must be set to transient_local() as well for earlier messages to be resent to the later-joiner.
 
+  // When snapshots are enabled only the latest map and the updates sent after it are needed by late-joining subscribers.
+  // A snapshot follows every map_snapshot_interval updates plus the catch-up update sent with it
+  auto map_pub_qos = pub_qos_transient_local;
+  auto map_update_pub_qos = pub_qos_transient_local;
+  if (config_.map_snapshot_interval > 0)
+  {
+    map_pub_qos = rclcpp::QoS(rclcpp::KeepLast(1)).transient_local();
+    map_update_pub_qos = rclcpp::QoS(rclcpp::KeepLast(config_.map_snapshot_interval + 1)).transient_local();
+  }
+
   // Map Update Publisher
-  map_update_pub_ = create_publisher<autoware_lanelet2_msgs::msg::MapBin>("map_update", pub_qos_transient_local, intra_proc_disabled);
+  map_update_pub_ = create_publisher<autoware_lanelet2_msgs::msg::MapBin>("map_update", map_update_pub_qos, intra_proc_disabled);
 
   // Map Publisher
-  map_pub_ = create_publisher<autoware_lanelet2_msgs::msg::MapBin>("semantic_map", pub_qos_transient_local, intra_proc_disabled);
+  map_pub_ = create_publisher<autoware_lanelet2_msgs::msg::MapBin>("semantic_map", map_pub_qos, intra_proc_disabled);
 
   //Route Message Publisher
   control_msg_pub_= create_publisher<carma_v2x_msgs::msg::TrafficControlRequest>("outgoing_geofence_request", 1);
@@ -191,15 +210,20 @@ carma_ros2_utils::CallbackReturn WMBroadcasterNode::handle_on_activate(const rcl
 bool WMBroadcasterNode::spin_callback()
 {
   tcm_visualizer_pub_->publish(wmb_->tcm_marker_array_);
-  tcr_visualizer_pub_->publish(wmb_->tcr_polygon_);
+  tcr_visualizer_pub_->publish(wmb_->getTcrPolygon());
   wmb_->publishLightId();
   //updating upcoming traffic signal group id and intersection id
   wmb_->updateUpcomingSGIntersectionIds();
-  if (wmb_->upcoming_intersection_ids_.data.size() > 0)
-    upcoming_intersection_ids_pub_->publish(wmb_->upcoming_intersection_ids_);
+  auto upcoming_intersection_ids = wmb_->getUpcomingIntersectionIds();
+  if (upcoming_intersection_ids.data.size() > 0)
+    upcoming_intersection_ids_pub_->publish(upcoming_intersection_ids);
   if(wmb_->getRoute().route_path_lanelet_ids.size() > 0)
     wmb_->routeCallbackMessage(std::make_unique<carma_planning_msgs::msg::Route>(wmb_->getRoute()));
 
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Map change hold times: " << wmb_->getMapWriterHoldTimes().toString());
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Exclusive map lock hold times: " << wmb_->getMapExclusiveHoldTimes().toString());
+  RCLCPP_DEBUG_STREAM(rclcpp::get_logger("carma_wm_ctrl"), "Shared map lock hold times: " << wmb_->getMapSharedHoldTimes().toString());
+
   return true;
 }
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <carma_wm_ctrl/WorkzoneGeometryCache.hpp>
+#include <map>
+#include <rclcpp/serialization.hpp>
+#include <rclcpp/serialized_message.hpp>
+
+namespace carma_wm_ctrl
+{
+namespace
+{
+// 64bit FNV-1a which, unlike std::hash, is stable between processes
+constexpr uint64_t FNV_OFFSET_BASIS = 14695981039346656037ULL;
+constexpr uint64_t FNV_PRIME = 1099511628211ULL;
+
+uint64_t fnv1a(uint64_t hash, const void* data, size_t size)
+{
+  const auto* bytes = static_cast<const unsigned char*>(data);
+  for (size_t i = 0; i < size; ++i)
+  {
+    hash ^= bytes[i];
+    hash *= FNV_PRIME;
+  }
+  return hash;
+}
+}  // namespace
+
+WorkzoneGeometryCache::WorkzoneGeometryCache(size_t capacity) : capacity_(capacity)
+{
+}
+
+uint64_t WorkzoneGeometryCache::computeKey(
+    const std::unordered_map<uint8_t, std::shared_ptr<Geofence>>& work_zone_geofence_cache, size_t map_version)
+{
+  uint64_t version = map_version;
+  uint64_t hash = fnv1a(FNV_OFFSET_BASIS, &version, sizeof(version));
+
+  // Hash the sections in a fixed order as the iteration order of the unordered_map is not
+  std::map<uint8_t, std::shared_ptr<Geofence>> sections(work_zone_geofence_cache.begin(),
+                                                        work_zone_geofence_cache.end());
+
+  rclcpp::Serialization<carma_v2x_msgs::msg::TrafficControlMessageV01> serializer;
+
+  for (const auto& section : sections)
+  {
+    hash = fnv1a(hash, &section.first, sizeof(section.first));
+
+    // The identifying fields change with every broadcast of the same work zone but not its geometry
+    carma_v2x_msgs::msg::TrafficControlMessageV01 msg = section.second->msg_;
+    msg.reqid = {};
+    msg.reqseq = {};
+    msg.msgtot = {};
+    msg.msgnum = {};
+    msg.id = {};
+    msg.updated = {};
+
+    rclcpp::SerializedMessage serialized;
+    serializer.serialize_message(&msg, &serialized);
+
+    const auto& rcl_msg = serialized.get_rcl_serialized_message();
+    hash = fnv1a(hash, rcl_msg.buffer, rcl_msg.buffer_length);
+
+    // Other work zones applied since the map version was published change the lanelets the TCMs are matched to
+    for (const auto& part : section.second->affected_parts_)
+    {
+      lanelet::Id id = part.id();
+      hash = fnv1a(hash, &id, sizeof(id));
+    }
+  }
+
+  return hash;
+}
+
+std::shared_ptr<Geofence> WorkzoneGeometryCache::get(uint64_t key)
+{
+  auto it = index_.find(key);
+  if (it == index_.end())
+  {
+    stats_.misses++;
+    return nullptr;
+  }
+
+  stats_.hits++;
+  entries_.splice(entries_.begin(), entries_, it->second);
+
+  return std::make_shared<Geofence>(*it->second->second);
+}
+
+void WorkzoneGeometryCache::insert(uint64_t key, const Geofence& gf)
+{
+  if (capacity_ == 0)
+  {
+    return;
+  }
+
+  auto snapshot = std::make_shared<const Geofence>(gf);
+
+  auto it = index_.find(key);
+  if (it != index_.end())
+  {
+    it->second->second = snapshot;
+    entries_.splice(entries_.begin(), entries_, it->second);
+    return;
+  }
+
+  if (entries_.size() >= capacity_)
+  {
+    index_.erase(entries_.back().first);
+    entries_.pop_back();
+    stats_.evictions++;
+  }
+
+  entries_.emplace_front(key, snapshot);
+  index_[key] = entries_.begin();
+}
+
+void WorkzoneGeometryCache::clear()
+{
+  entries_.clear();
+  index_.clear();
+}
+
+size_t WorkzoneGeometryCache::size() const
+{
+  return entries_.size();
+}
+
+WorkzoneGeometryCacheStats WorkzoneGeometryCache::getStats() const
+{
+  return stats_;
+}
+
+}  // namespace carma_wm_ctrl
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <carma_wm_ctrl/ActiveGeofenceTracker.hpp>
+#include <carma_wm/WMTestLibForGuidance.hpp>
+#include <lanelet2_extension/traffic_rules/CarmaUSTrafficRules.h>
+#include <lanelet2_traffic_rules/TrafficRulesFactory.h>
+#include <lanelet2_core/geometry/Lanelet.h>
+#include <cmath>
+
+namespace carma_wm_ctrl
+{
+namespace
+{
+lanelet::routing::RoutingGraphPtr buildRoutingGraph(const lanelet::LaneletMapPtr& map)
+{
+  auto traffic_rules = lanelet::traffic_rules::TrafficRulesFactory::create(
+      lanelet::traffic_rules::CarmaUSTrafficRules::Location, lanelet::Participants::VehicleCar);
+  return lanelet::routing::RoutingGraph::build(*map, *traffic_rules);
+}
+}  // namespace
+
+TEST(ActiveGeofenceTracker, locate)
+{
+  // 3 lanes of 10 lanelets of 100 m running north from the origin. Lane 0 is the leftmost lane from x = 0 to 3.7
+  auto synthetic = carma_wm::test::buildSyntheticHighwayMap(1000, 3, 100);
+  const auto& lanes = synthetic.lanes;
+
+  ActiveGeofenceTracker tracker;
+  EXPECT_FALSE(tracker.locate({ 1.85, 50 }));
+
+  tracker.setMap(synthetic.map, buildRoutingGraph(synthetic.map));
+
+  // The first position is found by searching the map
+  auto llt = tracker.locate({ 1.85, 50 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[0][0], llt->id());
+  EXPECT_EQ(1u, tracker.getStats().full_searches);
+
+  // Positions in the same lanelet use the hint
+  llt = tracker.locate({ 2.5, 90 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[0][0], llt->id());
+  EXPECT_EQ(1u, tracker.getStats().hint_hits);
+
+  // Driving into the next lanelet and changing lanes only check the neighbours of the hint
+  llt = tracker.locate({ 1.85, 110 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[0][1], llt->id());
+
+  llt = tracker.locate({ 5.55, 120 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[1][1], llt->id());
+
+  auto stats = tracker.getStats();
+  EXPECT_EQ(2u, stats.neighbour_hits);
+  EXPECT_EQ(1u, stats.full_searches);
+
+  // Jumping away falls back to searching the map
+  llt = tracker.locate({ 9.25, 750 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[2][7], llt->id());
+  EXPECT_EQ(2u, tracker.getStats().full_searches);
+
+  // Positions off the road are in no lanelet and keep the hint
+  EXPECT_FALSE(tracker.locate({ 50, 750 }));
+  llt = tracker.locate({ 9.25, 760 });
+  ASSERT_TRUE(llt);
+  EXPECT_EQ(lanes[2][7], llt->id());
+  EXPECT_EQ(2u, tracker.getStats().hint_hits);
+}
+
+TEST(ActiveGeofenceTracker, matchesFullSearch)
+{
+  auto synthetic = carma_wm::test::buildSyntheticHighwayMap(1000, 3, 100);
+
+  ActiveGeofenceTracker tracker;
+  tracker.setMap(synthetic.map, buildRoutingGraph(synthetic.map));
+
+  // Weave between the lanes while driving the length of the road. Positions are never on a lanelet edge
+  for (double y = 0.5; y < 1000; y += 3)
+  {
+    lanelet::BasicPoint2d point(5.55 + 4.5 * std::sin(y / 40), y);
+
+    auto nearest = lanelet::geometry::findNearest(synthetic.map->laneletLayer, point, 1)[0].second;
+    auto llt = tracker.locate(point);
+
+    ASSERT_TRUE(llt) << "y: " << y;
+    EXPECT_EQ(nearest.id(), llt->id()) << "y: " << y;
+  }
+
+  auto stats = tracker.getStats();
+  EXPECT_EQ(1u, stats.full_searches);
+  EXPECT_LT(0u, stats.neighbour_hits);
+}
+
+TEST(ActiveGeofenceTracker, activeLanelets)
+{
+  auto synthetic = carma_wm::test::buildSyntheticHighwayMap(1000, 3, 100);
+  const auto& lane = synthetic.lanes[1];
+
+  ActiveGeofenceTracker tracker;
+  tracker.setMap(synthetic.map, buildRoutingGraph(synthetic.map));
+
+  lanelet::ConstLanelets route;
+  for (auto id : lane)
+  {
+    route.push_back(synthetic.map->laneletLayer.get(id));
+  }
+  tracker.setRoute(route);
+  EXPECT_TRUE(tracker.activeLaneletsOnRoute().empty());
+
+  tracker.addActiveLanelet(lane[6]);
+  tracker.addActiveLanelet(lane[2]);
+  tracker.addActiveLanelet(lane[2]);
+  tracker.addActiveLanelet(synthetic.lanes[0][4]);  // Not on the route
+
+  EXPECT_EQ(3u, tracker.activeCount());
+  EXPECT_TRUE(tracker.isActive(lane[2]));
+  EXPECT_FALSE(tracker.isActive(lane[3]));
+
+  // Active lanelets on the route are in route order
+  auto on_route = tracker.activeLaneletsOnRoute();
+  ASSERT_EQ(2u, on_route.size());
+  EXPECT_EQ(lane[2], on_route[0].id());
+  EXPECT_EQ(lane[6], on_route[1].id());
+
+  tracker.removeActiveLanelet(lane[2]);
+  EXPECT_FALSE(tracker.isActive(lane[2]));
+  ASSERT_EQ(1u, tracker.activeLaneletsOnRoute().size());
+  EXPECT_EQ(lane[6], tracker.activeLaneletsOnRoute()[0].id());
+
+  tracker.setRoute({});
+  EXPECT_TRUE(tracker.activeLaneletsOnRoute().empty());
+
+  // A new map clears the active lanelets
+  tracker.setMap(synthetic.map, buildRoutingGraph(synthetic.map));
+  EXPECT_EQ(0u, tracker.activeCount());
+}
+
+}  // namespace carma_wm_ctrl
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <carma_wm_ctrl/GeofenceJournal.hpp>
+#include <lanelet2_core/utility/Utilities.h>
+#include <filesystem>
+#include <unistd.h>
+
+namespace carma_wm_ctrl
+{
+namespace
+{
+std::string makeJournalPath(const std::string& name)
+{
+  auto dir = std::filesystem::temp_directory_path() / (name + "_" + std::to_string(::getpid()));
+  std::filesystem::remove_all(dir);
+  return (dir / "geofences.journal").string();
+}
+
+carma_v2x_msgs::msg::TrafficControlMessageV01 makeGeofenceMsg(uint8_t id, const std::string& label)
+{
+  carma_v2x_msgs::msg::TrafficControlMessageV01 msg;
+  msg.id.id[0] = id;
+  msg.params.detail.choice = carma_v2x_msgs::msg::TrafficControlDetail::MAXSPEED_CHOICE;
+  msg.params.detail.maxspeed = 10;
+  msg.package.label = label;
+  msg.package.label_exists = true;
+  return msg;
+}
+
+rclcpp::Time seconds(int64_t s)
+{
+  return rclcpp::Time(s * 1000000000LL);
+}
+}  // namespace
+
+TEST(GeofenceJournal, restoresAppendedRecords)
+{
+  auto path = makeJournalPath("restoresAppendedRecords");
+
+  lanelet::Points3d gf_pts = { lanelet::Point3d(lanelet::utils::getId(), 1, 2, 0),
+                               lanelet::Point3d(lanelet::utils::getId(), 3, 4, 0) };
+  uint64_t key = GeofenceJournal::computeAffectedPartsKey(7, gf_pts);
+
+  {
+    GeofenceJournal journal(path);
+    EXPECT_TRUE(journal.load(seconds(0)).empty());
+
+    EXPECT_TRUE(journal.appendGeofence(makeGeofenceMsg(1, "first"), seconds(100)));
+    EXPECT_TRUE(journal.appendGeofence(makeGeofenceMsg(2, "second"), rclcpp::Time::max()));
+    EXPECT_FALSE(journal.appendGeofence(makeGeofenceMsg(1, "first"), seconds(100)));  // Already journaled
+    journal.appendAffectedParts(7, key, { { 10, true }, { 11, false } });
+
+    // Records are only written when flushed
+    auto size = std::filesystem::file_size(path);
+    EXPECT_EQ(0u, journal.getStats().appends);
+    EXPECT_TRUE(journal.getAffectedParts(key));
+
+    EXPECT_TRUE(journal.flush());
+    EXPECT_LT(size, std::filesystem::file_size(path));
+    EXPECT_EQ(3u, journal.getStats().appends);
+    EXPECT_TRUE(journal.flush());  // Nothing queued
+  }
+
+  GeofenceJournal journal(path);
+  auto msgs = journal.load(seconds(50));
+
+  ASSERT_EQ(2u, msgs.size());
+  EXPECT_EQ(1, msgs[0].id.id[0]);
+  EXPECT_EQ("first", msgs[0].package.label);
+  EXPECT_EQ(10, msgs[0].params.detail.maxspeed);
+  EXPECT_EQ(2, msgs[1].id.id[0]);
+  EXPECT_EQ("second", msgs[1].package.label);
+
+  auto parts = journal.getAffectedParts(key);
+  ASSERT_TRUE(parts);
+  ASSERT_EQ(2u, parts->size());
+  EXPECT_EQ(10, (*parts)[0].first);
+  EXPECT_TRUE((*parts)[0].second);
+  EXPECT_EQ(11, (*parts)[1].first);
+  EXPECT_FALSE((*parts)[1].second);
+
+  // Moving a point changes the key
+  gf_pts[1].x() = 3.5;
+  EXPECT_FALSE(journal.getAffectedParts(GeofenceJournal::computeAffectedPartsKey(7, gf_pts)));
+  EXPECT_FALSE(journal.getAffectedParts(GeofenceJournal::computeAffectedPartsKey(8, gf_pts)));
+
+  std::filesystem::remove_all(std::filesystem::path(path).parent_path());
+}
+
+TEST(GeofenceJournal, dropsTornTail)
+{
+  auto path = makeJournalPath("dropsTornTail");
+
+  {
+    GeofenceJournal journal(path);
+    journal.load(seconds(0));
+    journal.appendGeofence(makeGeofenceMsg(1, "first"), rclcpp::Time::max());
+    journal.appendGeofence(makeGeofenceMsg(2, "second"), rclcpp::Time::max());
+  }
+
+  // Simulate a crash while the second record was being written
+  auto size = std::filesystem::file_size(path);
+  std::filesystem::resize_file(path, size - 3);
+
+  {
+    GeofenceJournal journal(path);
+    auto msgs = journal.load(seconds(0));
+
+    ASSERT_EQ(1u, msgs.size());
+    EXPECT_EQ(1, msgs[0].id.id[0]);
+    EXPECT_LT(0u, journal.getStats().discarded_bytes);
+
+    // Appending after the load continues from the last complete record
+    EXPECT_TRUE(journal.appendGeofence(makeGeofenceMsg(3, "third"), rclcpp::Time::max()));
+  }
+
+  GeofenceJournal journal(path);
+  auto msgs = journal.load(seconds(0));
+
+  ASSERT_EQ(2u, msgs.size());
+  EXPECT_EQ(1, msgs[0].id.id[0]);
+  EXPECT_EQ(3, msgs[1].id.id[0]);
+  EXPECT_EQ(0u, journal.getStats().discarded_bytes);
+
+  // A file which is not a journal is ignored and replaced
+  {
+    std::ofstream out(path, std::ios::binary | std::ios::trunc);
+    out << "not a geofence journal";
+  }
+
+  EXPECT_TRUE(GeofenceJournal(path).load(seconds(0)).empty());
+
+  std::filesystem::remove_all(std::filesystem::path(path).parent_path());
+}
+
+TEST(GeofenceJournal, truncatesPartialRecordBeforeAppending)
+{
+  auto path = makeJournalPath("truncatesPartialRecordBeforeAppending");
+
+  {
+    GeofenceJournal journal(path);
+    journal.load(seconds(0));
+    journal.appendGeofence(makeGeofenceMsg(1, "first"), rclcpp::Time::max());
+    journal.appendGeofence(makeGeofenceMsg(2, "second"), rclcpp::Time::max());
+  }
+
+  auto size = std::filesystem::file_size(path);
+  std::filesystem::resize_file(path, size - 3);
+
+  // A directory in place of the temporary file makes the compaction when loading fail so the journal is appended to
+  // in place
+  auto tmp_path = path + ".tmp" + std::to_string(::getpid());
+  std::filesystem::create_directory(tmp_path);
+
+  {
+    GeofenceJournal journal(path);
+    ASSERT_EQ(1u, journal.load(seconds(0)).size());
+    EXPECT_EQ(0u, journal.getStats().compactions);
+
+    // The partial record is truncated before the new record is appended after it
+    EXPECT_TRUE(journal.appendGeofence(makeGeofenceMsg(3, "third"), rclcpp::Time::max()));
+  }
+
+  std::filesystem::remove(tmp_path);
+
+  GeofenceJournal journal(path);
+  auto msgs = journal.load(seconds(0));
+
+  ASSERT_EQ(2u, msgs.size());
+  EXPECT_EQ(1, msgs[0].id.id[0]);
+  EXPECT_EQ(3, msgs[1].id.id[0]);
+  EXPECT_EQ(0u, journal.getStats().discarded_bytes);
+
+  std::filesystem::remove_all(std::filesystem::path(path).parent_path());
+}
+
+TEST(GeofenceJournal, compaction)
+{
+  auto path = makeJournalPath("compaction");
+
+  GeofenceJournal journal(path, 4);
+  journal.load(seconds(0));
+
+  journal.appendGeofence(makeGeofenceMsg(1, "expires"), seconds(10));
+  journal.appendGeofence(makeGeofenceMsg(2, "remains"), seconds(100));
+  journal.appendAffectedParts(1, 11, { { 10, true } });
+  journal.flush();
+  EXPECT_FALSE(journal.needsCompaction());
+  journal.appendAffectedParts(2, 22, { { 20, true } });
+  journal.flush();
+  EXPECT_TRUE(journal.needsCompaction());
+
+  auto size = std::filesystem::file_size(path);
+
+  // Expired geofences and matches made on other maps are dropped
+  journal.setMapKey(2);
+  EXPECT_TRUE(journal.compact(seconds(50)));
+  EXPECT_FALSE(journal.needsCompaction());
+  EXPECT_GT(size, std::filesystem::file_size(path));
+
+  auto stats = journal.getStats();
+  EXPECT_EQ(1u, stats.geofences);
+  EXPECT_EQ(1u, stats.affected_parts);
+  EXPECT_EQ(2u, stats.compactions);  // Including the compaction when loading
+
+  GeofenceJournal reloaded(path);
+  auto msgs = reloaded.load(seconds(50));
+
+  ASSERT_EQ(1u, msgs.size());
+  EXPECT_EQ("remains", msgs[0].package.label);
+  EXPECT_FALSE(reloaded.getAffectedParts(11));
+  EXPECT_TRUE(reloaded.getAffectedParts(22));
+
+  // Geofences which expired while the journal was not loaded are dropped when it is loaded
+  EXPECT_TRUE(GeofenceJournal(path).load(seconds(200)).empty());
+
+  EXPECT_THROW(GeofenceJournal(""), std::invalid_argument);
+  EXPECT_THROW(GeofenceJournal(path, 0), std::invalid_argument);
+
+  std::filesystem::remove_all(std::filesystem::path(path).parent_path());
+}
+
+TEST(GeofenceJournal, compactionWritesQueuedRecords)
+{
+  auto path = makeJournalPath("compactionWritesQueuedRecords");
+
+  {
+    GeofenceJournal journal(path);
+    journal.load(seconds(0));
+
+    journal.appendGeofence(makeGeofenceMsg(1, "queued"), rclcpp::Time::max());
+    EXPECT_TRUE(journal.compact(seconds(0)));
+
+    // The record is part of the compacted file so it is not appended again
+    EXPECT_TRUE(journal.flush());
+    EXPECT_EQ(0u, journal.getStats().appends);
+  }
+
+  GeofenceJournal journal(path);
+  auto msgs = journal.load(seconds(0));
+
+  ASSERT_EQ(1u, msgs.size());
+  EXPECT_EQ("queued", msgs[0].package.label);
+
+  std::filesystem::remove_all(std::filesystem::path(path).parent_path());
+}
+
+}  // namespace carma_wm_ctrl
@@ -18,7 +18,9 @@
 #include <carma_wm_ctrl/GeofenceSchedule.hpp>
 #include <carma_wm_ctrl/Geofence.hpp>
 #include <carma_wm_ctrl/GeofenceScheduler.hpp>
+#include <carma_wm_ctrl/TimingWheel.hpp>
 #include <memory>
+#include <algorithm>
 #include <chrono>
 #include <ctime>
 #include <atomic>
@@ -164,4 +166,141 @@ TEST(GeofenceScheduler, addGeofence)
 
 }
 
+TEST(GeofenceScheduler, timingWheel)
+{
+  TimingWheel<int> wheel(10);
+
+  // Expiries within each level, beyond the top level and already reached
+  std::vector<uint64_t> expiries = { 11, 74, 75, 5000, 300000, 20000000, 10, 74 };
+  for (size_t i = 0; i < expiries.size(); i++)
+  {
+    wheel.insert(expiries[i], i);
+  }
+  ASSERT_EQ(expiries.size(), wheel.size());
+
+  auto due = wheel.advance(10);
+  ASSERT_EQ(1u, due.size());
+  EXPECT_EQ(10u, due[0].first);
+  EXPECT_EQ(6, due[0].second);
+
+  EXPECT_TRUE(wheel.advance(10).empty());
+  EXPECT_TRUE(wheel.advance(5).empty());  // Going back in time has no effect
+
+  // Values with the same expiry are returned in insertion order
+  due = wheel.advance(74);
+  ASSERT_EQ(3u, due.size());
+  EXPECT_EQ(11u, due[0].first);
+  EXPECT_EQ(1, due[1].second);
+  EXPECT_EQ(7, due[2].second);
+
+  due = wheel.advance(4999);
+  ASSERT_EQ(1u, due.size());
+  EXPECT_EQ(75u, due[0].first);
+
+  // Reached through the cascade of the third level
+  due = wheel.advance(5000);
+  ASSERT_EQ(1u, due.size());
+  EXPECT_EQ(5000u, due[0].first);
+
+  // Long gaps are jumped over rather than stepped through
+  EXPECT_TRUE(wheel.advance(299999).empty());
+  due = wheel.advance(300001);
+  ASSERT_EQ(1u, due.size());
+  EXPECT_EQ(300000u, due[0].first);
+
+  // Values beyond the range of the wheel are kept until reached
+  EXPECT_EQ(1u, wheel.size());
+  EXPECT_TRUE(wheel.advance(19999999).empty());
+  due = wheel.advance(20000000);
+  ASSERT_EQ(1u, due.size());
+  EXPECT_EQ(5, due[0].second);
+  EXPECT_EQ(0u, wheel.size());
+  EXPECT_EQ(20000000u, wheel.currentTick());
+}
+
+TEST(GeofenceScheduler, timingWheelMatchesSortedOrder)
+{
+  TimingWheel<uint64_t> wheel(0);
+
+  // Pseudo random expiries which are stepped through in short increments so every cascade is exercised
+  std::vector<uint64_t> expiries;
+  uint64_t value = 12345;
+  for (size_t i = 0; i < 2000; i++)
+  {
+    value = (value * 6364136223846793005ULL + 1442695040888963407ULL);
+    expiries.push_back((value >> 33) % 20000);
+    wheel.insert(expiries.back(), expiries.back());
+  }
+  std::sort(expiries.begin(), expiries.end());
+
+  std::vector<uint64_t> returned;
+  for (uint64_t tick = 0; tick <= 20000; tick += 7)
+  {
+    for (const auto& entry : wheel.advance(tick))
+    {
+      EXPECT_EQ(entry.first, entry.second);
+      EXPECT_LE(entry.first, tick);
+      EXPECT_GT(entry.first + 7, tick);
+      returned.push_back(entry.second);
+    }
+  }
+
+  EXPECT_EQ(expiries, returned);
+  EXPECT_EQ(0u, wheel.size());
+}
+
+TEST(GeofenceScheduler, batchedGeofences)
+{
+  auto timer = std::make_shared<carma_ros2_utils::timers::testing::TestTimerFactory>();
+  timer->setNow(rclcpp::Time(0));
+
+  GeofenceScheduler scheduler(timer);
+
+  std::atomic<uint32_t> active_call_count(0);
+  std::atomic<uint32_t> inactive_call_count(0);
+  scheduler.onGeofenceActive([&](std::shared_ptr<Geofence>) { active_call_count.store(active_call_count.load() + 1); });
+  scheduler.onGeofenceInactive([&](std::shared_ptr<Geofence>) { inactive_call_count.store(inactive_call_count.load() + 1); });
+
+  // Many geofences starting between 1 and 2 seconds and active for 1 second
+  const uint32_t num_geofences = 500;
+  for (uint32_t i = 0; i < num_geofences; i++)
+  {
+    auto gf_ptr = std::make_shared<Geofence>();
+    gf_ptr->id_ = boost::uuids::random_generator()();
+    gf_ptr->schedules.push_back(GeofenceSchedule(rclcpp::Time(0), rclcpp::Time(10e9),
+                                                 rclcpp::Duration(1e9 + i * 1e6), rclcpp::Duration(2e9 + i * 1e6),
+                                                 rclcpp::Duration(0), rclcpp::Duration(1e9), rclcpp::Duration(10e9)));
+    scheduler.addGeofence(gf_ptr);
+  }
+
+  auto stats = scheduler.getStats();
+  EXPECT_EQ(num_geofences, stats.queue_depth);
+  EXPECT_EQ(0u, stats.activations);
+
+  // Every geofence becomes active in one batch and its deactivation is queued
+  timer->setNow(rclcpp::Time(2.5e9));
+  ASSERT_TRUE(carma_ros2_utils::testing::waitForEqOrTimeout(10.0, num_geofences, active_call_count));
+
+  stats = scheduler.getStats();
+  EXPECT_EQ(num_geofences, stats.activations);
+  EXPECT_EQ(num_geofences, stats.queue_depth);
+  EXPECT_EQ(num_geofences, stats.last_batch_size);
+  EXPECT_NEAR(1.5, stats.last_tick_lag, 0.01);  // The first geofence was due at 1 second
+  EXPECT_EQ(0u, inactive_call_count.load());
+
+  timer->setNow(rclcpp::Time(4.0e9));
+  ASSERT_TRUE(carma_ros2_utils::testing::waitForEqOrTimeout(10.0, num_geofences, inactive_call_count));
+
+  stats = scheduler.getStats();
+  EXPECT_EQ(num_geofences, stats.deactivations);
+  EXPECT_EQ(0u, stats.queue_depth);
+  EXPECT_NEAR(1.5, stats.max_tick_lag, 0.01);
+}
+
+TEST(GeofenceScheduler, invalidTickPeriod)
+{
+  auto timer = std::make_shared<carma_ros2_utils::timers::testing::TestTimerFactory>();
+  ASSERT_THROW(GeofenceScheduler(timer, 0), std::invalid_argument);
+}
+
 }  // namespace carma_wm_ctrl
\ No newline at end of file
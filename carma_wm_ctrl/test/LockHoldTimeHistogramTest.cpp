@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <carma_wm_ctrl/LockHoldTimeHistogram.hpp>
+#include <mutex>
+#include <shared_mutex>
+#include <thread>
+
+namespace carma_wm_ctrl
+{
+TEST(LockHoldTimeHistogram, buckets)
+{
+  using namespace std::chrono;
+
+  LockHoldTimeHistogram histogram;
+  EXPECT_EQ(0u, histogram.count());
+  EXPECT_EQ(microseconds(0), histogram.percentile(0.5));
+
+  histogram.record(nanoseconds(500));   // < 1us
+  histogram.record(microseconds(1));    // [1, 2)us
+  histogram.record(microseconds(3));    // [2, 4)us
+  histogram.record(microseconds(3));
+  histogram.record(milliseconds(100));  // [65536, 131072)us
+  histogram.record(seconds(60));        // Last bucket
+
+  auto counts = histogram.getCounts();
+  EXPECT_EQ(1u, counts[0]);
+  EXPECT_EQ(1u, counts[1]);
+  EXPECT_EQ(2u, counts[2]);
+  EXPECT_EQ(1u, counts[17]);
+  EXPECT_EQ(1u, counts[LockHoldTimeHistogram::NUM_BUCKETS - 1]);
+
+  EXPECT_EQ(6u, histogram.count());
+  EXPECT_EQ(nanoseconds(seconds(60)), histogram.max());
+
+  EXPECT_EQ(microseconds(1), LockHoldTimeHistogram::bucketUpperBound(0));
+  EXPECT_EQ(microseconds(4), LockHoldTimeHistogram::bucketUpperBound(2));
+  EXPECT_EQ(microseconds::max(), LockHoldTimeHistogram::bucketUpperBound(LockHoldTimeHistogram::NUM_BUCKETS - 1));
+
+  EXPECT_EQ(microseconds(4), histogram.percentile(0.5));
+  EXPECT_EQ(microseconds(131072), histogram.percentile(0.8));
+  EXPECT_EQ(microseconds::max(), histogram.percentile(1.0));
+
+  EXPECT_NE(std::string::npos, histogram.toString().find("count: 6"));
+}
+
+TEST(LockHoldTimeHistogram, timedLock)
+{
+  std::shared_mutex mutex;
+  LockHoldTimeHistogram exclusive_times;
+  LockHoldTimeHistogram shared_times;
+
+  {
+    TimedLock<std::unique_lock<std::shared_mutex>> lock(mutex, exclusive_times);
+    std::this_thread::sleep_for(std::chrono::milliseconds(2));
+  }
+
+  EXPECT_EQ(1u, exclusive_times.count());
+  EXPECT_LE(std::chrono::nanoseconds(std::chrono::milliseconds(2)), exclusive_times.max());
+
+  {
+    // Shared locks can be held together
+    TimedLock<std::shared_lock<std::shared_mutex>> first(mutex, shared_times);
+    TimedLock<std::shared_lock<std::shared_mutex>> second(mutex, shared_times);
+
+    first.unlock();
+    EXPECT_EQ(1u, shared_times.count());
+  }
+
+  // The unlocked lock is not recorded twice
+  EXPECT_EQ(2u, shared_times.count());
+  EXPECT_EQ(1u, exclusive_times.count());
+}
+
+}  // namespace carma_wm_ctrl
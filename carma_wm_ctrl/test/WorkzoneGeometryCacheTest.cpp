@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2022 LEIDOS.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <gtest/gtest.h>
+#include <carma_wm_ctrl/WorkzoneGeometryCache.hpp>
+#include <carma_wm_ctrl/WMBroadcaster.hpp>
+#include <lanelet2_core/utility/Utilities.h>
+
+namespace carma_wm_ctrl
+{
+namespace
+{
+std::unordered_map<uint8_t, std::shared_ptr<Geofence>> makeWorkzone(uint8_t id)
+{
+  std::unordered_map<uint8_t, std::shared_ptr<Geofence>> work_zone_geofence_cache;
+
+  for (uint8_t section : { WorkZoneSection::CLOSED, WorkZoneSection::TAPERRIGHT, WorkZoneSection::OPENRIGHT,
+                           WorkZoneSection::REVERSE })
+  {
+    auto gf_ptr = std::make_shared<Geofence>();
+    gf_ptr->msg_.id.id[0] = id;
+    gf_ptr->msg_.msgnum = id;
+    gf_ptr->msg_.package.label = "SIG_WZ";
+    gf_ptr->msg_.package.label_exists = true;
+    gf_ptr->msg_.geometry.nodes.resize(2);
+    gf_ptr->msg_.geometry.nodes[1].x = 10 * section;
+    work_zone_geofence_cache[section] = gf_ptr;
+  }
+
+  return work_zone_geofence_cache;
+}
+}  // namespace
+
+TEST(WorkzoneGeometryCache, computeKey)
+{
+  auto first = makeWorkzone(1);
+  auto rebroadcast = makeWorkzone(2);
+
+  uint64_t key = WorkzoneGeometryCache::computeKey(first, 1);
+
+  // A re-broadcast of the same work zone only differs in its ids
+  EXPECT_EQ(key, WorkzoneGeometryCache::computeKey(rebroadcast, 1));
+
+  // Other maps or geometry give other keys
+  EXPECT_NE(key, WorkzoneGeometryCache::computeKey(first, 2));
+
+  // A work zone matched to lanelets which were split since it was cached gives another key
+  auto resplit = makeWorkzone(1);
+  resplit[WorkZoneSection::CLOSED]->affected_parts_.push_back(lanelet::Lanelet(lanelet::utils::getId()));
+  EXPECT_NE(key, WorkzoneGeometryCache::computeKey(resplit, 1));
+
+  rebroadcast[WorkZoneSection::OPENRIGHT]->msg_.geometry.nodes[1].y = 1;
+  EXPECT_NE(key, WorkzoneGeometryCache::computeKey(rebroadcast, 1));
+}
+
+TEST(WorkzoneGeometryCache, getAndEvict)
+{
+  WorkzoneGeometryCache cache(2);
+  EXPECT_EQ(nullptr, cache.get(1));
+
+  Geofence gf;
+  gf.lanelet_additions_.push_back(lanelet::Lanelet(lanelet::utils::getId()));
+  cache.insert(1, gf);
+
+  auto copy = cache.get(1);
+  ASSERT_NE(nullptr, copy);
+  ASSERT_EQ(1u, copy->lanelet_additions_.size());
+  EXPECT_EQ(gf.lanelet_additions_[0].id(), copy->lanelet_additions_[0].id());
+
+  // Changing a returned geofence does not change the cached one
+  copy->update_list_.emplace_back(copy->lanelet_additions_[0].id(), gf.regulatory_element_);
+  EXPECT_TRUE(cache.get(1)->update_list_.empty());
+
+  // The least recently used entry is evicted
+  cache.insert(2, gf);
+  cache.get(1);
+  cache.insert(3, gf);
+
+  EXPECT_EQ(2u, cache.size());
+  EXPECT_NE(nullptr, cache.get(1));
+  EXPECT_EQ(nullptr, cache.get(2));
+  EXPECT_NE(nullptr, cache.get(3));
+
+  auto stats = cache.getStats();
+  EXPECT_EQ(5u, stats.hits);
+  EXPECT_EQ(2u, stats.misses);
+  EXPECT_EQ(1u, stats.evictions);
+
+  cache.clear();
+  EXPECT_EQ(0u, cache.size());
+  EXPECT_EQ(nullptr, cache.get(1));
+
+  WorkzoneGeometryCache disabled(0);
+  disabled.insert(1, gf);
+  EXPECT_EQ(nullptr, disabled.get(1));
+}
+
+}  // namespace carma_wm_ctrl